@@ -0,0 +1,91 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package benchmark;
+
+import model.config.ConfigConstant;
+import model.config.EncryptionConfig;
+import model.config.EncryptionMode;
+import model.encrypt.AesCipher;
+import model.encrypt.BaseCipher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比较 JDK 与 BouncyCastle 的 AES 实现加解密一帧的吞吐
+ * 每帧 1MB 明文，得分 ops/s 即为 MB/s
+ * 导出对应 encryptFrame，导入对应 decryptFrame
+ * mvn -Pjmh test-compile exec:exec -Djmh.include=CipherBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class CipherBenchmark {
+
+    @Param({"SunJCE", "BC"})
+    public String provider;
+
+    private BaseCipher encryptCipher;
+    private BaseCipher decryptCipher;
+    private byte[] iv;
+    private byte[] plain;
+    private byte[] crypto;
+    private int cryptoLength;
+    private byte[] output;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EncryptionConfig config = new EncryptionConfig(EncryptionMode.AES_CBC, "benchmark-key");
+        encryptCipher = new AesCipher(config, true, provider);
+        decryptCipher = new AesCipher(config, false, provider);
+        iv = new byte[encryptCipher.getFrameIvLength()];
+        ThreadLocalRandom.current().nextBytes(iv);
+        plain = new byte[ConfigConstant.DEFAULT_CIPHER_FRAME_SIZE];
+        Arrays.fill(plain, (byte) 'x');
+        crypto = new byte[encryptCipher.getFrameOutputSize(plain.length)];
+        cryptoLength = encryptCipher.encryptFrame(iv, plain, 0, plain.length, crypto, 0);
+        output = new byte[crypto.length];
+    }
+
+    @Benchmark
+    public int exportFrame() throws Exception {
+        return encryptCipher.encryptFrame(iv, plain, 0, plain.length, output, 0);
+    }
+
+    @Benchmark
+    public int importFrame() throws Exception {
+        return decryptCipher.decryptFrame(iv, crypto, 0, cryptoLength, output, 0);
+    }
+}
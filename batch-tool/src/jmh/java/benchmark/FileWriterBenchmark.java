@@ -0,0 +1,106 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package benchmark;
+
+import model.config.ConfigConstant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import worker.common.writer.AsyncFileWriter;
+import worker.common.writer.IFileWriter;
+import worker.common.writer.MappedFileWriter;
+import worker.common.writer.NioFileWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比较不同 IFileWriter 写入一个文件的耗时
+ * 批大小对应导出时一次提交的缓冲区大小
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class FileWriterBenchmark {
+
+    private static final long FILE_SIZE = 256L * 1024 * 1024;
+
+    @Param({"nio", "mmap", "async-nio"})
+    public String writerType;
+
+    @Param({"8192", "262144"})
+    public int batchSize;
+
+    private byte[] batch;
+    private File dir;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        batch = new byte[batchSize];
+        Arrays.fill(batch, (byte) 'x');
+        dir = Files.createTempDirectory("writer-bench").toFile();
+        file = new File(dir, "data.txt");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+        dir.delete();
+    }
+
+    @Benchmark
+    public long writeFile() {
+        try (IFileWriter writer = newWriter()) {
+            writer.nextFile(file.getPath());
+            for (long written = 0; written < FILE_SIZE; written += batch.length) {
+                writer.write(batch);
+            }
+        }
+        return file.length();
+    }
+
+    private IFileWriter newWriter() {
+        switch (writerType) {
+        case "mmap":
+            return new MappedFileWriter(64L * 1024 * 1024);
+        case "async-nio":
+            return new AsyncFileWriter(new NioFileWriter(file.getPath()),
+                ConfigConstant.DEFAULT_ASYNC_WRITE_BUFFER_COUNT, ConfigConstant.DEFAULT_ASYNC_WRITE_BUFFER_SIZE);
+        case "nio":
+        default:
+            return new NioFileWriter(file.getPath());
+        }
+    }
+}
@@ -24,6 +24,7 @@ import datasource.DatasourceConstant;
 import model.ConsumerExecutionContext;
 import model.ProducerExecutionContext;
 import model.config.BenchmarkMode;
+import model.config.BinaryEncodeMode;
 import model.config.CompressMode;
 import model.config.ConfigConstant;
 import model.config.DdlMode;
@@ -65,10 +66,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import static cmd.ConfigArgOption.ARG_BINARY_ENCODE;
+import static cmd.ConfigArgOption.ARG_COLUMN_EXPRESSION;
 import static cmd.ConfigArgOption.ARG_DDL_PARALLELISM;
 import static cmd.ConfigArgOption.ARG_DDL_RETRY_COUNT;
+import static cmd.ConfigArgOption.ARG_DELETE_CHUNK;
+import static cmd.ConfigArgOption.ARG_DELETE_CHUNK_LATENCY;
 import static cmd.ConfigArgOption.ARG_LOG_INTERVAL;
+import static cmd.ConfigArgOption.ARG_MMAP_WINDOW;
+import static cmd.ConfigArgOption.ARG_NODE_PARALLELISM;
 import static cmd.ConfigArgOption.ARG_NULL_STR;
+import static cmd.ConfigArgOption.ARG_PAGE_SIZE;
+import static cmd.ConfigArgOption.ARG_PREFETCH_NUM;
 import static cmd.ConfigArgOption.ARG_SHORT_BATCH_SIZE;
 import static cmd.ConfigArgOption.ARG_SHORT_BATCH_SIZE_IN_BYTES;
 import static cmd.ConfigArgOption.ARG_SHORT_BENCHMARK;
@@ -114,9 +123,16 @@ import static cmd.ConfigArgOption.ARG_SHORT_USERNAME;
 import static cmd.ConfigArgOption.ARG_SHORT_VERSION;
 import static cmd.ConfigArgOption.ARG_SHORT_WHERE;
 import static cmd.ConfigArgOption.ARG_SHORT_WITH_DDL;
+import static cmd.ConfigArgOption.ARG_SORT_MEMORY;
+import static cmd.ConfigArgOption.ARG_SPLIT_NUM;
 import static cmd.ConfigArgOption.ARG_TBL_PART;
+import static cmd.FlagOption.ARG_ASYNC_WRITE;
 import static cmd.FlagOption.ARG_BINARY_AS_HEX;
+import static cmd.FlagOption.ARG_DELETE_CHUNK_ALL;
 import static cmd.FlagOption.ARG_DROP_TABLE_IF_EXISTS;
+import static cmd.FlagOption.ARG_PREPARED_UPDATE;
+import static cmd.FlagOption.ARG_RESUME;
+import static cmd.FlagOption.ARG_SHARD_ROUTE;
 import static cmd.FlagOption.ARG_SHORT_ENABLE_SHARDING;
 import static cmd.FlagOption.ARG_SHORT_IGNORE_AND_RESUME;
 import static cmd.FlagOption.ARG_SHORT_LOAD_BALANCE;
@@ -319,6 +335,7 @@ public class CommandUtil {
         }
         setBinaryAsHex(result);
         setLogInterval(result);
+        setNodeParallelism(result);
     }
 
     private static List<String> getTableNames(ConfigResult result) {
@@ -345,12 +362,15 @@ public class CommandUtil {
         ProducerExecutionContext producerExecutionContext = new ProducerExecutionContext();
         ConsumerExecutionContext consumerExecutionContext = new ConsumerExecutionContext();
         configureCommonContext(result, producerExecutionContext, consumerExecutionContext);
+        consumerExecutionContext.setColumnMaskerConfigMap(parseColumnMaskerMap(result));
 
         return new ImportCommand(getDbName(result), producerExecutionContext, consumerExecutionContext);
     }
 
     private static BaseOperateCommand parseDeleteCommand(ConfigResult result) {
-        requireOnlyOneArg(result, ARG_SHORT_FROM_FILE, ARG_SHORT_DIRECTORY, ARG_SHORT_BENCHMARK);
+        if (!result.hasOption(ARG_DELETE_CHUNK)) {
+            requireOnlyOneArg(result, ARG_SHORT_FROM_FILE, ARG_SHORT_DIRECTORY, ARG_SHORT_BENCHMARK);
+        }
 
         ProducerExecutionContext producerExecutionContext = new ProducerExecutionContext();
         ConsumerExecutionContext consumerExecutionContext = new ConsumerExecutionContext();
@@ -361,9 +381,42 @@ public class CommandUtil {
         }
 
         consumerExecutionContext.setWhereCondition(getWhereCondition(result));
+        consumerExecutionContext.setShardRouteEnabled(result.getBooleanFlag(ARG_SHARD_ROUTE));
+        setDeleteChunk(result, consumerExecutionContext);
         return new DeleteCommand(getDbName(result), producerExecutionContext, consumerExecutionContext);
     }
 
+    /**
+     * 按主键范围分段删除，不读取数据文件
+     */
+    private static void setDeleteChunk(ConfigResult result, ConsumerExecutionContext consumerExecutionContext) {
+        if (!result.hasOption(ARG_DELETE_CHUNK)) {
+            return;
+        }
+        int chunkSize = Integer.parseInt(result.getOptionValue(ARG_DELETE_CHUNK));
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Delete chunk size should be a positive integer");
+        }
+        if (consumerExecutionContext.getTableNames() == null) {
+            throw new IllegalArgumentException("Delete by chunks requires table names");
+        }
+        // 没有 where 条件时会删除整张表，需显式确认
+        if (StringUtils.isBlank(consumerExecutionContext.getWhereCondition())
+            && !result.getBooleanFlag(ARG_DELETE_CHUNK_ALL)) {
+            throw new IllegalArgumentException("Delete by chunks without -where deletes all rows, "
+                + "set -" + ARG_DELETE_CHUNK_ALL.argShort + " to confirm");
+        }
+        consumerExecutionContext.setDeleteChunkSize(chunkSize);
+        if (result.hasOption(ARG_DELETE_CHUNK_LATENCY)) {
+            int latencyMs = Integer.parseInt(result.getOptionValue(ARG_DELETE_CHUNK_LATENCY));
+            if (latencyMs <= 0) {
+                throw new IllegalArgumentException("Delete chunk latency should be a positive integer");
+            }
+            consumerExecutionContext.setDeleteChunkLatencyMs(latencyMs);
+        }
+        consumerExecutionContext.setResume(result.getBooleanFlag(ARG_RESUME));
+    }
+
     private static BaseOperateCommand parseUpdateCommand(ConfigResult result) {
         requireOnlyOneArg(result, ARG_SHORT_FROM_FILE, ARG_SHORT_DIRECTORY, ARG_SHORT_BENCHMARK);
 
@@ -377,6 +430,8 @@ public class CommandUtil {
 
         consumerExecutionContext.setWhereCondition(getWhereCondition(result));
         consumerExecutionContext.setFuncSqlForUpdateEnabled(getFuncEnabled(result));
+        consumerExecutionContext.setPreparedUpdateEnabled(result.getBooleanFlag(ARG_PREPARED_UPDATE));
+        consumerExecutionContext.setShardRouteEnabled(result.getBooleanFlag(ARG_SHARD_ROUTE));
         return new UpdateCommand(getDbName(result), producerExecutionContext, consumerExecutionContext);
     }
     //endregion 批处理命令解析
@@ -442,6 +497,17 @@ public class CommandUtil {
         return ConfigConstant.DEFAULT_READ_BLOCK_SIZE_IN_MB;
     }
 
+    private static int getPrefetchNum(ConfigResult result) {
+        if (result.hasOption(ARG_PREFETCH_NUM)) {
+            int prefetchNum = Integer.parseInt(result.getOptionValue(ARG_PREFETCH_NUM));
+            if (prefetchNum <= 0) {
+                throw new IllegalArgumentException("Prefetch num should be positive");
+            }
+            return prefetchNum;
+        }
+        return ConfigConstant.DEFAULT_PREFETCH_NUM;
+    }
+
     private static boolean getWithLastSep(ConfigResult result) {
         return result.getBooleanFlag(ARG_SHORT_WITH_LAST_SEP);
     }
@@ -490,7 +556,12 @@ public class CommandUtil {
         setFileLine(result, exportConfig);
         setOrderBy(result, exportConfig);
         setColumnMaskerMap(result, exportConfig);
+        setColumnExpressionMap(result, exportConfig);
         setPartitions(result, exportConfig);
+        setSplitNum(result, exportConfig);
+        setPageSize(result, exportConfig);
+        setMmapWindow(result, exportConfig);
+        exportConfig.setAsyncWrite(result.getBooleanFlag(ARG_ASYNC_WRITE));
         exportConfig.validate();
         return new ExportCommand(getDbName(result), tableNames, exportConfig);
     }
@@ -526,6 +597,37 @@ public class CommandUtil {
         throw new IllegalArgumentException("Illegal table part option: " + partOpt);
     }
 
+    private static void setSplitNum(ConfigResult result, ExportConfig exportConfig) {
+        if (result.hasOption(ARG_SPLIT_NUM)) {
+            int splitNum = Integer.parseInt(result.getOptionValue(ARG_SPLIT_NUM));
+            if (splitNum < 0) {
+                throw new IllegalArgumentException("Split num should be a non-negative integer");
+            }
+            exportConfig.setSplitNum(splitNum);
+        }
+    }
+
+    private static void setPageSize(ConfigResult result, ExportConfig exportConfig) {
+        if (result.hasOption(ARG_PAGE_SIZE)) {
+            int pageSize = Integer.parseInt(result.getOptionValue(ARG_PAGE_SIZE));
+            if (pageSize < 0) {
+                throw new IllegalArgumentException("Page size should be a non-negative integer");
+            }
+            exportConfig.setPageSize(pageSize);
+        }
+        exportConfig.setResume(result.getBooleanFlag(ARG_RESUME));
+    }
+
+    private static void setMmapWindow(ConfigResult result, ExportConfig exportConfig) {
+        if (result.hasOption(ARG_MMAP_WINDOW)) {
+            int mmapWindowInMb = Integer.parseInt(result.getOptionValue(ARG_MMAP_WINDOW));
+            if (mmapWindowInMb < 0 || mmapWindowInMb >= 2048) {
+                throw new IllegalArgumentException("Mmap window should be in [0, 2048) MB");
+            }
+            exportConfig.setMmapWindowInMb(mmapWindowInMb);
+        }
+    }
+
     private static void setDir(ConfigResult result, ExportConfig exportConfig) {
         if (result.hasOption(ARG_SHORT_DIRECTORY)) {
             String dirPath = result.getOptionValue(ARG_SHORT_DIRECTORY);
@@ -557,24 +659,59 @@ public class CommandUtil {
                 ConfigConstant.CMD_SEPARATOR));
             exportConfig.setOrderByColumnNameList(columnNameList);
             exportConfig.setParallelMerge(getParaMerge(result));
+            if (result.hasOption(ARG_SORT_MEMORY)) {
+                int sortMemoryInMb = Integer.parseInt(result.getOptionValue(ARG_SORT_MEMORY));
+                if (sortMemoryInMb < 0) {
+                    throw new IllegalArgumentException("Sort memory should be a non-negative integer");
+                }
+                exportConfig.setSortMemoryInMb(sortMemoryInMb);
+            }
         }
     }
 
     private static void setColumnMaskerMap(ConfigResult result, ExportConfig exportConfig) {
         if (result.hasOption(ARG_SHORT_MASK)) {
-            String maskConfigStr = result.getOptionValue(ARG_SHORT_MASK);
-            JSONObject maskConfig;
+            exportConfig.setColumnMaskerConfigMap(parseColumnMaskerMap(result));
+        }
+    }
+
+    private static Map<String, JSONObject> parseColumnMaskerMap(ConfigResult result) {
+        if (!result.hasOption(ARG_SHORT_MASK)) {
+            return null;
+        }
+        String maskConfigStr = result.getOptionValue(ARG_SHORT_MASK);
+        JSONObject maskConfig;
+        try {
+            maskConfig = JSONObject.parseObject(maskConfigStr);
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Illegal json format: " + maskConfigStr);
+        }
+        Map<String, JSONObject> columnMaskerMap = new HashMap<>();
+        for (String column : maskConfig.keySet()) {
+            JSONObject jsonConfig = maskConfig.getJSONObject(column);
+            columnMaskerMap.put(column, jsonConfig);
+        }
+        return columnMaskerMap;
+    }
+
+    private static void setColumnExpressionMap(ConfigResult result, ExportConfig exportConfig) {
+        if (result.hasOption(ARG_COLUMN_EXPRESSION)) {
+            String exprConfigStr = result.getOptionValue(ARG_COLUMN_EXPRESSION);
+            JSONObject exprConfig;
             try {
-                maskConfig = JSONObject.parseObject(maskConfigStr);
+                exprConfig = JSONObject.parseObject(exprConfigStr);
             } catch (JSONException e) {
-                throw new IllegalArgumentException("Illegal json format: " + maskConfigStr);
+                throw new IllegalArgumentException("Illegal json format: " + exprConfigStr);
             }
-            Map<String, JSONObject> columnMaskerMap = new HashMap<>();
-            for (String column : maskConfig.keySet()) {
-                JSONObject jsonConfig = maskConfig.getJSONObject(column);
-                columnMaskerMap.put(column, jsonConfig);
+            Map<String, String> columnExpressionMap = new HashMap<>();
+            for (String column : exprConfig.keySet()) {
+                String expression = exprConfig.getString(column);
+                if (StringUtils.isBlank(expression)) {
+                    throw new IllegalArgumentException("Empty expression of column: " + column);
+                }
+                columnExpressionMap.put(column, expression);
             }
-            exportConfig.setColumnMaskerConfigMap(columnMaskerMap);
+            exportConfig.setColumnExpressionMap(columnExpressionMap);
         }
     }
 
@@ -637,9 +774,23 @@ public class CommandUtil {
         }
     }
 
+    private static void setNodeParallelism(ConfigResult result) {
+        if (result.hasOption(ARG_NODE_PARALLELISM)) {
+            int nodeParallelism = Integer.parseInt(result.getOptionValue(ARG_NODE_PARALLELISM));
+            if (nodeParallelism <= 0) {
+                throw new IllegalArgumentException("Node parallelism should be a positive integer");
+            }
+            GlobalVar.NODE_PARALLELISM = nodeParallelism;
+        }
+    }
+
     private static void setBinaryAsHex(ConfigResult result) {
         if (result.hasOption(ARG_BINARY_AS_HEX)) {
-            GlobalVar.BINARY_AS_HEX = result.getBooleanFlag(ARG_BINARY_AS_HEX);
+            GlobalVar.BINARY_ENCODE_MODE = result.getBooleanFlag(ARG_BINARY_AS_HEX) ?
+                BinaryEncodeMode.HEX : BinaryEncodeMode.NONE;
+        }
+        if (result.hasOption(ARG_BINARY_ENCODE)) {
+            GlobalVar.BINARY_ENCODE_MODE = BinaryEncodeMode.parseMode(result.getOptionValue(ARG_BINARY_ENCODE));
         }
     }
 
@@ -673,6 +824,7 @@ public class CommandUtil {
         producerExecutionContext.setFilenamePrefix(getPrefix(result));
         producerExecutionContext.setParallelism(getProducerParallelism(result));
         producerExecutionContext.setReadBlockSizeInMb(getReadBlockSizeInMb(result));
+        producerExecutionContext.setPrefetchNum(getPrefetchNum(result));
         producerExecutionContext.setWithHeader(getWithHeader(result));
         producerExecutionContext.setWithView(getWithView(result));
         producerExecutionContext.setCompressMode(getCompressMode(result));
@@ -880,7 +1032,7 @@ public class CommandUtil {
             List<String> filePaths = FileUtil.getDataFilesAbsPathInDir(dirPathStr);
             return FileLineRecord.fromFilePaths(filePaths);
         }
-        if (result.hasOption(ARG_SHORT_BENCHMARK)) {
+        if (result.hasOption(ARG_SHORT_BENCHMARK) || result.hasOption(ARG_DELETE_CHUNK)) {
             return null;
         }
         throw new IllegalStateException("cannot get data file path list");
@@ -98,16 +98,16 @@ public class ConfigArgOption {
     public static final ConfigArgOption ARG_SHORT_KEY =
         of("key", "secretKey", "Secret key used during encryption.", "string-type key");
     public static final ConfigArgOption ARG_SHORT_FILE_FORMAT =
-        of("format", "fileFormat", "File format (default NONE).", "NONE | TXT | CSV | XLS | XLSX");
+        of("format", "fileFormat", "File format (default NONE).", "NONE | TXT | CSV | XLS | XLSX | PARQUET");
     public static final ConfigArgOption ARG_SHORT_MAX_ERROR =
         of("maxError", "maxError", "Max error count threshold, program exits when the limit is exceeded.",
             "max error count");
     public static final ConfigArgOption ARG_SHORT_MASK =
-        of("mask", "mask", "Masking sensitive columns while exporting data.", "Json format config");
+        of("mask", "mask", "Masking sensitive columns while exporting or importing data.", "Json format config");
     public static final ConfigArgOption ARG_DDL_RETRY_COUNT =
         of("ddlRetry", "ddlRetry", "Retry times when import ddl throws exception.", "retry times");
     public static final ConfigArgOption ARG_DDL_PARALLELISM =
-        of("ddlParallelism", "ddlParallelism", "Parallelism of ddl statements.", "num of threads");
+        of("ddlParallelism", "ddlParallelism", "Parallelism of ddl statements (import and export).", "num of threads");
     public static final ConfigArgOption ARG_SHORT_BENCHMARK =
         of("benchmark", "benchmark", "Fast loading benchmark data (dafault NONE).", "NONE | TPCH");
     public static final ConfigArgOption ARG_SHORT_SCALE =
@@ -120,6 +120,47 @@ public class ConfigArgOption {
         of("nullStr", "nullStr", "Treat this value as NULL (default \\N).", "string value");
     public static final ConfigArgOption ARG_LOG_INTERVAL =
         of("logInterval", "logInterval", "Realtime statistics log output interval (default 0, no output).", "seconds");
+    public static final ConfigArgOption ARG_SPLIT_NUM =
+        of("split", "splitNum",
+            "Split a non-sharded table into primary key ranges and export them in parallel (default 0, no split).",
+            "count");
+    public static final ConfigArgOption ARG_PAGE_SIZE =
+        of("pageSize", "pageSize",
+            "Export by primary key pages of this size and record checkpoints (default 0, single streaming query).",
+            "size");
+    public static final ConfigArgOption ARG_PREFETCH_NUM =
+        of("prefetch", "prefetchNum",
+            "Max number of remote files downloaded and kept locally when importing (default 4).", "count");
+    public static final ConfigArgOption ARG_NODE_PARALLELISM =
+        of("nodePara", "nodeParallelism",
+            "Max concurrent shard streams on each storage node (default 8).", "count");
+    public static final ConfigArgOption ARG_SORT_MEMORY =
+        of("sortMem", "sortMemory",
+            "Sort rows locally within this memory budget (shared by all concurrently exported tables) "
+                + "and spill sorted runs to temp files, instead of ordering on each shard (default 0, shards sort).",
+            "size(MB)");
+    public static final ConfigArgOption ARG_BINARY_ENCODE =
+        of("binEncode", "binaryEncode",
+            "Encoding of binary values in exported or imported files, overrides -hex (default HEX).",
+            "HEX | BASE64 | NONE");
+    public static final ConfigArgOption ARG_COLUMN_EXPRESSION =
+        of("colExpr", "columnExpression",
+            "Select expressions that replace columns while exporting data, e.g. {\"col\": \"left(col, 8)\"}.",
+            "Json format config");
+    public static final ConfigArgOption ARG_MMAP_WINDOW =
+        of("mmap", "mmapWindow",
+            "Write local uncompressed files through memory-mapped windows of this size (default 0, disabled).",
+            "size(MB)");
+    public static final ConfigArgOption ARG_DELETE_CHUNK =
+        of("chunk", "deleteChunk",
+            "Delete rows matching -where by primary key range chunks of this initial size, "
+                + "without data files; -chunkAll is required without -where (default 0, disabled).",
+            "size");
+    public static final ConfigArgOption ARG_DELETE_CHUNK_LATENCY =
+        of("chunkMs", "deleteChunkLatency",
+            "Target latency of each delete chunk, chunks shrink when slower or on lock waits "
+                + "and grow when faster (default 500).",
+            "ms");
 
     protected final String argShort;
     protected final String argLong;
@@ -50,6 +50,16 @@ public class FlagOption extends ConfigArgOption {
         of("local", "localMerge", "Use local merge sort (default false).", false);
     public static final FlagOption ARG_SHORT_SQL_FUNC =
         of("func", "sqlFunc", "Use sql function to update (default false).", false);
+    public static final FlagOption ARG_PREPARED_UPDATE =
+        of("prepared", "preparedUpdate", "Use prepared statement and jdbc batch to update (default false).", false);
+    public static final FlagOption ARG_SHARD_ROUTE =
+        of("route", "shardRoute",
+            "Group rows by physical shard with the hash partition rule and write each shard directly "
+                + "when updating or deleting; tables whose sampled rows do not match the rule "
+                + "fall back to the normal path (default false).", false);
+    public static final FlagOption ARG_DELETE_CHUNK_ALL =
+        of("chunkAll", "deleteChunkAll",
+            "Allow -deleteChunk without -where to delete all rows of the table (default false).", false);
     public static final FlagOption ARG_SHORT_NO_ESCAPE =
         of("noEsc", "noEscape", "Do not escape value for sql (default false).", false);
     public static final FlagOption ARG_SHORT_READ_FILE_ONLY =
@@ -72,4 +82,9 @@ public class FlagOption extends ConfigArgOption {
         of("withView", "withView", "Export views into files (default false).", false);
     public static final FlagOption ARG_BINARY_AS_HEX =
         of("hex", "binaryAsHex", "Export or import binary values in hex format (default true).", true);
+    public static final FlagOption ARG_RESUME =
+        of("resume", "resume", "Resume export or delete from checkpoints recorded with -pageSize or -chunk (default false).", false);
+    public static final FlagOption ARG_ASYNC_WRITE =
+        of("asyncWrite", "asyncWrite",
+            "Write exported files on a dedicated I/O thread with double buffering (default false).", false);
 }
@@ -19,6 +19,7 @@ package datasource;
 import com.alibaba.druid.pool.DruidDataSource;
 import exception.DataSourceException;
 import org.apache.commons.lang.StringUtils;
+import util.DataSourceUtil;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -39,22 +40,38 @@ public class DruidSource {
                     if (dataSourceConfig == null) {
                         throw new DataSourceException("Config uninitialized");
                     }
-                    instance = new DruidDataSource();
-                    instance.setAsyncCloseConnectionEnable(true);
-                    instance.setUrl(dataSourceConfig.getUrl());
-                    instance.setUsername(dataSourceConfig.getUsername());
-                    instance.setPassword(dataSourceConfig.getPassword());
-                    instance.setInitialSize(dataSourceConfig.getMinConnectionNum());
-                    instance.setMinIdle(dataSourceConfig.getMinConnectionNum());
-                    instance.setMaxActive(dataSourceConfig.getMaxConnectionNum());
-                    instance.setConnectionInitSqls(initSqlStrToList(dataSourceConfig.getInitSqls()));
-                    instance.setMaxWait(dataSourceConfig.getMaxWait());
+                    instance = createDataSource(dataSourceConfig.getUrl());
                 }
             }
         }
         return instance;
     }
 
+    /**
+     * 创建开启服务端预编译的独立连接池，由调用方负责关闭
+     * 与默认连接池分开，无需修改池中连接的属性
+     */
+    public static DruidDataSource createServerPrepareDataSource() throws DataSourceException {
+        if (dataSourceConfig == null) {
+            throw new DataSourceException("Config uninitialized");
+        }
+        return createDataSource(dataSourceConfig.getUrl() + DataSourceUtil.SERVER_PREPARE_URL_PARAMS);
+    }
+
+    private static DruidDataSource createDataSource(String url) {
+        DruidDataSource dataSource = new DruidDataSource();
+        dataSource.setAsyncCloseConnectionEnable(true);
+        dataSource.setUrl(url);
+        dataSource.setUsername(dataSourceConfig.getUsername());
+        dataSource.setPassword(dataSourceConfig.getPassword());
+        dataSource.setInitialSize(dataSourceConfig.getMinConnectionNum());
+        dataSource.setMinIdle(dataSourceConfig.getMinConnectionNum());
+        dataSource.setMaxActive(dataSourceConfig.getMaxConnectionNum());
+        dataSource.setConnectionInitSqls(initSqlStrToList(dataSourceConfig.getInitSqls()));
+        dataSource.setMaxWait(dataSourceConfig.getMaxWait());
+        return dataSource;
+    }
+
     private static List<String> initSqlStrToList(String initSqls) {
         List<String> initSqlList = new ArrayList<>();
         if (initSqls != null && !StringUtils.isEmpty(initSqls)) {
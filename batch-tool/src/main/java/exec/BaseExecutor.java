@@ -51,6 +51,7 @@ import worker.common.BatchLineEvent;
 import worker.common.ReadFileProducer;
 import worker.common.ReadFileWithBlockProducer;
 import worker.common.ReadFileWithLineProducer;
+import worker.update.PreparedUpdateConsumer;
 
 import javax.sql.DataSource;
 import java.io.File;
@@ -304,6 +305,8 @@ public abstract class BaseExecutor {
                 consumer.setTableName(tableName);
                 if (consumer instanceof BaseDefaultConsumer) {
                     GlobalVar.DEBUG_INFO.addSqlStat(((BaseDefaultConsumer) consumer).getSqlStat());
+                } else if (consumer instanceof PreparedUpdateConsumer) {
+                    GlobalVar.DEBUG_INFO.addSqlStat(((PreparedUpdateConsumer) consumer).getSqlStat());
                 }
             }
         } catch (Exception e) {
@@ -329,7 +332,8 @@ public abstract class BaseExecutor {
             && !consumerExecutionContext.isReadProcessFileOnly()) {
             checkConsumeProgress((ReadFileWithBlockProducer) producer, consumers);
         }
-        waitForFinish(countDownLatch, emittedDataCounter, producerExecutionContext, consumerExecutionContext);
+        waitForFinish(countDownLatch, emittedDataCounter, producerExecutionContext, consumerExecutionContext,
+            consumers);
         workerPool.drainAndHalt();
         producerThreadPool.shutdownNow();
         consumerThreadPool.shutdownNow();
@@ -366,6 +370,20 @@ public abstract class BaseExecutor {
     protected void waitForFinish(CountDownLatch countDownLatch, AtomicInteger emittedDataCounter,
                                  ProducerExecutionContext producerContext,
                                  ConsumerExecutionContext consumerContext) {
+        waitForFinish(countDownLatch, emittedDataCounter, producerContext, consumerContext, null);
+    }
+
+    /**
+     * 等待生产者、消费者结束，并在记录完成状态前写入消费者跨批次缓冲的数据
+     * 缓冲数据写入失败时不记录完成状态，以便断点续传
+     *
+     * @param consumers 消费者，为null时不写入缓冲数据
+     */
+    protected void waitForFinish(CountDownLatch countDownLatch, AtomicInteger emittedDataCounter,
+                                 ProducerExecutionContext producerContext,
+                                 ConsumerExecutionContext consumerContext,
+                                 BaseWorkHandler[] consumers) {
+        boolean flushFailed = false;
         try {
             // 等待生产者结束
             while (!countDownLatch.await(3, TimeUnit.SECONDS)) {
@@ -384,11 +402,31 @@ public abstract class BaseExecutor {
             while ((remain = emittedDataCounter.get()) > 0) {
                 Thread.sleep(500);
             }
+            flushFailed = !flushConsumers(consumers, consumerContext);
         } catch (InterruptedException e) {
             logger.error("Interrupted when waiting for finish", e);
         } finally {
-            onWorkFinished();
+            if (!flushFailed) {
+                onWorkFinished();
+            }
+        }
+    }
+
+    /**
+     * @return 缓冲数据是否写入成功
+     */
+    private boolean flushConsumers(BaseWorkHandler[] consumers, ConsumerExecutionContext consumerContext) {
+        if (consumers == null || consumerContext.getException() != null) {
+            return true;
+        }
+        for (BaseWorkHandler consumer : consumers) {
+            consumer.onConsumeFinished();
+        }
+        if (consumerContext.getException() != null) {
+            logger.error("写入缓冲数据失败，不记录完成状态");
+            return false;
         }
+        return true;
     }
 
     protected void checkConsumeProgress(ReadFileWithBlockProducer producers, BaseWorkHandler[] consumers) {
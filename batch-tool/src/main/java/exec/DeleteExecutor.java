@@ -22,15 +22,24 @@ import com.lmax.disruptor.EventFactory;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.WorkerPool;
 import datasource.DataSourceConfig;
+import exception.DatabaseException;
 import model.config.BenchmarkMode;
+import model.config.GlobalVar;
+import model.db.FieldMetaInfo;
+import model.db.TableTopology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import util.CountStat;
+import util.DbUtil;
 import util.SyncUtil;
 import worker.MyThreadPool;
 import worker.MyWorkerPool;
+import worker.NodeConcurrencyLimiter;
 import worker.delete.DeleteConsumer;
 import worker.delete.DeleteInConsumer;
+import worker.delete.RangeDeleteCheckpoint;
+import worker.delete.RangeDeleteWorker;
+import worker.delete.RoutedDeleteInConsumer;
 import worker.delete.ShardedDeleteInConsumer;
 import worker.tpch.consumer.TpchDeleteConsumer;
 import worker.tpch.consumer.TpchInsert2Consumer;
@@ -39,6 +48,10 @@ import worker.tpch.model.BatchInsertSql2Event;
 import worker.tpch.pruducer.TpchUDeleteProducer;
 import worker.tpch.pruducer.TpchUInsertProducer;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -54,6 +67,13 @@ public class DeleteExecutor extends WriteDbExecutor {
 
     @Override
     protected void handleSingleTableInner(String tableName) {
+        if (consumerExecutionContext.getDeleteChunkSize() > 0) {
+            doRangeDelete(tableName);
+            return;
+        }
+        if (consumerExecutionContext.isShardRouteEnabled() && doRoutedDelete(tableName)) {
+            return;
+        }
         if (command.isShardingEnabled()) {
             doShardingDelete(tableName);
         } else {
@@ -239,6 +259,68 @@ public class DeleteExecutor extends WriteDbExecutor {
         }
     }
 
+    /**
+     * 按主键范围分段删除，开启 sharding 时各分表并行删除
+     */
+    private void doRangeDelete(String tableName) {
+        List<FieldMetaInfo> pkFieldMetaInfoList;
+        List<TableTopology> topologyList;
+        try (Connection connection = dataSource.getConnection()) {
+            pkFieldMetaInfoList = DbUtil.getPkFieldMetaInfoList(connection, getSchemaName(), tableName);
+            if (command.isShardingEnabled()) {
+                topologyList = DbUtil.getTopology(connection, tableName);
+            } else {
+                topologyList = Collections.singletonList(new TableTopology(tableName));
+            }
+        } catch (DatabaseException | SQLException e) {
+            throw new RuntimeException(e);
+        }
+        int parallelism = Math.max(1, Math.min(getConsumerNum(consumerExecutionContext), topologyList.size()));
+        logger.info("表 {} 按主键范围分段删除，分表数：{}，并发度：{}", tableName, topologyList.size(), parallelism);
+
+        ThreadPoolExecutor deleteThreadPool =
+            MyThreadPool.createExecutorExact(RangeDeleteWorker.class.getSimpleName(), parallelism);
+        NodeConcurrencyLimiter nodeLimiter = new NodeConcurrencyLimiter(GlobalVar.NODE_PARALLELISM);
+        CountDownLatch countDownLatch = new CountDownLatch(topologyList.size());
+        for (int index : NodeConcurrencyLimiter.interleaveByNode(topologyList)) {
+            TableTopology topology = topologyList.get(index);
+            RangeDeleteWorker worker = new RangeDeleteWorker(dataSource, topology, pkFieldMetaInfoList,
+                consumerExecutionContext, RangeDeleteCheckpoint.getCheckpointFile(getSchemaName(), topology),
+                countDownLatch);
+            worker.setNodeLimiter(nodeLimiter);
+            deleteThreadPool.submit(worker);
+        }
+        try {
+            countDownLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            deleteThreadPool.shutdown();
+        }
+        if (consumerExecutionContext.getException() != null) {
+            throw new RuntimeException(consumerExecutionContext.getException());
+        }
+    }
+
+    /**
+     * 按物理分表分组主键后直接删除
+     *
+     * @return 拆分规则不支持时返回 false
+     */
+    private boolean doRoutedDelete(String tableName) {
+        configureFieldMetaInfo();
+        configureTopology();
+        configureShardRouter();
+        if (consumerExecutionContext.getTableShardRouter(tableName) == null) {
+            logger.warn("表 {} 不按物理分表路由删除", tableName);
+            return false;
+        }
+        configureCommonContextAndRun(RoutedDeleteInConsumer.class,
+            producerExecutionContext, consumerExecutionContext, tableName, useBlockReader());
+        return true;
+    }
+
     private void doShardingDelete(String tableName) {
         configureFieldMetaInfo();
         configureTopology();
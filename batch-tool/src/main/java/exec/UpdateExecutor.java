@@ -22,6 +22,7 @@ import com.lmax.disruptor.EventFactory;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.WorkerPool;
 import datasource.DataSourceConfig;
+import datasource.DruidSource;
 import model.config.BenchmarkMode;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -37,9 +38,11 @@ import worker.tpch.model.BatchDeleteSqlEvent;
 import worker.tpch.model.BatchInsertSql2Event;
 import worker.tpch.pruducer.TpchUDeleteProducer;
 import worker.tpch.pruducer.TpchUInsertProducer;
+import worker.update.BatchUpdateConsumer;
+import worker.update.PreparedUpdateConsumer;
 import worker.update.ReplaceConsumer;
+import worker.update.RoutedReplaceConsumer;
 import worker.update.ShardedReplaceConsumer;
-import worker.update.UpdateConsumer;
 import worker.update.UpdateWithFuncConsumer;
 import worker.update.UpdateWithFuncInConsumer;
 import worker.util.UpdateUtil;
@@ -51,6 +54,11 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class UpdateExecutor extends WriteDbExecutor {
     private static final Logger logger = LoggerFactory.getLogger(UpdateExecutor.class);
 
+    /**
+     * 预编译更新使用的独立连接池，执行结束后关闭
+     */
+    private DruidDataSource serverPrepareDataSource = null;
+
     public UpdateExecutor(DataSourceConfig dataSourceConfig,
                           DruidDataSource druid,
                           BaseOperateCommand baseCommand) {
@@ -64,12 +72,24 @@ public class UpdateExecutor extends WriteDbExecutor {
             doUpdateWithFunc(tableName);
             return;
         }
+        if (consumerExecutionContext.isPreparedUpdateEnabled()) {
+            // 预编译后按批执行
+            if (serverPrepareDataSource == null) {
+                serverPrepareDataSource = DruidSource.createServerPrepareDataSource();
+            }
+            consumerExecutionContext.setServerPrepareDataSource(serverPrepareDataSource);
+            doDefaultUpdate(PreparedUpdateConsumer.class, tableName);
+            return;
+        }
         if (!StringUtils.isEmpty(consumerExecutionContext.getWhereCondition())) {
-            // 有where子句用默认方法
-            doDefaultUpdate(UpdateConsumer.class, tableName);
+            // 有where子句时按批合并为一条 update 语句
+            doDefaultUpdate(BatchUpdateConsumer.class, tableName);
             return;
         }
 
+        if (consumerExecutionContext.isShardRouteEnabled() && doRoutedUpdate(tableName)) {
+            return;
+        }
         if (command.isShardingEnabled()) {
             doShardingUpdate(tableName);
         } else {
@@ -243,6 +263,26 @@ public class UpdateExecutor extends WriteDbExecutor {
             consumerExecutionContext, tableName, useBlockReader());
     }
 
+    /**
+     * 按物理分表分组后直接 replace
+     *
+     * @return 拆分规则不支持时返回 false
+     */
+    private boolean doRoutedUpdate(String tableName) {
+        configureTopology();
+        configureShardRouter();
+        if (consumerExecutionContext.getTableShardRouter(tableName) == null) {
+            logger.warn("表 {} 不按物理分表路由更新", tableName);
+            return false;
+        }
+        String toUpdateColumns =
+            UpdateUtil.formatToReplaceColumns(consumerExecutionContext.getTableFieldMetaInfo(tableName));
+        consumerExecutionContext.setToUpdateColumns(toUpdateColumns);
+        configureCommonContextAndRun(RoutedReplaceConsumer.class, producerExecutionContext,
+            consumerExecutionContext, tableName, useBlockReader());
+        return true;
+    }
+
     /**
      * 使用mysql函数进行字段更新
      */
@@ -274,4 +314,12 @@ public class UpdateExecutor extends WriteDbExecutor {
         configureCommonContextAndRun(clazz, producerExecutionContext,
             consumerExecutionContext, tableName, useBlockReader());
     }
+
+    @Override
+    public void close() {
+        super.close();
+        if (serverPrepareDataSource != null) {
+            serverPrepareDataSource.close();
+        }
+    }
 }
@@ -24,22 +24,29 @@ import datasource.DataSourceConfig;
 import exception.DatabaseException;
 import model.ConsumerExecutionContext;
 import model.ProducerExecutionContext;
+import model.config.FileLineRecord;
 import model.config.GlobalVar;
 import model.config.QuoteEncloseMode;
 import model.db.PartitionKey;
+import model.db.PartitionRule;
 import model.db.PrimaryKey;
 import model.db.TableFieldMetaInfo;
 import model.db.TableTopology;
+import model.encrypt.CipherFrameFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import util.CountStat;
 import util.DbUtil;
+import worker.NodeConcurrencyLimiter;
 import worker.common.BaseWorkHandler;
 import worker.common.ReadFileWithBlockProducer;
 import worker.tpch.model.TpchTableModel;
+import worker.util.ShardRouter;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -57,6 +64,11 @@ import java.util.concurrent.atomic.AtomicInteger;
 public abstract class WriteDbExecutor extends BaseExecutor {
     private static final Logger logger = LoggerFactory.getLogger(WriteDbExecutor.class);
 
+    /**
+     * 校验路由时每张物理分表的取样行数
+     */
+    private static final int SHARD_ROUTE_VERIFY_SAMPLES = 16;
+
     protected ProducerExecutionContext producerExecutionContext;
     protected ConsumerExecutionContext consumerExecutionContext;
     protected List<String> tableNames;
@@ -135,6 +147,7 @@ public abstract class WriteDbExecutor extends BaseExecutor {
             }
         }
         consumerExecutionContext.setTopologyList(tableTopologyMap);
+        consumerExecutionContext.setNodeLimiter(new NodeConcurrencyLimiter(GlobalVar.NODE_PARALLELISM));
     }
 
     protected void configurePartitionKey() {
@@ -154,6 +167,45 @@ public abstract class WriteDbExecutor extends BaseExecutor {
         consumerExecutionContext.setTablePartitionKey(tablePartitionKey);
     }
 
+    /**
+     * 设置按拆分规则路由到物理分表的路由器
+     * 需先设置拓扑信息，规则不支持的表不设置
+     */
+    protected void configureShardRouter() {
+        Map<String, ShardRouter> tableShardRouter = new HashMap<>();
+        for (String tableName : tableNames) {
+            try (Connection connection = dataSource.getConnection()) {
+                PartitionRule partitionRule = DbUtil.getPartitionRule(connection, getSchemaName(), tableName);
+                ShardRouter router = ShardRouter.create(partitionRule,
+                    consumerExecutionContext.getTopologyList(tableName).size());
+                if (router == null) {
+                    logger.warn("表 {} 的拆分规则不支持按物理分表路由: {}", tableName, partitionRule);
+                } else if (!verifyShardRouter(connection, tableName, router)) {
+                    logger.warn("表 {} 的路由结果与实际数据分布不一致或无数据可校验: {}", tableName, partitionRule);
+                } else {
+                    tableShardRouter.put(tableName, router);
+                }
+            } catch (DatabaseException | SQLException e) {
+                logger.warn("表 {} 无法获取拆分规则: {}", tableName, e.getMessage());
+            }
+        }
+        consumerExecutionContext.setTableShardRouter(tableShardRouter);
+    }
+
+    /**
+     * 从每张物理分表中取样，校验路由结果与服务端的实际分布一致
+     */
+    private boolean verifyShardRouter(Connection connection, String tableName, ShardRouter router)
+        throws DatabaseException {
+        List<TableTopology> topologyList = consumerExecutionContext.getTopologyList(tableName);
+        List<List<String[]>> samplesPerShard = new ArrayList<>(topologyList.size());
+        for (TableTopology topology : topologyList) {
+            samplesPerShard.add(DbUtil.getShardKeySamples(connection, topology,
+                router.getKeyFields(), SHARD_ROUTE_VERIFY_SAMPLES));
+        }
+        return router.verify(samplesPerShard);
+    }
+
     /**
      * 检查进度，记录断点续传点
      */
@@ -216,7 +268,8 @@ public abstract class WriteDbExecutor extends BaseExecutor {
         if (producerExecutionContext.getQuoteEncloseMode() == QuoteEncloseMode.FORCE) {
             return false;
         }
-        if (!producerExecutionContext.getEncryptionConfig().getEncryptionMode().isSupportStreamingBit()) {
+        if (!producerExecutionContext.getEncryptionConfig().getEncryptionMode().isSupportStreamingBit()
+            && !isAllCipherFramed()) {
             return false;
         }
         if (!producerExecutionContext.getFileFormat().isSupportBlock()) {
@@ -225,6 +278,25 @@ public abstract class WriteDbExecutor extends BaseExecutor {
         return true;
     }
 
+    /**
+     * 分帧加密的本地文件可按帧并行读取解密
+     */
+    private boolean isAllCipherFramed() {
+        if (producerExecutionContext.getFileStorage() != null) {
+            return false;
+        }
+        List<FileLineRecord> fileLineRecordList = producerExecutionContext.getDataFileLineRecordList();
+        if (fileLineRecordList == null || fileLineRecordList.isEmpty()) {
+            return false;
+        }
+        for (FileLineRecord fileLineRecord : fileLineRecordList) {
+            if (!CipherFrameFormat.isFramedFile(new File(fileLineRecord.getFilePath()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     protected void waitAndShutDown(CountDownLatch countDownLatch, AtomicInteger emittedDataCounter,
                                    ThreadPoolExecutor producerThreadPool, ThreadPoolExecutor consumerThreadPool,
                                    WorkerPool<?> workerPool) {
@@ -19,19 +19,41 @@ package exec.export;
 import cmd.BaseOperateCommand;
 import cmd.ExportCommand;
 import com.alibaba.druid.pool.DruidDataSource;
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.WorkerPool;
 import datasource.DataSourceConfig;
 import exception.DatabaseException;
 import exec.BaseExecutor;
 import model.config.ExportConfig;
+import model.config.FileFormat;
+import model.db.FieldMetaInfo;
+import model.db.TableFieldMetaInfo;
+import model.db.TableTopology;
+import model.encrypt.BaseCipher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import util.CountStat;
 import util.DbUtil;
+import util.SyncUtil;
+import worker.MyThreadPool;
+import worker.MyWorkerPool;
 import worker.ddl.DdlExportWorker;
+import worker.export.BaseExportWorker;
+import worker.export.DirectExportWorker;
+import worker.export.ExportConsumer;
+import worker.export.ExportEvent;
+import worker.export.ExportProducer;
+import worker.export.FixedFileWriterGroup;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class BaseExportExecutor extends BaseExecutor {
     private static final Logger logger = LoggerFactory.getLogger(BaseExecutor.class);
@@ -109,8 +131,129 @@ public abstract class BaseExportExecutor extends BaseExecutor {
 
     abstract void exportData();
 
+    /**
+     * 导出到固定数量的文件
+     *
+     * @param whereConditionList 与 topologyList 一一对应的 where 条件，为 null 时使用配置中的条件
+     * @param countDownLatch 数量与 topologyList 一致
+     */
+    protected void exportWithFixedFile(String tableName, List<TableTopology> topologyList,
+                                       List<String> whereConditionList,
+                                       TableFieldMetaInfo tableFieldMetaInfo,
+                                       String filePathPrefix,
+                                       ExecutorService executor,
+                                       Semaphore permitted,
+                                       CountDownLatch countDownLatch) {
+        BaseCipher cipher = BaseCipher.getCipher(config.getEncryptionConfig(), true);
+        if (cipher != null && !cipher.supportBlock()) {
+            throw new UnsupportedOperationException(config.getEncryptionConfig().getEncryptionMode()
+                + " does not support export with fixed-number files");
+        }
+        // 初始化缓冲区等
+        EventFactory<ExportEvent> factory = ExportEvent::new;
+        RingBuffer<ExportEvent> ringBuffer = MyWorkerPool.createRingBuffer(factory);
+        AtomicInteger emittedDataCounter = SyncUtil.newRemainDataCounter();
+        // 消费者数量与文件数一致 生产者数量和shard数一致
+        final int consumerCount = config.getLimitNum(), producerCount = topologyList.size();
+
+        String[] filePaths = new String[consumerCount];
+        for (int i = 0; i < consumerCount; i++) {
+            filePaths[i] = filePathPrefix + i;
+            if (config.getFileFormat() != FileFormat.NONE) {
+                filePaths[i] += config.getFileFormat().getSuffix();
+            }
+        }
+        // 每批数据（包括各生产者最后的碎片数据）都直接写入当前最小的文件
+        FixedFileWriterGroup fileWriterGroup = new FixedFileWriterGroup(filePaths, config.isWithHeader(),
+            config.getSeparator().getBytes(), tableFieldMetaInfo, config.getCompressMode(), config.getCharset(),
+            config.isAsyncWrite());
+        ExportConsumer[] consumers = new ExportConsumer[consumerCount];
+        for (int i = 0; i < consumers.length; i++) {
+            consumers[i] = new ExportConsumer(fileWriterGroup, emittedDataCounter);
+            consumers[i].setCipher(cipher);
+        }
+        WorkerPool<ExportEvent> workerPool = MyWorkerPool.createWorkerPool(ringBuffer, consumers);
+        workerPool.start(executor);
+
+        ExecutorService producerExecutor = MyThreadPool.createExecutorWithEnsure("producer", producerCount);
+        for (int i = 0; i < producerCount; i++) {
+            ExportProducer producer = new ExportProducer(dataSource, tableName, topologyList.get(i),
+                tableFieldMetaInfo, ringBuffer, config.getSeparator(),
+                countDownLatch, emittedDataCounter, config.getQuoteEncloseMode());
+            producer.setPermitted(getProducerPermits(topologyList.get(i), permitted));
+            producer.setWhereCondition(getWhereCondition(whereConditionList, i));
+            producer.putDataMaskerMap(config.getColumnMaskerConfigMap());
+            producerExecutor.submit(producer);
+        }
+        waitForFinish(countDownLatch, emittedDataCounter);
+        workerPool.drainAndHalt();
+        fileWriterGroup.close();
+        producerExecutor.shutdown();
+    }
+
+    /**
+     * 固定文件数导出时生产者使用的并发许可
+     */
+    protected Semaphore getProducerPermits(TableTopology topology, Semaphore permitted) {
+        return permitted;
+    }
+
+    /**
+     * 获取导出字段信息，并替换为配置的字段表达式
+     *
+     * @param columnNames 指定导出的字段，为空时导出全部字段
+     */
+    protected TableFieldMetaInfo getExportFieldMetaInfo(Connection conn, String tableName,
+                                                        List<String> columnNames) throws DatabaseException {
+        TableFieldMetaInfo tableFieldMetaInfo = DbUtil.getTableFieldMetaInfo(conn, getSchemaName(),
+            tableName, columnNames);
+        Map<String, String> columnExpressionMap = config.getColumnExpressionMap();
+        if (columnExpressionMap == null || columnExpressionMap.isEmpty()) {
+            return tableFieldMetaInfo;
+        }
+        for (FieldMetaInfo fieldMetaInfo : tableFieldMetaInfo.getFieldMetaInfoList()) {
+            for (Map.Entry<String, String> columnExpression : columnExpressionMap.entrySet()) {
+                if (columnExpression.getKey().equalsIgnoreCase(fieldMetaInfo.getName())) {
+                    fieldMetaInfo.setExpression(columnExpression.getValue());
+                    break;
+                }
+            }
+        }
+        return tableFieldMetaInfo;
+    }
+
+    /**
+     * 按主键分页导出时获取主键字段信息
+     *
+     * @return 未开启分页时返回 null
+     */
+    protected List<FieldMetaInfo> getPagingPkList(Connection conn, String tableName) throws DatabaseException {
+        if (config.getPageSize() <= 0) {
+            return null;
+        }
+        return DbUtil.getPkFieldMetaInfoList(conn, getSchemaName(), tableName);
+    }
+
+    protected void enableKeysetPaging(DirectExportWorker worker, List<FieldMetaInfo> pkFieldMetaInfoList) {
+        if (pkFieldMetaInfoList != null) {
+            worker.enableKeysetPaging(pkFieldMetaInfoList, config.getPageSize(), config.isResume());
+        }
+    }
+
+    private String getWhereCondition(List<String> whereConditionList, int index) {
+        if (whereConditionList == null) {
+            return config.getWhereCondition();
+        }
+        return whereConditionList.get(index);
+    }
+
     @Override
     public void close() {
         config.close();
     }
+
+    @Override
+    public boolean hasFatalException() {
+        return BaseExportWorker.hasFailedWorker();
+    }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package exec.export;
+
+import model.db.TableTopology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import worker.MyThreadPool;
+import worker.NodeConcurrencyLimiter;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 多表导出共享的调度器
+ * 分片任务按存储节点(DN)排队，在节点间轮询派发：
+ * 只有节点有空闲许可且线程池有空闲线程时才派发，线程不会阻塞在繁忙的节点上
+ */
+@ThreadSafe
+public class ExportScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(ExportScheduler.class);
+
+    private final ExecutorService executor;
+    private final int poolSize;
+    private final NodeConcurrencyLimiter nodeLimiter;
+
+    @GuardedBy("this")
+    private final Map<String, Deque<Runnable>> pendingTasks = new LinkedHashMap<>();
+    @GuardedBy("this")
+    private int nodeCursor = 0;
+    @GuardedBy("this")
+    private int runningCount = 0;
+
+    /**
+     * @param poolSize 所有表共享的导出线程数
+     * @param permitsPerNode 单个存储节点上同时导出的分片数
+     */
+    public ExportScheduler(int poolSize, int permitsPerNode) {
+        this.executor = MyThreadPool.createUnboundedFixedExecutor("export-scheduler", poolSize);
+        this.poolSize = poolSize;
+        this.nodeLimiter = new NodeConcurrencyLimiter(permitsPerNode);
+        logger.info("导出线程数：{}，单节点并发数：{}", poolSize, permitsPerNode);
+    }
+
+    /**
+     * 同一存储节点上的所有分片共用一个信号量
+     * 供无法经由调度器派发的任务自行获取
+     */
+    public Semaphore getNodePermits(TableTopology topology) {
+        return nodeLimiter.getPermits(topology);
+    }
+
+    /**
+     * 提交某个分片的任务，运行期间占用该分片所在节点的一个许可
+     */
+    public synchronized void submit(TableTopology topology, Runnable task) {
+        pendingTasks.computeIfAbsent(topology.getNodeKey(), key -> new ArrayDeque<>()).add(task);
+        dispatch();
+    }
+
+    /**
+     * 直接提交不属于某个分片的任务
+     */
+    public void submit(Runnable task) {
+        executor.submit(task);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private synchronized void dispatch() {
+        if (pendingTasks.isEmpty()) {
+            return;
+        }
+        List<String> nodes = new ArrayList<>(pendingTasks.keySet());
+        boolean dispatched = true;
+        while (dispatched && runningCount < poolSize) {
+            dispatched = false;
+            for (int i = 0; i < nodes.size() && runningCount < poolSize; i++) {
+                String nodeKey = nodes.get((nodeCursor + i) % nodes.size());
+                Deque<Runnable> tasks = pendingTasks.get(nodeKey);
+                if (tasks.isEmpty() || !nodeLimiter.getPermits(nodeKey).tryAcquire()) {
+                    continue;
+                }
+                Runnable task = tasks.poll();
+                runningCount++;
+                dispatched = true;
+                executor.execute(() -> runTask(nodeKey, task));
+            }
+            // 下一轮从下一个节点开始
+            nodeCursor = (nodeCursor + 1) % nodes.size();
+        }
+        pendingTasks.values().removeIf(Deque::isEmpty);
+    }
+
+    private void runTask(String nodeKey, Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            logger.error("节点 {} 上的导出任务失败：{}", nodeKey, t.getMessage(), t);
+        } finally {
+            nodeLimiter.getPermits(nodeKey).release();
+            synchronized (this) {
+                runningCount--;
+                dispatch();
+            }
+        }
+    }
+}
@@ -33,17 +33,19 @@ import util.FileUtil;
 import util.SyncUtil;
 import worker.MyThreadPool;
 import worker.export.order.DirectOrderExportWorker;
+import worker.export.order.ExternalSorter;
 import worker.export.order.LocalOrderByExportProducer;
 import worker.export.order.OrderByExportEvent;
 import worker.export.order.OrderByExportProducer;
 import worker.export.order.OrderByMergeExportConsumer;
 import worker.export.order.ParallelMergeExportConsumer;
-import worker.export.order.ParallelOrderByExportEvent;
+import worker.export.order.ShardRowQueue;
+import worker.export.order.SortKeyEncoder;
 import worker.factory.ExportWorkerFactory;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -51,11 +53,17 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static model.config.ConfigConstant.APP_NAME;
+import static model.config.ConfigConstant.DEFAULT_ORDER_BY_TABLE_PARALLELISM;
 
 public class OrderByExportExecutor extends BaseExportExecutor {
     private static final Logger logger = LoggerFactory.getLogger(OrderByExportExecutor.class);
 
     private ExportConfig config;
+    private ExportScheduler scheduler;
+    /**
+     * 同时导出的表数，本地排序内存预算由这些表共享
+     */
+    private int concurrentTableNum = 1;
 
     public OrderByExportExecutor(DataSourceConfig dataSourceConfig,
                                  DruidDataSource druid,
@@ -71,15 +79,34 @@ public class OrderByExportExecutor extends BaseExportExecutor {
 
     /**
      * 根据配置的算法模式
-     * 按指定字段排序排序导出
+     * 按指定字段排序排序导出，多张表并发执行
      */
     private void handleExportOrderBy() {
-        for (String tableName : command.getTableNames()) {
-            try {
-                handleSingleTable(tableName);
-            } catch (Exception e) {
-                logger.error("导出 {} 数据失败：{}", tableName, e.getMessage());
-            }
+        List<String> tableNames = command.getTableNames();
+        int parallelism = config.getParallelism() > 0 ? config.getParallelism()
+            : DEFAULT_ORDER_BY_TABLE_PARALLELISM;
+        this.concurrentTableNum = Math.max(1, Math.min(parallelism, tableNames.size()));
+        this.scheduler = new ExportScheduler(concurrentTableNum, GlobalVar.NODE_PARALLELISM);
+        CountDownLatch countDownLatch = SyncUtil.newMainCountDownLatch(tableNames.size());
+        startStatLog();
+        for (String tableName : tableNames) {
+            scheduler.submit(() -> {
+                try {
+                    handleSingleTableInner(tableName);
+                } catch (Exception e) {
+                    logger.error("导出 {} 数据失败：{}", tableName, e.getMessage());
+                } finally {
+                    countDownLatch.countDown();
+                }
+            });
+        }
+        try {
+            countDownLatch.await();
+        } catch (InterruptedException e) {
+            logger.error("Interrupted when waiting for finish", e);
+        } finally {
+            stopStatLog();
+            scheduler.shutdown();
         }
     }
 
@@ -94,8 +121,8 @@ public class OrderByExportExecutor extends BaseExportExecutor {
             config.getFilenamePrefix(), tableName);
         try (Connection connection = dataSource.getConnection()) {
             topologyList = DbUtil.getTopology(connection, tableName);
-            TableFieldMetaInfo tableFieldMetaInfo = DbUtil.getTableFieldMetaInfo(connection,
-                getSchemaName(), tableName);
+            TableFieldMetaInfo tableFieldMetaInfo = getExportFieldMetaInfo(connection,
+                tableName, null);
             orderByColumnInfoList = DbUtil.getFieldMetaInfoListByColNames(connection, getSchemaName(),
                 tableName, config.getOrderByColumnNameList());
             // 分片数
@@ -154,8 +181,8 @@ public class OrderByExportExecutor extends BaseExportExecutor {
      */
     private void handleExportWithOrderByFromDb(String tableName) {
         try (Connection connection = dataSource.getConnection()) {
-            TableFieldMetaInfo tableFieldMetaInfo = DbUtil.getTableFieldMetaInfo(connection,
-                getSchemaName(), tableName);
+            TableFieldMetaInfo tableFieldMetaInfo = getExportFieldMetaInfo(connection,
+                tableName, null);
             DirectOrderExportWorker directOrderByExportWorker = ExportWorkerFactory
                 .buildDirectOrderExportWorker(dataSource, tableFieldMetaInfo, (ExportCommand) command, tableName);
             // 就单线程地写入
@@ -167,7 +194,7 @@ public class OrderByExportExecutor extends BaseExportExecutor {
     }
 
     /**
-     * 在本地进行多线程的归并
+     * 各分片并行拉取有序数据，在本地流式 k 路归并
      */
     private void handleExportWithOrderByParallelMerge(String tableName) {
         List<TableTopology> topologyList;
@@ -176,28 +203,36 @@ public class OrderByExportExecutor extends BaseExportExecutor {
             String filePathPrefix = FileUtil.getFilePathPrefix(config.getPath(),
                 config.getFilenamePrefix(), tableName);
             topologyList = DbUtil.getTopology(connection, tableName);
-            TableFieldMetaInfo tableFieldMetaInfo = DbUtil.getTableFieldMetaInfo(connection,
-                getSchemaName(), tableName);
+            TableFieldMetaInfo tableFieldMetaInfo = getExportFieldMetaInfo(connection,
+                tableName, null);
             orderByColumnInfoList = DbUtil.getFieldMetaInfoListByColNames(connection, getSchemaName(),
                 tableName, config.getOrderByColumnNameList());
             // 分片数
             final int shardSize = topologyList.size();
+            // 归并需要每个分片的队首，因此所有生产者必须同时运行
             ExecutorService executor = MyThreadPool.createExecutorWithEnsure(APP_NAME, shardSize);
             LocalOrderByExportProducer orderByExportProducer;
-            LinkedList[] orderedLists = new LinkedList[shardSize];
-            CountDownLatch countDownLatch = SyncUtil.newMainCountDownLatch(shardSize);
+            ShardRowQueue[] rowQueues = new ShardRowQueue[shardSize];
+            // 本地排序时内存预算先由并发的表平分，再由各分片平分，有序段写入导出目录
+            long sortMemoryPerShard = getSortMemoryPerShard(config.getSortMemoryInMb(),
+                concurrentTableNum, shardSize);
+            File spillDir = new File(config.getPath()).getAbsoluteFile();
             for (int i = 0; i < shardSize; i++) {
-                orderedLists[i] = new LinkedList<ParallelOrderByExportEvent>();
+                rowQueues[i] = new ShardRowQueue(topologyList.get(i).toString(), GlobalVar.DEFAULT_RING_BUFFER_SIZE);
                 orderByExportProducer = new LocalOrderByExportProducer(dataSource, topologyList.get(i),
-                    tableFieldMetaInfo, orderedLists[i], config.getOrderByColumnNameList(),
-                    countDownLatch);
+                    tableFieldMetaInfo, rowQueues[i], config.getOrderByColumnNameList());
+                if (config.isLocalSort()) {
+                    orderByExportProducer.setExternalSorter(new ExternalSorter(topologyList.get(i).toString(),
+                        new SortKeyEncoder(orderByColumnInfoList), sortMemoryPerShard, spillDir));
+                    orderByExportProducer.setNodePermits(scheduler.getNodePermits(topologyList.get(i)));
+                }
                 executor.submit(orderByExportProducer);
             }
             ParallelMergeExportConsumer consumer;
             switch (config.getExportWay()) {
             case MAX_LINE_NUM_IN_SINGLE_FILE:
                 consumer = new ParallelMergeExportConsumer(filePathPrefix,
-                    config.getSeparator(), orderByColumnInfoList, orderedLists, config.getLimitNum());
+                    config.getSeparator(), orderByColumnInfoList, rowQueues, config.getLimitNum());
                 break;
             case FIXED_FILE_NUM:
                 // 固定文件数的情况 先拿到全部的行数
@@ -206,23 +241,22 @@ public class OrderByExportExecutor extends BaseExportExecutor {
                 int singleLineLimit = (int) Math.ceil(totalRowCount / fileNum);
                 // 再转为限制单文件行数的形式
                 consumer = new ParallelMergeExportConsumer(filePathPrefix,
-                    config.getSeparator(), orderByColumnInfoList, orderedLists, singleLineLimit);
+                    config.getSeparator(), orderByColumnInfoList, rowQueues, singleLineLimit);
                 break;
             case DEFAULT:
                 consumer = new ParallelMergeExportConsumer(filePathPrefix,
-                    config.getSeparator(), orderByColumnInfoList, orderedLists, 0);
+                    config.getSeparator(), orderByColumnInfoList, rowQueues, 0);
                 break;
             default:
                 throw new RuntimeException("Unsupported export exception");
             }
             try {
-                // 等待生产者把数据全部buffer到内存
-                countDownLatch.await();
                 consumer.consume();
             } catch (InterruptedException e) {
                 logger.error("Interrupted when waiting for finish", e);
+            } finally {
+                executor.shutdown();
             }
-            executor.shutdown();
             logger.info("导出 {} 数据完成", tableName);
         } catch (DatabaseException | SQLException e) {
             logger.error(e.getMessage(), e);
@@ -237,10 +271,17 @@ public class OrderByExportExecutor extends BaseExportExecutor {
         }
 
         // 在本地进行多流归并排序
-        if (config.isParallelMerge()) {
+        if (config.isParallelMerge() || config.isLocalSort()) {
             handleExportWithOrderByParallelMerge(tableName);
         } else {
             doExportWithOrderByLocal(tableName);
         }
     }
+
+    /**
+     * 单个分片的本地排序内存预算，保证所有并发表的峰值不超过总预算
+     */
+    public static long getSortMemoryPerShard(int sortMemoryInMb, int concurrentTableNum, int shardSize) {
+        return (long) sortMemoryInMb * 1024 * 1024 / Math.max(1, concurrentTableNum) / Math.max(1, shardSize);
+    }
 }
@@ -18,16 +18,13 @@ package exec.export;
 
 import cmd.BaseOperateCommand;
 import com.alibaba.druid.pool.DruidDataSource;
-import com.lmax.disruptor.EventFactory;
-import com.lmax.disruptor.RingBuffer;
-import com.lmax.disruptor.WorkerPool;
 import datasource.DataSourceConfig;
 import exception.DatabaseException;
-import model.CyclicAtomicInteger;
-import model.config.FileFormat;
+import model.config.GlobalVar;
+import model.db.FieldMetaInfo;
 import model.db.TableFieldMetaInfo;
 import model.db.TableTopology;
-import model.encrypt.BaseCipher;
+import org.apache.commons.math3.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import util.CountStat;
@@ -35,32 +32,24 @@ import util.DbUtil;
 import util.FileUtil;
 import util.SyncUtil;
 import worker.MyThreadPool;
-import worker.MyWorkerPool;
-import worker.export.CollectFragmentWorker;
 import worker.export.DirectExportWorker;
-import worker.export.ExportConsumer;
-import worker.export.ExportEvent;
-import worker.export.ExportProducer;
 import worker.factory.ExportWorkerFactory;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 
 import static model.config.ConfigConstant.APP_NAME;
+import static model.config.ConfigConstant.DEFAULT_SHARED_EXPORT_PARALLELISM;
 
 public class ShardingExportExecutor extends BaseExportExecutor {
     private static final Logger logger = LoggerFactory.getLogger(ShardingExportExecutor.class);
 
-    private final AtomicReference<String> curTableName = new AtomicReference<>(null);
+    private ExportScheduler scheduler;
 
     public ShardingExportExecutor(DataSourceConfig dataSourceConfig,
                                   DruidDataSource druid,
@@ -68,22 +57,43 @@ public class ShardingExportExecutor extends BaseExportExecutor {
         super(dataSourceConfig, druid, baseCommand);
     }
 
+    /**
+     * 所有表的分片共用一个调度器并发导出
+     */
     @Override
     void exportData() {
         List<String> tableNames = command.getTableNames();
-        for (String tableName : tableNames) {
-            try {
-                handleSingleTable(tableName);
-            } catch (Exception e) {
-                logger.error("导出 {} 数据失败：{}", tableName, e.getMessage());
+        int parallelism = config.getParallelism();
+        this.scheduler = new ExportScheduler(parallelism > 0 ? parallelism : DEFAULT_SHARED_EXPORT_PARALLELISM,
+            GlobalVar.NODE_PARALLELISM);
+        startStatLog();
+        List<Pair<String, CountDownLatch>> runningTables = new ArrayList<>(tableNames.size());
+        try {
+            for (String tableName : tableNames) {
+                try {
+                    CountDownLatch countDownLatch = submitTable(tableName);
+                    if (countDownLatch != null) {
+                        runningTables.add(new Pair<>(tableName, countDownLatch));
+                    }
+                } catch (Exception e) {
+                    logger.error("导出 {} 数据失败：{}", tableName, e.getMessage());
+                }
+            }
+            for (Pair<String, CountDownLatch> runningTable : runningTables) {
+                awaitTable(runningTable.getKey(), runningTable.getValue());
             }
+        } finally {
+            stopStatLog();
+            scheduler.shutdown();
         }
     }
 
     /**
-     * 处理分库分表导出命令
+     * 提交单表的分片导出任务
+     *
+     * @return 异步执行时返回该表的结束标志，已同步执行完成时返回 null
      */
-    private void doExportWithSharding(String tableName) {
+    private CountDownLatch submitTable(String tableName) {
         String filePathPrefix = FileUtil.getFilePathPrefix(config.getPath(),
             config.getFilenamePrefix(), tableName);
         List<TableTopology> topologyList = null;
@@ -120,15 +130,11 @@ public class ShardingExportExecutor extends BaseExportExecutor {
                 topologyList.clear();
                 topologyList.add(firstTopology);
             }
-            TableFieldMetaInfo tableFieldMetaInfo = DbUtil.getTableFieldMetaInfo(connection,
-                getSchemaName(), tableName, command.getColumnNames());
+            TableFieldMetaInfo tableFieldMetaInfo = getExportFieldMetaInfo(connection,
+                tableName, command.getColumnNames());
+            List<FieldMetaInfo> pkFieldMetaInfoList = getPagingPkList(connection, tableName);
             // 分片数
             final int shardSize = topologyList.size();
-            int parallelism = config.getParallelism();
-            parallelism = parallelism > 0 ? parallelism : shardSize;
-            Semaphore permitted = new Semaphore(parallelism, true);
-
-            ExecutorService executor = MyThreadPool.createExecutorWithEnsure(APP_NAME, shardSize);
             DirectExportWorker directExportWorker;
             CountDownLatch countDownLatch = SyncUtil.newMainCountDownLatch(shardSize);
             switch (config.getExportWay()) {
@@ -141,127 +147,47 @@ public class ShardingExportExecutor extends BaseExportExecutor {
                         topologyList.get(i), tableFieldMetaInfo,
                         filePathPrefix + suffix, config);
                     directExportWorker.setCountDownLatch(countDownLatch);
-                    directExportWorker.setPermitted(permitted);
-                    executor.submit(directExportWorker);
+                    enableKeysetPaging(directExportWorker, pkFieldMetaInfoList);
+                    // 由调度器按节点获取许可并轮询派发
+                    scheduler.submit(topologyList.get(i), directExportWorker);
                 }
-                try {
-                    countDownLatch.await();
-                } catch (InterruptedException e) {
-                    logger.error("Interrupted when waiting for finish", e);
-                }
-                break;
+                return countDownLatch;
             case FIXED_FILE_NUM:
-                shardingExportWithFixedFile(tableName, topologyList, tableFieldMetaInfo, shardSize, filePathPrefix,
-                    executor, permitted, countDownLatch);
-                break;
+                // 消费者与文件一一对应，仍按表依次执行
+                ExecutorService executor = MyThreadPool.createExecutorWithEnsure(APP_NAME, shardSize);
+                exportWithFixedFile(tableName, topologyList, null, tableFieldMetaInfo, filePathPrefix,
+                    executor, null, countDownLatch);
+                executor.shutdown();
+                logger.info("导出 {} 数据完成，导出计数：{}", tableName, CountStat.getTableRowCount(tableName));
+                return null;
             default:
                 throw new RuntimeException("Unsupported export exception: " + config.getExportWay());
             }
-            executor.shutdown();
-            logger.info("导出 {} 数据完成，导出计数：{}", tableName, CountStat.getDbRowCount());
         } catch (DatabaseException | SQLException e) {
             logger.error(e.getMessage(), e);
+            return null;
         }
     }
 
-    private void shardingExportWithFixedFile(String tableName, List<TableTopology> topologyList,
-                                             TableFieldMetaInfo tableFieldMetaInfo,
-                                             int shardSize,
-                                             String filePathPrefix,
-                                             ExecutorService executor,
-                                             Semaphore permitted,
-                                             CountDownLatch countDownLatch) {
-        BaseCipher cipher = BaseCipher.getCipher(config.getEncryptionConfig(), true);
-        if (cipher != null && !cipher.supportBlock()) {
-            throw new UnsupportedOperationException(config.getEncryptionConfig().getEncryptionMode()
-                + " does not support export with fixed-number files");
-        }
-        // 初始化缓冲区等
-        EventFactory<ExportEvent> factory = ExportEvent::new;
-        RingBuffer<ExportEvent> ringBuffer = MyWorkerPool.createRingBuffer(factory);
-        AtomicInteger emittedDataCounter = SyncUtil.newRemainDataCounter();
-        // 消费者数量与文件数一致 生产者数量和shard数一致
-        final int consumerCount = config.getLimitNum(), producerCount = shardSize;
-
-        ExportConsumer[] consumers = new ExportConsumer[consumerCount];
-        String[] filePaths = new String[consumerCount];
-        for (int i = 0; i < consumers.length; i++) {
-            filePaths[i] = filePathPrefix + i;
-            if (config.getFileFormat() != FileFormat.NONE) {
-                filePaths[i] += config.getFileFormat().getSuffix();
-            }
-            consumers[i] = new ExportConsumer(filePaths[i], emittedDataCounter,
-                config.isWithHeader(),
-                config.getSeparator().getBytes(),
-                tableFieldMetaInfo, config.getCompressMode(), config.getCharset());
-            consumers[i].setCipher(cipher);
+    private void awaitTable(String tableName, CountDownLatch countDownLatch) {
+        try {
+            countDownLatch.await();
+            logger.info("导出 {} 数据完成，导出计数：{}", tableName, CountStat.getTableRowCount(tableName));
+        } catch (InterruptedException e) {
+            logger.error("Interrupted when waiting for finish", e);
         }
-        WorkerPool<ExportEvent> workerPool = MyWorkerPool.createWorkerPool(ringBuffer, consumers);
-        workerPool.start(executor);
-
-        ExecutorService producerExecutor = MyThreadPool.createExecutorWithEnsure("producer", producerCount);
-        // 每一个生产者最后的碎片数据处理
-        if (producerCount >= consumerCount * 2 || consumerCount <= 4) {
-            // 当生产者数量略大于消费者时 没必要轮询分配碎片
-            for (TableTopology topology : topologyList) {
-                ExportProducer producer = new ExportProducer(dataSource, tableName, topology,
-                    tableFieldMetaInfo, ringBuffer, config.getSeparator(),
-                    countDownLatch, emittedDataCounter, false, config.getQuoteEncloseMode());
-                producer.setPermitted(permitted);
-                producer.setWhereCondition(config.getWhereCondition());
-                producer.putDataMaskerMap(config.getColumnMaskerConfigMap());
-                producerExecutor.submit(producer);
-            }
-            waitForFinish(countDownLatch, emittedDataCounter);
-            workerPool.drainAndHalt();
-        } else {
-            Queue<ExportEvent> fragmentQueue = new ArrayBlockingQueue<>(producerCount);
-            // 将碎片放入缓冲队列
-            for (TableTopology topology : topologyList) {
-                ExportProducer producer = new ExportProducer(dataSource, tableName, topology,
-                    tableFieldMetaInfo, ringBuffer, config.getSeparator(),
-                    countDownLatch, emittedDataCounter,
-                    true, config.getQuoteEncloseMode());
-                producer.setWhereCondition(config.getWhereCondition());
-                producer.putDataMaskerMap(config.getColumnMaskerConfigMap());
-                producer.setFragmentQueue(fragmentQueue);
-                producer.setPermitted(permitted);
-                producerExecutor.submit(producer);
-            }
-            CyclicAtomicInteger cyclicCounter = new CyclicAtomicInteger(consumerCount);
-            // 待消费者消费结束
-            waitForFinish(countDownLatch, emittedDataCounter);
-            workerPool.drainAndHalt();
-            CountDownLatch fragmentCountLatch = SyncUtil.newMainCountDownLatch(consumerCount);
-            // 再将碎片一次分配给每个文件
-            for (int i = 0; i < consumerCount; i++) {
-                CollectFragmentWorker collectFragmentWorker = new CollectFragmentWorker(
-                    fragmentQueue, filePaths, cyclicCounter, fragmentCountLatch, config.getCompressMode(), config.getCharset());
-                executor.submit(collectFragmentWorker);
-            }
-            try {
-                fragmentCountLatch.await();
-            } catch (InterruptedException e) {
-                logger.error("Interrupted when waiting for finish", e);
-            }
-        }
-        for (ExportConsumer consumer : consumers) {
-            consumer.close();
-        }
-        producerExecutor.shutdown();
     }
 
     @Override
-    protected void handleSingleTableInner(String tableName) throws Exception {
-        this.curTableName.set(tableName);
-        doExportWithSharding(tableName);
+    protected Semaphore getProducerPermits(TableTopology topology, Semaphore permitted) {
+        return scheduler.getNodePermits(topology);
     }
 
     @Override
-    protected void printStatLog() {
-        String tableName = curTableName.get();
-        if (tableName != null) {
-            logger.info("表 {} 当前导出行数：{}", tableName, CountStat.getTableRowCount(tableName));
+    protected void handleSingleTableInner(String tableName) throws Exception {
+        CountDownLatch countDownLatch = submitTable(tableName);
+        if (countDownLatch != null) {
+            awaitTable(tableName, countDownLatch);
         }
     }
 }
@@ -20,22 +20,32 @@ import cmd.BaseOperateCommand;
 import com.alibaba.druid.pool.DruidDataSource;
 import datasource.DataSourceConfig;
 import exception.DatabaseException;
+import model.config.ExportConfig;
+import model.db.PrimaryKey;
+import model.db.FieldMetaInfo;
 import model.db.TableFieldMetaInfo;
 import model.db.TableTopology;
+import org.apache.commons.math3.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import util.CountStat;
 import util.DbUtil;
 import util.FileUtil;
+import util.SyncUtil;
 import worker.MyThreadPool;
 import worker.export.DirectExportWorker;
 import worker.factory.ExportWorkerFactory;
+import worker.util.ExportUtil;
 
+import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 
 import static model.config.ConfigConstant.APP_NAME;
 
@@ -68,6 +78,7 @@ public class SingleThreadExportExecutor extends BaseExportExecutor {
                 handleSingleTable(tableName);
             } catch (Exception e) {
                 logger.error("导出 {} 数据失败：{}", tableName, e.getMessage());
+                countDownLatch.countDown();
             }
         }
         try {
@@ -81,23 +92,127 @@ public class SingleThreadExportExecutor extends BaseExportExecutor {
 
     /**
      * 使用单条长连接导出数据
+     * 若指定了切分段数，则按主键范围并行导出
      */
     private void doDefaultExport(String tableName, ExecutorService executor,
                                  CountDownLatch countDownLatch) {
-        String fileName = FileUtil.getFilePathPrefix(config.getPath(),
-            config.getFilenamePrefix(), tableName) + 0;
+        String filePathPrefix = FileUtil.getFilePathPrefix(config.getPath(),
+            config.getFilenamePrefix(), tableName);
+        TableFieldMetaInfo tableFieldMetaInfo;
+        List<String> rangeConditions;
+        List<FieldMetaInfo> pkFieldMetaInfoList;
         try (Connection connection = dataSource.getConnection()) {
-            TableFieldMetaInfo tableFieldMetaInfo = DbUtil.getTableFieldMetaInfo(connection,
-                getSchemaName(), tableName, command.getColumnNames());
+            tableFieldMetaInfo = getExportFieldMetaInfo(connection,
+                tableName, command.getColumnNames());
+            rangeConditions = getRangeConditions(connection, tableName);
+            pkFieldMetaInfoList = getPagingPkList(connection, tableName);
+        } catch (DatabaseException | SQLException e) {
+            logger.error(e.getMessage(), e);
+            countDownLatch.countDown();
+            return;
+        }
+        if (rangeConditions.size() == 1 && config.getExportWay() != ExportConfig.ExportWay.FIXED_FILE_NUM) {
+            String fileName = filePathPrefix + 0;
             DirectExportWorker directExportWorker = ExportWorkerFactory.buildDefaultDirectExportWorker(dataSource,
                 tableName, new TableTopology(tableName), tableFieldMetaInfo,
                 fileName, config);
             directExportWorker.setCountDownLatch(countDownLatch);
+            enableKeysetPaging(directExportWorker, pkFieldMetaInfoList);
             executor.submit(directExportWorker);
             logger.info("开始导出表 {} 到文件 {}", tableName, fileName);
-        } catch (DatabaseException | SQLException e) {
-            logger.error(e.getMessage(), e);
+            return;
+        }
+        executor.submit(() -> {
+            try {
+                exportByRanges(tableName, tableFieldMetaInfo, pkFieldMetaInfoList,
+                    rangeConditions, filePathPrefix);
+            } catch (Exception e) {
+                logger.error("导出 {} 数据失败：{}", tableName, e.getMessage(), e);
+            } finally {
+                countDownLatch.countDown();
+            }
+        });
+    }
+
+    /**
+     * 根据单列整型主键的最小值与最大值进行切分
+     * 无法切分时只返回一个空条件
+     */
+    private List<String> getRangeConditions(Connection connection, String tableName) throws DatabaseException {
+        if (config.getSplitNum() <= 1) {
+            return Collections.singletonList(null);
+        }
+        List<PrimaryKey> pkList;
+        try {
+            pkList = DbUtil.getPkList(connection, getSchemaName(), tableName);
+        } catch (DatabaseException e) {
+            logger.warn("表 {} 没有主键，不进行切分", tableName);
+            return Collections.singletonList(null);
+        }
+        String pkName = pkList.get(0).getName();
+        Pair<BigInteger, BigInteger> minMax = DbUtil.getIntColumnMinMax(connection, tableName,
+            pkName, config.getWhereCondition());
+        if (minMax == null) {
+            logger.warn("表 {} 的主键 {} 不是整型或没有数据，不进行切分", tableName, pkName);
+            return Collections.singletonList(null);
+        }
+        List<String> rangeConditions = ExportUtil.getPkRangeConditions(pkName,
+            minMax.getFirst(), minMax.getSecond(), config.getSplitNum());
+        logger.info("表 {} 按主键 {} 切分为 {} 段导出", tableName, pkName, rangeConditions.size());
+        return rangeConditions;
+    }
+
+    /**
+     * 每个主键范围使用一条独立的连接导出
+     * 行数与文件数的限制与分库分表导出一致
+     */
+    private void exportByRanges(String tableName, TableFieldMetaInfo tableFieldMetaInfo,
+                                List<FieldMetaInfo> pkFieldMetaInfoList,
+                                List<String> rangeConditions, String filePathPrefix) {
+        final int rangeSize = rangeConditions.size();
+        List<String> whereConditionList = new ArrayList<>(rangeSize);
+        List<TableTopology> topologyList = new ArrayList<>(rangeSize);
+        for (String rangeCondition : rangeConditions) {
+            whereConditionList.add(ExportUtil.combineWhereCondition(config.getWhereCondition(), rangeCondition));
+            topologyList.add(new TableTopology(tableName));
+        }
+        int parallelism = config.getParallelism();
+        parallelism = parallelism > 0 ? Math.min(parallelism, rangeSize) : rangeSize;
+        Semaphore permitted = new Semaphore(parallelism, true);
+        CountDownLatch rangeCountDownLatch = SyncUtil.newMainCountDownLatch(rangeSize);
+
+        switch (config.getExportWay()) {
+        case MAX_LINE_NUM_IN_SINGLE_FILE:
+        case DEFAULT:
+            ExecutorService rangeExecutor = MyThreadPool.createExecutorWithEnsure(tableName, parallelism);
+            for (int i = 0; i < rangeSize; i++) {
+                DirectExportWorker directExportWorker = ExportWorkerFactory.buildDefaultDirectExportWorker(
+                    dataSource, tableName, topologyList.get(i), tableFieldMetaInfo,
+                    filePathPrefix + i, config);
+                directExportWorker.setWhereCondition(whereConditionList.get(i));
+                directExportWorker.setCountDownLatch(rangeCountDownLatch);
+                directExportWorker.setPermitted(permitted);
+                enableKeysetPaging(directExportWorker, pkFieldMetaInfoList);
+                rangeExecutor.submit(directExportWorker);
+            }
+            try {
+                rangeCountDownLatch.await();
+            } catch (InterruptedException e) {
+                logger.error("Interrupted when waiting for finish", e);
+            }
+            rangeExecutor.shutdown();
+            break;
+        case FIXED_FILE_NUM:
+            ExecutorService consumerExecutor = MyThreadPool.createExecutorWithEnsure(tableName,
+                config.getLimitNum());
+            exportWithFixedFile(tableName, topologyList, whereConditionList, tableFieldMetaInfo,
+                filePathPrefix, consumerExecutor, permitted, rangeCountDownLatch);
+            consumerExecutor.shutdown();
+            break;
+        default:
+            throw new UnsupportedOperationException("Unsupported export way: " + config.getExportWay());
         }
+        logger.info("导出表 {} 完成", tableName);
     }
 
     @Override
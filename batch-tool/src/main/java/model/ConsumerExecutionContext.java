@@ -16,12 +16,15 @@
 
 package model;
 
+import com.alibaba.fastjson2.JSONObject;
 import model.config.BaseConfig;
 import model.config.ConfigConstant;
 import model.db.PartitionKey;
 import model.db.PrimaryKey;
 import model.db.TableFieldMetaInfo;
 import model.db.TableTopology;
+import worker.NodeConcurrencyLimiter;
+import worker.util.ShardRouter;
 
 import javax.sql.DataSource;
 import java.util.HashMap;
@@ -38,6 +41,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class ConsumerExecutionContext extends BaseConfig {
 
     private DataSource dataSource;
+    /**
+     * 开启服务端预编译的连接池，仅预编译更新时使用
+     */
+    private DataSource serverPrepareDataSource;
 
     private List<String> tableNames;
 
@@ -64,6 +71,19 @@ public class ConsumerExecutionContext extends BaseConfig {
      * 是否开启sql使用函数更新
      */
     private boolean funcSqlForUpdateEnabled;
+    /**
+     * 是否使用预编译语句批量更新
+     */
+    private boolean preparedUpdateEnabled;
+    /**
+     * 按主键范围分段删除的初始段大小，0 表示不启用
+     */
+    private int deleteChunkSize = 0;
+    private int deleteChunkLatencyMs = ConfigConstant.DEFAULT_DELETE_CHUNK_LATENCY_MS;
+    /**
+     * 是否从检查点继续
+     */
+    private boolean resume = false;
     /**
      * 消费者并发度
      */
@@ -84,10 +104,22 @@ public class ConsumerExecutionContext extends BaseConfig {
      * 物理库表拓扑结构
      */
     private Map<String, List<TableTopology>> topologyList;
+    /**
+     * 按存储节点限制并发写入的分片数
+     */
+    private NodeConcurrencyLimiter nodeLimiter;
     /**
      * 划分键
      */
     private Map<String, PartitionKey> tablePartitionKey;
+    /**
+     * 按拆分规则路由到物理分表，规则不支持时为 null
+     */
+    private Map<String, ShardRouter> tableShardRouter;
+    /**
+     * 是否按物理分表分组下发
+     */
+    private boolean shardRouteEnabled = false;
     /**
      * update tableName set x=2x,y=2y,str=REVERSE(str) where %s;
      */
@@ -141,6 +173,11 @@ public class ConsumerExecutionContext extends BaseConfig {
 
     private volatile Exception exception;
 
+    /**
+     * 导入时的字段脱敏配置
+     */
+    private Map<String, JSONObject> columnMaskerConfigMap = null;
+
     public ConsumerExecutionContext() {
         super(ConfigConstant.DEFAULT_IMPORT_SHARDING_ENABLED);
     }
@@ -208,6 +245,14 @@ public class ConsumerExecutionContext extends BaseConfig {
         this.dataSource = dataSource;
     }
 
+    public DataSource getServerPrepareDataSource() {
+        return serverPrepareDataSource;
+    }
+
+    public void setServerPrepareDataSource(DataSource serverPrepareDataSource) {
+        this.serverPrepareDataSource = serverPrepareDataSource;
+    }
+
     public boolean isInsertIgnoreAndResumeEnabled() {
         return insertIgnoreAndResumeEnabled;
     }
@@ -268,6 +313,14 @@ public class ConsumerExecutionContext extends BaseConfig {
         this.topologyList = topologyList;
     }
 
+    public NodeConcurrencyLimiter getNodeLimiter() {
+        return nodeLimiter;
+    }
+
+    public void setNodeLimiter(NodeConcurrencyLimiter nodeLimiter) {
+        this.nodeLimiter = nodeLimiter;
+    }
+
     public Map<String, PartitionKey> getTablePartitionKey() {
         return tablePartitionKey;
     }
@@ -280,6 +333,22 @@ public class ConsumerExecutionContext extends BaseConfig {
         this.tablePartitionKey = tablePartitionKey;
     }
 
+    public ShardRouter getTableShardRouter(String tableName) {
+        return tableShardRouter.get(tableName);
+    }
+
+    public void setTableShardRouter(Map<String, ShardRouter> tableShardRouter) {
+        this.tableShardRouter = tableShardRouter;
+    }
+
+    public boolean isShardRouteEnabled() {
+        return shardRouteEnabled;
+    }
+
+    public void setShardRouteEnabled(boolean shardRouteEnabled) {
+        this.shardRouteEnabled = shardRouteEnabled;
+    }
+
     public int getTpsLimit() {
         return tpsLimit;
     }
@@ -325,6 +394,38 @@ public class ConsumerExecutionContext extends BaseConfig {
         this.funcSqlForUpdateEnabled = funcSqlForUpdateEnabled;
     }
 
+    public boolean isPreparedUpdateEnabled() {
+        return preparedUpdateEnabled;
+    }
+
+    public void setPreparedUpdateEnabled(boolean preparedUpdateEnabled) {
+        this.preparedUpdateEnabled = preparedUpdateEnabled;
+    }
+
+    public int getDeleteChunkSize() {
+        return deleteChunkSize;
+    }
+
+    public void setDeleteChunkSize(int deleteChunkSize) {
+        this.deleteChunkSize = deleteChunkSize;
+    }
+
+    public int getDeleteChunkLatencyMs() {
+        return deleteChunkLatencyMs;
+    }
+
+    public void setDeleteChunkLatencyMs(int deleteChunkLatencyMs) {
+        this.deleteChunkLatencyMs = deleteChunkLatencyMs;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
     public boolean isSqlEscapeEnabled() {
         return sqlEscapeEnabled;
     }
@@ -429,4 +530,12 @@ public class ConsumerExecutionContext extends BaseConfig {
             }
         }
     }
+
+    public Map<String, JSONObject> getColumnMaskerConfigMap() {
+        return columnMaskerConfigMap;
+    }
+
+    public void setColumnMaskerConfigMap(Map<String, JSONObject> columnMaskerConfigMap) {
+        this.columnMaskerConfigMap = columnMaskerConfigMap;
+    }
 }
@@ -57,6 +57,11 @@ public class ProducerExecutionContext extends BaseConfig {
      */
     private int readBlockSizeInMb = 2;
 
+    /**
+     * 远端文件的预取数量
+     */
+    private int prefetchNum = ConfigConstant.DEFAULT_PREFETCH_NUM;
+
     private List<ConcurrentHashMap<Long, AtomicInteger>> eventCounter;
 
     private int nextFileIndex = 0;
@@ -138,6 +143,14 @@ public class ProducerExecutionContext extends BaseConfig {
         this.readBlockSizeInMb = readBlockSizeInMb;
     }
 
+    public int getPrefetchNum() {
+        return prefetchNum;
+    }
+
+    public void setPrefetchNum(int prefetchNum) {
+        this.prefetchNum = prefetchNum;
+    }
+
     public List<ConcurrentHashMap<Long, AtomicInteger>> getEventCounter() {
         return eventCounter;
     }
@@ -318,6 +331,7 @@ public class ProducerExecutionContext extends BaseConfig {
             ", ddlFilePathList=" + ddlFileRecordList +
             ", parallelism=" + parallelism +
             ", readBlockSizeInMb=" + readBlockSizeInMb +
+            ", prefetchNum=" + prefetchNum +
             ", " + super.toString() +
             '}';
     }
@@ -0,0 +1,99 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package model.config;
+
+import java.util.Base64;
+
+/**
+ * 二进制字段在文本文件中的编码方式
+ * 导出时按原始字节读取，在客户端编码
+ */
+public enum BinaryEncodeMode {
+    /**
+     * 大写十六进制，与 MySQL hex() 的结果一致
+     * 默认模式
+     */
+    HEX,
+    /**
+     * 比十六进制少约三分之一的字节数
+     * 导入时使用 from_base64() 还原
+     */
+    BASE64,
+    /**
+     * 不做编码，直接写入原始字节
+     */
+    NONE;
+
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes();
+
+    public byte[] encode(byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        switch (this) {
+        case HEX:
+            byte[] hex = new byte[value.length * 2];
+            for (int i = 0; i < value.length; i++) {
+                hex[2 * i] = HEX_DIGITS[(value[i] >> 4) & 0x0F];
+                hex[2 * i + 1] = HEX_DIGITS[value[i] & 0x0F];
+            }
+            return hex;
+        case BASE64:
+            return Base64.getEncoder().encode(value);
+        case NONE:
+        default:
+            return value;
+        }
+    }
+
+    public byte[] decode(byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        switch (this) {
+        case HEX:
+            if (value.length % 2 != 0) {
+                throw new IllegalArgumentException("Illegal hex value length: " + value.length);
+            }
+            byte[] raw = new byte[value.length / 2];
+            for (int i = 0; i < raw.length; i++) {
+                raw[i] = (byte) ((Character.digit(value[2 * i], 16) << 4)
+                    | Character.digit(value[2 * i + 1], 16));
+            }
+            return raw;
+        case BASE64:
+            return Base64.getDecoder().decode(value);
+        case NONE:
+        default:
+            return value;
+        }
+    }
+
+    public static BinaryEncodeMode parseMode(String mode) {
+        switch (mode.toLowerCase()) {
+        case "hex":
+            return HEX;
+        case "base64":
+            return BASE64;
+        case "none":
+            return NONE;
+        default:
+            throw new IllegalArgumentException("Illegal binary encode mode: " + mode);
+        }
+    }
+}
@@ -66,6 +66,21 @@ public class ConfigConstant {
 
     public static final int DEFAULT_READ_BLOCK_SIZE_IN_MB = 2;
 
+    /**
+     * 导入远端文件时默认预取的文件数
+     */
+    public static final int DEFAULT_PREFETCH_NUM = 4;
+
+    /**
+     * 多表导出时默认共享的导出线程数
+     */
+    public static final int DEFAULT_SHARED_EXPORT_PARALLELISM = 64;
+
+    /**
+     * 排序导出时默认同时处理的表数
+     */
+    public static final int DEFAULT_ORDER_BY_TABLE_PARALLELISM = 4;
+
     /**
      * 默认读取文件的生产者数量
      */
@@ -133,6 +148,23 @@ public class ConfigConstant {
      */
     public static final int DEFAULT_COMPRESS_BUFFER_SIZE = 64 * 1024;
 
+    /**
+     * 异步写文件时轮换的缓冲区数与单个缓冲区大小(4MB)
+     */
+    public static final int DEFAULT_ASYNC_WRITE_BUFFER_COUNT = 2;
+    public static final int DEFAULT_ASYNC_WRITE_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * 按主键范围分段删除时每段的目标耗时
+     */
+    public static final int DEFAULT_DELETE_CHUNK_LATENCY_MS = 500;
+
+    /**
+     * 分帧加密时每帧的明文字节数
+     * 1MB
+     */
+    public static final int DEFAULT_CIPHER_FRAME_SIZE = 1024 * 1024;
+
     /**
      * OpenCSV库不支持直接读取一行 需读取出字段再用该魔法值拼接
      */
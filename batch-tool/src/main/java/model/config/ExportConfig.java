@@ -62,11 +62,50 @@ public class ExportConfig extends BaseConfig {
      */
     private int parallelism = 0;
 
+    /**
+     * 非分库分表时按主键范围切分的段数
+     * 0 表示不切分
+     */
+    private int splitNum = 0;
+
+    /**
+     * 按主键分页导出时每页的行数
+     * 0 表示使用单条流式查询
+     */
+    private int pageSize = 0;
+
+    /**
+     * 内存映射写入的窗口大小
+     * 0 表示使用普通的文件通道写入
+     */
+    private int mmapWindowInMb = 0;
+
+    /**
+     * 是否在独立的 IO 线程上写文件
+     */
+    private boolean isAsyncWrite = false;
+
+    /**
+     * 是否从检查点继续导出
+     */
+    private boolean isResume = false;
+
+    /**
+     * 本地外部排序的内存预算（MB）
+     * 0 表示由各分片执行 order by
+     */
+    private int sortMemoryInMb = 0;
+
     /**
      * 字段脱敏配置
      */
     private Map<String, JSONObject> columnMaskerConfigMap;
 
+    /**
+     * 字段名 -> 导出时替代该字段的 select 表达式
+     */
+    private Map<String, String> columnExpressionMap;
+
     private boolean isAscending = true;
     private boolean isLocalMerge = false;
     private boolean isParallelMerge = false;
@@ -204,6 +243,61 @@ public class ExportConfig extends BaseConfig {
         this.parallelism = parallelism;
     }
 
+    public int getSplitNum() {
+        return splitNum;
+    }
+
+    public void setSplitNum(int splitNum) {
+        this.splitNum = splitNum;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public int getMmapWindowInMb() {
+        return mmapWindowInMb;
+    }
+
+    public void setMmapWindowInMb(int mmapWindowInMb) {
+        this.mmapWindowInMb = mmapWindowInMb;
+    }
+
+    public boolean isAsyncWrite() {
+        return isAsyncWrite;
+    }
+
+    public void setAsyncWrite(boolean asyncWrite) {
+        isAsyncWrite = asyncWrite;
+    }
+
+    public boolean isResume() {
+        return isResume;
+    }
+
+    public void setResume(boolean resume) {
+        isResume = resume;
+    }
+
+    public int getSortMemoryInMb() {
+        return sortMemoryInMb;
+    }
+
+    public void setSortMemoryInMb(int sortMemoryInMb) {
+        this.sortMemoryInMb = sortMemoryInMb;
+    }
+
+    /**
+     * 是否在本地对各分片数据做外部排序
+     */
+    public boolean isLocalSort() {
+        return sortMemoryInMb > 0;
+    }
+
     private String getParallelismConfig() {
         if (this.parallelism > 0) {
             return String.valueOf(this.parallelism);
@@ -220,6 +314,14 @@ public class ExportConfig extends BaseConfig {
         this.columnMaskerConfigMap = columnMaskerConfigMap;
     }
 
+    public Map<String, String> getColumnExpressionMap() {
+        return columnExpressionMap;
+    }
+
+    public void setColumnExpressionMap(Map<String, String> columnExpressionMap) {
+        this.columnExpressionMap = columnExpressionMap;
+    }
+
     @Override
     public void validate() {
         super.validate();
@@ -227,6 +329,38 @@ public class ExportConfig extends BaseConfig {
             throw new UnsupportedOperationException(String.format("Export with format [%s] by [%s] is "
                 + "not supported yet", fileFormat, exportWay));
         }
+        if (this.pageSize > 0) {
+            if (this.exportWay == ExportWay.FIXED_FILE_NUM || !this.fileFormat.isSupportBlock()
+                || this.compressMode != CompressMode.NONE
+                || !this.encryptionConfig.getEncryptionMode().isSupportStreamingBit()) {
+                throw new UnsupportedOperationException("Export by pages only supports uncompressed text files "
+                    + "without fixed file num");
+            }
+            if (this.orderByColumnNameList != null) {
+                throw new UnsupportedOperationException("Export by pages does not support order by");
+            }
+        }
+        if (this.columnExpressionMap != null && this.orderByColumnNameList != null) {
+            for (String column : this.orderByColumnNameList) {
+                if (this.columnExpressionMap.keySet().stream().anyMatch(column::equalsIgnoreCase)) {
+                    throw new IllegalArgumentException("Cannot replace order-by column with expression: " + column);
+                }
+            }
+        }
+        if (this.sortMemoryInMb > 0 && !this.isLocalMerge) {
+            throw new IllegalArgumentException("Sort memory only works with local merge");
+        }
+        if (this.mmapWindowInMb > 0 && (this.compressMode != CompressMode.NONE || this.fileStorage != null)) {
+            throw new UnsupportedOperationException("Mmap writer only supports local uncompressed files");
+        }
+        if (this.isResume) {
+            if (this.pageSize <= 0) {
+                throw new IllegalArgumentException("Resume export requires page size");
+            }
+            if (this.fileStorage != null) {
+                throw new UnsupportedOperationException("Resume export only supports local file system");
+            }
+        }
     }
 
     @Override
@@ -243,6 +377,13 @@ public class ExportConfig extends BaseConfig {
             ", isLocalMerge=" + isLocalMerge +
             ", isParallelMerge=" + isParallelMerge +
             ", parallelism=" + getParallelismConfig() +
+            ", splitNum=" + splitNum +
+            ", pageSize=" + pageSize +
+            ", mmapWindowInMb=" + mmapWindowInMb +
+            ", isAsyncWrite=" + isAsyncWrite +
+            ", isResume=" + isResume +
+            ", sortMemoryInMb=" + sortMemoryInMb +
+            ", columnExpressionMap=" + columnExpressionMap +
             "} " + super.toString();
     }
 }
@@ -23,7 +23,8 @@ public enum FileFormat {
     LOG(".log", true),
     XLSX(".xlsx", false),
     ET(".et", false),
-    XLS(".xls", false);
+    XLS(".xls", false),
+    PARQUET(".parquet", false);
 
     private final String suffix;
 
@@ -53,6 +54,8 @@ public enum FileFormat {
             return ET;
         case "XLS":
             return XLS;
+        case "PARQUET":
+            return PARQUET;
         default:
             throw new IllegalArgumentException("Unrecognized file format: " + compressMode);
         }
@@ -66,4 +69,11 @@ public enum FileFormat {
         return supportBlock;
     }
 
+    /**
+     * 列式存储格式 自带字段名与类型
+     */
+    public boolean isColumnar() {
+        return this == PARQUET;
+    }
+
 }
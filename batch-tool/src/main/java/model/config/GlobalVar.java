@@ -66,10 +66,18 @@ public class GlobalVar {
      */
     public static int MAX_CSV_MULTI_LINE = 500;
 
-    public static boolean BINARY_AS_HEX = true;
+    /**
+     * 二进制字段的编码方式
+     */
+    public static BinaryEncodeMode BINARY_ENCODE_MODE = BinaryEncodeMode.HEX;
 
     public static int LOG_INTERVAL = 0;
 
+    /**
+     * 单个存储节点(DN)上同时进行的分片读写数
+     */
+    public static int NODE_PARALLELISM = 8;
+
     public static void setTpchUpdateBatchSize(int batchSize) {
         if (batchSize >= BaseOrderLineUpdateGenerator.SCALE_BASE) {
             throw new IllegalArgumentException(
@@ -17,6 +17,8 @@
 package model.db;
 
 import com.google.common.collect.ImmutableSet;
+import model.config.BinaryEncodeMode;
+import model.config.GlobalVar;
 
 public class FieldMetaInfo {
 
@@ -26,6 +28,18 @@ public class FieldMetaInfo {
      * 从0开始
      */
     private int index;
+    /**
+     * 字符类型的排序规则，仅排序字段会设置
+     */
+    private String collation;
+    /**
+     * 导出时替代该字段的 select 表达式
+     */
+    private String expression;
+    /**
+     * 是否为 bigint unsigned，取值可能超出 long 范围
+     */
+    private boolean unsignedBigInt = false;
 
     // todo 类型有待补充(blob)
     public static final ImmutableSet<String> STRING_TYPE_SET = ImmutableSet.of(
@@ -118,6 +132,46 @@ public class FieldMetaInfo {
         this.index = index;
     }
 
+    public String getCollation() {
+        return collation;
+    }
+
+    public void setCollation(String collation) {
+        this.collation = collation;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    public void setExpression(String expression) {
+        this.expression = expression;
+    }
+
+    public boolean isUnsignedBigInt() {
+        return unsignedBigInt;
+    }
+
+    /**
+     * @param columnType information_schema 中的 COLUMN_TYPE，如 bigint(20) unsigned
+     */
+    public void setColumnType(String columnType) {
+        if (columnType == null) {
+            return;
+        }
+        columnType = columnType.toLowerCase();
+        this.unsignedBigInt = columnType.startsWith("bigint") && columnType.contains("unsigned");
+    }
+
+    /**
+     * 是否需要在客户端对二进制字段值编码
+     * 使用表达式的字段按表达式结果原样导出
+     */
+    public boolean needBinaryEncode() {
+        return type == Type.BINARY && expression == null
+            && GlobalVar.BINARY_ENCODE_MODE != BinaryEncodeMode.NONE;
+    }
+
     public void setType(String typeStr) {
         typeStr = typeStr.toLowerCase();
         if (STRING_TYPE_SET.contains(typeStr)) {
@@ -0,0 +1,91 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package model.db;
+
+/**
+ * 分库分表规则，对应 SHOW RULE 的结果
+ * 未分表时分表键为 null
+ */
+public class PartitionRule {
+    private FieldMetaInfo dbPartitionKey;
+    private String dbPartitionPolicy;
+    private int dbPartitionCount = 1;
+    private FieldMetaInfo tbPartitionKey;
+    private String tbPartitionPolicy;
+    private int tbPartitionCount = 1;
+
+    public FieldMetaInfo getDbPartitionKey() {
+        return dbPartitionKey;
+    }
+
+    public void setDbPartitionKey(FieldMetaInfo dbPartitionKey) {
+        this.dbPartitionKey = dbPartitionKey;
+    }
+
+    public String getDbPartitionPolicy() {
+        return dbPartitionPolicy;
+    }
+
+    public void setDbPartitionPolicy(String dbPartitionPolicy) {
+        this.dbPartitionPolicy = dbPartitionPolicy;
+    }
+
+    public int getDbPartitionCount() {
+        return dbPartitionCount;
+    }
+
+    public void setDbPartitionCount(int dbPartitionCount) {
+        this.dbPartitionCount = dbPartitionCount;
+    }
+
+    public FieldMetaInfo getTbPartitionKey() {
+        return tbPartitionKey;
+    }
+
+    public void setTbPartitionKey(FieldMetaInfo tbPartitionKey) {
+        this.tbPartitionKey = tbPartitionKey;
+    }
+
+    public String getTbPartitionPolicy() {
+        return tbPartitionPolicy;
+    }
+
+    public void setTbPartitionPolicy(String tbPartitionPolicy) {
+        this.tbPartitionPolicy = tbPartitionPolicy;
+    }
+
+    public int getTbPartitionCount() {
+        return tbPartitionCount;
+    }
+
+    public void setTbPartitionCount(int tbPartitionCount) {
+        this.tbPartitionCount = tbPartitionCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionRule{" +
+            "dbPartitionKey=" + dbPartitionKey +
+            ", dbPartitionPolicy='" + dbPartitionPolicy + '\'' +
+            ", dbPartitionCount=" + dbPartitionCount +
+            ", tbPartitionKey=" + tbPartitionKey +
+            ", tbPartitionPolicy='" + tbPartitionPolicy + '\'' +
+            ", tbPartitionCount=" + tbPartitionCount +
+            '}';
+    }
+}
@@ -27,6 +27,10 @@ public class TableTopology {
      * 分表名
      */
     private final String tableName;
+    /**
+     * 分库所在的存储节点(DN)，未知时为 null
+     */
+    private String storageNode;
 
     public TableTopology(String tableName) {
         this.tableName = tableName;
@@ -46,6 +50,25 @@ public class TableTopology {
         return tableName;
     }
 
+    public String getStorageNode() {
+        return storageNode;
+    }
+
+    public void setStorageNode(String storageNode) {
+        this.storageNode = storageNode;
+    }
+
+    /**
+     * 用于按物理节点限流的标识
+     * 存储节点未知时退化为分库名
+     */
+    public String getNodeKey() {
+        if (StringUtils.isNotEmpty(storageNode)) {
+            return storageNode;
+        }
+        return hasGroup() ? groupName : tableName;
+    }
+
     public boolean hasGroup() {
         return StringUtils.isNotEmpty(groupName);
     }
@@ -17,45 +17,114 @@
 package model.encrypt;
 
 import model.config.EncryptionConfig;
-import org.bouncycastle.crypto.BufferedBlockCipher;
-import org.bouncycastle.crypto.paddings.PaddedBufferedBlockCipher;
-import org.bouncycastle.crypto.paddings.ZeroBytePadding;
-import org.bouncycastle.crypto.params.KeyParameter;
 
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * 按行加密：AES/CBC，IV 全为0，末尾以0填充至少一个字节
+ * 分帧加密：AES/CBC/PKCS5Padding，每帧独立的 IV
+ */
 public class AesCipher extends BaseCipher {
 
-    private final BufferedBlockCipher cipher;
+    private static final int BLOCK_SIZE = 16;
+    private static final String LINE_TRANSFORMATION = "AES/CBC/NoPadding";
+    private static final String FRAME_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+
+    private final String provider;
+    private final SecretKeySpec key;
+    private final Cipher cipher;
+    private Cipher frameCipher = null;
 
     public AesCipher(EncryptionConfig encryptionConfig, boolean encrypting) {
+        this(encryptionConfig, encrypting, null);
+    }
+
+    /**
+     * @param provider JCE provider 名称，为 null 时优先使用 JDK 自带实现
+     */
+    public AesCipher(EncryptionConfig encryptionConfig, boolean encrypting, String provider) {
         super(encryptionConfig, encrypting);
         byte[] keyBytes = encryptionConfig.getKey().getBytes();
         byte[] key = new byte[KEY_LENGTH];
         System.arraycopy(keyBytes, 0, key, 0, Math.min(keyBytes.length, KEY_LENGTH));
-        this.cipher = new PaddedBufferedBlockCipher(
-            CipherUtil.getAesCipher(encryptionConfig.getEncryptionMode()), new ZeroBytePadding());
-        cipher.init(encrypting, new KeyParameter(key));
+        this.provider = provider;
+        this.key = new SecretKeySpec(key, "AES");
+        this.cipher = CipherUtil.getAesCipher(LINE_TRANSFORMATION, provider);
+        try {
+            cipher.init(getCipherMode(), this.key, new IvParameterSpec(new byte[BLOCK_SIZE]));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException(e);
+        }
     }
 
     @Override
     public byte[] innerEncrypt(byte[] plainText) throws Exception {
-        byte[] crypto = new byte[cipher.getOutputSize(plainText.length)];
-        int len = cipher.processBytes(plainText, 0, plainText.length, crypto, 0);
-        cipher.doFinal(crypto, len);
+        // 与原先的 ZeroBytePadding 一致：总是补齐到下一个整块
+        byte[] crypto = Arrays.copyOf(plainText, (plainText.length / BLOCK_SIZE + 1) * BLOCK_SIZE);
+        cipher.doFinal(crypto, 0, crypto.length, crypto, 0);
         return crypto;
     }
 
     @Override
     protected byte[] innerDecrypt(byte[] crypto, int offset, int length) throws Exception {
-        byte[] output = new byte[cipher.getOutputSize(crypto.length)];
-        int len = cipher.processBytes(crypto, 0, crypto.length, output, 0);
-        len += cipher.doFinal(output, len);
-        byte[] result = new byte[len];
-        System.arraycopy(output, 0, result, 0, result.length);
-        return result;
+        byte[] output = new byte[length];
+        int len = cipher.doFinal(crypto, offset, length, output, 0);
+        // 去除最后一块末尾的0填充
+        int end = len, lastBlockStart = Math.max(0, len - BLOCK_SIZE);
+        while (end > lastBlockStart && output[end - 1] == 0) {
+            end--;
+        }
+        return end == output.length ? output : Arrays.copyOf(output, end);
+    }
+
+    @Override
+    protected int innerEncryptFrame(byte[] iv, byte[] input, int offset, int length,
+                                    byte[] output, int outOffset) throws Exception {
+        return processFrame(iv, input, offset, length, output, outOffset);
+    }
+
+    @Override
+    protected int innerDecryptFrame(byte[] iv, byte[] crypto, int offset, int length,
+                                    byte[] output, int outOffset) throws Exception {
+        return processFrame(iv, crypto, offset, length, output, outOffset);
+    }
+
+    private int processFrame(byte[] iv, byte[] input, int offset, int length,
+                             byte[] output, int outOffset) throws Exception {
+        if (frameCipher == null) {
+            frameCipher = CipherUtil.getAesCipher(FRAME_TRANSFORMATION, provider);
+        }
+        frameCipher.init(getCipherMode(), key, new IvParameterSpec(iv));
+        return frameCipher.doFinal(input, offset, length, output, outOffset);
+    }
+
+    private int getCipherMode() {
+        return encrypting ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE;
+    }
+
+    @Override
+    public boolean supportFrame() {
+        return true;
+    }
+
+    @Override
+    public int getFrameIvLength() {
+        return BLOCK_SIZE;
+    }
+
+    @Override
+    public int getFrameOutputSize(int length) {
+        return (length / BLOCK_SIZE + 1) * BLOCK_SIZE;
     }
 
+    /**
+     * JCE 的 Cipher 在 doFinal 后会自动恢复初始状态
+     */
     @Override
     public void reset() {
-        cipher.reset();
     }
 }
@@ -51,6 +51,64 @@ public abstract class BaseCipher {
 
     protected abstract byte[] innerDecrypt(byte[] crypto, int offset, int length) throws Exception;
 
+    /**
+     * 将一帧明文整体加密到 output 中，每帧独立初始化
+     *
+     * @param iv 长度为 {@link #getFrameIvLength()}，不需要时为 null
+     * @return 写入 output 的字节数
+     */
+    public final int encryptFrame(byte[] iv, byte[] input, int offset, int length,
+                                  byte[] output, int outOffset) throws Exception {
+        if (!encrypting) {
+            throw new IllegalStateException("Cannot encrypt in decryption mode");
+        }
+        return innerEncryptFrame(iv, input, offset, length, output, outOffset);
+    }
+
+    /**
+     * 将一帧密文整体解密到 output 中，output 剩余空间不小于 length 即可
+     *
+     * @return 写入 output 的字节数
+     */
+    public final int decryptFrame(byte[] iv, byte[] crypto, int offset, int length,
+                                  byte[] output, int outOffset) throws Exception {
+        if (encrypting) {
+            throw new IllegalStateException("Cannot decrypt in encryption mode");
+        }
+        return innerDecryptFrame(iv, crypto, offset, length, output, outOffset);
+    }
+
+    protected int innerEncryptFrame(byte[] iv, byte[] input, int offset, int length,
+                                    byte[] output, int outOffset) throws Exception {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support frame");
+    }
+
+    protected int innerDecryptFrame(byte[] iv, byte[] crypto, int offset, int length,
+                                    byte[] output, int outOffset) throws Exception {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support frame");
+    }
+
+    /**
+     * 支持分帧加解密
+     */
+    public boolean supportFrame() {
+        return false;
+    }
+
+    /**
+     * 每帧 IV 的字节数，0 表示不需要
+     */
+    public int getFrameIvLength() {
+        return 0;
+    }
+
+    /**
+     * 加密一帧 length 字节明文后的最大密文长度
+     */
+    public int getFrameOutputSize(int length) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support frame");
+    }
+
     public abstract void reset();
 
     public static BaseCipher getCipher(EncryptionConfig config, boolean encrypting) {
@@ -40,7 +40,7 @@ public class CaesarCipher extends BaseCipher {
     protected byte[] innerDecrypt(byte[] crypto, int offset, int length) throws Exception {
         byte[] plainText = new byte[length];
         for (int i = 0; i < plainText.length; i++) {
-            plainText[i] = (byte) ((crypto[i] + mask) ^ mask);
+            plainText[i] = (byte) ((crypto[offset + i] + mask) ^ mask);
         }
         return plainText;
     }
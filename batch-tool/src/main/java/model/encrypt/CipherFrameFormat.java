@@ -0,0 +1,147 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package model.encrypt;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 分帧加密的文件格式
+ * 文件头 | 帧 ... | 帧索引 | 文件尾
+ * 文件头：魔数(4) 版本(1) 加密算法(1) 保留(2) 帧明文字节数(4)
+ * 帧：密文长度(4) IV(长度由加密算法决定) 密文
+ * 帧明文：每行为 行字节数(varint) + 行数据，行内可以包含换行符
+ * 帧索引：每帧的起始偏移(8)
+ * 文件尾：帧数(4) 帧索引起始偏移(8) 魔数(4)
+ * 每帧只包含完整的行，可独立解密
+ */
+public class CipherFrameFormat {
+
+    private static final byte[] HEADER_MAGIC = {'P', 'X', 'C', 'F'};
+    private static final byte[] TRAILER_MAGIC = {'P', 'X', 'C', 'I'};
+    private static final byte VERSION = 2;
+
+    public static final int HEADER_SIZE = 12;
+    public static final int FRAME_HEADER_SIZE = 4;
+    public static final int TRAILER_SIZE = 16;
+
+    public static void writeHeader(ByteBuffer byteBuffer, BaseCipher cipher, int frameSize) {
+        byteBuffer.put(HEADER_MAGIC);
+        byteBuffer.put(VERSION);
+        byteBuffer.put((byte) cipher.encryptionConfig.getEncryptionMode().ordinal());
+        byteBuffer.putShort((short) 0);
+        byteBuffer.putInt(frameSize);
+    }
+
+    /**
+     * 行字节数按 varint 编码占用的字节数
+     */
+    public static int getRowLengthSize(int rowLength) {
+        int size = 1;
+        while ((rowLength >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * 在 buffer 的 offset 处写入 varint 编码的行字节数
+     *
+     * @return 写入的字节数
+     */
+    public static int putRowLength(byte[] buffer, int offset, int rowLength) {
+        int pos = offset;
+        while ((rowLength & ~0x7F) != 0) {
+            buffer[pos++] = (byte) ((rowLength & 0x7F) | 0x80);
+            rowLength >>>= 7;
+        }
+        buffer[pos++] = (byte) rowLength;
+        return pos - offset;
+    }
+
+    public static void writeTrailer(ByteBuffer byteBuffer, int frameCount, long indexOffset) {
+        byteBuffer.putInt(frameCount);
+        byteBuffer.putLong(indexOffset);
+        byteBuffer.put(TRAILER_MAGIC);
+    }
+
+    /**
+     * 根据文件头判断是否为分帧加密文件
+     */
+    public static boolean isFramedFile(File file) {
+        if (!file.isFile() || file.length() < HEADER_SIZE + TRAILER_SIZE) {
+            return false;
+        }
+        byte[] magic = new byte[HEADER_MAGIC.length];
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            if (inputStream.read(magic) != magic.length) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        return Arrays.equals(magic, HEADER_MAGIC);
+    }
+
+    /**
+     * 读取文件尾部的帧索引
+     *
+     * @return 各帧的起始偏移，末尾额外附加帧索引的起始偏移作为最后一帧的结束位置
+     */
+    public static long[] readFrameIndex(RandomAccessFile file) throws IOException {
+        long fileLength = file.length();
+        if (fileLength < HEADER_SIZE + TRAILER_SIZE) {
+            throw new IllegalStateException("Not a framed cipher file, length: " + fileLength);
+        }
+        byte[] header = new byte[HEADER_SIZE];
+        file.seek(0);
+        file.readFully(header);
+        if (!Arrays.equals(Arrays.copyOf(header, HEADER_MAGIC.length), HEADER_MAGIC)) {
+            throw new IllegalStateException("Not a framed cipher file, bad header magic");
+        }
+        if (header[4] != VERSION) {
+            throw new IllegalStateException("Unsupported framed cipher file version: " + header[4]);
+        }
+        byte[] trailer = new byte[TRAILER_SIZE];
+        file.seek(fileLength - TRAILER_SIZE);
+        file.readFully(trailer);
+        ByteBuffer trailerBuffer = ByteBuffer.wrap(trailer);
+        int frameCount = trailerBuffer.getInt();
+        long indexOffset = trailerBuffer.getLong();
+        byte[] magic = new byte[TRAILER_MAGIC.length];
+        trailerBuffer.get(magic);
+        if (!Arrays.equals(magic, TRAILER_MAGIC) || frameCount < 0
+            || indexOffset + (long) frameCount * Long.BYTES != fileLength - TRAILER_SIZE) {
+            throw new IllegalStateException("Broken framed cipher file, the frame index is incomplete");
+        }
+        byte[] index = new byte[frameCount * Long.BYTES];
+        file.seek(indexOffset);
+        file.readFully(index);
+        ByteBuffer indexBuffer = ByteBuffer.wrap(index);
+        long[] offsets = new long[frameCount + 1];
+        for (int i = 0; i < frameCount; i++) {
+            offsets[i] = indexBuffer.getLong();
+        }
+        offsets[frameCount] = indexOffset;
+        return offsets;
+    }
+}
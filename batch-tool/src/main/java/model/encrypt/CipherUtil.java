@@ -16,20 +16,40 @@
 
 package model.encrypt;
 
-import model.config.EncryptionMode;
-import org.bouncycastle.crypto.BlockCipher;
-import org.bouncycastle.crypto.engines.AESEngine;
-import org.bouncycastle.crypto.modes.CBCBlockCipher;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.Security;
 
 public class CipherUtil {
 
+    static {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
 
-    public static BlockCipher getAesCipher(EncryptionMode encryptionMode) {
-        switch (encryptionMode) {
-        case AES_CBC:
-            return new CBCBlockCipher(new AESEngine());
-        default:
-            throw new IllegalArgumentException("Unsupported encryption mode: " + encryptionMode);
+    /**
+     * AES 优先使用 JDK 自带的实现（可利用 AES-NI 指令加速）
+     * JDK 不支持该算法时才回退到 BouncyCastle
+     *
+     * @param provider 指定的 provider，为 null 时按上述顺序选择
+     */
+    public static Cipher getAesCipher(String transformation, String provider) {
+        try {
+            if (provider != null) {
+                return Cipher.getInstance(transformation, provider);
+            }
+            try {
+                return Cipher.getInstance(transformation);
+            } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+                return Cipher.getInstance(transformation, BouncyCastleProvider.PROVIDER_NAME);
+            }
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException | NoSuchProviderException e) {
+            throw new IllegalArgumentException("Unsupported cipher: " + transformation, e);
         }
     }
 }
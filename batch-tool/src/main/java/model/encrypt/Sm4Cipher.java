@@ -39,6 +39,7 @@ public class Sm4Cipher extends BaseCipher {
     }
     public static final String DEFAULT_SM4_ALGORITHM = "SM4/ECB/PKCS5Padding";
     public static final String ALGORITHM_NAME = "SM4";
+    private static final int BLOCK_SIZE = 16;
 
     private final Cipher cipher;
 
@@ -70,6 +71,31 @@ public class Sm4Cipher extends BaseCipher {
         return cipher.doFinal(crypto, offset, length);
     }
 
+    /**
+     * ECB 模式无需 IV，每帧单独 doFinal 即可独立解密
+     */
+    @Override
+    protected int innerEncryptFrame(byte[] iv, byte[] input, int offset, int length,
+                                    byte[] output, int outOffset) throws Exception {
+        return cipher.doFinal(input, offset, length, output, outOffset);
+    }
+
+    @Override
+    protected int innerDecryptFrame(byte[] iv, byte[] crypto, int offset, int length,
+                                    byte[] output, int outOffset) throws Exception {
+        return cipher.doFinal(crypto, offset, length, output, outOffset);
+    }
+
+    @Override
+    public boolean supportFrame() {
+        return true;
+    }
+
+    @Override
+    public int getFrameOutputSize(int length) {
+        return (length / BLOCK_SIZE + 1) * BLOCK_SIZE;
+    }
+
     @Override
     public void reset() {
 
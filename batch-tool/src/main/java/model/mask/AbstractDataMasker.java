@@ -16,9 +16,30 @@
 
 package model.mask;
 
+import java.io.ByteArrayOutputStream;
+
+/**
+ * 脱敏器需保证线程安全，同一实例可被多个导出/导入线程共享
+ */
 public abstract class AbstractDataMasker {
 
     public abstract MaskType getType();
 
     public abstract byte[] doMask(byte[] input);
+
+    /**
+     * 将脱敏结果直接写入 os，避免中间数组
+     */
+    public void doMask(byte[] input, ByteArrayOutputStream os) {
+        byte[] output = doMask(input);
+        os.write(output, 0, output.length);
+    }
+
+    /**
+     * 脱敏结果只包含字母、数字及 +/=
+     * 为 true 时若分隔符不含这些字符，结果可直接写入无需转义
+     */
+    public boolean isPlainOutput() {
+        return false;
+    }
 }
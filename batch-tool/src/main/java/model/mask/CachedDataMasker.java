@@ -0,0 +1,89 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package model.mask;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 缓存脱敏结果，适用于取值重复较多的字段
+ * 以输入字节为键，超过容量时淘汰最近最少使用的值
+ */
+@ThreadSafe
+public class CachedDataMasker extends AbstractDataMasker {
+
+    private final AbstractDataMasker delegate;
+    private final Cache<ByteBuffer, byte[]> cache;
+
+    public CachedDataMasker(AbstractDataMasker delegate, long maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Mask cache size should be positive");
+        }
+        this.delegate = delegate;
+        this.cache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    @Override
+    public MaskType getType() {
+        return delegate.getType();
+    }
+
+    @Override
+    public byte[] doMask(byte[] input) {
+        byte[] output = lookup(input);
+        return Arrays.copyOf(output, output.length);
+    }
+
+    @Override
+    public void doMask(byte[] input, ByteArrayOutputStream os) {
+        byte[] output = lookup(input);
+        os.write(output, 0, output.length);
+    }
+
+    @Override
+    public boolean isPlainOutput() {
+        return delegate.isPlainOutput();
+    }
+
+    /**
+     * 返回的数组由缓存持有，不能修改
+     */
+    private byte[] lookup(byte[] input) {
+        byte[] output = cache.getIfPresent(ByteBuffer.wrap(input));
+        if (output != null) {
+            return output;
+        }
+        // 部分脱敏器会原地修改输入，需先复制键
+        byte[] key = Arrays.copyOf(input, input.length);
+        output = delegate.doMask(input);
+        if (output == input) {
+            output = Arrays.copyOf(output, output.length);
+        }
+        cache.put(ByteBuffer.wrap(key), output);
+        return output;
+    }
+
+    public long size() {
+        return cache.size();
+    }
+}
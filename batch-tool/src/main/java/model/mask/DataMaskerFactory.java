@@ -17,10 +17,19 @@
 package model.mask;
 
 import com.alibaba.fastjson2.JSONObject;
+import model.db.FieldMetaInfo;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+import java.util.Map;
 
 public class DataMaskerFactory {
 
     private static final String MASK_TYPE_KEY = "type";
+    /**
+     * 缓存的脱敏结果个数，不配置则不缓存
+     */
+    private static final String CACHE_SIZE_KEY = "cache_size";
 
     /**
      * 掩码脱敏
@@ -33,21 +42,66 @@ public class DataMaskerFactory {
      * 哈希脱敏
      */
     private static final String HASH_SALT_KEY = "salt";
+    private static final String HASH_ALGORITHM_KEY = "algorithm";
+
+    /**
+     * 保留格式脱敏
+     */
+    private static final String FORMAT_PRESERVING_SALT_KEY = "salt";
 
     public static AbstractDataMasker getDataMasker(JSONObject jsonConfig) {
         MaskType maskType = MaskType.fromString(jsonConfig.getString(MASK_TYPE_KEY));
+        AbstractDataMasker masker;
         switch (maskType) {
         case HIDING:
-            return buildHidingMasker(jsonConfig);
+            masker = buildHidingMasker(jsonConfig);
+            break;
         case ENCRYPT:
-            return buildEncryptMasker(jsonConfig);
+            masker = buildEncryptMasker(jsonConfig);
+            break;
         case HASH:
-            return buildHashMasker(jsonConfig);
+            masker = buildHashMasker(jsonConfig);
+            break;
         case FLOOR:
-            return buildFloorMasker(jsonConfig);
+            masker = buildFloorMasker(jsonConfig);
+            break;
+        case FORMAT_PRESERVING:
+            masker = buildFormatPreservingMasker(jsonConfig);
+            break;
         default:
             throw new UnsupportedOperationException("Unsupported mask type: " + maskType);
         }
+        if (jsonConfig.containsKey(CACHE_SIZE_KEY)) {
+            return new CachedDataMasker(masker, jsonConfig.getLongValue(CACHE_SIZE_KEY));
+        }
+        return masker;
+    }
+
+    /**
+     * 按字段顺序构建脱敏器
+     *
+     * @return 与 fieldMetaInfoList 一一对应，无需脱敏的字段为 null；没有配置时返回 null
+     */
+    public static AbstractDataMasker[] buildColumnMaskers(Map<String, JSONObject> columnMaskerConfigMap,
+                                                          List<FieldMetaInfo> fieldMetaInfoList) {
+        if (columnMaskerConfigMap == null || columnMaskerConfigMap.isEmpty()) {
+            return null;
+        }
+        AbstractDataMasker[] maskers = new AbstractDataMasker[fieldMetaInfoList.size()];
+        for (Map.Entry<String, JSONObject> columnMasker : columnMaskerConfigMap.entrySet()) {
+            int columnIdx = -1;
+            for (int i = 0; i < fieldMetaInfoList.size(); i++) {
+                if (StringUtils.equalsIgnoreCase(columnMasker.getKey(), fieldMetaInfoList.get(i).getName())) {
+                    columnIdx = i;
+                    break;
+                }
+            }
+            if (columnIdx == -1) {
+                throw new IllegalArgumentException("Unknown mask column: " + columnMasker.getKey());
+            }
+            maskers[columnIdx] = getDataMasker(columnMasker.getValue());
+        }
+        return maskers;
     }
 
     private static AbstractDataMasker buildHidingMasker(JSONObject jsonConfig) {
@@ -76,10 +130,21 @@ public class DataMaskerFactory {
         if (jsonConfig.containsKey(HASH_SALT_KEY)) {
             hashMasker.setSalt(jsonConfig.getString(HASH_SALT_KEY));
         }
+        if (jsonConfig.containsKey(HASH_ALGORITHM_KEY)) {
+            hashMasker.setAlgorithm(HashMasker.HashAlgorithm.fromString(jsonConfig.getString(HASH_ALGORITHM_KEY)));
+        }
 
         return hashMasker;
     }
 
+    private static AbstractDataMasker buildFormatPreservingMasker(JSONObject jsonConfig) {
+        FormatPreservingMasker masker = new FormatPreservingMasker();
+        if (jsonConfig.containsKey(FORMAT_PRESERVING_SALT_KEY)) {
+            masker.setSalt(jsonConfig.getString(FORMAT_PRESERVING_SALT_KEY));
+        }
+        return masker;
+    }
+
     private static AbstractDataMasker buildFloorMasker(JSONObject jsonConfig) {
         throw new UnsupportedOperationException("Floor masker is not implemented yet");
     }
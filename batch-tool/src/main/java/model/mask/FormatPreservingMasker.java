@@ -0,0 +1,122 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package model.mask;
+
+import model.config.ConfigConstant;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * 保留格式的脱敏
+ * 数字、小写字母、大写字母分别替换为同类字符，其余字符及长度不变
+ * 第 i 个字符的偏移量由密钥及其之前的原字符决定，
+ * 因此结果是确定的，且相同长度的不同输入不会映射到同一输出
+ * 并非加密强度的保留格式加密
+ */
+@ThreadSafe
+public class FormatPreservingMasker extends AbstractDataMasker {
+
+    private static final int MAX_SALT_LENGTH = 16;
+
+    private Charset charset = ConfigConstant.DEFAULT_CHARSET;
+    private long key0 = 0, key1 = 0;
+
+    @Override
+    public MaskType getType() {
+        return MaskType.FORMAT_PRESERVING;
+    }
+
+    @Override
+    public byte[] doMask(byte[] input) {
+        if (isAscii(input)) {
+            // ASCII 在常用字符集中均为单字节，无需解码
+            byte[] output = Arrays.copyOf(input, input.length);
+            long state = initState(input.length);
+            for (int i = 0; i < output.length; i++) {
+                int c = output[i];
+                output[i] = (byte) substitute(c, state);
+                state = nextState(state, c);
+            }
+            return output;
+        }
+        char[] chars = new String(input, charset).toCharArray();
+        long state = initState(chars.length);
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            chars[i] = (char) substitute(c, state);
+            state = nextState(state, c);
+        }
+        return new String(chars).getBytes(charset);
+    }
+
+    private static boolean isAscii(byte[] input) {
+        for (byte b : input) {
+            if (b < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long initState(int length) {
+        return mix(key0 ^ length);
+    }
+
+    private long nextState(long state, int c) {
+        return mix(state ^ (c + key1));
+    }
+
+    private int substitute(int c, long state) {
+        int shift = (int) ((mix(state + key1) >>> 1) % 0x7FFFFFFFL);
+        if (c >= '0' && c <= '9') {
+            return '0' + (c - '0' + shift % 10) % 10;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return 'a' + (c - 'a' + shift % 26) % 26;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return 'A' + (c - 'A' + shift % 26) % 26;
+        }
+        return c;
+    }
+
+    /**
+     * splitmix64 的混淆函数
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public void setSalt(String salt) {
+        byte[] saltBytes = salt.getBytes(ConfigConstant.DEFAULT_CHARSET);
+        if (saltBytes.length > MAX_SALT_LENGTH) {
+            throw new IllegalArgumentException("Format preserving salt max length is " + MAX_SALT_LENGTH);
+        }
+        byte[] key = Arrays.copyOf(saltBytes, MAX_SALT_LENGTH);
+        this.key0 = KeyedHash.getLongLE(key, 0);
+        this.key1 = KeyedHash.getLongLE(key, 8);
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+}
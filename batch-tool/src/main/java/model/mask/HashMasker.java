@@ -19,28 +19,36 @@ package model.mask;
 import com.google.common.base.Preconditions;
 import model.config.ConfigConstant;
 
-import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayOutputStream;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Base64;
 
-@NotThreadSafe
+/**
+ * 摘要脱敏
+ * MD5 结果为 Base64 编码，SipHash/xxHash 结果为16位十六进制
+ */
+@ThreadSafe
 public class HashMasker extends AbstractDataMasker {
 
     private static final int MAX_SALT_LENGTH = 16;
-    private byte[] salt = null;
-
-    private final MessageDigest MD5_DIGEST;
-    private final Base64.Encoder BASE64_ENCODER = Base64.getEncoder();
+    private static final int MD5_LENGTH = 16;
+    private static final Base64.Encoder BASE64_ENCODER = Base64.getEncoder();
 
+    private byte[] salt = null;
+    private HashAlgorithm algorithm = HashAlgorithm.MD5;
+    /**
+     * 由 salt 得到的密钥
+     */
+    private long key0 = 0, key1 = 0;
 
-    public HashMasker() {
-        try {
-            MD5_DIGEST = MessageDigest.getInstance("MD5");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
-    }
+    /**
+     * 每个线程独立的摘要状态与输出缓冲区
+     */
+    private final ThreadLocal<HashState> localState = ThreadLocal.withInitial(HashState::new);
 
     @Override
     public MaskType getType() {
@@ -49,12 +57,48 @@ public class HashMasker extends AbstractDataMasker {
 
     @Override
     public byte[] doMask(byte[] input) {
-        if (salt == null) {
-            return BASE64_ENCODER.encode(MD5_DIGEST.digest(input));
+        HashState state = localState.get();
+        int len = hash(input, state);
+        return Arrays.copyOf(state.output, len);
+    }
+
+    @Override
+    public void doMask(byte[] input, ByteArrayOutputStream os) {
+        HashState state = localState.get();
+        int len = hash(input, state);
+        os.write(state.output, 0, len);
+    }
+
+    @Override
+    public boolean isPlainOutput() {
+        return true;
+    }
+
+    /**
+     * @return 写入 state.output 的字节数
+     */
+    private int hash(byte[] input, HashState state) {
+        switch (algorithm) {
+        case SIPHASH:
+            KeyedHash.toHex(KeyedHash.sipHash24(key0, key1, input, 0, input.length), state.output, 0);
+            return 16;
+        case XXHASH:
+            KeyedHash.toHex(KeyedHash.xxHash64(key0 ^ key1, input, 0, input.length), state.output, 0);
+            return 16;
+        case MD5:
+        default:
+            MessageDigest md5 = state.getMd5();
+            md5.update(input);
+            if (salt != null) {
+                md5.update(salt);
+            }
+            try {
+                md5.digest(state.digest, 0, MD5_LENGTH);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            return BASE64_ENCODER.encode(state.digest, state.output);
         }
-        MD5_DIGEST.update(input);
-        MD5_DIGEST.update(salt);
-        return BASE64_ENCODER.encode(MD5_DIGEST.digest());
     }
 
     public void setSalt(byte[] salt) {
@@ -65,9 +109,56 @@ public class HashMasker extends AbstractDataMasker {
         Preconditions.checkArgument(salt.length <= MAX_SALT_LENGTH,
             "Hash salt max length is " + MAX_SALT_LENGTH);
         this.salt = salt;
+        byte[] key = Arrays.copyOf(salt, MAX_SALT_LENGTH);
+        this.key0 = KeyedHash.getLongLE(key, 0);
+        this.key1 = KeyedHash.getLongLE(key, 8);
     }
 
     public void setSalt(String salt) {
         setSalt(salt.getBytes(ConfigConstant.DEFAULT_CHARSET));
     }
+
+    public void setAlgorithm(HashAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public enum HashAlgorithm {
+        MD5,
+        SIPHASH,    // SipHash-2-4，以 salt 为密钥
+        XXHASH;     // XXH64，以 salt 为种子，速度最快但不抗碰撞构造
+
+        public static HashAlgorithm fromString(String algorithm) {
+            switch (algorithm.toUpperCase()) {
+            case "MD5":
+                return MD5;
+            case "SIPHASH":
+                return SIPHASH;
+            case "XXHASH":
+            case "XXHASH64":
+                return XXHASH;
+            default:
+                throw new IllegalArgumentException("Unsupported hash algorithm: " + algorithm);
+            }
+        }
+    }
+
+    private static class HashState {
+        private MessageDigest md5 = null;
+        private final byte[] digest = new byte[MD5_LENGTH];
+        /**
+         * Base64 编码后最长24字节
+         */
+        private final byte[] output = new byte[24];
+
+        MessageDigest getMd5() {
+            if (md5 == null) {
+                try {
+                    md5 = MessageDigest.getInstance("MD5");
+                } catch (NoSuchAlgorithmException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return md5;
+        }
+    }
 }
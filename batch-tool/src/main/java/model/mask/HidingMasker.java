@@ -21,13 +21,13 @@ import model.config.ConfigConstant;
 import model.config.GlobalVar;
 import org.apache.commons.lang3.StringUtils;
 
-import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 
-@NotThreadSafe
+@ThreadSafe
 public class HidingMasker extends AbstractDataMasker {
 
     private Charset charset = ConfigConstant.DEFAULT_CHARSET;
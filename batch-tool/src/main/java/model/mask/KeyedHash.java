@@ -0,0 +1,163 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package model.mask;
+
+/**
+ * 用于脱敏的64位带密钥哈希
+ * 相比 MD5 无需维护摘要状态，也不产生中间对象
+ */
+public class KeyedHash {
+
+    private static final long XXH_PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long XXH_PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long XXH_PRIME_3 = 0x165667B19E3779F9L;
+    private static final long XXH_PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long XXH_PRIME_5 = 0x27D4EB2F165667C5L;
+
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+
+    /**
+     * SipHash-2-4
+     */
+    public static long sipHash24(long k0, long k1, byte[] data, int offset, int length) {
+        long v0 = 0x736f6d6570736575L ^ k0;
+        long v1 = 0x646f72616e646f6dL ^ k1;
+        long v2 = 0x6c7967656e657261L ^ k0;
+        long v3 = 0x7465646279746573L ^ k1;
+        int end = offset + (length & ~7);
+        long m;
+        for (int i = offset; i <= end; i += 8) {
+            if (i < end) {
+                m = getLongLE(data, i);
+            } else {
+                // 最后不足8字节的部分与长度合并为一个分组
+                m = ((long) length) << 56;
+                for (int j = 0; j < (length & 7); j++) {
+                    m |= (data[end + j] & 0xFFL) << (8 * j);
+                }
+            }
+            v3 ^= m;
+            for (int r = 0; r < 2; r++) {
+                v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+                v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+                v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+                v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+            }
+            v0 ^= m;
+        }
+        v2 ^= 0xFF;
+        for (int r = 0; r < 4; r++) {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    /**
+     * XXH64
+     */
+    public static long xxHash64(long seed, byte[] data, int offset, int length) {
+        int pos = offset, end = offset + length;
+        long hash;
+        if (length >= 32) {
+            long v1 = seed + XXH_PRIME_1 + XXH_PRIME_2;
+            long v2 = seed + XXH_PRIME_2;
+            long v3 = seed;
+            long v4 = seed - XXH_PRIME_1;
+            int limit = end - 32;
+            do {
+                v1 = xxhRound(v1, getLongLE(data, pos));
+                v2 = xxhRound(v2, getLongLE(data, pos + 8));
+                v3 = xxhRound(v3, getLongLE(data, pos + 16));
+                v4 = xxhRound(v4, getLongLE(data, pos + 24));
+                pos += 32;
+            } while (pos <= limit);
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = xxhMergeRound(hash, v1);
+            hash = xxhMergeRound(hash, v2);
+            hash = xxhMergeRound(hash, v3);
+            hash = xxhMergeRound(hash, v4);
+        } else {
+            hash = seed + XXH_PRIME_5;
+        }
+        hash += length;
+        while (pos + 8 <= end) {
+            hash ^= xxhRound(0, getLongLE(data, pos));
+            hash = Long.rotateLeft(hash, 27) * XXH_PRIME_1 + XXH_PRIME_4;
+            pos += 8;
+        }
+        if (pos + 4 <= end) {
+            hash ^= (getIntLE(data, pos) & 0xFFFFFFFFL) * XXH_PRIME_1;
+            hash = Long.rotateLeft(hash, 23) * XXH_PRIME_2 + XXH_PRIME_3;
+            pos += 4;
+        }
+        while (pos < end) {
+            hash ^= (data[pos] & 0xFFL) * XXH_PRIME_5;
+            hash = Long.rotateLeft(hash, 11) * XXH_PRIME_1;
+            pos++;
+        }
+        hash ^= hash >>> 33;
+        hash *= XXH_PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= XXH_PRIME_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long xxhRound(long acc, long input) {
+        acc += input * XXH_PRIME_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * XXH_PRIME_1;
+    }
+
+    private static long xxhMergeRound(long acc, long value) {
+        acc ^= xxhRound(0, value);
+        return acc * XXH_PRIME_1 + XXH_PRIME_4;
+    }
+
+    /**
+     * 以16位小写十六进制写入 output
+     */
+    public static void toHex(long value, byte[] output, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            output[offset + i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    static long getLongLE(byte[] data, int offset) {
+        return (data[offset] & 0xFFL)
+            | (data[offset + 1] & 0xFFL) << 8
+            | (data[offset + 2] & 0xFFL) << 16
+            | (data[offset + 3] & 0xFFL) << 24
+            | (data[offset + 4] & 0xFFL) << 32
+            | (data[offset + 5] & 0xFFL) << 40
+            | (data[offset + 6] & 0xFFL) << 48
+            | (data[offset + 7] & 0xFFL) << 56;
+    }
+
+    private static int getIntLE(byte[] data, int offset) {
+        return (data[offset] & 0xFF)
+            | (data[offset + 1] & 0xFF) << 8
+            | (data[offset + 2] & 0xFF) << 16
+            | (data[offset + 3] & 0xFF) << 24;
+    }
+}
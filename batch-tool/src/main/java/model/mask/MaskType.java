@@ -20,7 +20,8 @@ public enum MaskType {
     HIDING,     // 掩码
     ENCRYPT,    // 加密
     HASH,       // 摘要
-    FLOOR;      // 取整
+    FLOOR,      // 取整
+    FORMAT_PRESERVING;  // 保留格式
 
     public static MaskType fromString(String type) {
         switch (type.toUpperCase()) {
@@ -32,6 +33,9 @@ public enum MaskType {
             return HASH;
         case "FLOOR":
             return FLOOR;
+        case "FORMAT_PRESERVING":
+        case "FPE":
+            return FORMAT_PRESERVING;
         default:
             throw new UnsupportedOperationException("Unsupported mask type: " + type);
         }
@@ -0,0 +1,48 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package store;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * 可关闭的文件名迭代器
+ * 未遍历完就放弃时须调用 close 释放列举线程
+ */
+public interface FileIterator extends Iterator<String>, Closeable {
+
+    @Override
+    void close();
+
+    static FileIterator of(Iterator<String> iterator) {
+        return new FileIterator() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package store;
+
+import java.util.List;
+
+/**
+ * 对象存储单次列举的结果
+ */
+public class FileListing {
+
+    private final List<String> keys;
+    /**
+     * 指定分隔符时的公共前缀
+     */
+    private final List<String> commonPrefixes;
+    /**
+     * 下一页的标记，没有更多结果时为 null
+     */
+    private final String nextContinuationToken;
+
+    public FileListing(List<String> keys, List<String> commonPrefixes, String nextContinuationToken) {
+        this.keys = keys;
+        this.commonPrefixes = commonPrefixes;
+        this.nextContinuationToken = nextContinuationToken;
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public List<String> getCommonPrefixes() {
+        return commonPrefixes;
+    }
+
+    public String getNextContinuationToken() {
+        return nextContinuationToken;
+    }
+
+    public boolean isTruncated() {
+        return nextContinuationToken != null;
+    }
+}
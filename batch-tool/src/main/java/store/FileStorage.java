@@ -16,6 +16,7 @@
 
 package store;
 
+import java.util.Iterator;
 import java.util.List;
 
 public interface FileStorage {
@@ -27,4 +28,68 @@ public interface FileStorage {
     void close();
 
     List<String> listFiles(String prefix);
+
+    /**
+     * 分页列举文件
+     *
+     * @param delimiter 为 null 时列举前缀下的所有文件
+     * @param continuationToken 首页为 null
+     */
+    default FileListing listPage(String prefix, String delimiter, String continuationToken) {
+        throw new UnsupportedOperationException(getClass() + " does not support paged listing");
+    }
+
+    /**
+     * 是否支持分页列举
+     */
+    default boolean supportPagedListing() {
+        return false;
+    }
+
+    /**
+     * 流式列举文件，边拉取边返回
+     */
+    default Iterator<String> iterateFiles(String prefix) {
+        if (supportPagedListing()) {
+            return new PagedFileIterator(this, prefix, null);
+        }
+        return listFiles(prefix).iterator();
+    }
+
+    /**
+     * 是否支持分片上传
+     */
+    default boolean supportMultipartUpload() {
+        return false;
+    }
+
+    /**
+     * 开始分片上传
+     *
+     * @return uploadId
+     */
+    default String initMultipartUpload(String targetPath) {
+        throw new UnsupportedOperationException(getClass() + " does not support multipart upload");
+    }
+
+    /**
+     * 上传一个分片，可并发调用
+     *
+     * @param partNumber 从 1 开始
+     * @return 分片的 ETag
+     */
+    default String uploadPart(String targetPath, String uploadId, int partNumber, byte[] data, int length) {
+        throw new UnsupportedOperationException(getClass() + " does not support multipart upload");
+    }
+
+    /**
+     * @param partETags 按分片序号排列
+     */
+    default void completeMultipartUpload(String targetPath, String uploadId, List<String> partETags) {
+        throw new UnsupportedOperationException(getClass() + " does not support multipart upload");
+    }
+
+    default void abortMultipartUpload(String targetPath, String uploadId) {
+        throw new UnsupportedOperationException(getClass() + " does not support multipart upload");
+    }
 }
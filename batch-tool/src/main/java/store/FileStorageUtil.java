@@ -30,6 +30,8 @@ import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
 import exception.S3Exception;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class FileStorageUtil {
@@ -44,6 +46,11 @@ public class FileStorageUtil {
     public static final String OSS_ENDPOINT = "OSS_ENDPOINT";
     public static final String OSS_BUCKET = "OSS_BUCKET";
 
+    /**
+     * 并行列举文件的线程数
+     */
+    private static final int DEFAULT_LIST_PARALLELISM = 8;
+
     static {
         init();
     }
@@ -127,8 +134,27 @@ public class FileStorageUtil {
         return getS3AwsFileSystem(accessKeyId, accessKeySecret, endPoint, bucket);
     }
 
+    /**
+     * 列举前缀下的所有文件
+     * 支持分页列举时按子前缀并行列举，结果按文件名排序
+     */
     public static List<String> listFiles(FileStorage fileStorage, String prefix) {
-        List<String> filenames = fileStorage.listFiles(prefix);
+        List<String> filenames = new ArrayList<>();
+        try (FileIterator iterator = iterateFiles(fileStorage, prefix, DEFAULT_LIST_PARALLELISM)) {
+            iterator.forEachRemaining(filenames::add);
+        }
+        Collections.sort(filenames);
         return filenames;
     }
+
+    /**
+     * 流式列举前缀下的所有文件，返回顺序不确定
+     * 调用方须关闭返回的迭代器
+     */
+    public static FileIterator iterateFiles(FileStorage fileStorage, String prefix, int parallelism) {
+        if (!fileStorage.supportPagedListing() || parallelism <= 1) {
+            return FileIterator.of(fileStorage.iterateFiles(prefix));
+        }
+        return new ParallelFileIterator(fileStorage, prefix, parallelism);
+    }
 }
@@ -0,0 +1,233 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package store;
+
+import exception.S3Exception;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 边写入边分片上传的输出流
+ * 写满一个分片后交给线程池并发上传，
+ * 内存占用不超过 (maxInflightParts + 1) * 当前分片大小
+ * 分片数受对象存储限制，每上传一定数量的分片后分片大小翻倍
+ */
+@NotThreadSafe
+public class MultipartUploadOutputStream extends OutputStream {
+    private static final Logger logger = LoggerFactory.getLogger(MultipartUploadOutputStream.class);
+
+    /**
+     * 除最后一个分片外，分片大小不能小于 5MB
+     */
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+    /**
+     * 单个文件的最大分片数
+     */
+    public static final int MAX_PART_NUM = 10000;
+    /**
+     * 每上传该数量的分片后分片大小翻倍
+     */
+    public static final int PARTS_PER_SIZE_STEP = 1000;
+    /**
+     * 分片大小的上限，限制内存占用
+     */
+    public static final int MAX_PART_SIZE = 128 * 1024 * 1024;
+
+    private final FileStorage fileStorage;
+    private final String targetPath;
+    private final ExecutorService executor;
+    private final int initialPartSize;
+    /**
+     * 限制正在上传的分片数
+     */
+    private final Semaphore inflightParts;
+    private final List<Future<String>> partFutures = new ArrayList<>();
+    /**
+     * 已确认上传成功的分片数
+     */
+    private int checkedParts = 0;
+
+    private String uploadId = null;
+    private byte[] buffer;
+    private int position = 0;
+    private boolean closed = false;
+    /**
+     * 上传失败的原因，之后的写入与关闭都需抛出
+     */
+    private IOException failure = null;
+
+    public MultipartUploadOutputStream(FileStorage fileStorage, String targetPath,
+                                       ExecutorService executor, int partSize, int maxInflightParts) {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("Part size should be at least " + MIN_PART_SIZE);
+        }
+        this.fileStorage = fileStorage;
+        this.targetPath = targetPath;
+        this.executor = executor;
+        this.initialPartSize = partSize;
+        this.inflightParts = new Semaphore(maxInflightParts);
+        this.buffer = new byte[partSize];
+    }
+
+    /**
+     * @param partNumber 从1开始的分片序号
+     */
+    public static int getPartSize(int initialPartSize, int partNumber) {
+        int partSize = initialPartSize;
+        for (int step = (partNumber - 1) / PARTS_PER_SIZE_STEP; step > 0 && partSize < MAX_PART_SIZE; step--) {
+            partSize = (int) Math.min((long) partSize * 2, MAX_PART_SIZE);
+        }
+        return Math.max(partSize, initialPartSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        buffer[position++] = (byte) b;
+        if (position == buffer.length) {
+            uploadBufferedPart();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int copyLen = Math.min(len, buffer.length - position);
+            System.arraycopy(b, off, buffer, position, copyLen);
+            position += copyLen;
+            off += copyLen;
+            len -= copyLen;
+            if (position == buffer.length) {
+                uploadBufferedPart();
+            }
+        }
+    }
+
+    /**
+     * 上传最后一个分片并等待全部分片完成
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            if (failure != null) {
+                throw failure;
+            }
+            return;
+        }
+        closed = true;
+        try {
+            if (position > 0 || uploadId == null) {
+                // 空文件也需要上传一个分片
+                uploadBufferedPart();
+            }
+            List<String> partETags = new ArrayList<>(partFutures.size());
+            for (Future<String> future : partFutures) {
+                partETags.add(future.get());
+            }
+            fileStorage.completeMultipartUpload(targetPath, uploadId, partETags);
+        } catch (InterruptedException | ExecutionException | RuntimeException e) {
+            abort();
+            failure = new IOException("Failed to upload " + targetPath, e);
+            throw failure;
+        } finally {
+            buffer = null;
+        }
+    }
+
+    private void uploadBufferedPart() throws IOException {
+        if (uploadId == null) {
+            uploadId = fileStorage.initMultipartUpload(targetPath);
+        }
+        checkFailedParts();
+        final byte[] partData = buffer;
+        final int partLength = position;
+        final int partNumber = partFutures.size() + 1;
+        if (partNumber > MAX_PART_NUM) {
+            abort();
+            closed = true;
+            failure = new IOException("Too many parts to upload " + targetPath + ", max part num: " + MAX_PART_NUM);
+            throw failure;
+        }
+        inflightParts.acquireUninterruptibly();
+        try {
+            partFutures.add(executor.submit(() -> {
+                try {
+                    String eTag = fileStorage.uploadPart(targetPath, uploadId, partNumber, partData, partLength);
+                    logger.debug("{} 分片 {} 上传完成", targetPath, partNumber);
+                    return eTag;
+                } finally {
+                    inflightParts.release();
+                }
+            }));
+        } catch (RuntimeException e) {
+            inflightParts.release();
+            throw e;
+        }
+        if (!closed) {
+            // 已提交的缓冲区由上传线程持有
+            buffer = new byte[getPartSize(initialPartSize, partNumber + 1)];
+        }
+        position = 0;
+    }
+
+    /**
+     * 尽早发现已失败的分片，避免继续生成数据
+     */
+    private void checkFailedParts() throws IOException {
+        while (checkedParts < partFutures.size() && partFutures.get(checkedParts).isDone()) {
+            try {
+                partFutures.get(checkedParts).get();
+            } catch (InterruptedException | ExecutionException e) {
+                abort();
+                closed = true;
+                failure = new IOException("Failed to upload " + targetPath, e);
+                throw failure;
+            }
+            checkedParts++;
+        }
+    }
+
+    private void abort() {
+        for (Future<String> future : partFutures) {
+            future.cancel(true);
+        }
+        if (uploadId != null) {
+            logger.warn("取消分片上传 {}", targetPath);
+            fileStorage.abortMultipartUpload(targetPath, uploadId);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed) {
+            throw new IOException("Stream closed: " + targetPath);
+        }
+    }
+}
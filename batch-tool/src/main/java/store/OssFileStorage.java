@@ -17,17 +17,23 @@
 package store;
 
 import com.aliyun.oss.OSSClient;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
 import com.aliyun.oss.model.GetObjectRequest;
-import com.aliyun.oss.model.ListObjectsRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.ListObjectsV2Request;
+import com.aliyun.oss.model.ListObjectsV2Result;
 import com.aliyun.oss.model.OSSObjectSummary;
-import com.aliyun.oss.model.ObjectListing;
+import com.aliyun.oss.model.PartETag;
 import com.aliyun.oss.model.PutObjectRequest;
 import com.aliyun.oss.model.PutObjectResult;
+import com.aliyun.oss.model.UploadPartRequest;
 import com.google.common.base.Preconditions;
 import exception.S3Exception;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
@@ -35,6 +41,7 @@ import java.util.List;
 public class OssFileStorage implements FileStorage {
 
     private static final Logger logger = LoggerFactory.getLogger(OssFileStorage.class);
+    private static final int MAX_KEYS = 1000;
 
     private final OSSClient ossClient;
     private final String bucketName;
@@ -74,6 +81,62 @@ public class OssFileStorage implements FileStorage {
         }
     }
 
+    @Override
+    public boolean supportMultipartUpload() {
+        return true;
+    }
+
+    @Override
+    public String initMultipartUpload(String targetPath) {
+        try {
+            logger.info("开始分片上传文件至 {}/{}", bucketName, targetPath);
+            return ossClient.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, targetPath))
+                .getUploadId();
+        } catch (Exception e) {
+            throw new S3Exception(e);
+        }
+    }
+
+    @Override
+    public String uploadPart(String targetPath, String uploadId, int partNumber, byte[] data, int length) {
+        try {
+            UploadPartRequest request = new UploadPartRequest();
+            request.setBucketName(bucketName);
+            request.setKey(targetPath);
+            request.setUploadId(uploadId);
+            request.setPartNumber(partNumber);
+            request.setInputStream(new ByteArrayInputStream(data, 0, length));
+            request.setPartSize(length);
+            return ossClient.uploadPart(request).getPartETag().getETag();
+        } catch (Exception e) {
+            throw new S3Exception(e);
+        }
+    }
+
+    @Override
+    public void completeMultipartUpload(String targetPath, String uploadId, List<String> partETags) {
+        List<PartETag> partETagList = new ArrayList<>(partETags.size());
+        for (int i = 0; i < partETags.size(); i++) {
+            partETagList.add(new PartETag(i + 1, partETags.get(i)));
+        }
+        try {
+            ossClient.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(bucketName, targetPath, uploadId, partETagList));
+            logger.info("文件 {}/{} 分片上传成功，分片数：{}", bucketName, targetPath, partETags.size());
+        } catch (Exception e) {
+            throw new S3Exception(e);
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String targetPath, String uploadId) {
+        try {
+            ossClient.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, targetPath, uploadId));
+        } catch (Exception e) {
+            logger.error("取消分片上传 {}/{} 失败: {}", bucketName, targetPath, e.getMessage());
+        }
+    }
+
     @Override
     public void close() {
         try {
@@ -86,22 +149,33 @@ public class OssFileStorage implements FileStorage {
 
     @Override
     public List<String> listFiles(String prefix) {
-        String nextMarker = null;
-        ObjectListing objectListing;
         List<String> filenames = new ArrayList<>();
+        iterateFiles(prefix).forEachRemaining(filenames::add);
+        return filenames;
+    }
 
-        do {
-            objectListing = ossClient.listObjects(new ListObjectsRequest(bucketName).withPrefix(prefix)
-                .withMarker(nextMarker).withMaxKeys(1000));
+    @Override
+    public boolean supportPagedListing() {
+        return true;
+    }
 
-            List<OSSObjectSummary> sums = objectListing.getObjectSummaries();
-            for (OSSObjectSummary sum : sums) {
-                filenames.add(sum.getKey());
+    @Override
+    public FileListing listPage(String prefix, String delimiter, String continuationToken) {
+        try {
+            ListObjectsV2Request request = new ListObjectsV2Request(bucketName);
+            request.setPrefix(prefix);
+            request.setDelimiter(delimiter);
+            request.setContinuationToken(continuationToken);
+            request.setMaxKeys(MAX_KEYS);
+            ListObjectsV2Result result = ossClient.listObjectsV2(request);
+            List<String> keys = new ArrayList<>(result.getObjectSummaries().size());
+            for (OSSObjectSummary sum : result.getObjectSummaries()) {
+                keys.add(sum.getKey());
             }
-            nextMarker = objectListing.getNextMarker();
-
-        } while (objectListing.isTruncated());
-
-        return filenames;
+            return new FileListing(keys, result.getCommonPrefixes(),
+                result.isTruncated() ? result.getNextContinuationToken() : null);
+        } catch (Exception e) {
+            throw new S3Exception(e);
+        }
     }
 }
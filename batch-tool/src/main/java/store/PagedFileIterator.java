@@ -0,0 +1,86 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package store;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 按页拉取的文件名迭代器
+ * 只有当前页读完后才请求下一页
+ */
+@NotThreadSafe
+public class PagedFileIterator implements Iterator<String> {
+
+    private final FileStorage fileStorage;
+    private final String prefix;
+    private final String delimiter;
+
+    private Iterator<String> curPage = Collections.emptyIterator();
+    private String continuationToken = null;
+    private boolean lastPage = false;
+    private FileListing curListing = null;
+
+    public PagedFileIterator(FileStorage fileStorage, String prefix, String delimiter) {
+        this.fileStorage = fileStorage;
+        this.prefix = prefix;
+        this.delimiter = delimiter;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!curPage.hasNext()) {
+            if (!fetchNextPage()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return curPage.next();
+    }
+
+    /**
+     * 拉取下一页
+     *
+     * @return 已经没有更多的页时返回 false
+     */
+    public boolean fetchNextPage() {
+        if (lastPage) {
+            return false;
+        }
+        curListing = fileStorage.listPage(prefix, delimiter, continuationToken);
+        continuationToken = curListing.getNextContinuationToken();
+        lastPage = !curListing.isTruncated();
+        curPage = curListing.getKeys().iterator();
+        return true;
+    }
+
+    /**
+     * 最近一次拉取的页
+     */
+    public FileListing getCurListing() {
+        return curListing;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package store;
+
+import exception.S3Exception;
+import worker.MyThreadPool;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按公共前缀（子目录）并行列举文件
+ * 先按分隔符列举第一层，每个子前缀交给一个线程分页列举，
+ * 列举结果经由有界队列流式返回，调用方无需等待全部列举结束
+ * 未遍历完时须调用 close 关闭列举线程
+ */
+@NotThreadSafe
+public class ParallelFileIterator implements FileIterator {
+
+    private static final String DELIMITER = "/";
+    private static final int QUEUE_SIZE = 10000;
+    private static final Object END_OF_LISTING = new Object();
+
+    private final FileStorage fileStorage;
+    private final ExecutorService executor;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>(QUEUE_SIZE);
+    /**
+     * 尚未结束的列举任务数
+     */
+    private final AtomicInteger pendingTasks = new AtomicInteger(1);
+
+    private Object nextItem = null;
+    private boolean finished = false;
+
+    public ParallelFileIterator(FileStorage fileStorage, String prefix, int parallelism) {
+        this.fileStorage = fileStorage;
+        this.executor = MyThreadPool.createUnboundedFixedExecutor("list-files", parallelism);
+        executor.submit(() -> runTask(() -> listTopLevel(prefix)));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (finished) {
+            return false;
+        }
+        if (nextItem == null) {
+            try {
+                nextItem = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new S3Exception(e);
+            }
+        }
+        if (nextItem == END_OF_LISTING) {
+            close();
+            return false;
+        }
+        if (nextItem instanceof Throwable) {
+            close();
+            throw new S3Exception("List files failed", (Throwable) nextItem);
+        }
+        return true;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String key = (String) nextItem;
+        nextItem = null;
+        return key;
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        executor.shutdownNow();
+    }
+
+    private void listTopLevel(String prefix) throws InterruptedException {
+        String continuationToken = null;
+        do {
+            FileListing listing = fileStorage.listPage(prefix, DELIMITER, continuationToken);
+            for (String key : listing.getKeys()) {
+                queue.put(key);
+            }
+            for (String commonPrefix : listing.getCommonPrefixes()) {
+                pendingTasks.incrementAndGet();
+                executor.submit(() -> runTask(() -> listAll(commonPrefix)));
+            }
+            continuationToken = listing.getNextContinuationToken();
+        } while (continuationToken != null);
+    }
+
+    private void listAll(String prefix) throws InterruptedException {
+        PagedFileIterator iterator = new PagedFileIterator(fileStorage, prefix, null);
+        while (iterator.hasNext()) {
+            queue.put(iterator.next());
+        }
+    }
+
+    private void runTask(ListingTask task) {
+        try {
+            task.run();
+            if (pendingTasks.decrementAndGet() == 0) {
+                queue.put(END_OF_LISTING);
+            }
+        } catch (InterruptedException e) {
+            // 迭代器已关闭
+        } catch (Throwable t) {
+            try {
+                queue.put(t);
+            } catch (InterruptedException ignored) {
+                // 迭代器已关闭
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ListingTask {
+        void run() throws InterruptedException;
+    }
+}
@@ -17,21 +17,30 @@
 package store;
 
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
-import com.amazonaws.services.s3.model.ListObjectsRequest;
-import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
 import exception.S3Exception;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class S3AwsFileStorage implements FileStorage {
 
     private static final Logger logger = LoggerFactory.getLogger(S3AwsFileStorage.class);
+    private static final int MAX_KEYS = 1000;
 
     private final AmazonS3 s3Client;
     private final String bucketName;
@@ -69,6 +78,62 @@ public class S3AwsFileStorage implements FileStorage {
         }
     }
 
+    @Override
+    public boolean supportMultipartUpload() {
+        return true;
+    }
+
+    @Override
+    public String initMultipartUpload(String targetPath) {
+        try {
+            logger.info("开始分片上传文件至 {}/{}", bucketName, targetPath);
+            return s3Client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, targetPath))
+                .getUploadId();
+        } catch (Exception e) {
+            throw new S3Exception(e);
+        }
+    }
+
+    @Override
+    public String uploadPart(String targetPath, String uploadId, int partNumber, byte[] data, int length) {
+        try {
+            UploadPartRequest request = new UploadPartRequest()
+                .withBucketName(bucketName)
+                .withKey(targetPath)
+                .withUploadId(uploadId)
+                .withPartNumber(partNumber)
+                .withInputStream(new ByteArrayInputStream(data, 0, length))
+                .withPartSize(length);
+            return s3Client.uploadPart(request).getPartETag().getETag();
+        } catch (Exception e) {
+            throw new S3Exception(e);
+        }
+    }
+
+    @Override
+    public void completeMultipartUpload(String targetPath, String uploadId, List<String> partETags) {
+        List<PartETag> partETagList = new ArrayList<>(partETags.size());
+        for (int i = 0; i < partETags.size(); i++) {
+            partETagList.add(new PartETag(i + 1, partETags.get(i)));
+        }
+        try {
+            s3Client.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(bucketName, targetPath, uploadId, partETagList));
+            logger.info("文件 {}/{} 分片上传成功，分片数：{}", bucketName, targetPath, partETags.size());
+        } catch (Exception e) {
+            throw new S3Exception(e);
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String targetPath, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, targetPath, uploadId));
+        } catch (Exception e) {
+            logger.error("取消分片上传 {}/{} 失败: {}", bucketName, targetPath, e.getMessage());
+        }
+    }
+
     @Override
     public void close() {
 
@@ -76,17 +141,33 @@ public class S3AwsFileStorage implements FileStorage {
 
     @Override
     public List<String> listFiles(String prefix) {
-        ListObjectsRequest request = new ListObjectsRequest();
-        request.setBucketName(bucketName);
-        request.setPrefix(prefix);
+        List<String> filenames = new ArrayList<>();
+        iterateFiles(prefix).forEachRemaining(filenames::add);
+        return filenames;
+    }
+
+    @Override
+    public boolean supportPagedListing() {
+        return true;
+    }
 
-        ObjectListing objects = s3Client.listObjects(request);
-        if (objects.isTruncated()) {
-            throw new UnsupportedOperationException("The number of files exceeds " + objects.getMaxKeys());
+    @Override
+    public FileListing listPage(String prefix, String delimiter, String continuationToken) {
+        try {
+            ListObjectsV2Request request = new ListObjectsV2Request()
+                .withBucketName(bucketName)
+                .withPrefix(prefix)
+                .withDelimiter(delimiter)
+                .withContinuationToken(continuationToken)
+                .withMaxKeys(MAX_KEYS);
+            ListObjectsV2Result result = s3Client.listObjectsV2(request);
+            List<String> keys = result.getObjectSummaries().stream()
+                .map(S3ObjectSummary::getKey)
+                .collect(Collectors.toList());
+            return new FileListing(keys, result.getCommonPrefixes(),
+                result.isTruncated() ? result.getNextContinuationToken() : null);
+        } catch (Exception e) {
+            throw new S3Exception(e);
         }
-        List<String> filenames = objects.getObjectSummaries().stream()
-            .map(S3ObjectSummary::getKey)
-            .collect(java.util.stream.Collectors.toList());
-        return filenames;
     }
 }
@@ -35,6 +35,12 @@ public class DataSourceUtil {
         + "&socketTimeout=600000&loadBalanceBlacklistTimeout=900000"
         + "&useLocalSessionState=true&readOnlyPropagatesToServer=false";
 
+    /**
+     * 服务端预编译并缓存预编译语句
+     * 不开启rewriteBatch，executeBatch逐行执行服务端预编译语句
+     */
+    public static final String SERVER_PREPARE_URL_PARAMS = "&useServerPrepStmts=true&cachePrepStmts=true";
+
     public static Statement createStreamingStatement(@NotNull Connection conn) throws SQLException {
         Statement stmt = conn.createStatement();
         stmt.setFetchSize(Integer.MIN_VALUE);
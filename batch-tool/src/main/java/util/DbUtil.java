@@ -20,22 +20,35 @@ import com.alibaba.druid.util.JdbcUtils;
 import exception.DatabaseException;
 import model.db.FieldMetaInfo;
 import model.db.PartitionKey;
+import model.db.PartitionRule;
 import model.db.PrimaryKey;
 import model.db.TableFieldMetaInfo;
 import model.db.TableTopology;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.math3.util.Pair;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static worker.util.PolarxHint.DIRECT_NODE_HINT;
+
 public class DbUtil {
 
     private static final String PK_INDEX_SQL_PATTERN =
@@ -43,11 +56,14 @@ public class DbUtil {
             + "WHERE TABLE_SCHEMA='%s' and TABLE_NAME='%s' and COLUMN_KEY='PRI';";
 
     private static final String PK_INFO_SQL_PATTERN =
-        "SELECT COLUMN_NAME,DATA_TYPE,ORDINAL_POSITION from INFORMATION_SCHEMA.COLUMNS "
+        "SELECT COLUMN_NAME,DATA_TYPE,ORDINAL_POSITION,COLLATION_NAME from INFORMATION_SCHEMA.COLUMNS "
             + "WHERE TABLE_SCHEMA='%s' and TABLE_NAME='%s' and COLUMN_KEY='PRI';";
 
+    private static final String PK_SEQ_SQL_PATTERN = "SHOW INDEX FROM %s.%s";
+
     private static final String FIELD_INFO_SQL_PATTERN =
-        "SELECT COLUMN_NAME,DATA_TYPE,ORDINAL_POSITION from INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA='%s' and TABLE_NAME='%s'\n"
+        "SELECT COLUMN_NAME,DATA_TYPE,ORDINAL_POSITION,COLUMN_TYPE from INFORMATION_SCHEMA.COLUMNS "
+            + "WHERE TABLE_SCHEMA='%s' and TABLE_NAME='%s'\n"
             + "ORDER BY ORDINAL_POSITION;";
 
     private static final String DB_FIELD_INFO_SQL_PATTERN =
@@ -59,13 +75,17 @@ public class DbUtil {
             + "WHERE TABLE_SCHEMA='%s' and TABLE_NAME='%s' and COLUMN_NAME='%s';";
 
     private static final String MULTI_FIELD_INFO_SQL_PATTERN =
-        "SELECT COLUMN_NAME,DATA_TYPE,ORDINAL_POSITION from INFORMATION_SCHEMA.COLUMNS "
+        "SELECT COLUMN_NAME,DATA_TYPE,ORDINAL_POSITION,COLLATION_NAME from INFORMATION_SCHEMA.COLUMNS "
             + "WHERE TABLE_SCHEMA='%s' and TABLE_NAME='%s' and COLUMN_NAME in (%s);";
 
+    private static final String SHOW_DS_SQL = "SHOW DS";
+
     private static final String PARTITION_KEY_SQL_PATTERN = "SHOW RULE FROM `%s`;";
 
     private static final String ROW_COUNT_SQL_PATTERN = "SELECT COUNT(*) FROM `%s`;";
 
+    private static final String MIN_MAX_SQL_PATTERN = "SELECT MIN(%s),MAX(%s) FROM `%s`";
+
     private static final String PARTITION_KEY_INFO_SQL_PATTERN =
         "SELECT DATA_TYPE,ORDINAL_POSITION from INFORMATION_SCHEMA.COLUMNS WHERE "
             + "TABLE_SCHEMA='%s' and TABLE_NAME='%s' and COLUMN_NAME = '%s'";
@@ -90,6 +110,10 @@ public class DbUtil {
                     resultSet.getString("GROUP_NAME"),
                     resultSet.getString("TABLE_NAME")));
             }
+            Map<String, String> groupStorageMap = getGroupStorageMap(conn);
+            for (TableTopology topology : topologyList) {
+                topology.setStorageNode(groupStorageMap.get(topology.getGroupName()));
+            }
             return topologyList;
         } catch (SQLException e) {
             throw new DatabaseException("Unable to get topology of table " + tableName, e);
@@ -99,6 +123,23 @@ public class DbUtil {
         }
     }
 
+    /**
+     * 获取分库到存储节点(DN)的映射
+     * 不支持 SHOW DS 的版本返回空映射
+     */
+    private static Map<String, String> getGroupStorageMap(Connection conn) {
+        Map<String, String> groupStorageMap = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+            ResultSet resultSet = stmt.executeQuery(SHOW_DS_SQL)) {
+            while (resultSet.next()) {
+                groupStorageMap.put(resultSet.getString("GROUP"), resultSet.getString("STORAGE_INST_ID"));
+            }
+        } catch (SQLException e) {
+            groupStorageMap.clear();
+        }
+        return groupStorageMap;
+    }
+
     /**
      * 考虑复合主键的情况
      */
@@ -122,6 +163,7 @@ public class DbUtil {
             if (pkList.isEmpty()) {
                 throw new DatabaseException("Unable to get primary key of table " + tableName);
             }
+            sortByPkSeq(pkList, PrimaryKey::getName, getPkSeq(conn, schemaName, tableName));
             return pkList;
         } catch (SQLException e) {
             throw new DatabaseException("Unable to get primary key of table " + tableName, e);
@@ -131,6 +173,123 @@ public class DbUtil {
         }
     }
 
+    /**
+     * 获取主键字段信息
+     * 考虑复合主键的情况，按主键索引中的顺序排列
+     */
+    public static List<FieldMetaInfo> getPkFieldMetaInfoList(Connection conn, String schemaName, String tableName)
+        throws DatabaseException {
+        Statement stmt = null;
+        ResultSet resultSet = null;
+        String sql = String.format(PK_INFO_SQL_PATTERN, schemaName, tableName);
+        List<FieldMetaInfo> pkFieldMetaInfoList = new ArrayList<>();
+        try {
+            stmt = conn.createStatement();
+            resultSet = stmt.executeQuery(sql);
+            while (resultSet.next()) {
+                FieldMetaInfo fieldMetaInfo = new FieldMetaInfo();
+                fieldMetaInfo.setName(resultSet.getString(1));
+                fieldMetaInfo.setType(resultSet.getString(2));
+                fieldMetaInfo.setIndex(resultSet.getInt(3) - 1);
+                fieldMetaInfo.setCollation(resultSet.getString(4));
+                pkFieldMetaInfoList.add(fieldMetaInfo);
+            }
+            if (pkFieldMetaInfoList.isEmpty()) {
+                throw new DatabaseException("Unable to get primary key of table " + tableName);
+            }
+            sortByPkSeq(pkFieldMetaInfoList, FieldMetaInfo::getName, getPkSeq(conn, schemaName, tableName));
+            return pkFieldMetaInfoList;
+        } catch (SQLException e) {
+            throw new DatabaseException("Unable to get primary key of table " + tableName, e);
+        } finally {
+            JdbcUtils.close(resultSet);
+            JdbcUtils.close(stmt);
+        }
+    }
+
+    /**
+     * @return 按 Seq_in_index 排列的主键列名
+     */
+    private static List<String> getPkSeq(Connection conn, String schemaName, String tableName)
+        throws DatabaseException {
+        String sql = String.format(PK_SEQ_SQL_PATTERN, surroundWithBacktick(schemaName),
+            surroundWithBacktick(tableName));
+        Map<Integer, String> pkSeqMap = new TreeMap<>();
+        try (Statement stmt = conn.createStatement();
+            ResultSet resultSet = stmt.executeQuery(sql)) {
+            while (resultSet.next()) {
+                if ("PRIMARY".equalsIgnoreCase(resultSet.getString("Key_name"))) {
+                    pkSeqMap.put(resultSet.getInt("Seq_in_index"), resultSet.getString("Column_name"));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Unable to get primary key of table " + tableName, e);
+        }
+        return new ArrayList<>(pkSeqMap.values());
+    }
+
+    /**
+     * 将主键按主键索引中的列顺序排列，索引中不存在的列排在最后
+     */
+    public static <T> void sortByPkSeq(List<T> pkList, Function<T, String> nameGetter, List<String> pkSeq) {
+        pkList.sort(Comparator.comparingInt(pk -> {
+            for (int i = 0; i < pkSeq.size(); i++) {
+                if (pkSeq.get(i).equalsIgnoreCase(nameGetter.apply(pk))) {
+                    return i;
+                }
+            }
+            return pkSeq.size();
+        }));
+    }
+
+    /**
+     * 主键值的占位符
+     * 非整型主键按原始字节绑定，字符型需转换回该列的字符集与排序规则，保证与按主键排序的顺序一致
+     */
+    public static String getPkPlaceholder(FieldMetaInfo pkFieldMetaInfo) {
+        String collation = pkFieldMetaInfo.getCollation();
+        if (pkFieldMetaInfo.getType() != FieldMetaInfo.Type.STRING || StringUtils.isBlank(collation)
+            || !collation.contains("_")) {
+            return "?";
+        }
+        return String.format("CONVERT(? USING %s) COLLATE %s",
+            collation.substring(0, collation.indexOf('_')), collation);
+    }
+
+    /**
+     * 读取一行中从 firstColumn 开始的主键值
+     * 整型保存十进制文本，其余类型保存原始字节的 Base64 编码，避免字符集转换造成失真
+     */
+    public static List<String> readPkValues(ResultSet rs, int firstColumn, List<FieldMetaInfo> pkFieldMetaInfoList)
+        throws SQLException {
+        String[] keyValues = new String[pkFieldMetaInfoList.size()];
+        for (int i = 0; i < keyValues.length; i++) {
+            if (pkFieldMetaInfoList.get(i).getType() == FieldMetaInfo.Type.INT) {
+                keyValues[i] = rs.getString(firstColumn + i);
+            } else {
+                keyValues[i] = Base64.getEncoder().encodeToString(rs.getBytes(firstColumn + i));
+            }
+        }
+        return Arrays.asList(keyValues);
+    }
+
+    /**
+     * 绑定 {@link #readPkValues} 读取的主键值
+     *
+     * @return 下一个参数的位置
+     */
+    public static int bindPkValues(PreparedStatement stmt, int paramIndex, List<FieldMetaInfo> pkFieldMetaInfoList,
+                                   List<String> keyValues) throws SQLException {
+        for (int i = 0; i < keyValues.size(); i++) {
+            if (pkFieldMetaInfoList.get(i).getType() == FieldMetaInfo.Type.INT) {
+                stmt.setBigDecimal(paramIndex++, new BigDecimal(keyValues.get(i)));
+            } else {
+                stmt.setBytes(paramIndex++, Base64.getDecoder().decode(keyValues.get(i)));
+            }
+        }
+        return paramIndex;
+    }
+
     /**
      * 获取表字段信息用于更新
      * 只区分字符型和数值型
@@ -251,6 +410,7 @@ public class DbUtil {
                 fieldMetaInfo.setName(resultSet.getString(1));
                 fieldMetaInfo.setType(resultSet.getString(2));
                 fieldMetaInfo.setIndex(resultSet.getInt(3) - 1);
+                fieldMetaInfo.setColumnType(resultSet.getString(4));
                 fieldMetaInfoList.add(fieldMetaInfo);
             }
             tableFieldMetaInfo.setFieldMetaInfoList(fieldMetaInfoList);
@@ -379,6 +539,89 @@ public class DbUtil {
         }
     }
 
+    /**
+     * 获取表的分库分表规则
+     * 非 hash 拆分或 auto 模式的表由 ShardRouter 判断是否支持
+     */
+    public static PartitionRule getPartitionRule(Connection conn, String schemaName, String tableName)
+        throws DatabaseException {
+        String ruleSql = String.format(PARTITION_KEY_SQL_PATTERN, tableName);
+        PartitionRule partitionRule = new PartitionRule();
+        String dbKeyName, tbKeyName;
+        try (Statement stmt = conn.createStatement();
+            ResultSet resultSet = stmt.executeQuery(ruleSql)) {
+            if (!resultSet.next()) {
+                throw new DatabaseException("Unable to get partition rule of " + tableName);
+            }
+            dbKeyName = resultSet.getString("DB_PARTITION_KEY");
+            partitionRule.setDbPartitionPolicy(resultSet.getString("DB_PARTITION_POLICY"));
+            partitionRule.setDbPartitionCount(resultSet.getInt("DB_PARTITION_COUNT"));
+            tbKeyName = resultSet.getString("TB_PARTITION_KEY");
+            partitionRule.setTbPartitionPolicy(resultSet.getString("TB_PARTITION_POLICY"));
+            partitionRule.setTbPartitionCount(resultSet.getInt("TB_PARTITION_COUNT"));
+        } catch (SQLException e) {
+            throw new DatabaseException("Unable to get partition rule of " + tableName, e);
+        }
+        partitionRule.setDbPartitionKey(getPartitionKeyMetaInfo(conn, schemaName, tableName, dbKeyName));
+        partitionRule.setTbPartitionKey(getPartitionKeyMetaInfo(conn, schemaName, tableName, tbKeyName));
+        return partitionRule;
+    }
+
+    private static FieldMetaInfo getPartitionKeyMetaInfo(Connection conn, String schemaName,
+                                                         String tableName, String keyName)
+        throws DatabaseException {
+        if (StringUtils.isBlank(keyName)) {
+            return null;
+        }
+        String keyInfoSql = String.format(PARTITION_KEY_INFO_SQL_PATTERN, schemaName, tableName, keyName);
+        try (Statement stmt = conn.createStatement();
+            ResultSet resultSet = stmt.executeQuery(keyInfoSql)) {
+            if (!resultSet.next()) {
+                throw new DatabaseException("Unable to get partition key of " + tableName);
+            }
+            FieldMetaInfo fieldMetaInfo = new FieldMetaInfo();
+            fieldMetaInfo.setName(keyName);
+            fieldMetaInfo.setType(resultSet.getString(1));
+            fieldMetaInfo.setIndex(resultSet.getInt(2) - 1);
+            return fieldMetaInfo;
+        } catch (SQLException e) {
+            throw new DatabaseException("Unable to get partition key of " + tableName, e);
+        }
+    }
+
+    /**
+     * 从物理分表中取出拆分键不为空的若干行
+     *
+     * @return 每行按 keys 的顺序排列的拆分键取值
+     */
+    public static List<String[]> getShardKeySamples(Connection conn, TableTopology topology,
+                                                    List<FieldMetaInfo> keys, int limit)
+        throws DatabaseException {
+        String keyColumns = keys.stream().map(key -> surroundWithBacktick(key.getName()))
+            .collect(Collectors.joining(","));
+        String notNullCondition = keys.stream().map(key -> surroundWithBacktick(key.getName()) + " IS NOT NULL")
+            .collect(Collectors.joining(" AND "));
+        String sql = String.format("SELECT %s FROM %s WHERE %s LIMIT %d", keyColumns,
+            surroundWithBacktick(topology.getTableName()), notNullCondition, limit);
+        if (topology.hasGroup()) {
+            sql = String.format(DIRECT_NODE_HINT, topology.getGroupName()) + sql;
+        }
+        List<String[]> samples = new ArrayList<>(limit);
+        try (Statement stmt = conn.createStatement();
+            ResultSet resultSet = stmt.executeQuery(sql)) {
+            while (resultSet.next()) {
+                String[] keyValues = new String[keys.size()];
+                for (int i = 0; i < keyValues.length; i++) {
+                    keyValues[i] = resultSet.getString(i + 1);
+                }
+                samples.add(keyValues);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Unable to sample partition keys of " + topology, e);
+        }
+        return samples;
+    }
+
     /**
      * 对于 auto 模式不适用
      */
@@ -449,6 +692,7 @@ public class DbUtil {
                         foundColCount++;
                         fieldMetaInfo.setType(resultSet.getString(2));
                         fieldMetaInfo.setIndex(resultSet.getInt(3) - 1);
+                        fieldMetaInfo.setCollation(resultSet.getString(4));
                     }
                 }
             }
@@ -484,6 +728,49 @@ public class DbUtil {
         }
     }
 
+    /**
+     * 获取整型字段的最小值与最大值
+     * 非整型字段或没有数据时返回 null
+     */
+    public static Pair<BigInteger, BigInteger> getIntColumnMinMax(Connection conn, String tableName,
+                                                                  String columnName, String whereCondition)
+        throws DatabaseException {
+        Statement stmt = null;
+        ResultSet resultSet = null;
+        String column = surroundWithBacktick(columnName);
+        String sql = String.format(MIN_MAX_SQL_PATTERN, column, column, tableName);
+        if (StringUtils.isNotEmpty(whereCondition)) {
+            sql = sql + " WHERE " + whereCondition;
+        }
+        try {
+            stmt = conn.createStatement();
+            resultSet = stmt.executeQuery(sql);
+            if (!resultSet.next()) {
+                return null;
+            }
+            switch (resultSet.getMetaData().getColumnType(1)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                break;
+            default:
+                return null;
+            }
+            String min = resultSet.getString(1);
+            String max = resultSet.getString(2);
+            if (min == null || max == null) {
+                return null;
+            }
+            return new Pair<>(new BigInteger(min), new BigInteger(max));
+        } catch (SQLException e) {
+            throw new DatabaseException("Cannot get min/max value of " + tableName + "." + columnName, e);
+        } finally {
+            JdbcUtils.close(resultSet);
+            JdbcUtils.close(stmt);
+        }
+    }
+
     public static void useDb(Connection conn, String dbName) throws SQLException {
         try (Statement stmt = conn.createStatement()) {
             stmt.execute("use " + dbName);
@@ -506,6 +793,25 @@ public class DbUtil {
         }
     }
 
+    /**
+     * 通过一次 information_schema 查询获取库中所有表与视图，按表名排序
+     */
+    public static List<String> getAllTablesAndViewsInDbOrdered(Connection conn, String dbName)
+        throws DatabaseException {
+        List<String> allTables = new ArrayList<>();
+        try (Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery(String.format("SELECT TABLE_NAME FROM information_schema.tables "
+                + "WHERE TABLE_SCHEMA = '%s' AND TABLE_TYPE IN ('BASE TABLE', 'VIEW') "
+                + "ORDER BY TABLE_NAME;", dbName));
+            while (rs.next()) {
+                allTables.add(rs.getString(1));
+            }
+            return allTables;
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to query information_schema.tables in:" + dbName, e);
+        }
+    }
+
     public static List<String> getAllBaseTablesInDb(Connection conn, String dbName) throws DatabaseException {
         List<String> allTables = new ArrayList<>();
         try (Statement stmt = conn.createStatement()) {
@@ -0,0 +1,116 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package util;
+
+import model.db.FieldMetaInfo;
+import model.db.TableFieldMetaInfo;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Types;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parquet 列式文件的公共工具
+ */
+public class ParquetUtil {
+
+    private static final String SCHEMA_NAME = "batch_tool";
+
+    /**
+     * bigint unsigned 最大为 20 位十进制数
+     */
+    private static final int UNSIGNED_BIGINT_PRECISION = 20;
+    /**
+     * 可容纳 20 位十进制数的最小补码字节数
+     */
+    private static final int UNSIGNED_BIGINT_BYTES = 9;
+
+    /**
+     * 根据字段类型生成 parquet schema
+     * 整型使用 INT64，bigint unsigned 使用 DECIMAL(20,0)
+     * 其余类型（包括 decimal）统一以 UTF8 字符串保存以保证精度
+     */
+    public static MessageType buildSchema(TableFieldMetaInfo tableFieldMetaInfo) {
+        Types.MessageTypeBuilder builder = Types.buildMessage();
+        for (FieldMetaInfo fieldMetaInfo : tableFieldMetaInfo.getFieldMetaInfoList()) {
+            if (fieldMetaInfo.isUnsignedBigInt()) {
+                builder.optional(PrimitiveType.PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY)
+                    .length(UNSIGNED_BIGINT_BYTES)
+                    .as(LogicalTypeAnnotation.decimalType(0, UNSIGNED_BIGINT_PRECISION))
+                    .named(fieldMetaInfo.getName());
+            } else if (fieldMetaInfo.getType() == FieldMetaInfo.Type.INT) {
+                builder.optional(PrimitiveType.PrimitiveTypeName.INT64)
+                    .named(fieldMetaInfo.getName());
+            } else {
+                builder.optional(PrimitiveType.PrimitiveTypeName.BINARY)
+                    .as(LogicalTypeAnnotation.stringType())
+                    .named(fieldMetaInfo.getName());
+            }
+        }
+        return builder.named(SCHEMA_NAME);
+    }
+
+    public static boolean isInt64(MessageType schema, int fieldIndex) {
+        List<org.apache.parquet.schema.Type> fields = schema.getFields();
+        return fields.get(fieldIndex).asPrimitiveType().getPrimitiveTypeName()
+            == PrimitiveType.PrimitiveTypeName.INT64;
+    }
+
+    public static boolean isDecimal(PrimitiveType type) {
+        return type.getLogicalTypeAnnotation() instanceof LogicalTypeAnnotation.DecimalLogicalTypeAnnotation;
+    }
+
+    /**
+     * 整数转为定长的大端补码
+     */
+    public static Binary toUnsignedBigIntBinary(String value) {
+        byte[] bytes = new BigInteger(value).toByteArray();
+        if (bytes.length > UNSIGNED_BIGINT_BYTES) {
+            throw new IllegalArgumentException("Out of range value for bigint unsigned: " + value);
+        }
+        byte[] fixedBytes = new byte[UNSIGNED_BIGINT_BYTES];
+        if (bytes[0] < 0) {
+            Arrays.fill(fixedBytes, (byte) -1);
+        }
+        System.arraycopy(bytes, 0, fixedBytes, UNSIGNED_BIGINT_BYTES - bytes.length, bytes.length);
+        return Binary.fromConstantByteArray(fixedBytes);
+    }
+
+    public static String decimalToString(PrimitiveType type, Binary value) {
+        int scale = ((LogicalTypeAnnotation.DecimalLogicalTypeAnnotation) type.getLogicalTypeAnnotation())
+            .getScale();
+        return new BigDecimal(new BigInteger(value.getBytes()), scale).toPlainString();
+    }
+
+    /**
+     * 使用不带 crc 校验文件的本地文件系统
+     */
+    public static Configuration newLocalConfiguration() {
+        Configuration conf = new Configuration(false);
+        conf.setClass("fs.file.impl", RawLocalFileSystem.class, org.apache.hadoop.fs.FileSystem.class);
+        conf.setBoolean("fs.file.impl.disable.cache", true);
+        return conf;
+    }
+}
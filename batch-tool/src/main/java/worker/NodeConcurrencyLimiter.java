@@ -0,0 +1,91 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package worker;
+
+import model.db.TableTopology;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 按存储节点(DN)限制并发的分片读写数
+ * 导出与分片导入共用
+ */
+@ThreadSafe
+public class NodeConcurrencyLimiter {
+
+    private final int permitsPerNode;
+    private final ConcurrentHashMap<String, Semaphore> nodePermits = new ConcurrentHashMap<>();
+
+    public NodeConcurrencyLimiter(int permitsPerNode) {
+        this.permitsPerNode = permitsPerNode;
+    }
+
+    public Semaphore getPermits(TableTopology topology) {
+        return getPermits(topology.getNodeKey());
+    }
+
+    public Semaphore getPermits(String nodeKey) {
+        return nodePermits.computeIfAbsent(nodeKey, key -> new Semaphore(permitsPerNode, true));
+    }
+
+    public boolean tryAcquire(TableTopology topology) {
+        return getPermits(topology).tryAcquire();
+    }
+
+    public void acquire(TableTopology topology) throws InterruptedException {
+        getPermits(topology).acquire();
+    }
+
+    public void release(TableTopology topology) {
+        getPermits(topology).release();
+    }
+
+    public int getPermitsPerNode() {
+        return permitsPerNode;
+    }
+
+    /**
+     * 将分片按节点分组后轮流取出
+     * 使相邻的分片尽量落在不同节点上
+     *
+     * @return 分片在 topologyList 中的下标
+     */
+    public static List<Integer> interleaveByNode(List<TableTopology> topologyList) {
+        Map<String, Deque<Integer>> nodeShards = new LinkedHashMap<>();
+        for (int i = 0; i < topologyList.size(); i++) {
+            nodeShards.computeIfAbsent(topologyList.get(i).getNodeKey(), key -> new ArrayDeque<>()).add(i);
+        }
+        List<Integer> order = new ArrayList<>(topologyList.size());
+        while (order.size() < topologyList.size()) {
+            for (Deque<Integer> shards : nodeShards.values()) {
+                if (!shards.isEmpty()) {
+                    order.add(shards.poll());
+                }
+            }
+        }
+        return order;
+    }
+}
@@ -75,6 +75,7 @@ public abstract class BaseDefaultConsumer extends BaseWorkHandler {
                 }
                 List<String> values = FileUtil.splitWithEstimateCount(line, sep,
                     consumerContext.isWithLastSep(), estimateFieldCount, hasEscapedQuote);
+                maskValues(values);
                 fillLocalBuffer(stringBuilder, values);
                 rowCount++;
             }
@@ -0,0 +1,228 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package worker.common;
+
+import com.alibaba.druid.util.JdbcUtils;
+import com.alibaba.druid.util.StringUtils;
+import model.db.FieldMetaInfo;
+import model.db.TableTopology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.CountStat;
+import util.FileUtil;
+import worker.NodeConcurrencyLimiter;
+import worker.util.ShardRouter;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static model.config.ConfigConstant.END_OF_BATCH_LINES;
+import static model.config.GlobalVar.EMIT_BATCH_SIZE;
+
+/**
+ * 按拆分规则将每行数据路由到物理分表的消费者
+ * 各分表的数据跨批次累积，攒满一批后带节点 hint 直接下发到该分表
+ * 缓冲的数据写入前不推进断点
+ */
+public abstract class BaseRoutedShardConsumer extends BaseWorkHandler {
+    private static final Logger logger = LoggerFactory.getLogger(BaseRoutedShardConsumer.class);
+
+    /**
+     * 缓冲的总行数或未确认的批次数超过该倍数的批大小时写入所有分表
+     */
+    private static final int MAX_BUFFERED_BATCHES = 64;
+
+    private ShardRouter router;
+    private List<TableTopology> topologyList;
+    private List<Integer> shardOrder;
+    private List<FieldMetaInfo> fieldMetaInfoList;
+    private StringBuilder[] shardBuffers;
+    private int[] shardRowCounts;
+    private int bufferedRows = 0;
+    private final StringBuilder localBuffer = new StringBuilder();
+    /**
+     * 有数据仍在缓冲中的数据块计数
+     */
+    private final List<AtomicInteger> pendingBlockCounters = new ArrayList<>();
+
+    @Override
+    protected void initLocalVars() {
+        super.initLocalVars();
+        if (router != null) {
+            return;
+        }
+        this.router = consumerContext.getTableShardRouter(tableName);
+        this.topologyList = consumerContext.getTopologyList(tableName);
+        this.shardOrder = NodeConcurrencyLimiter.interleaveByNode(topologyList);
+        this.fieldMetaInfoList = consumerContext.getTableFieldMetaInfo(tableName).getFieldMetaInfoList();
+        this.shardBuffers = new StringBuilder[topologyList.size()];
+        this.shardRowCounts = new int[topologyList.size()];
+        for (int i = 0; i < shardBuffers.length; i++) {
+            shardBuffers[i] = new StringBuilder();
+        }
+    }
+
+    @Override
+    public void onProxyEvent(BatchLineEvent event) {
+        AtomicInteger blockCounter = null;
+        if (consumerContext.isUseBlock()) {
+            blockCounter = consumerContext.getEventCounter().get(event.getLocalProcessingFileIndex()).
+                get(event.getLocalProcessingBlockIndex());
+        }
+        if (consumerContext.getException() != null) {
+            // fail fast on exception
+            consumerContext.getEmittedDataCounter().getAndDecrement();
+            if (blockCounter != null) {
+                blockCounter.getAndDecrement();
+            }
+            return;
+        }
+        initLocalVars();
+        try {
+            if (blockCounter != null) {
+                pendingBlockCounters.add(blockCounter);
+            }
+            for (String line : event.getBatchLines()) {
+                if (StringUtils.isEmpty(line)) {
+                    continue;
+                }
+                if (line == END_OF_BATCH_LINES) {
+                    break;
+                }
+                List<String> values = FileUtil.split(line, sep,
+                    consumerContext.isWithLastSep(), hasEscapedQuote);
+                maskValues(values);
+                // 拆分键无法路由的行不能丢弃，直接失败
+                int shardIndex = router.route(values);
+                try {
+                    fillLocalBuffer(localBuffer, values, fieldMetaInfoList);
+                } catch (Exception e) {
+                    logger.error("{} at line: {}", e.getMessage(), line);
+                    // 清空 继续处理下一行数据
+                    localBuffer.setLength(0);
+                    continue;
+                }
+                shardBuffers[shardIndex].append(localBuffer);
+                localBuffer.setLength(0);
+                shardRowCounts[shardIndex]++;
+                bufferedRows++;
+                if (shardRowCounts[shardIndex] >= EMIT_BATCH_SIZE) {
+                    flushShard(shardIndex);
+                }
+            }
+            if (bufferedRows >= EMIT_BATCH_SIZE * MAX_BUFFERED_BATCHES
+                || pendingBlockCounters.size() >= MAX_BUFFERED_BATCHES) {
+                flushAll();
+            } else if (bufferedRows == 0) {
+                ackPendingBlocks();
+            }
+        } catch (Exception e) {
+            consumerContext.setException(e);
+            logger.error("Failed in table [{}], due to {}", tableName, e.getMessage());
+            // 认为无法恢复
+            throw new RuntimeException(e);
+        } finally {
+            consumerContext.getEmittedDataCounter().getAndDecrement();
+        }
+    }
+
+    /**
+     * 所有批次处理完后由主线程调用，写入剩余的缓冲数据
+     * 调用前消费者已递减完计数器，不会再并发处理事件
+     */
+    @Override
+    public void onConsumeFinished() {
+        if (router == null || consumerContext.getException() != null) {
+            return;
+        }
+        try {
+            flushAll();
+        } catch (Exception e) {
+            consumerContext.setException(e);
+            logger.error("Failed in table [{}], due to {}", tableName, e.getMessage());
+        }
+    }
+
+    /**
+     * 按节点交错的顺序写入所有有数据的分表
+     */
+    private void flushAll() throws SQLException, InterruptedException {
+        for (int shardIndex : shardOrder) {
+            if (shardRowCounts[shardIndex] > 0) {
+                flushShard(shardIndex);
+            }
+        }
+        ackPendingBlocks();
+    }
+
+    private void flushShard(int shardIndex) throws SQLException, InterruptedException {
+        TableTopology topology = topologyList.get(shardIndex);
+        NodeConcurrencyLimiter nodeLimiter = consumerContext.getNodeLimiter();
+        if (nodeLimiter != null) {
+            nodeLimiter.acquire(topology);
+        }
+        try {
+            execSqlWithShardingHint(topology, shardBuffers[shardIndex]);
+        } finally {
+            if (nodeLimiter != null) {
+                nodeLimiter.release(topology);
+            }
+        }
+        CountStat.addDbRowCount(shardRowCounts[shardIndex]);
+        bufferedRows -= shardRowCounts[shardIndex];
+        shardRowCounts[shardIndex] = 0;
+        shardBuffers[shardIndex].setLength(0);
+    }
+
+    private void ackPendingBlocks() {
+        for (AtomicInteger blockCounter : pendingBlockCounters) {
+            blockCounter.getAndDecrement();
+        }
+        pendingBlockCounters.clear();
+    }
+
+    private void execSqlWithShardingHint(TableTopology topology, StringBuilder data) throws SQLException {
+        Connection conn = null;
+        Statement stmt = null;
+        try {
+            conn = consumerContext.getDataSource().getConnection();
+            stmt = conn.createStatement();
+            stmt.execute(getSqlWithHint(topology, data));
+        } finally {
+            JdbcUtils.close(stmt);
+            JdbcUtils.close(conn);
+        }
+    }
+
+    /**
+     * 根据切分出的字段值
+     * 按照格式填充localBuffer
+     */
+    protected abstract void fillLocalBuffer(StringBuilder localBuffer, List<String> values,
+                                            List<FieldMetaInfo> fieldMetaInfoList);
+
+    /**
+     * @param topology 数据所在的物理分表
+     * @param data 该分表缓冲区内的数据
+     */
+    protected abstract String getSqlWithHint(TableTopology topology, StringBuilder data);
+}
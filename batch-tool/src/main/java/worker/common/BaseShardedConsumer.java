@@ -25,11 +25,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import util.DbUtil;
 import util.FileUtil;
+import worker.NodeConcurrencyLimiter;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import static model.config.ConfigConstant.END_OF_BATCH_LINES;
 
@@ -39,6 +44,15 @@ import static model.config.ConfigConstant.END_OF_BATCH_LINES;
 public abstract class BaseShardedConsumer extends BaseWorkHandler {
     private static final Logger logger = LoggerFactory.getLogger(BaseShardedConsumer.class);
 
+    /**
+     * 表名 -> 按节点交错排列的分片下标
+     */
+    private final Map<String, List<Integer>> shardOrderCache = new HashMap<>();
+    /**
+     * 每批次轮换起始分片，避免所有消费者同时从同一节点开始写
+     */
+    private int shardRoundRobin = 0;
+
     protected void initLocalVars() {
         super.initLocalVars();
     }
@@ -70,6 +84,7 @@ public abstract class BaseShardedConsumer extends BaseWorkHandler {
                 }
                 List<String> values = FileUtil.split(line, sep,
                     consumerContext.isWithLastSep(), hasEscapedQuote);
+                maskValues(values);
                 partitionFieldValue = values.get(partitionKey.getFieldMetaInfo().getIndex());
                 partitionIndex = DbUtil.getPartitionIndex(partitionFieldValue, partitionKey);
 
@@ -84,11 +99,7 @@ public abstract class BaseShardedConsumer extends BaseWorkHandler {
                 dataBuffers[partitionIndex].append(localBuffer);
                 localBuffer.setLength(0);
             }
-            for (int i = 0; i < shardCount; i++) {
-                if (dataBuffers[i].length() != 0) {
-                    execSqlWithShardingHint(topologyList.get(i), dataBuffers[i]);
-                }
-            }
+            execShardsByNode(topologyList, dataBuffers);
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
             // 认为无法恢复
@@ -102,6 +113,61 @@ public abstract class BaseShardedConsumer extends BaseWorkHandler {
         }
     }
 
+    /**
+     * 按节点交错的顺序写入各分片
+     * 优先写入有空闲许可的节点，所有待写节点都繁忙时才阻塞等待
+     */
+    private void execShardsByNode(List<TableTopology> topologyList,
+                                  StringBuilder[] dataBuffers) throws InterruptedException {
+        NodeConcurrencyLimiter nodeLimiter = consumerContext.getNodeLimiter();
+        if (nodeLimiter == null) {
+            for (int i = 0; i < dataBuffers.length; i++) {
+                if (dataBuffers[i].length() != 0) {
+                    execSqlWithShardingHint(topologyList.get(i), dataBuffers[i]);
+                }
+            }
+            return;
+        }
+        List<Integer> shardOrder = shardOrderCache.computeIfAbsent(tableName,
+            key -> NodeConcurrencyLimiter.interleaveByNode(topologyList));
+        int offset = shardRoundRobin++ % shardOrder.size();
+        LinkedList<Integer> pendingShards = new LinkedList<>();
+        for (int i = 0; i < shardOrder.size(); i++) {
+            int shardIndex = shardOrder.get((offset + i) % shardOrder.size());
+            if (dataBuffers[shardIndex].length() != 0) {
+                pendingShards.add(shardIndex);
+            }
+        }
+        while (!pendingShards.isEmpty()) {
+            boolean executed = false;
+            Iterator<Integer> iterator = pendingShards.iterator();
+            while (iterator.hasNext()) {
+                int shardIndex = iterator.next();
+                TableTopology topology = topologyList.get(shardIndex);
+                if (!nodeLimiter.tryAcquire(topology)) {
+                    continue;
+                }
+                try {
+                    execSqlWithShardingHint(topology, dataBuffers[shardIndex]);
+                } finally {
+                    nodeLimiter.release(topology);
+                }
+                iterator.remove();
+                executed = true;
+            }
+            if (!executed) {
+                int shardIndex = pendingShards.poll();
+                TableTopology topology = topologyList.get(shardIndex);
+                nodeLimiter.acquire(topology);
+                try {
+                    execSqlWithShardingHint(topology, dataBuffers[shardIndex]);
+                } finally {
+                    nodeLimiter.release(topology);
+                }
+            }
+        }
+    }
+
     /**
      * 根据切分出的字段值
      * 按照格式填充localBuffer
@@ -22,6 +22,11 @@ import model.ConsumerExecutionContext;
 import model.config.ConfigConstant;
 import model.config.GlobalVar;
 import model.config.QuoteEncloseMode;
+import model.mask.AbstractDataMasker;
+import model.mask.DataMaskerFactory;
+import util.FileUtil;
+
+import java.util.List;
 
 /**
  * 限流代理类
@@ -36,6 +41,11 @@ public abstract class BaseWorkHandler implements WorkHandler<BatchLineEvent> {
      * TODO tableName 从 map 取出的内容cache在独立context中
      */
     protected String tableName;
+    /**
+     * 导入时的字段脱敏器，每个消费者线程独立持有
+     */
+    private AbstractDataMasker[] columnMaskers = null;
+    private boolean columnMaskersInitialized = false;
 
     protected void initLocalVars() {
         if (GlobalVar.IN_PERF_MODE) {
@@ -71,6 +81,37 @@ public abstract class BaseWorkHandler implements WorkHandler<BatchLineEvent> {
         this.tableName = tableName;
     }
 
+    /**
+     * 对切分后的字段值脱敏，未配置脱敏时不做处理
+     * 需在按字段值路由分片之前调用
+     */
+    protected void maskValues(List<String> values) {
+        if (!columnMaskersInitialized) {
+            if (consumerContext.getColumnMaskerConfigMap() != null) {
+                this.columnMaskers = DataMaskerFactory.buildColumnMaskers(consumerContext.getColumnMaskerConfigMap(),
+                    consumerContext.getTableFieldMetaInfo(tableName).getFieldMetaInfoList());
+            }
+            this.columnMaskersInitialized = true;
+        }
+        if (columnMaskers == null) {
+            return;
+        }
+        for (int i = 0; i < columnMaskers.length && i < values.size(); i++) {
+            String value = values.get(i);
+            if (columnMaskers[i] == null || value == null || FileUtil.NULL_ESC_STR.equals(value)) {
+                continue;
+            }
+            values.set(i, new String(columnMaskers[i].doMask(value.getBytes(consumerContext.getCharset())),
+                consumerContext.getCharset()));
+        }
+    }
+
+    /**
+     * 所有事件处理完成后调用，用于写入跨批次缓冲的数据
+     */
+    public void onConsumeFinished() {
+    }
+
     @Override
     public void onEvent(BatchLineEvent event) {
         // 保守起见，使用阻塞锁，不自旋
@@ -28,8 +28,6 @@ import store.FileStorage;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ThreadPoolExecutor;
 
 public abstract class ReadFileProducer implements Producer {
 
@@ -40,6 +38,7 @@ public abstract class ReadFileProducer implements Producer {
 
     protected final List<File> fileList;
     protected final List<FileLineRecord> fileLineRecordList;
+    private RemoteFilePrefetcher prefetcher = null;
 
     public ReadFileProducer(ProducerExecutionContext context,
                             RingBuffer<BatchLineEvent> ringBuffer,
@@ -57,52 +56,46 @@ public abstract class ReadFileProducer implements Producer {
     /**
      * 初始化文件列表
      * 若有文件路径不存在 提前报错结束
+     * 远端文件在读取时按需流水线下载
      */
     private void initFileList() {
         FileStorage fileStorage = context.getFileStorage();
-        if (fileStorage == null) {
-            for (FileLineRecord fileRecord : fileLineRecordList) {
-                File file = new File(fileRecord.getFilePath());
-                if (!file.exists()) {
-                    logger.error("File {} doesn't exist", fileRecord.getFilePath());
-                    throw new RuntimeException("File doesn't exist");
-                }
-                this.fileList.add(file);
-            }
-        } else {
-            // 预下载文件，先不做流水线
-            ThreadPoolExecutor producerExecutor = context.getProducerExecutor();
-            final CountDownLatch countDownLatch = new CountDownLatch(fileLineRecordList.size());
-            for (FileLineRecord fileRecord : fileLineRecordList) {
-                File file = new File(fileRecord.getFilePath());
-                if (!file.exists()) {
-                    producerExecutor.submit(() -> {
-                        try {
-                            fileStorage.get(file.getName(), file.getAbsolutePath());
-                        } catch (Exception e) {
-                            logger.error("Download file {} failed", fileRecord.getFilePath(), e);
-                            throw new RuntimeException(e);
-                        } finally {
-                            countDownLatch.countDown();
-                        }
-                    });
-                }
-                this.fileList.add(file);
-            }
-            try {
-                countDownLatch.await();
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
+        for (FileLineRecord fileRecord : fileLineRecordList) {
+            File file = new File(fileRecord.getFilePath());
+            if (fileStorage == null && !file.exists()) {
+                logger.error("File {} doesn't exist", fileRecord.getFilePath());
+                throw new RuntimeException("File doesn't exist");
             }
+            this.fileList.add(file);
         }
     }
 
+    /**
+     * 创建远端文件的预取器
+     *
+     * @param initialPositions 每个读取线程起始的文件序号
+     * @param readerOwnsFile 每个读取线程是否只读取一个文件
+     * @return 本地文件时返回 null
+     */
+    protected RemoteFilePrefetcher createPrefetcher(int[] initialPositions, boolean readerOwnsFile) {
+        FileStorage fileStorage = context.getFileStorage();
+        if (fileStorage == null) {
+            return null;
+        }
+        this.prefetcher = new RemoteFilePrefetcher(fileStorage, fileList,
+            context.getPrefetchNum(), initialPositions, readerOwnsFile);
+        return prefetcher;
+    }
+
     public boolean useMagicSeparator() {
         return false;
     }
 
     public void close() {
         FileStorage fileStorage = context.getFileStorage();
+        if (prefetcher != null) {
+            prefetcher.close();
+        }
         if (fileStorage != null) {
             // 在 producer 进行临时文件清理, 因为同一个文件可能被多个reader共享
             for (FileLineRecord fileRecord : fileLineRecordList) {
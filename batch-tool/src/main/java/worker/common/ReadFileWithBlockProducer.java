@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 import worker.common.reader.BlockReader;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -50,9 +51,13 @@ public class ReadFileWithBlockProducer extends ReadFileProducer {
     public void produce() {
         int parallelism = context.getParallelism();
         ThreadPoolExecutor threadPool = context.getProducerExecutor();
+        int[] initialPositions = new int[parallelism];
+        Arrays.fill(initialPositions, fileBlockListRecord.getCurrentFileIndex().get());
+        RemoteFilePrefetcher prefetcher = createPrefetcher(initialPositions, false);
         BlockReader readFileWorker = null;
         for (int i = 0; i < parallelism; i++) {
             readFileWorker = new BlockReader(context, fileBlockListRecord, ringBuffer, compressMode);
+            readFileWorker.setPrefetcher(prefetcher, i);
             blockReaderList.add(readFileWorker);
             threadPool.submit(readFileWorker);
         }
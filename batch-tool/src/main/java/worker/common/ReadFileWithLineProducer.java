@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 import worker.common.reader.CipherLineReader;
 import worker.common.reader.CsvReader;
 import worker.common.reader.FileBufferedBatchReader;
+import worker.common.reader.ParquetReader;
 import worker.common.reader.XlsxReader;
 
 import java.util.List;
@@ -61,9 +62,15 @@ public class ReadFileWithLineProducer extends ReadFileProducer {
     @Override
     public void produce() {
         ThreadPoolExecutor threadPool = context.getProducerExecutor();
-
-        for (FileBufferedBatchReader reader : fileReaders) {
-            threadPool.submit(reader);
+        // 每个读取线程只处理对应序号的文件
+        int[] initialPositions = new int[fileReaders.length];
+        for (int i = 0; i < initialPositions.length; i++) {
+            initialPositions[i] = i;
+        }
+        RemoteFilePrefetcher prefetcher = createPrefetcher(initialPositions, true);
+        for (int i = 0; i < fileReaders.length; i++) {
+            fileReaders[i].setPrefetcher(prefetcher, i);
+            threadPool.submit(fileReaders[i]);
         }
     }
 
@@ -74,6 +81,8 @@ public class ReadFileWithLineProducer extends ReadFileProducer {
         case XLS:
         case ET:
             return new XlsxReader(context, fileList, workerIndex, ringBuffer);
+        case PARQUET:
+            return new ParquetReader(context, fileList, workerIndex, ringBuffer);
         case CSV:
         case LOG:
         case TXT:
@@ -0,0 +1,209 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package worker.common;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import store.FileStorage;
+import worker.MyThreadPool;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 按文件顺序流水线下载远端文件
+ * 读取线程拿到已下载的文件即可开始处理，
+ * 文件严格按序号下载，本地最多同时保留 prefetchNum 个未删除的文件
+ */
+@ThreadSafe
+public class RemoteFilePrefetcher {
+    private static final Logger logger = LoggerFactory.getLogger(RemoteFilePrefetcher.class);
+
+    private static final int DONE_POSITION = Integer.MAX_VALUE;
+
+    private final FileStorage fileStorage;
+    private final List<File> fileList;
+    private final int prefetchNum;
+    /**
+     * 每个读取线程只读取一个文件（按行读取）
+     * 为 false 时多个读取线程按顺序共享文件（按块读取）
+     */
+    private final boolean readerOwnsFile;
+    private final ExecutorService downloadExecutor;
+    private final CompletableFuture<File>[] downloadFutures;
+    private final boolean[] released;
+    /**
+     * 每个读取线程当前所在的文件序号
+     */
+    private final int[] readerPositions;
+    private int lowWatermark;
+    /**
+     * 下一个待下载的文件序号
+     */
+    private int nextScheduleIndex;
+    /**
+     * 已开始下载且尚未删除的文件数
+     */
+    private int holdingCount = 0;
+    private volatile boolean closed = false;
+
+    public RemoteFilePrefetcher(FileStorage fileStorage, List<File> fileList,
+                                int prefetchNum, int[] initialPositions) {
+        this(fileStorage, fileList, prefetchNum, initialPositions, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    public RemoteFilePrefetcher(FileStorage fileStorage, List<File> fileList,
+                                int prefetchNum, int[] initialPositions, boolean readerOwnsFile) {
+        this.fileStorage = fileStorage;
+        this.fileList = fileList;
+        this.prefetchNum = Math.max(1, prefetchNum);
+        this.readerOwnsFile = readerOwnsFile;
+        this.downloadExecutor = MyThreadPool.createUnboundedFixedExecutor("prefetch", this.prefetchNum);
+        this.downloadFutures = new CompletableFuture[fileList.size()];
+        this.released = new boolean[fileList.size()];
+        this.readerPositions = Arrays.copyOf(initialPositions, initialPositions.length);
+        this.lowWatermark = minPosition();
+        this.nextScheduleIndex = Math.min(lowWatermark, fileList.size());
+        synchronized (this) {
+            scheduleWindow();
+        }
+    }
+
+    /**
+     * 等待文件进入下载窗口并下载完成
+     */
+    public File awaitFile(int fileIndex) {
+        CompletableFuture<File> future;
+        synchronized (this) {
+            try {
+                while (downloadFutures[fileIndex] == null && !released[fileIndex] && !closed) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            if (released[fileIndex]) {
+                throw new IllegalStateException("File has been released: " + fileList.get(fileIndex));
+            }
+            if (closed) {
+                throw new IllegalStateException("Prefetcher has been closed");
+            }
+            future = downloadFutures[fileIndex];
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Download file failed: " + fileList.get(fileIndex), e.getCause());
+        }
+    }
+
+    /**
+     * 读取线程移动到新的文件
+     * 不再被读取的文件会被删除，并继续预取后续文件
+     */
+    public synchronized void moveTo(int readerIndex, int fileIndex) {
+        int oldPosition = readerPositions[readerIndex];
+        readerPositions[readerIndex] = fileIndex;
+        if (readerOwnsFile) {
+            if (oldPosition < fileList.size()) {
+                release(oldPosition);
+            }
+        } else {
+            int newLowWatermark = minPosition();
+            for (int i = lowWatermark; i < Math.min(newLowWatermark, fileList.size()); i++) {
+                release(i);
+            }
+            lowWatermark = Math.max(lowWatermark, newLowWatermark);
+        }
+        scheduleWindow();
+        notifyAll();
+    }
+
+    /**
+     * 读取线程结束
+     */
+    public void finish(int readerIndex) {
+        moveTo(readerIndex, DONE_POSITION);
+    }
+
+    public void close() {
+        closed = true;
+        downloadExecutor.shutdownNow();
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private void scheduleWindow() {
+        while (holdingCount < prefetchNum && nextScheduleIndex < fileList.size()) {
+            int fileIndex = nextScheduleIndex++;
+            if (released[fileIndex]) {
+                // 读取线程已跳过该文件，无需下载
+                continue;
+            }
+            File file = fileList.get(fileIndex);
+            downloadFutures[fileIndex] = CompletableFuture.supplyAsync(() -> download(file), downloadExecutor);
+            holdingCount++;
+        }
+    }
+
+    private File download(File file) {
+        if (closed) {
+            throw new IllegalStateException("Prefetcher has been closed");
+        }
+        if (!file.exists()) {
+            fileStorage.get(file.getName(), file.getAbsolutePath());
+        }
+        return file;
+    }
+
+    private void release(int fileIndex) {
+        if (released[fileIndex]) {
+            return;
+        }
+        released[fileIndex] = true;
+        CompletableFuture<File> future = downloadFutures[fileIndex];
+        if (future == null) {
+            return;
+        }
+        holdingCount--;
+        // 下载完成后再删除
+        future.whenComplete((file, e) -> {
+            FileUtils.deleteQuietly(fileList.get(fileIndex));
+            logger.debug("删除已读取的文件 {}", fileList.get(fileIndex));
+        });
+    }
+
+    private int minPosition() {
+        int min = DONE_POSITION;
+        for (int position : readerPositions) {
+            min = Math.min(min, position);
+        }
+        return min;
+    }
+}
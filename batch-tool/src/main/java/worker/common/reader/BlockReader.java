@@ -22,6 +22,7 @@ import model.config.CompressMode;
 import model.config.ConfigConstant;
 import model.config.FileBlockListRecord;
 import model.encrypt.BaseCipher;
+import model.encrypt.CipherFrameFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import util.FileUtil;
@@ -48,6 +49,14 @@ public class BlockReader extends FileBufferedBatchReader {
      */
     private final long readBlockSize;
     private final BaseCipher cipher;
+    /**
+     * 分帧加密文件按帧读取，一个block对应一帧
+     */
+    private final CipherFrameDecoder frameDecoder;
+    /**
+     * 当前文件各帧的起始偏移
+     */
+    private long[] frameOffsets = null;
     private final FileBlockListRecord fileBlockListRecord;
     private final BlockByteBuffer byteBuffer;
     private final BlockPosMarker posMarker;
@@ -64,6 +73,7 @@ public class BlockReader extends FileBufferedBatchReader {
         this.localProcessingFileIndex = fileBlockListRecord.getCurrentFileIndex().get();
         this.fileBlockListRecord = fileBlockListRecord;
         this.cipher = BaseCipher.getCipher(context.getEncryptionConfig(), false);
+        this.frameDecoder = (cipher != null && cipher.supportFrame()) ? new CipherFrameDecoder(cipher) : null;
         if (this.compressMode != CompressMode.NONE) {
             this.gzipBuffer = new byte[(int) (readBlockSize + READ_PADDING)];
         } else {
@@ -77,6 +87,19 @@ public class BlockReader extends FileBufferedBatchReader {
     @Override
     protected void init() {
         this.curRandomAccessFile = FileUtil.openRafForRead(getLocalFile());
+        loadFrameIndex();
+    }
+
+    private void loadFrameIndex() {
+        if (frameDecoder == null) {
+            return;
+        }
+        try {
+            this.frameOffsets = CipherFrameFormat.readFrameIndex(curRandomAccessFile);
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+            throw new RuntimeException(e);
+        }
     }
 
     @Override
@@ -95,6 +118,18 @@ public class BlockReader extends FileBufferedBatchReader {
                     .putIfAbsent(localProcessingBlockIndex, new AtomicInteger(0));
                 context.getEventCounter().get(localProcessingFileIndex)
                     .get(localProcessingBlockIndex).incrementAndGet();
+                if (frameOffsets != null) {
+                    if (localProcessingBlockIndex >= frameOffsets.length - 1) {
+                        if (!nextFile()) {
+                            break;
+                        }
+                        continue;
+                    }
+                    readFrame((int) localProcessingBlockIndex);
+                    context.getEventCounter().get(localProcessingFileIndex)
+                        .get(localProcessingBlockIndex).getAndDecrement();
+                    continue;
+                }
                 // 跳过第一个换行符
                 boolean skipFirst = (pos != 0);
                 seekAndRead(pos);
@@ -154,35 +189,51 @@ public class BlockReader extends FileBufferedBatchReader {
         }
     }
 
+    /**
+     * 解密一帧后按行长度前缀切分
+     * 帧内只包含完整的行，无需处理跨帧的行，行内可能包含换行符
+     */
+    private void readFrame(int frameIndex) throws IOException {
+        frameDecoder.decrypt(curRandomAccessFile, frameOffsets[frameIndex], frameOffsets[frameIndex + 1]);
+        byte[] plainBuffer = frameDecoder.getPlainBuffer();
+        boolean skipHeader = (frameIndex == 0 && context.isWithHeader());
+        while (frameDecoder.nextRow()) {
+            if (skipHeader) {
+                skipHeader = false;
+                continue;
+            }
+            appendToLineBuffer(new String(plainBuffer, frameDecoder.getRowOffset(),
+                frameDecoder.getRowLength(), context.getCharset()));
+        }
+    }
+
     private void handleLine(boolean checkBom) {
-        int curReadingPos = posMarker.getReadingPos();
-        byte[] tmpByteBuffer;
-        if (curReadingPos - 1 >= 0 && byteBuffer.buffer[curReadingPos - 1] == '\r') {
+        appendLine(byteBuffer.buffer, posMarker.curPos, posMarker.curLen, checkBom);
+    }
+
+    private void appendLine(byte[] buffer, int offset, int length, boolean checkBom) {
+        int bytesEnd = offset + length - 1, bytesOffset = offset;
+        if (bytesEnd >= bytesOffset && buffer[bytesEnd] == '\r') {
             // handle \r\n
-            tmpByteBuffer = new byte[posMarker.curLen - 1];
-            System.arraycopy(byteBuffer.buffer, posMarker.curPos, tmpByteBuffer, 0, posMarker.curLen - 1);
-        } else {
-            tmpByteBuffer = new byte[posMarker.curLen];
-            System.arraycopy(byteBuffer.buffer, posMarker.curPos, tmpByteBuffer, 0, posMarker.curLen);
+            bytesEnd--;
         }
-        int bytesEnd = tmpByteBuffer.length - 1, bytesOffset = 0;
         // remove BOM
-        if (checkBom && bytesEnd >= 2 && context.isUtfCharset()) {
-            if (tmpByteBuffer[0] == (byte) 0xEF && tmpByteBuffer[1] == (byte) 0xBB
-                && tmpByteBuffer[2] == (byte) 0xBF) {
-                bytesOffset = 3;
+        if (checkBom && bytesEnd - bytesOffset >= 2 && context.isUtfCharset()) {
+            if (buffer[bytesOffset] == (byte) 0xEF && buffer[bytesOffset + 1] == (byte) 0xBB
+                && buffer[bytesOffset + 2] == (byte) 0xBF) {
+                bytesOffset += 3;
             }
         }
         // trim right
         while (trimRight && (bytesEnd >= bytesOffset) &&
-            (tmpByteBuffer[bytesEnd] == ' ' || tmpByteBuffer[bytesEnd] == '\t')) {
+            (buffer[bytesEnd] == ' ' || buffer[bytesEnd] == '\t')) {
             bytesEnd--;
         }
         if (bytesEnd < bytesOffset) {
             return;
         }
 
-        String line = new String(tmpByteBuffer, bytesOffset, bytesEnd - bytesOffset + 1,
+        String line = new String(buffer, bytesOffset, bytesEnd - bytesOffset + 1,
             context.getCharset());
         appendToLineBuffer(line);
     }
@@ -238,7 +289,10 @@ public class BlockReader extends FileBufferedBatchReader {
             // 如果并发很大的话 可以考虑一次性跳过多个文件
             localProcessingFileIndex++;
             localProcessingBlockIndex = -1;
+            onFileChanged();
+            IOUtil.close(curRandomAccessFile);
             curRandomAccessFile = FileUtil.openRafForRead(getLocalFile());
+            loadFrameIndex();
             return true;
         }
         return false;
@@ -0,0 +1,138 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package worker.common.reader;
+
+import model.encrypt.BaseCipher;
+import model.encrypt.CipherFrameFormat;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * 分帧加密文件的帧解密
+ * 读取与解密复用同一组缓冲区，每个读取线程各持有一个
+ */
+public class CipherFrameDecoder {
+
+    private final BaseCipher cipher;
+    private final int ivLength;
+    private final byte[] iv;
+    private byte[] cryptoBuffer = new byte[0];
+    private byte[] plainBuffer = new byte[0];
+    private int plainLength = 0;
+    /**
+     * 当前帧中下一行长度前缀的位置，及当前行的位置与长度
+     */
+    private int rowPosition = 0;
+    private int rowOffset = 0;
+    private int rowLength = 0;
+
+    public CipherFrameDecoder(BaseCipher cipher) {
+        if (!cipher.supportFrame()) {
+            throw new UnsupportedOperationException(cipher.getClass().getSimpleName()
+                + " does not support frame decryption");
+        }
+        this.cipher = cipher;
+        this.ivLength = cipher.getFrameIvLength();
+        this.iv = ivLength > 0 ? new byte[ivLength] : null;
+    }
+
+    /**
+     * 一次读入 [start, end) 范围内的整帧并解密
+     *
+     * @return 明文字节数，明文位于 {@link #getPlainBuffer()}
+     */
+    public int decrypt(RandomAccessFile file, long start, long end) throws IOException {
+        int frameLength = (int) (end - start);
+        if (frameLength < CipherFrameFormat.FRAME_HEADER_SIZE + ivLength) {
+            throw new IllegalStateException("Broken cipher frame at offset " + start);
+        }
+        if (cryptoBuffer.length < frameLength) {
+            cryptoBuffer = new byte[frameLength];
+        }
+        file.seek(start);
+        file.readFully(cryptoBuffer, 0, frameLength);
+        return decrypt(cryptoBuffer, 0, frameLength);
+    }
+
+    /**
+     * 解密 frame 中从 offset 开始、长度为 length 的一整帧
+     */
+    public int decrypt(byte[] frame, int offset, int length) {
+        int cryptoLength = ((frame[offset] & 0xFF) << 24) | ((frame[offset + 1] & 0xFF) << 16)
+            | ((frame[offset + 2] & 0xFF) << 8) | (frame[offset + 3] & 0xFF);
+        int cryptoOffset = offset + CipherFrameFormat.FRAME_HEADER_SIZE + ivLength;
+        if (cryptoLength < 0 || cryptoOffset + cryptoLength != offset + length) {
+            throw new IllegalStateException("Broken cipher frame, crypto length: " + cryptoLength);
+        }
+        if (iv != null) {
+            System.arraycopy(frame, offset + CipherFrameFormat.FRAME_HEADER_SIZE, iv, 0, ivLength);
+        }
+        if (plainBuffer.length < cryptoLength) {
+            plainBuffer = new byte[cryptoLength];
+        }
+        try {
+            plainLength = cipher.decryptFrame(iv, frame, cryptoOffset, cryptoLength, plainBuffer, 0);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to decrypt frame: " + e.getMessage(), e);
+        }
+        rowPosition = 0;
+        return plainLength;
+    }
+
+    /**
+     * 移动到当前帧的下一行，行数据见 {@link #getRowOffset()} 与 {@link #getRowLength()}
+     *
+     * @return 当前帧已没有更多行时返回 false
+     */
+    public boolean nextRow() {
+        if (rowPosition >= plainLength) {
+            return false;
+        }
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (rowPosition >= plainLength || shift > 28) {
+                throw new IllegalStateException("Broken cipher frame, bad row length");
+            }
+            b = plainBuffer[rowPosition++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        if (length < 0 || length > plainLength - rowPosition) {
+            throw new IllegalStateException("Broken cipher frame, row length: " + length);
+        }
+        rowOffset = rowPosition;
+        rowLength = length;
+        rowPosition += length;
+        return true;
+    }
+
+    public int getRowOffset() {
+        return rowOffset;
+    }
+
+    public int getRowLength() {
+        return rowLength;
+    }
+
+    public byte[] getPlainBuffer() {
+        return plainBuffer;
+    }
+}
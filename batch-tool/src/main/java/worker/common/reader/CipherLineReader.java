@@ -19,25 +19,42 @@ package worker.common.reader;
 import com.lmax.disruptor.RingBuffer;
 import model.ProducerExecutionContext;
 import model.encrypt.BaseCipher;
+import model.encrypt.CipherFrameFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import util.FileUtil;
 import util.IOUtil;
 import worker.common.BatchLineEvent;
 
 import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.io.RandomAccessFile;
 import java.util.List;
 
+/**
+ * 按顺序读取加密文件
+ * 分帧加密的文件整帧读入解密后按行长度切分行
+ * 兼容旧的按行加密格式：2字节或4字节长度 + 单行密文
+ */
 public class CipherLineReader extends FileBufferedBatchReader {
     private static final Logger logger = LoggerFactory.getLogger(CipherLineReader.class);
 
+    /**
+     * 旧格式读取缓冲区 64KB
+     */
+    private static final int LEGACY_BUFFER_SIZE = 64 * 1024;
+
     private final BaseCipher cipher;
-    private BufferedInputStream inputStream;
-    private final ByteBuffer byteBuffer;
+    private DataInputStream inputStream;
+    private RandomAccessFile frameFile;
+    private CipherFrameDecoder frameDecoder;
+    private final byte[] headerBuffer = new byte[4];
+    private byte[] cryptoBuffer = new byte[256];
 
     public CipherLineReader(ProducerExecutionContext context,
                             List<File> fileList, int fileIndex,
@@ -46,13 +63,19 @@ public class CipherLineReader extends FileBufferedBatchReader {
         super(context, fileList, ringBuffer);
         this.cipher = cipher;
         this.localProcessingFileIndex = fileIndex;
-        this.byteBuffer = ByteBuffer.allocate(4);
     }
 
     @Override
     protected void init() {
+        File file = getLocalFile();
+        if (cipher.supportFrame() && CipherFrameFormat.isFramedFile(file)) {
+            this.frameFile = FileUtil.openRafForRead(file);
+            this.frameDecoder = new CipherFrameDecoder(cipher);
+            return;
+        }
         try {
-            this.inputStream = new BufferedInputStream(new FileInputStream(getLocalFile().getPath()));
+            this.inputStream = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file.getPath()), LEGACY_BUFFER_SIZE));
         } catch (FileNotFoundException e) {
             throw new IllegalArgumentException(e.getMessage());
         }
@@ -61,12 +84,10 @@ public class CipherLineReader extends FileBufferedBatchReader {
     @Override
     protected void readData() {
         try {
-            String line;
-            if (context.isWithHeader()) {
-                readLine();
-            }
-            while ((line = readLine()) != null) {
-                appendToLineBuffer(line);
+            if (frameFile != null) {
+                readFrames();
+            } else {
+                readLegacyLines();
             }
             emitLineBuffer();
             logger.info("{} 读取完毕，读取行数：{}", getLocalFile().getPath(),
@@ -74,52 +95,71 @@ public class CipherLineReader extends FileBufferedBatchReader {
         } catch (IOException e) {
             logger.error(e.getMessage());
         } finally {
-            IOUtil.close(inputStream);
+            close();
+        }
+    }
+
+    private void readFrames() throws IOException {
+        long[] frameOffsets = CipherFrameFormat.readFrameIndex(frameFile);
+        boolean skipHeader = context.isWithHeader();
+        for (int i = 0; i < frameOffsets.length - 1; i++) {
+            frameDecoder.decrypt(frameFile, frameOffsets[i], frameOffsets[i + 1]);
+            byte[] plainBuffer = frameDecoder.getPlainBuffer();
+            while (frameDecoder.nextRow()) {
+                if (skipHeader) {
+                    skipHeader = false;
+                    continue;
+                }
+                appendToLineBuffer(new String(plainBuffer, frameDecoder.getRowOffset(),
+                    frameDecoder.getRowLength(), context.getCharset()));
+            }
+        }
+    }
+
+    private void readLegacyLines() throws IOException {
+        if (context.isWithHeader()) {
+            readLegacyLine();
+        }
+        String line;
+        while ((line = readLegacyLine()) != null) {
+            appendToLineBuffer(line);
         }
     }
 
-    private String readLine() throws IOException {
+    private String readLegacyLine() throws IOException {
         int i = inputStream.read();
         if (i == -1) {
             return null;
         }
         byte b1 = (byte) i;
         int len;
-        if (b1 >= 0) {
-            // short length
-            byteBuffer.put(b1).put(readByte());
-            byteBuffer.flip();
-            len = byteBuffer.getShort();
-        } else {
-            // int length
-            byteBuffer.put(b1).put(readByte()).put(readByte()).put(readByte());
-            byteBuffer.flip();
-            len = byteBuffer.getInt();
-        }
-        byteBuffer.clear();
-        byte[] data = new byte[len];
-        i = inputStream.read(data);
-        if (i == -1) {
+        try {
+            if (b1 >= 0) {
+                // short length
+                len = ((b1 & 0xFF) << 8) | inputStream.readUnsignedByte();
+            } else {
+                // int length
+                headerBuffer[0] = b1;
+                inputStream.readFully(headerBuffer, 1, 3);
+                len = -(((headerBuffer[0] & 0xFF) << 24) | ((headerBuffer[1] & 0xFF) << 16)
+                    | ((headerBuffer[2] & 0xFF) << 8) | (headerBuffer[3] & 0xFF));
+            }
+            if (cryptoBuffer.length < len) {
+                cryptoBuffer = new byte[Math.max(len, cryptoBuffer.length * 2)];
+            }
+            inputStream.readFully(cryptoBuffer, 0, len);
+        } catch (EOFException e) {
             throw new IllegalStateException("Expect more data in current state");
         }
         byte[] decryptedData;
         try {
-            decryptedData = cipher.decrypt(data);
+            decryptedData = cipher.decrypt(cryptoBuffer, 0, len);
         } catch (Exception e) {
             logger.error("Failed to decrypted file {}: {}",
                 getLocalFile().getName(), e.getMessage());
             throw new RuntimeException(e);
         }
-        // todo charset
-        return new String(decryptedData);
-    }
-
-    private byte readByte() throws IOException {
-        int i = inputStream.read();
-        if (i == -1) {
-            throw new IllegalStateException("Expect more data in current state");
-        }
-        return (byte) i;
+        return new String(decryptedData, context.getCharset());
     }
 
     @Override
@@ -130,6 +170,6 @@ public class CipherLineReader extends FileBufferedBatchReader {
     @Override
     protected void close() {
         IOUtil.close(inputStream);
+        IOUtil.close(frameFile);
     }
 }
-
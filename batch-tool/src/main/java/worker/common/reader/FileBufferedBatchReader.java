@@ -24,6 +24,7 @@ import model.config.GlobalVar;
 import model.stat.FileReaderStat;
 import store.FileStorage;
 import worker.common.BatchLineEvent;
+import worker.common.RemoteFilePrefetcher;
 
 import java.io.File;
 import java.util.List;
@@ -49,6 +50,11 @@ public abstract class FileBufferedBatchReader implements Runnable {
     protected AtomicLong currentFileLineCount = new AtomicLong(0);
 
     protected FileStorage fileStorage;
+    /**
+     * 远端文件的预取器，本地文件时为 null
+     */
+    protected RemoteFilePrefetcher prefetcher = null;
+    protected int readerIndex = 0;
 
     protected FileBufferedBatchReader(ProducerExecutionContext context,
                                       List<File> fileList,
@@ -136,6 +142,9 @@ public abstract class FileBufferedBatchReader implements Runnable {
     private void afterRun() {
         context.getCountDownLatch().countDown();
         close();
+        if (prefetcher != null) {
+            prefetcher.finish(readerIndex);
+        }
     }
 
     protected abstract void close();
@@ -151,16 +160,24 @@ public abstract class FileBufferedBatchReader implements Runnable {
     }
 
     protected File getLocalFile() {
-        File file = fileList.get(localProcessingFileIndex);
-        if (fileStorage != null) {
-            // check file exists
-            if (!file.exists() || !file.isFile()) {
-                // download to local disk synchronously
-                // should not reach here
-//                fileStorage.get(file.getName(), file.getAbsolutePath());
-                throw new IllegalStateException("File should be fetched already");
-            }
+        if (prefetcher != null) {
+            // 等待远端文件下载完成
+            return prefetcher.awaitFile(localProcessingFileIndex);
         }
-        return file;
+        return fileList.get(localProcessingFileIndex);
+    }
+
+    /**
+     * 切换到下一个文件后通知预取器
+     */
+    protected void onFileChanged() {
+        if (prefetcher != null) {
+            prefetcher.moveTo(readerIndex, localProcessingFileIndex);
+        }
+    }
+
+    public void setPrefetcher(RemoteFilePrefetcher prefetcher, int readerIndex) {
+        this.prefetcher = prefetcher;
+        this.readerIndex = readerIndex;
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package worker.common.reader;
+
+import com.lmax.disruptor.RingBuffer;
+import model.ProducerExecutionContext;
+import model.config.ConfigConstant;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.FileUtil;
+import util.ParquetUtil;
+import worker.common.BatchLineEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 读取 Parquet 列式文件
+ * 每行字段以魔法分隔符拼接后交给下游消费者
+ */
+public class ParquetReader extends FileBufferedBatchReader {
+    private static final Logger logger = LoggerFactory.getLogger(ParquetReader.class);
+
+    private org.apache.parquet.hadoop.ParquetReader<Group> reader;
+
+    public ParquetReader(ProducerExecutionContext context,
+                         List<File> fileList, int fileIndex,
+                         RingBuffer<BatchLineEvent> ringBuffer) {
+        super(context, fileList, ringBuffer);
+        this.localProcessingFileIndex = fileIndex;
+    }
+
+    @Override
+    protected void init() {
+        String filePath = getLocalFile().getAbsolutePath();
+        try {
+            this.reader = org.apache.parquet.hadoop.ParquetReader
+                .builder(new GroupReadSupport(), new Path(filePath))
+                .withConf(ParquetUtil.newLocalConfiguration())
+                .build();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected void readData() {
+        try {
+            Group group;
+            String[] values = null;
+            while ((group = reader.read()) != null) {
+                GroupType type = group.getType();
+                if (values == null) {
+                    values = new String[type.getFieldCount()];
+                }
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = getFieldValue(group, type, i);
+                }
+                localProcessingBlockIndex++;
+                appendToLineBuffer(String.join(ConfigConstant.MAGIC_CSV_SEP1, values));
+            }
+            emitLineBuffer();
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        logger.info("{} 读取完毕，读取行数：{}", getLocalFile().getPath(),
+            currentFileLineCount.get());
+    }
+
+    private String getFieldValue(Group group, GroupType type, int fieldIndex) {
+        if (group.getFieldRepetitionCount(fieldIndex) == 0) {
+            return FileUtil.NULL_ESC_STR_IN_QUOTE;
+        }
+        PrimitiveType primitiveType = type.getType(fieldIndex).asPrimitiveType();
+        PrimitiveType.PrimitiveTypeName typeName = primitiveType.getPrimitiveTypeName();
+        switch (typeName) {
+        case FIXED_LEN_BYTE_ARRAY:
+            if (ParquetUtil.isDecimal(primitiveType)) {
+                return ParquetUtil.decimalToString(primitiveType, group.getBinary(fieldIndex, 0));
+            }
+            return group.getValueToString(fieldIndex, 0);
+        case INT32:
+            return String.valueOf(group.getInteger(fieldIndex, 0));
+        case INT64:
+            return String.valueOf(group.getLong(fieldIndex, 0));
+        case FLOAT:
+            return String.valueOf(group.getFloat(fieldIndex, 0));
+        case DOUBLE:
+            return String.valueOf(group.getDouble(fieldIndex, 0));
+        case BOOLEAN:
+            return group.getBoolean(fieldIndex, 0) ? "1" : "0";
+        default:
+            return group.getValueToString(fieldIndex, 0);
+        }
+    }
+
+    @Override
+    protected void close() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                logger.error(e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    protected void beforePublish() {
+        context.getEmittedDataCounter().getAndIncrement();
+    }
+
+    @Override
+    public boolean useMagicSeparator() {
+        return true;
+    }
+}
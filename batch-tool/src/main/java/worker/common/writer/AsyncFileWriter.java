@@ -0,0 +1,206 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package worker.common.writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import worker.MyThreadPool;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在独立的 IO 线程上写文件的装饰器
+ * 调用线程填充当前缓冲区，写满后交给 IO 线程写入并换用下一个空闲缓冲区
+ * 所有缓冲区都在等待写入时阻塞调用线程
+ * 只能由一个线程调用
+ */
+@NotThreadSafe
+public class AsyncFileWriter implements IFileWriter {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncFileWriter.class);
+
+    private final IFileWriter delegate;
+    private final ExecutorService ioExecutor;
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private ByteBuffer curBuffer;
+    /**
+     * IO 线程上发生的第一个异常
+     */
+    private volatile Throwable ioError = null;
+    private boolean closed = false;
+
+    /**
+     * @param bufferCount 轮换使用的缓冲区数，至少为 2
+     * @param bufferSize 单个缓冲区的字节数
+     */
+    public AsyncFileWriter(IFileWriter delegate, int bufferCount, int bufferSize) {
+        if (bufferCount < 2) {
+            throw new IllegalArgumentException("Buffer count should be at least 2");
+        }
+        if (!delegate.produceByBlock()) {
+            throw new IllegalArgumentException(delegate.getClass() + " does not support write raw bytes");
+        }
+        this.delegate = delegate;
+        this.ioExecutor = MyThreadPool.createUnboundedFixedExecutor("async-file-writer", 1);
+        this.freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 1; i < bufferCount; i++) {
+            freeBuffers.add(ByteBuffer.allocate(bufferSize));
+        }
+        this.curBuffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    @Override
+    public void nextFile(String fileName) {
+        submitBuffer();
+        submit(() -> delegate.nextFile(fileName));
+    }
+
+    @Override
+    public void openAppend(String fileName) {
+        submitBuffer();
+        submit(() -> delegate.openAppend(fileName));
+    }
+
+    @Override
+    public void write(byte[] data) {
+        write(data, 0, data.length);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) {
+        checkIoError();
+        int end = offset + length;
+        while (offset < end) {
+            if (!curBuffer.hasRemaining()) {
+                submitBuffer();
+            }
+            int putLength = Math.min(curBuffer.remaining(), end - offset);
+            curBuffer.put(data, offset, putLength);
+            offset += putLength;
+        }
+    }
+
+    /**
+     * 等待已提交的数据全部写入
+     */
+    @Override
+    public void flush() {
+        submitBuffer();
+        try {
+            ioExecutor.submit(() -> {
+                if (ioError == null) {
+                    delegate.flush();
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        checkIoError();
+    }
+
+    @Override
+    public boolean produceByBlock() {
+        return true;
+    }
+
+    @Override
+    public void finishLastFile() {
+        submitBuffer();
+        submit(delegate::finishLastFile);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            submitBuffer();
+        } finally {
+            // 出错时也要关闭底层文件
+            ioExecutor.execute(delegate::close);
+            ioExecutor.shutdown();
+            try {
+                while (!ioExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    logger.info("等待文件写入完成");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checkIoError();
+    }
+
+    /**
+     * 将当前缓冲区交给 IO 线程，并取一个空闲缓冲区
+     */
+    private void submitBuffer() {
+        if (curBuffer.position() == 0) {
+            return;
+        }
+        final ByteBuffer buffer = curBuffer;
+        ioExecutor.execute(() -> {
+            try {
+                if (ioError == null) {
+                    delegate.write(buffer.array(), 0, buffer.position());
+                }
+            } catch (Throwable t) {
+                ioError = t;
+                logger.error("写入文件失败：{}", t.getMessage());
+            } finally {
+                buffer.clear();
+                freeBuffers.add(buffer);
+            }
+        });
+        try {
+            this.curBuffer = freeBuffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void submit(Runnable command) {
+        checkIoError();
+        ioExecutor.execute(() -> {
+            try {
+                if (ioError == null) {
+                    command.run();
+                }
+            } catch (Throwable t) {
+                ioError = t;
+                logger.error("写入文件失败：{}", t.getMessage());
+            }
+        });
+    }
+
+    private void checkIoError() {
+        if (ioError != null) {
+            throw new RuntimeException("Async file write failed", ioError);
+        }
+    }
+}
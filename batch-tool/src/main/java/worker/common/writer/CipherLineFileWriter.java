@@ -16,40 +16,79 @@
 
 package worker.common.writer;
 
-import model.config.GlobalVar;
+import model.config.ConfigConstant;
 import model.config.QuoteEncloseMode;
 import model.encrypt.BaseCipher;
+import model.encrypt.CipherFrameFormat;
 import util.FileUtil;
 import util.IOUtil;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * 基于按行加密的文件写入
- * 采用字符计数法
+ * 基于分帧加密的文件写入
+ * 多行明文合并为一帧后整体加密，帧内只包含完整的行
+ * 每行带有长度前缀，值中的换行符无需转义
+ * 文件格式见 {@link CipherFrameFormat}
  */
 public class CipherLineFileWriter implements IFileWriter {
 
     private FileChannel appendChannel = null;
     private final BaseCipher cipher;
-    private final ByteBuffer byteBuffer;
     private final byte[] separator;
     private final QuoteEncloseMode quoteEncloseMode;
+    private final int frameSize;
+    private final SecureRandom random = new SecureRandom();
+    private final byte[] iv;
+    private final LineStream lineStream = new LineStream();
+    private final ByteBuffer frameHeader;
+    /**
+     * 当前帧的明文
+     */
+    private byte[] plainBuffer;
+    private int plainLength = 0;
+    private byte[] cryptoBuffer;
+    /**
+     * 当前文件已写入的字节数及各帧的起始偏移
+     */
+    private long position = 0;
+    private final List<Long> frameOffsets = new ArrayList<>();
 
     public CipherLineFileWriter(BaseCipher cipher,
                                 byte[] separator, QuoteEncloseMode quoteEncloseMode) {
+        this(cipher, separator, quoteEncloseMode, ConfigConstant.DEFAULT_CIPHER_FRAME_SIZE);
+    }
+
+    public CipherLineFileWriter(BaseCipher cipher, byte[] separator,
+                                QuoteEncloseMode quoteEncloseMode, int frameSize) {
+        if (!cipher.supportFrame()) {
+            throw new UnsupportedOperationException(cipher.getClass().getSimpleName()
+                + " does not support frame encryption");
+        }
         this.cipher = cipher;
-        this.byteBuffer = ByteBuffer.allocateDirect(GlobalVar.DEFAULT_DIRECT_BUFFER_SIZE_PER_WORKER);
         this.separator = separator;
         this.quoteEncloseMode = quoteEncloseMode;
+        this.frameSize = frameSize;
+        this.iv = cipher.getFrameIvLength() > 0 ? new byte[cipher.getFrameIvLength()] : null;
+        this.frameHeader = ByteBuffer.allocate(CipherFrameFormat.FRAME_HEADER_SIZE + cipher.getFrameIvLength());
+        this.plainBuffer = new byte[frameSize];
+        this.cryptoBuffer = new byte[cipher.getFrameOutputSize(frameSize)];
     }
 
     @Override
     public void nextFile(String fileName) {
-        IOUtil.close(appendChannel);
+        finishFile();
         this.appendChannel = IOUtil.createEmptyFileAndOpenChannel(fileName);
+        ByteBuffer header = ByteBuffer.allocate(CipherFrameFormat.HEADER_SIZE);
+        CipherFrameFormat.writeHeader(header, cipher, frameSize);
+        header.flip();
+        writeFully(header);
     }
 
     @Override
@@ -58,40 +97,90 @@ public class CipherLineFileWriter implements IFileWriter {
             throw new IllegalArgumentException("Values are empty");
         }
         try {
-            ByteArrayOutputStream os = new ByteArrayOutputStream(values.length * 16);
-            FileUtil.writeToByteArrayStream(os, values[0].getBytes());
+            lineStream.reset();
+            FileUtil.writeToByteArrayStream(lineStream, values[0].getBytes());
             for (int i = 1; i < values.length; i++) {
-                os.write(separator);
-                FileUtil.writeToByteArrayStream(os, values[i].getBytes());
+                lineStream.write(separator);
+                FileUtil.writeToByteArrayStream(lineStream, values[i].getBytes());
             }
-            byte[] data = os.toByteArray();
-            byte[] crypto = cipher.encrypt(data);
-            // 使用2字节或者4字节表示长度
-            int headerLen = crypto.length <= 0x0FFF ? 2 : 4;
-            if (byteBuffer.remaining() < crypto.length + headerLen) {
-                byteBuffer.flip();
-                appendChannel.write(byteBuffer);
-                byteBuffer.compact();
-            }
-            writeHeader(byteBuffer, crypto.length);
-            byteBuffer.put(crypto);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        int rowLength = lineStream.size();
+        int lineLength = CipherFrameFormat.getRowLengthSize(rowLength) + rowLength;
+        if (plainLength > 0 && plainLength + lineLength > frameSize) {
+            writeFrame();
+        }
+        if (plainLength + lineLength > plainBuffer.length) {
+            // 单行超过帧大小时该帧只包含这一行
+            byte[] newBuffer = new byte[plainLength + lineLength];
+            System.arraycopy(plainBuffer, 0, newBuffer, 0, plainLength);
+            plainBuffer = newBuffer;
+        }
+        plainLength += CipherFrameFormat.putRowLength(plainBuffer, plainLength, rowLength);
+        System.arraycopy(lineStream.getBuffer(), 0, plainBuffer, plainLength, rowLength);
+        plainLength += rowLength;
+    }
 
+    private void writeFrame() {
+        int outputSize = cipher.getFrameOutputSize(plainLength);
+        if (cryptoBuffer.length < outputSize) {
+            cryptoBuffer = new byte[outputSize];
+        }
+        int cryptoLength;
+        try {
+            if (iv != null) {
+                random.nextBytes(iv);
+            }
+            cryptoLength = cipher.encryptFrame(iv, plainBuffer, 0, plainLength, cryptoBuffer, 0);
         } catch (Exception e) {
-            e.printStackTrace();
             throw new RuntimeException(e);
         }
-
+        frameOffsets.add(position);
+        frameHeader.clear();
+        frameHeader.putInt(cryptoLength);
+        if (iv != null) {
+            frameHeader.put(iv);
+        }
+        frameHeader.flip();
+        writeFully(frameHeader);
+        writeFully(ByteBuffer.wrap(cryptoBuffer, 0, cryptoLength));
+        plainLength = 0;
     }
 
-    private void writeHeader(ByteBuffer byteBuffer, int length) {
-        if (length < 0) {
-            throw new IllegalArgumentException("Length cannot be negative");
-        }
-        if (length <= 0x0FFF) {
-            byteBuffer.putShort((short) length);
+    /**
+     * 写出剩余的帧及帧索引后关闭当前文件
+     */
+    private void finishFile() {
+        if (appendChannel == null) {
             return;
         }
-        byteBuffer.putInt(-length);
+        if (plainLength > 0) {
+            writeFrame();
+        }
+        long indexOffset = position;
+        ByteBuffer index = ByteBuffer.allocate(frameOffsets.size() * Long.BYTES
+            + CipherFrameFormat.TRAILER_SIZE);
+        for (long offset : frameOffsets) {
+            index.putLong(offset);
+        }
+        CipherFrameFormat.writeTrailer(index, frameOffsets.size(), indexOffset);
+        index.flip();
+        writeFully(index);
+        IOUtil.close(appendChannel);
+        appendChannel = null;
+        position = 0;
+        frameOffsets.clear();
+    }
+
+    private void writeFully(ByteBuffer byteBuffer) {
+        try {
+            while (byteBuffer.hasRemaining()) {
+                position += appendChannel.write(byteBuffer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     @Override
@@ -101,5 +190,20 @@ public class CipherLineFileWriter implements IFileWriter {
 
     @Override
     public void close() {
+        finishFile();
+    }
+
+    /**
+     * 复用行缓冲区，避免每行拷贝
+     */
+    private static class LineStream extends ByteArrayOutputStream {
+
+        LineStream() {
+            super(256);
+        }
+
+        byte[] getBuffer() {
+            return buf;
+        }
     }
 }
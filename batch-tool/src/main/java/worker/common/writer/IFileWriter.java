@@ -17,6 +17,7 @@
 package worker.common.writer;
 
 import java.io.Closeable;
+import java.util.Arrays;
 
 public interface IFileWriter extends Closeable {
 
@@ -26,6 +27,27 @@ public interface IFileWriter extends Closeable {
         throw new UnsupportedOperationException(getClass() + " does not support write raw bytes");
     }
 
+    /**
+     * 写入 data 中从 offset 开始的 length 个字节
+     */
+    default void write(byte[] data, int offset, int length) {
+        write(Arrays.copyOfRange(data, offset, offset + length));
+    }
+
+    /**
+     * 确保已提交的数据都已写入当前文件
+     * 之后文件长度即为已写入的字节数
+     */
+    default void flush() {
+    }
+
+    /**
+     * 以追加方式打开已有文件，用于断点续写
+     */
+    default void openAppend(String fileName) {
+        throw new UnsupportedOperationException(getClass() + " does not support append to existing file");
+    }
+
     default void writeLine(String[] values) {
         throw new UnsupportedOperationException(getClass() + " does not support write line with values");
     }
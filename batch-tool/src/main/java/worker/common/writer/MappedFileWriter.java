@@ -0,0 +1,225 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package worker.common.writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 通过内存映射窗口写入本地文件
+ * 映射窗口时预先扩展文件长度，关闭时截断到实际写入的长度
+ * 避免每个批次一次 write 系统调用
+ */
+@NotThreadSafe
+public class MappedFileWriter implements IFileWriter {
+    private static final Logger logger = LoggerFactory.getLogger(MappedFileWriter.class);
+
+    /**
+     * Unsafe.invokeCleaner，反射查找以免编译期依赖内部 API
+     */
+    private static final MethodHandle INVOKE_CLEANER = findInvokeCleaner();
+
+    private final long windowSize;
+    private final Charset charset;
+
+    private FileChannel channel = null;
+    private MappedByteBuffer window = null;
+    /**
+     * 已写入的文件长度
+     */
+    private long position = 0;
+    private boolean closed = false;
+
+    /**
+     * @param windowSize 单个映射窗口的字节数
+     */
+    public MappedFileWriter(long windowSize) {
+        this(windowSize, StandardCharsets.UTF_8);
+    }
+
+    public MappedFileWriter(long windowSize, Charset charset) {
+        if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Illegal mmap window size: " + windowSize);
+        }
+        this.windowSize = windowSize;
+        this.charset = charset;
+    }
+
+    @Override
+    public void nextFile(String fileName) {
+        closeCurFile();
+        openFile(fileName, true);
+    }
+
+    @Override
+    public void openAppend(String fileName) {
+        closeCurFile();
+        openFile(fileName, false);
+    }
+
+    @Override
+    public void write(byte[] data) {
+        write(data, 0, data.length);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) {
+        if (charset != StandardCharsets.UTF_8) {
+            data = new String(data, offset, length, StandardCharsets.UTF_8).getBytes(charset);
+            offset = 0;
+            length = data.length;
+        }
+        try {
+            int end = offset + length;
+            while (offset < end) {
+                if (window == null || !window.hasRemaining()) {
+                    mapWindow(position);
+                }
+                int putLength = Math.min(window.remaining(), end - offset);
+                window.put(data, offset, putLength);
+                offset += putLength;
+                position += putLength;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 释放当前窗口并截掉预分配的部分
+     * 下次写入时再从文件末尾映射新窗口
+     */
+    @Override
+    public void flush() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            unmap(window);
+            window = null;
+            channel.truncate(position);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean produceByBlock() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closeCurFile();
+        this.closed = true;
+    }
+
+    private void openFile(String fileName, boolean newEmptyFile) {
+        try {
+            if (newEmptyFile) {
+                this.channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                this.position = 0;
+            } else {
+                this.channel = FileChannel.open(Paths.get(fileName),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+                this.position = channel.size();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 映射超出文件末尾的区域时文件会被扩展
+     * JDK 没有 fallocate，扩展出的部分为稀疏区域
+     */
+    private void mapWindow(long start) throws IOException {
+        unmap(window);
+        this.window = channel.map(FileChannel.MapMode.READ_WRITE, start, windowSize);
+    }
+
+    private void closeCurFile() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            unmap(window);
+            window = null;
+            channel.truncate(position);
+        } catch (IOException e) {
+            logger.error("截断文件失败：{}", e.getMessage());
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.error(e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * 主动释放映射，不等待 GC 回收
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invokeExact((ByteBuffer) buffer);
+        } catch (Throwable t) {
+            logger.warn("释放映射失败，将由 GC 回收：{}", t.getMessage());
+        }
+    }
+
+    private static MethodHandle findInvokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                .bindTo(field.get(null));
+        } catch (ReflectiveOperationException e) {
+            logger.warn("无法获取 Unsafe，映射区域将由 GC 释放");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package worker.common.writer;
+
+import model.config.CompressMode;
+import store.FileStorage;
+import store.MultipartUploadOutputStream;
+import worker.MyThreadPool;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 直接分片上传至对象存储，不落本地盘
+ */
+@NotThreadSafe
+public class MultipartUploadFileWriter implements IFileWriter {
+
+    /**
+     * 初始分片大小，分片较多时逐步增大
+     */
+    private static final int PART_SIZE = 8 * 1024 * 1024;
+    private static final int MAX_INFLIGHT_PARTS = 4;
+
+    private final FileStorage fileStorage;
+    private final CompressMode compressMode;
+    private final Charset charset;
+    private final ExecutorService uploadExecutor;
+
+    private OutputStream outputStream = null;
+
+    public MultipartUploadFileWriter(FileStorage fileStorage, CompressMode compressMode, Charset charset) {
+        this.fileStorage = fileStorage;
+        this.compressMode = compressMode;
+        this.charset = charset;
+        this.uploadExecutor = MyThreadPool.createUnboundedFixedExecutor("multipart-upload", MAX_INFLIGHT_PARTS);
+    }
+
+    @Override
+    public void nextFile(String fileName) {
+        finishLastFile();
+        OutputStream uploadStream = new MultipartUploadOutputStream(fileStorage, fileName,
+            uploadExecutor, PART_SIZE, MAX_INFLIGHT_PARTS);
+        try {
+            if (compressMode == CompressMode.GZIP) {
+                this.outputStream = new GZIPOutputStream(uploadStream, 64 * 1024);
+            } else {
+                this.outputStream = uploadStream;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void write(byte[] data) {
+        if (charset != StandardCharsets.UTF_8) {
+            data = new String(data, StandardCharsets.UTF_8).getBytes(charset);
+        }
+        try {
+            outputStream.write(data);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean produceByBlock() {
+        return true;
+    }
+
+    /**
+     * 上传剩余分片并完成该文件
+     */
+    @Override
+    public void finishLastFile() {
+        if (outputStream == null) {
+            return;
+        }
+        try {
+            outputStream.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            outputStream = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            finishLastFile();
+        } finally {
+            uploadExecutor.shutdown();
+        }
+    }
+}
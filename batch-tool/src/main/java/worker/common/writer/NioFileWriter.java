@@ -69,11 +69,22 @@ public class NioFileWriter implements IFileWriter {
         openFileChannel(fileName, true);
     }
 
+    @Override
+    public void openAppend(String fileName) {
+        closeCurFile();
+        openFileChannel(fileName, false);
+    }
+
     @Override
     public void write(byte[] data) {
         writeNio(data);
     }
 
+    @Override
+    public void write(byte[] data, int offset, int length) {
+        writeNio(data, offset, length);
+    }
+
     @Override
     public boolean produceByBlock() {
         return true;
@@ -100,20 +111,25 @@ public class NioFileWriter implements IFileWriter {
     }
 
     public void writeNio(byte[] data) {
+        writeNio(data, 0, data.length);
+    }
+
+    private void writeNio(byte[] data, int offset, int length) {
         if (charset != StandardCharsets.UTF_8) {
-            data = new String(data, StandardCharsets.UTF_8).getBytes(charset);
+            data = new String(data, offset, length, StandardCharsets.UTF_8).getBytes(charset);
+            offset = 0;
+            length = data.length;
         }
         try {
             switch (compressMode) {
             case NONE:
-                ByteBuffer src = ByteBuffer.wrap(data);
-                int length = appendChannel.write(src);
-                while (length != 0) {
-                    length = appendChannel.write(src);
+                ByteBuffer src = ByteBuffer.wrap(data, offset, length);
+                while (src.hasRemaining()) {
+                    appendChannel.write(src);
                 }
                 break;
             case GZIP:
-                gzipOutputStream.write(data);
+                gzipOutputStream.write(data, offset, length);
                 break;
             }
         } catch (IOException e) {
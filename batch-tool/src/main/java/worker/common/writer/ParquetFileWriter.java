@@ -0,0 +1,139 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package worker.common.writer;
+
+import model.db.TableFieldMetaInfo;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetFileWriter.Mode;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.schema.MessageType;
+import util.FileUtil;
+import util.ParquetUtil;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Parquet 列式文件
+ * 按字段类型写入，无需处理引号与转义
+ */
+@NotThreadSafe
+public class ParquetFileWriter implements IFileWriter {
+
+    private static final long DEFAULT_ROW_GROUP_SIZE = 128L * 1024 * 1024;
+    private static final int DEFAULT_PAGE_SIZE = 1024 * 1024;
+
+    private final MessageType schema;
+    private final SimpleGroupFactory groupFactory;
+    private final boolean[] isInt64;
+    private final boolean[] isDecimal;
+
+    private ParquetWriter<Group> writer;
+
+    public ParquetFileWriter(TableFieldMetaInfo tableFieldMetaInfo) {
+        this.schema = ParquetUtil.buildSchema(tableFieldMetaInfo);
+        this.groupFactory = new SimpleGroupFactory(schema);
+        this.isInt64 = new boolean[schema.getFieldCount()];
+        this.isDecimal = new boolean[schema.getFieldCount()];
+        for (int i = 0; i < isInt64.length; i++) {
+            isInt64[i] = ParquetUtil.isInt64(schema, i);
+            isDecimal[i] = ParquetUtil.isDecimal(schema.getType(i).asPrimitiveType());
+        }
+    }
+
+    @Override
+    public void nextFile(String fileName) {
+        closeWriter();
+        File file = new File(fileName);
+        FileUtils.deleteQuietly(file);
+        try {
+            this.writer = ExampleParquetWriter.builder(new Path(file.getAbsolutePath()))
+                .withConf(ParquetUtil.newLocalConfiguration())
+                .withType(schema)
+                .withWriteMode(Mode.OVERWRITE)
+                .withCompressionCodec(CompressionCodecName.SNAPPY)
+                .withRowGroupSize(DEFAULT_ROW_GROUP_SIZE)
+                .withPageSize(DEFAULT_PAGE_SIZE)
+                .withDictionaryEncoding(true)
+                .build();
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void writeLine(String[] values) {
+        if (values.length != isInt64.length) {
+            throw new IllegalArgumentException("Column count mismatch, expected: " + isInt64.length
+                + ", actual: " + values.length);
+        }
+        Group group = groupFactory.newGroup();
+        for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            if (value == null || FileUtil.NULL_ESC_STR.equals(value)) {
+                // NULL值不写入
+                continue;
+            }
+            if (isInt64[i]) {
+                group.add(i, Long.parseLong(value));
+            } else if (isDecimal[i]) {
+                group.add(i, ParquetUtil.toUnsignedBigIntBinary(value));
+            } else {
+                group.add(i, value);
+            }
+        }
+        try {
+            writer.write(group);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean produceByBlock() {
+        return false;
+    }
+
+    @Override
+    public void finishLastFile() {
+        closeWriter();
+    }
+
+    @Override
+    public void close() {
+        closeWriter();
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            writer = null;
+        }
+    }
+}
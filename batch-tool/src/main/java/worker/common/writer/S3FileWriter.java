@@ -40,6 +40,8 @@ public class S3FileWriter implements IFileWriter {
     @Override
     public void finishLastFile() {
         try {
+            // 上传前确保文件已完整落盘
+            fileWriter.finishLastFile();
             fileStorage.put(fileName, fileName);
         } finally {
             // delete local file even if exception occurs
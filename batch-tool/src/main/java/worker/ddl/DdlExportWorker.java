@@ -23,17 +23,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import util.DbUtil;
 import util.IOUtil;
+import worker.MyThreadPool;
 
 import javax.sql.DataSource;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static model.config.ConfigConstant.DDL_FILE_SUFFIX;
+import static model.config.GlobalVar.DDL_PARALLELISM;
 
 public class DdlExportWorker implements Runnable {
 
@@ -58,7 +65,7 @@ public class DdlExportWorker implements Runnable {
         this.config = config;
         try (Connection conn = druid.getConnection()) {
             // default include views when exporting ddl
-            this.tableNames = DbUtil.getAllTablesInDb(conn, dbName);
+            this.tableNames = getAllTablesOrdered(conn, dbName);
         } catch (SQLException | DatabaseException e) {
             throw new RuntimeException(e);
         }
@@ -88,16 +95,76 @@ public class DdlExportWorker implements Runnable {
         }
     }
 
+    /**
+     * 整库导出时按表名排序，保证多次导出的文件内容一致
+     */
+    private static List<String> getAllTablesOrdered(Connection conn, String dbName) throws DatabaseException {
+        try {
+            return DbUtil.getAllTablesAndViewsInDbOrdered(conn, dbName);
+        } catch (DatabaseException e) {
+            logger.warn("查询 information_schema 失败，改用 show tables: {}", e.getMessage());
+            List<String> tableNames = new ArrayList<>(DbUtil.getAllTablesInDb(conn, dbName));
+            tableNames.sort(String::compareTo);
+            return tableNames;
+        }
+    }
+
     private void exportDdl() throws Throwable {
-        try (Connection conn = druid.getConnection()) {
-            if (isExportWholeDb) {
+        if (isExportWholeDb) {
+            try (Connection conn = druid.getConnection()) {
                 logger.info("库：{} 开始导出库结构", dbName);
                 exportDatabaseStructure(conn, dbName);
             }
-            for (String tableName : tableNames) {
-                exportTableStructure(conn, tableName);
+        }
+        String[] tableDdls = fetchTableDdls();
+        for (int i = 0; i < tableNames.size(); i++) {
+            exportTableStructure(tableNames.get(i), tableDdls[i]);
+        }
+    }
+
+    /**
+     * 并行获取各表的建表语句，结果与 tableNames 一一对应
+     * 每个线程持有一个连接，依次领取尚未处理的表
+     */
+    private String[] fetchTableDdls() throws Throwable {
+        String[] tableDdls = new String[tableNames.size()];
+        int parallelism = Math.min(Math.max(DDL_PARALLELISM, 1), tableNames.size());
+        if (parallelism == 0) {
+            return tableDdls;
+        }
+        logger.info("Exporting ddl of {} tables with parallelism: {}", tableNames.size(), parallelism);
+        AtomicInteger nextIndex = new AtomicInteger(0);
+        ExecutorService ddlThreadPool = MyThreadPool.createUnboundedFixedExecutor("DDL-exporter", parallelism);
+        try {
+            List<Future<?>> futures = new ArrayList<>(parallelism);
+            for (int i = 0; i < parallelism; i++) {
+                futures.add(ddlThreadPool.submit(() -> {
+                    try (Connection conn = druid.getConnection()) {
+                        int index;
+                        while ((index = nextIndex.getAndIncrement()) < tableDdls.length) {
+                            String tableName = tableNames.get(index);
+                            logger.info("表：{} 开始导出表结构", tableName);
+                            tableDdls[index] = formatTableDdl(DbUtil.getShowCreateTable(conn, tableName));
+                        }
+                    } catch (DatabaseException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // 任一表失败则终止导出，避免写出不完整的结构文件
+                    nextIndex.set(tableDdls.length);
+                    throw e.getCause();
+                }
             }
+        } finally {
+            ddlThreadPool.shutdown();
         }
+        return tableDdls;
     }
 
     private void exportDatabaseStructure(Connection conn, String dbName) throws IOException, DatabaseException {
@@ -118,12 +185,13 @@ public class DdlExportWorker implements Runnable {
         writeLine("");
     }
 
-    private void exportTableStructure(Connection conn, String tableName) throws IOException, DatabaseException {
-        logger.info("表：{} 开始导出表结构", tableName);
-
+    private void exportTableStructure(String tableName, String tableDdl) throws IOException {
         beforeCreateTable(tableName);
-        String tableDdl = DbUtil.getShowCreateTable(conn, tableName);
+        writeLine(tableDdl + ";");
+        writeLine("");
+    }
 
+    private static String formatTableDdl(String tableDdl) {
         tableDdl = tableDdl.replace("GLOBAL INDEX", "KEY");
         tableDdl = tableDdl.replace("LOCAL KEY", "KEY");
 
@@ -161,10 +229,7 @@ public class DdlExportWorker implements Runnable {
         tableDdl = tableDdl.replace("PRIMARY KEY (`Id`, `UpdateTime`)", "PRIMARY KEY (`Id`)");
         tableDdl = tableDdl.replace("PRIMARY KEY (`id`, `order_time`)", "PRIMARY KEY (`id`)");
         tableDdl = tableDdl.replace("PRIMARY KEY (`Id`, `Order_Time`)", "PRIMARY KEY (`Id`)");
-
-
-        writeLine(tableDdl + ";");
-        writeLine("");
+        return tableDdl;
     }
 
     private void beforeCreateTable(String tableName) throws IOException {
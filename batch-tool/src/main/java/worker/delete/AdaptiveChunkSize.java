@@ -0,0 +1,73 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package worker.delete;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * 按每段删除的耗时调整段大小
+ * 超过目标耗时或遇到锁等待时减半，低于目标耗时一半时增加四分之一
+ */
+@NotThreadSafe
+public class AdaptiveChunkSize {
+
+    private final int minSize;
+    private final int maxSize;
+    private final long targetLatencyMs;
+    private int size;
+
+    public AdaptiveChunkSize(int initialSize, long targetLatencyMs) {
+        if (initialSize <= 0) {
+            throw new IllegalArgumentException("Chunk size should be a positive integer");
+        }
+        this.size = initialSize;
+        this.minSize = Math.max(1, initialSize / 64);
+        this.maxSize = (int) Math.min(Integer.MAX_VALUE, initialSize * 8L);
+        this.targetLatencyMs = targetLatencyMs;
+    }
+
+    public int get() {
+        return size;
+    }
+
+    public void onChunkFinished(long elapsedMs) {
+        if (elapsedMs > targetLatencyMs) {
+            shrink();
+        } else if (elapsedMs < targetLatencyMs / 2) {
+            size = (int) Math.min(maxSize, size + Math.max(1L, size / 4));
+        }
+    }
+
+    /**
+     * 锁等待超时或死锁
+     */
+    public void onLockWait() {
+        shrink();
+    }
+
+    /**
+     * 本段超出目标耗时的部分作为下一段前的暂停时间，让出资源
+     */
+    public long getPauseMs(long elapsedMs) {
+        return Math.max(0, elapsedMs - targetLatencyMs);
+    }
+
+    private void shrink() {
+        size = Math.max(minSize, size / 2);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package worker.delete;
+
+import com.alibaba.fastjson2.JSON;
+import model.db.TableTopology;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * 按主键范围删除的检查点
+ * 记录已删除范围的上界主键
+ */
+public class RangeDeleteCheckpoint {
+
+    private static final String CHECKPOINT_SUFFIX = ".delete.checkpoint";
+
+    /**
+     * 已删除范围的上界主键，尚未删除时为 null
+     */
+    private List<String> lastKey;
+    /**
+     * 已删除行数
+     */
+    private long rowCount;
+    private boolean finished;
+
+    /**
+     * 当前目录下的隐藏文件，每个分表一个
+     */
+    public static File getCheckpointFile(String schemaName, TableTopology topology) {
+        StringBuilder filename = new StringBuilder(64);
+        filename.append('.').append(schemaName).append('.');
+        if (topology.hasGroup()) {
+            filename.append(topology.getGroupName()).append('.');
+        }
+        filename.append(topology.getTableName()).append(CHECKPOINT_SUFFIX);
+        return new File(filename.toString()).getAbsoluteFile();
+    }
+
+    public static RangeDeleteCheckpoint load(File checkpointFile) throws IOException {
+        if (!checkpointFile.exists()) {
+            return null;
+        }
+        String content = FileUtils.readFileToString(checkpointFile, StandardCharsets.UTF_8);
+        return JSON.parseObject(content, RangeDeleteCheckpoint.class);
+    }
+
+    /**
+     * 先写临时文件再替换，保证检查点文件完整
+     */
+    public void save(File checkpointFile) throws IOException {
+        File tmpFile = new File(checkpointFile.getPath() + ".tmp");
+        FileUtils.writeStringToFile(tmpFile, JSON.toJSONString(this), StandardCharsets.UTF_8);
+        Files.move(tmpFile.toPath(), checkpointFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public List<String> getLastKey() {
+        return lastKey;
+    }
+
+    public void setLastKey(List<String> lastKey) {
+        this.lastKey = lastKey;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public void setFinished(boolean finished) {
+        this.finished = finished;
+    }
+
+    @Override
+    public String toString() {
+        return "RangeDeleteCheckpoint{" +
+            "lastKey=" + lastKey +
+            ", rowCount=" + rowCount +
+            ", finished=" + finished +
+            '}';
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package worker.delete;
+
+import model.ConsumerExecutionContext;
+import model.db.FieldMetaInfo;
+import model.db.TableTopology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.CountStat;
+import util.DbUtil;
+import worker.NodeConcurrencyLimiter;
+import worker.util.DeleteUtil;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 按主键范围分段删除一张分表中满足条件的数据
+ * 每段为一个短事务，段大小随删除耗时与锁等待自适应，每段结束后记录检查点
+ */
+public class RangeDeleteWorker implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(RangeDeleteWorker.class);
+
+    private static final int MAX_CHUNK_RETRY = 3;
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    private static final int ER_LOCK_DEADLOCK = 1213;
+
+    private final DataSource dataSource;
+    private final TableTopology topology;
+    private final List<FieldMetaInfo> pkFieldMetaInfoList;
+    private final ConsumerExecutionContext consumerContext;
+    private final File checkpointFile;
+    private final CountDownLatch countDownLatch;
+    private final AdaptiveChunkSize chunkSize;
+    private NodeConcurrencyLimiter nodeLimiter = null;
+
+    private RangeDeleteCheckpoint checkpoint;
+
+    public RangeDeleteWorker(DataSource dataSource, TableTopology topology,
+                             List<FieldMetaInfo> pkFieldMetaInfoList,
+                             ConsumerExecutionContext consumerContext,
+                             File checkpointFile, CountDownLatch countDownLatch) {
+        this.dataSource = dataSource;
+        this.topology = topology;
+        this.pkFieldMetaInfoList = pkFieldMetaInfoList;
+        this.consumerContext = consumerContext;
+        this.checkpointFile = checkpointFile;
+        this.countDownLatch = countDownLatch;
+        this.chunkSize = new AdaptiveChunkSize(consumerContext.getDeleteChunkSize(),
+            consumerContext.getDeleteChunkLatencyMs());
+    }
+
+    public void setNodeLimiter(NodeConcurrencyLimiter nodeLimiter) {
+        this.nodeLimiter = nodeLimiter;
+    }
+
+    @Override
+    public void run() {
+        boolean acquired = false;
+        try {
+            if (nodeLimiter != null) {
+                nodeLimiter.acquire(topology);
+                acquired = true;
+            }
+            initCheckpoint();
+            deleteByChunk();
+        } catch (Exception e) {
+            logger.error("{} 分段删除失败: {}", topology, e.getMessage());
+            consumerContext.setException(e);
+        } finally {
+            if (acquired) {
+                nodeLimiter.release(topology);
+            }
+            countDownLatch.countDown();
+        }
+    }
+
+    private void initCheckpoint() throws IOException {
+        RangeDeleteCheckpoint lastCheckpoint = consumerContext.isResume() ?
+            RangeDeleteCheckpoint.load(checkpointFile) : null;
+        if (lastCheckpoint == null) {
+            this.checkpoint = new RangeDeleteCheckpoint();
+        } else {
+            logger.info("{} 从检查点继续删除: {}", topology, lastCheckpoint);
+            this.checkpoint = lastCheckpoint;
+        }
+    }
+
+    private void deleteByChunk() throws SQLException, IOException, InterruptedException {
+        if (checkpoint.isFinished()) {
+            logger.info("{} 已删除完成，跳过", topology);
+            return;
+        }
+        int retry = 0;
+        while (!checkpoint.isFinished()) {
+            if (consumerContext.getException() != null) {
+                // fail fast on exception
+                return;
+            }
+            try {
+                deleteChunk();
+                retry = 0;
+            } catch (SQLException e) {
+                if (isLockWait(e)) {
+                    chunkSize.onLockWait();
+                }
+                if (++retry > MAX_CHUNK_RETRY) {
+                    throw e;
+                }
+                logger.warn("{} 分段删除失败，第 {} 次重试，段大小 {}: {}",
+                    topology, retry, chunkSize.get(), e.getMessage());
+            }
+        }
+        logger.info("{} 删除行数：{}", topology, checkpoint.getRowCount());
+    }
+
+    /**
+     * 先查出本段上界主键，再删除 (lastKey, upperKey] 范围
+     * 剩余不足一段时删除 lastKey 之后的全部数据
+     */
+    private void deleteChunk() throws SQLException, IOException, InterruptedException {
+        List<String> lastKey = checkpoint.getLastKey();
+        List<String> upperKey;
+        int deletedRows;
+        long elapsedMs;
+        try (Connection conn = dataSource.getConnection()) {
+            upperKey = getUpperKey(conn, lastKey, chunkSize.get());
+            String deleteSql = DeleteUtil.getRangeDeleteSql(topology, pkFieldMetaInfoList,
+                consumerContext.getWhereCondition(), lastKey != null, upperKey != null);
+            try (PreparedStatement stmt = conn.prepareStatement(deleteSql)) {
+                int paramIndex = bindKey(stmt, 1, lastKey);
+                bindKey(stmt, paramIndex, upperKey);
+                long startTime = System.currentTimeMillis();
+                deletedRows = stmt.executeUpdate();
+                elapsedMs = System.currentTimeMillis() - startTime;
+            }
+        }
+        CountStat.addDbRowCount(deletedRows);
+        saveCheckpoint(upperKey, deletedRows, upperKey == null);
+
+        chunkSize.onChunkFinished(elapsedMs);
+        long pauseMs = chunkSize.getPauseMs(elapsedMs);
+        if (pauseMs > 0) {
+            Thread.sleep(pauseMs);
+        }
+    }
+
+    private List<String> getUpperKey(Connection conn, List<String> lastKey, int size) throws SQLException {
+        String sql = DeleteUtil.getRangeUpperKeySql(topology, pkFieldMetaInfoList,
+            consumerContext.getWhereCondition(), lastKey != null, size);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            bindKey(stmt, 1, lastKey);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return DbUtil.readPkValues(rs, 1, pkFieldMetaInfoList);
+            }
+        }
+    }
+
+    /**
+     * @return 下一个参数的位置
+     */
+    private int bindKey(PreparedStatement stmt, int paramIndex, List<String> key) throws SQLException {
+        if (key == null) {
+            return paramIndex;
+        }
+        return DbUtil.bindPkValues(stmt, paramIndex, pkFieldMetaInfoList, key);
+    }
+
+    private void saveCheckpoint(List<String> upperKey, int deletedRows, boolean finished) throws IOException {
+        RangeDeleteCheckpoint newCheckpoint = new RangeDeleteCheckpoint();
+        newCheckpoint.setLastKey(upperKey == null ? checkpoint.getLastKey() : upperKey);
+        newCheckpoint.setRowCount(checkpoint.getRowCount() + deletedRows);
+        newCheckpoint.setFinished(finished);
+        newCheckpoint.save(checkpointFile);
+        this.checkpoint = newCheckpoint;
+    }
+
+    private static boolean isLockWait(SQLException e) {
+        return e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT || e.getErrorCode() == ER_LOCK_DEADLOCK;
+    }
+}
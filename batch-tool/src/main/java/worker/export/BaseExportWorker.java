@@ -26,13 +26,13 @@ import model.db.TableFieldMetaInfo;
 import model.db.TableTopology;
 import model.mask.AbstractDataMasker;
 import model.mask.DataMaskerFactory;
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import util.CountStat;
 import util.DataSourceUtil;
 import util.FileUtil;
 import util.IOUtil;
+import worker.util.ExportUtil;
 
 import javax.sql.DataSource;
 import java.io.ByteArrayOutputStream;
@@ -42,15 +42,20 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public abstract class BaseExportWorker implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(BaseExportWorker.class);
 
+    /**
+     * 导出失败的任务数，有失败时整个导出失败
+     */
+    private static final AtomicInteger FAILED_WORKER_COUNT = new AtomicInteger(0);
+
     protected final DataSource druid;
     protected final TableTopology topology;
     protected final TableFieldMetaInfo tableFieldMetaInfo;
@@ -68,8 +73,19 @@ public abstract class BaseExportWorker implements Runnable {
     protected FileFormat fileFormat;
 
     protected final List<Boolean> isStringTypeList;
+    /**
+     * 需要在客户端编码的二进制字段，没有时为 null
+     */
+    protected final boolean[] binaryEncodeColumns;
 
-    protected List<AbstractDataMasker> columnDataMaskerList;
+    /**
+     * 与字段一一对应的脱敏器，没有配置时为 null
+     */
+    protected AbstractDataMasker[] columnDataMaskers;
+    /**
+     * 脱敏结果可直接写入缓冲区的字段
+     */
+    private boolean[] directMaskColumns;
     protected ByteArrayOutputStream os;
     protected int bufferedRowNum = 0;       // 已经缓存的行数
 
@@ -109,6 +125,7 @@ public abstract class BaseExportWorker implements Runnable {
         this.isStringTypeList = tableFieldMetaInfo.getFieldMetaInfoList().stream()
             .map(info -> (info.getType() == FieldMetaInfo.Type.STRING))
             .collect(Collectors.toList());
+        this.binaryEncodeColumns = ExportUtil.getBinaryEncodeColumns(tableFieldMetaInfo.getFieldMetaInfoList());
 
         switch (compressMode) {
         case NONE:
@@ -132,41 +149,12 @@ public abstract class BaseExportWorker implements Runnable {
 
             logger.info("{} 开始执行导出", topology);
 
-            byte[] value;
             int colNum = resultSet.getMetaData().getColumnCount();
             this.os = new ByteArrayOutputStream(colNum * 16);
             while (resultSet.next()) {
-
-                for (int i = 1; i < colNum; i++) {
-                    value = resultSet.getBytes(i);
-                    writeFieldValue(os, value, i - 1);
-                    // 附加分隔符
-                    os.write(separator);
-                }
-                value = resultSet.getBytes(colNum);
-                writeFieldValue(os, value, colNum - 1);
-                if (isWithLastSep) {
-                    // 附加分隔符
-                    os.write(separator);
-                }
-                // 附加换行符
-                os.write(FileUtil.SYS_NEW_LINE_BYTE);
-                bufferedRowNum++;
-                rowCount++;
-
-                if (bufferedRowNum == GlobalVar.EMIT_BATCH_SIZE) {
-                    rowCountStat.addAndGet(bufferedRowNum);
-                    emitBatchData();
-                    os.reset();
-                    bufferedRowNum = 0;
-                }
-            }
-            if (bufferedRowNum != 0) {
-                rowCountStat.addAndGet(bufferedRowNum);
-                // 最后剩余的元组
-                dealWithRemainData();
-                os.reset();
+                writeRow(resultSet, colNum);
             }
+            flushRemainRows();
             afterProduceData();
         } catch (SQLException | IOException e) {
             e.printStackTrace();
@@ -178,6 +166,49 @@ public abstract class BaseExportWorker implements Runnable {
         }
     }
 
+    /**
+     * 将结果集当前行的前 colNum 个字段写入缓冲区
+     * 达到批大小时提交
+     */
+    protected void writeRow(ResultSet resultSet, int colNum) throws SQLException, IOException {
+        byte[] value;
+        for (int i = 1; i < colNum; i++) {
+            value = resultSet.getBytes(i);
+            writeFieldValue(os, value, i - 1);
+            // 附加分隔符
+            os.write(separator);
+        }
+        value = resultSet.getBytes(colNum);
+        writeFieldValue(os, value, colNum - 1);
+        if (isWithLastSep) {
+            // 附加分隔符
+            os.write(separator);
+        }
+        // 附加换行符
+        os.write(FileUtil.SYS_NEW_LINE_BYTE);
+        bufferedRowNum++;
+        rowCount++;
+
+        if (bufferedRowNum == GlobalVar.EMIT_BATCH_SIZE) {
+            rowCountStat.addAndGet(bufferedRowNum);
+            emitBatchData();
+            os.reset();
+            bufferedRowNum = 0;
+        }
+    }
+
+    /**
+     * 提交缓冲区中剩余的元组
+     */
+    protected void flushRemainRows() {
+        if (bufferedRowNum != 0) {
+            rowCountStat.addAndGet(bufferedRowNum);
+            dealWithRemainData();
+            os.reset();
+            bufferedRowNum = 0;
+        }
+    }
+
     protected void afterProduceData() {
     }
 
@@ -192,6 +223,16 @@ public abstract class BaseExportWorker implements Runnable {
      * @param columnIdx 从 0 开始
      */
     protected void writeFieldValue(ByteArrayOutputStream os, byte[] value, int columnIdx) throws IOException {
+        if (binaryEncodeColumns != null && binaryEncodeColumns[columnIdx]) {
+            value = GlobalVar.BINARY_ENCODE_MODE.encode(value);
+        }
+        if (value != null && columnDataMaskers != null && columnDataMaskers[columnIdx] != null) {
+            if (directMaskColumns[columnIdx]) {
+                writeMaskedValue(os, value, columnDataMaskers[columnIdx]);
+                return;
+            }
+            value = columnDataMaskers[columnIdx].doMask(value);
+        }
         switch (quoteEncloseMode) {
         case NONE:
             FileUtil.writeToByteArrayStream(os, value);
@@ -200,9 +241,6 @@ public abstract class BaseExportWorker implements Runnable {
             FileUtil.writeToByteArrayStreamWithQuote(os, value);
             break;
         case AUTO:
-            if (columnDataMaskerList != null && columnDataMaskerList.get(columnIdx) != null) {
-                value = columnDataMaskerList.get(columnIdx).doMask(value);
-            }
             boolean isStringType = isStringTypeList.get(columnIdx);
             if (!isStringType) {
                 FileUtil.writeToByteArrayStream(os, value);
@@ -224,32 +262,64 @@ public abstract class BaseExportWorker implements Runnable {
         this.compressMode = compressMode;
     }
 
+    /**
+     * 脱敏结果不含特殊字符，直接写入缓冲区
+     * 引号模式为 FORCE 时仍需包上引号
+     */
+    private void writeMaskedValue(ByteArrayOutputStream os, byte[] value,
+                                  AbstractDataMasker masker) throws IOException {
+        if (quoteEncloseMode == QuoteEncloseMode.FORCE) {
+            os.write(FileUtil.DOUBLE_QUOTE_BYTE);
+            masker.doMask(value, os);
+            os.write(FileUtil.DOUBLE_QUOTE_BYTE);
+        } else {
+            masker.doMask(value, os);
+        }
+    }
+
+    /**
+     * 对按行写入的字符串字段值脱敏
+     */
+    protected String maskValue(String value, int columnIdx) {
+        if (columnDataMaskers == null || columnDataMaskers[columnIdx] == null
+            || value == null || FileUtil.NULL_ESC_STR.equals(value)) {
+            return value;
+        }
+        return new String(columnDataMaskers[columnIdx].doMask(value.getBytes()));
+    }
+
     public void putDataMaskerMap(Map<String, JSONObject> columnMaskerMap) {
-        if (columnMaskerMap == null || columnMaskerMap.isEmpty()) {
+        AbstractDataMasker[] maskers = DataMaskerFactory.buildColumnMaskers(columnMaskerMap,
+            tableFieldMetaInfo.getFieldMetaInfoList());
+        if (maskers == null) {
             return;
         }
-        if (this.columnDataMaskerList == null) {
-            this.columnDataMaskerList = new ArrayList<>(Collections.nCopies(
-                tableFieldMetaInfo.getFieldMetaInfoList().size(), null));
-        }
-        for (Map.Entry<String, JSONObject> columnMasker : columnMaskerMap.entrySet()) {
-            AbstractDataMasker masker = DataMaskerFactory.getDataMasker(columnMasker.getValue());
-            this.putDataMasker(columnMasker.getKey(), masker);
+        boolean plainSeparator = !containsPlainByte(separator);
+        this.directMaskColumns = new boolean[maskers.length];
+        for (int i = 0; i < maskers.length; i++) {
+            directMaskColumns[i] = maskers[i] != null && maskers[i].isPlainOutput() && plainSeparator;
         }
+        this.columnDataMaskers = maskers;
     }
 
-    private void putDataMasker(String columnName, AbstractDataMasker dataMasker) {
-        List<FieldMetaInfo> fieldMetaInfoList = tableFieldMetaInfo.getFieldMetaInfoList();
-        for (int i = 0; i < fieldMetaInfoList.size(); i++) {
-            if (StringUtils.equalsIgnoreCase(columnName, fieldMetaInfoList.get(i).getName())) {
-                this.columnDataMaskerList.set(i, dataMasker);
-                return;
+    private static boolean containsPlainByte(byte[] bytes) {
+        for (byte b : bytes) {
+            if (Character.isLetterOrDigit(b) || b == '+' || b == '/' || b == '=') {
+                return true;
             }
         }
-        throw new IllegalArgumentException("Unknown mask column: " + columnName);
+        return false;
     }
 
     public void setWithLastSep(boolean withLastSep) {
         isWithLastSep = withLastSep;
     }
+
+    protected static void onWorkerFailed() {
+        FAILED_WORKER_COUNT.incrementAndGet();
+    }
+
+    public static boolean hasFailedWorker() {
+        return FAILED_WORKER_COUNT.get() > 0;
+    }
 }
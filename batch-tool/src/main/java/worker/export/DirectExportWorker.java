@@ -17,6 +17,7 @@
 package worker.export;
 
 import model.config.CompressMode;
+import model.config.ConfigConstant;
 import model.config.FileFormat;
 import model.config.GlobalVar;
 import model.config.QuoteEncloseMode;
@@ -27,22 +28,34 @@ import model.encrypt.BaseCipher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import store.FileStorage;
+import util.CountStat;
 import util.DataSourceUtil;
+import util.DbUtil;
 import util.FileUtil;
+import util.IOUtil;
 import worker.common.writer.CipherLineFileWriter;
 import worker.common.writer.IFileWriter;
+import worker.common.writer.MultipartUploadFileWriter;
+import worker.common.writer.AsyncFileWriter;
+import worker.common.writer.MappedFileWriter;
 import worker.common.writer.NioFileWriter;
+import worker.common.writer.ParquetFileWriter;
 import worker.common.writer.S3FileWriter;
 import worker.common.writer.XlsxFileWriter;
 import worker.util.ExportUtil;
 
 import javax.sql.DataSource;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.charset.Charset;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 
@@ -53,13 +66,18 @@ import java.util.concurrent.Semaphore;
 public class DirectExportWorker extends BaseExportWorker {
     private static final Logger logger = LoggerFactory.getLogger(DirectExportWorker.class);
     private static final int NO_FILE_SEQ = -1;
+    /**
+     * 分页查询失败时的最大重试次数
+     */
+    private static final int MAX_PAGE_RETRY = 3;
 
     /**
      * 原始指定文件名
      */
     private final String filename;
-    private final IFileWriter fileWriter;
+    private IFileWriter fileWriter;
     private final BaseCipher cipher;
+    private final Charset charset;
 
     /**
      * 单个文件最大行数
@@ -84,6 +102,19 @@ public class DirectExportWorker extends BaseExportWorker {
     private CountDownLatch countDownLatch;
     private Semaphore permitted;
 
+    /**
+     * 按主键分页导出，为 null 时使用单条流式查询
+     */
+    private List<FieldMetaInfo> pkFieldMetaInfoList = null;
+    private int pageSize = 0;
+    private boolean resume = false;
+    private final boolean isLocalFile;
+    private File checkpointFile;
+    /**
+     * 最近一次已持久化的检查点
+     */
+    private ExportCheckpoint checkpoint;
+
     public DirectExportWorker(DataSource dataSource,
                               String logicalTableName, TableTopology topology,
                               TableFieldMetaInfo tableFieldMetaInfo,
@@ -123,9 +154,10 @@ public class DirectExportWorker extends BaseExportWorker {
         this.filename = filename;
         this.isWithHeader = isWithHeader;
         this.cipher = cipher;
+        this.isLocalFile = fileStorage == null;
+        this.charset = charset;
         initFileSeq();
         this.fileWriter = initFileWriter(charset, fileStorage);
-        createNewFile();
     }
 
     private void initFileSeq() {
@@ -149,7 +181,15 @@ public class DirectExportWorker extends BaseExportWorker {
         case ET:
             iFileWriter = new XlsxFileWriter();
             break;
+        case PARQUET:
+            iFileWriter = new ParquetFileWriter(tableFieldMetaInfo);
+            break;
         default:
+            if (fileStorage != null && fileStorage.supportMultipartUpload()
+                && (cipher == null || cipher.supportBlock())) {
+                // 边导出边上传
+                return new MultipartUploadFileWriter(fileStorage, compressMode, charset);
+            }
             if (cipher == null || cipher.supportBlock()) {
                 iFileWriter = new  NioFileWriter(compressMode, charset);
             } else {
@@ -165,6 +205,32 @@ public class DirectExportWorker extends BaseExportWorker {
         return iFileWriter;
     }
 
+    /**
+     * 本地无压缩的文本文件改为通过内存映射写入
+     * 需在开始导出前设置
+     *
+     * @param windowSize 映射窗口的字节数，0 表示不启用
+     */
+    public void setMmapWindowSize(long windowSize) {
+        if (windowSize <= 0 || !(fileWriter instanceof NioFileWriter)
+            || compressMode != CompressMode.NONE) {
+            return;
+        }
+        this.fileWriter = new MappedFileWriter(windowSize, charset);
+    }
+
+    /**
+     * 本地文本文件改为在独立的 IO 线程上写入
+     * 需在开始导出前设置
+     */
+    public void setAsyncWrite(boolean asyncWrite) {
+        if (!asyncWrite || !(fileWriter instanceof NioFileWriter || fileWriter instanceof MappedFileWriter)) {
+            return;
+        }
+        this.fileWriter = new AsyncFileWriter(fileWriter, ConfigConstant.DEFAULT_ASYNC_WRITE_BUFFER_COUNT,
+            ConfigConstant.DEFAULT_ASYNC_WRITE_BUFFER_SIZE);
+    }
+
     /**
      * 创建一个新的空文件
      * 会覆盖同名文件
@@ -173,7 +239,8 @@ public class DirectExportWorker extends BaseExportWorker {
     private void createNewFile() {
         String tmpFileName = getTmpFilename();
         fileWriter.nextFile(tmpFileName);
-        if (isWithHeader) {
+        if (isWithHeader && !fileFormat.isColumnar()) {
+            // 列式文件的 schema 中已包含字段名
             appendHeader();
         }
     }
@@ -213,30 +280,55 @@ public class DirectExportWorker extends BaseExportWorker {
 
     @Override
     public void run() {
-        beforeRun();
         try {
-            if (this.fileWriter.produceByBlock()) {
+            beforeRun();
+            if (isKeysetPaging()) {
+                produceDataByKeyset();
+            } else if (this.fileWriter.produceByBlock()) {
                 produceData();
             } else {
                 produceDataByLine();
             }
         } catch (Exception e) {
-            logger.error(e.getMessage());
+            logger.error(e.getMessage(), e);
+            onWorkerFailed();
         } finally {
             afterRun();
         }
     }
 
-    private void beforeRun() {
+    private void beforeRun() throws IOException {
         if (permitted != null) {
             permitted.acquireUninterruptibly();
         }
+        if (!isKeysetPaging()) {
+            createNewFile();
+            return;
+        }
+        this.checkpointFile = ExportCheckpoint.getCheckpointFile(filename);
+        ExportCheckpoint lastCheckpoint = resume ? ExportCheckpoint.load(checkpointFile) : null;
+        if (lastCheckpoint == null) {
+            createNewFile();
+            saveCheckpoint(null, false);
+        } else {
+            logger.info("{} 从检查点继续导出: {}", topology, lastCheckpoint);
+            this.checkpoint = lastCheckpoint;
+            this.curFileSeq = lastCheckpoint.getFileSeq();
+            this.curLineNum = lastCheckpoint.getLineNum();
+            this.rowCount = lastCheckpoint.getRowCount();
+            this.rowCountStat.addAndGet(rowCount);
+            truncateAndAppend(lastCheckpoint.getFileLength());
+        }
     }
 
     private void afterRun() {
         try {
-            fileWriter.finishLastFile();
-            fileWriter.close();
+            try {
+                fileWriter.finishLastFile();
+            } finally {
+                // 之前写入失败时 finishLastFile 会抛出异常，仍需关闭以释放异步写线程
+                fileWriter.close();
+            }
         } finally {
             if (countDownLatch != null) {
                 countDownLatch.countDown();
@@ -266,6 +358,7 @@ public class DirectExportWorker extends BaseExportWorker {
             createNewPartFile();
         }
         writeToFile(os);
+        curLineNum += bufferedRowNum;
         bufferedRowNum = 0;
     }
 
@@ -307,17 +400,135 @@ public class DirectExportWorker extends BaseExportWorker {
                 line++;
                 String[] values = new String[colNum];
                 for (int i = 1; i < colNum + 1; i++) {
-                    String value = rs.getString(i);
-                    values[i - 1] = value != null ? value : FileUtil.NULL_ESC_STR;
+                    String value;
+                    if (binaryEncodeColumns != null && binaryEncodeColumns[i - 1]) {
+                        byte[] bytes = GlobalVar.BINARY_ENCODE_MODE.encode(rs.getBytes(i));
+                        value = bytes != null ? new String(bytes) : null;
+                    } else {
+                        value = rs.getString(i);
+                    }
+                    values[i - 1] = value != null ? maskValue(value, i - 1) : FileUtil.NULL_ESC_STR;
                 }
                 fileWriter.writeLine(values);
                 if (line % 1000 == 0) {
                     logger.info("{} 当前已写入行数: {} ", filename, line);
                 }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        } catch (SQLException | RuntimeException e) {
+            // 文件只写入了部分数据，不能当作导出成功
+            throw new RuntimeException(topology + " 导出失败，文件 " + filename + " 不完整: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按主键分页读取并写入文件
+     * 每页写完后记录检查点，失败时回退到上一个检查点重试
+     */
+    private void produceDataByKeyset() throws IOException {
+        if (checkpoint.isFinished()) {
+            logger.info("{} 已导出完成，跳过", topology);
+            return;
+        }
+        int colNum = tableFieldMetaInfo.getFieldMetaInfoList().size();
+        this.os = new ByteArrayOutputStream(colNum * 16);
+        String firstPageSql = ExportUtil.getKeysetPageSql(topology, tableFieldMetaInfo.getFieldMetaInfoList(),
+            pkFieldMetaInfoList, whereCondition, false, pageSize);
+        String nextPageSql = ExportUtil.getKeysetPageSql(topology, tableFieldMetaInfo.getFieldMetaInfoList(),
+            pkFieldMetaInfoList, whereCondition, true, pageSize);
+        logger.info("{} 开始按主键分页导出", topology);
+        int retry = 0;
+        try {
+            while (!checkpoint.isFinished()) {
+                List<String> lastKey = checkpoint.getLastKey();
+                try {
+                    lastKey = exportPage(lastKey == null ? firstPageSql : nextPageSql, lastKey, colNum);
+                    retry = 0;
+                } catch (SQLException e) {
+                    if (!isLocalFile || ++retry > MAX_PAGE_RETRY) {
+                        throw new RuntimeException(e);
+                    }
+                    logger.warn("{} 分页导出失败，第 {} 次重试: {}", topology, retry, e.getMessage());
+                    rollbackToCheckpoint();
+                }
+            }
+            afterProduceData();
+        } finally {
+            IOUtil.close(os);
+            CountStat.addDbRowCount(rowCount);
+            logger.info("{} 导出行数：{}", topology, rowCount);
+        }
+    }
+
+    /**
+     * 导出一页数据并保存检查点
+     *
+     * @return 本页最后一行的主键值
+     */
+    private List<String> exportPage(String sql, List<String> lastKey, int colNum)
+        throws SQLException, IOException {
+        int pageRows = 0;
+        try (Connection conn = druid.getConnection();
+            PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (lastKey != null) {
+                DbUtil.bindPkValues(stmt, 1, pkFieldMetaInfoList, lastKey);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    writeRow(rs, colNum);
+                    lastKey = DbUtil.readPkValues(rs, colNum + 1, pkFieldMetaInfoList);
+                    pageRows++;
+                }
+            }
+        }
+        flushRemainRows();
+        saveCheckpoint(lastKey, pageRows < pageSize);
+        return lastKey;
+    }
+
+    private void saveCheckpoint(List<String> lastKey, boolean finished) throws IOException {
+        ExportCheckpoint newCheckpoint = new ExportCheckpoint();
+        newCheckpoint.setLastKey(lastKey);
+        newCheckpoint.setFileSeq(curFileSeq);
+        newCheckpoint.setLineNum(curLineNum);
+        // 先确保缓冲的数据已落到文件中
+        fileWriter.flush();
+        newCheckpoint.setFileLength(new File(getTmpFilename()).length());
+        newCheckpoint.setRowCount(rowCount);
+        newCheckpoint.setFinished(finished);
+        if (isLocalFile) {
+            newCheckpoint.save(checkpointFile);
         }
+        this.checkpoint = newCheckpoint;
+    }
+
+    /**
+     * 丢弃上一个检查点之后写入的数据
+     */
+    private void rollbackToCheckpoint() throws IOException {
+        fileWriter.flush();
+        rowCountStat.addAndGet(-(rowCount - checkpoint.getRowCount() - bufferedRowNum));
+        os.reset();
+        bufferedRowNum = 0;
+        for (int seq = curFileSeq; seq > checkpoint.getFileSeq(); seq--) {
+            this.curFileSeq = seq;
+            new File(getTmpFilename()).delete();
+        }
+        this.curFileSeq = checkpoint.getFileSeq();
+        this.curLineNum = checkpoint.getLineNum();
+        this.rowCount = checkpoint.getRowCount();
+        truncateAndAppend(checkpoint.getFileLength());
+    }
+
+    private void truncateAndAppend(long fileLength) throws IOException {
+        String tmpFilename = getTmpFilename();
+        try (RandomAccessFile file = new RandomAccessFile(tmpFilename, "rw")) {
+            file.setLength(fileLength);
+        }
+        fileWriter.openAppend(tmpFilename);
+    }
+
+    private boolean isKeysetPaging() {
+        return pkFieldMetaInfoList != null;
     }
 
     private boolean isLimitLine() {
@@ -350,4 +561,18 @@ public class DirectExportWorker extends BaseExportWorker {
     public void setPermitted(Semaphore permitted) {
         this.permitted = permitted;
     }
+
+    /**
+     * 开启按主键分页导出
+     *
+     * @param resume 是否从已有的检查点继续导出
+     */
+    public void enableKeysetPaging(List<FieldMetaInfo> pkFieldMetaInfoList, int pageSize, boolean resume) {
+        if (pkFieldMetaInfoList == null || pkFieldMetaInfoList.isEmpty()) {
+            throw new IllegalArgumentException("Export by pages requires primary key of table: " + logicalTableName);
+        }
+        this.pkFieldMetaInfoList = pkFieldMetaInfoList;
+        this.pageSize = pageSize;
+        this.resume = resume;
+    }
 }
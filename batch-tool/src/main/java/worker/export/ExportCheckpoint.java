@@ -0,0 +1,144 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package worker.export;
+
+import com.alibaba.fastjson2.JSON;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * 按主键分页导出的检查点
+ * 记录已写入文件的最后一行主键以及文件状态
+ */
+public class ExportCheckpoint {
+
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    /**
+     * 最后写入的一行的主键值，尚未写入时为 null
+     */
+    private List<String> lastKey;
+    /**
+     * 当前文件序号
+     */
+    private int fileSeq;
+    /**
+     * 当前文件已写入行数
+     */
+    private int lineNum;
+    /**
+     * 当前文件已写入的字节数
+     */
+    private long fileLength;
+    /**
+     * 总导出行数
+     */
+    private long rowCount;
+    private boolean finished;
+
+    /**
+     * 与导出文件同目录的隐藏文件，避免被导入时匹配到
+     */
+    public static File getCheckpointFile(String filename) {
+        File file = new File(filename).getAbsoluteFile();
+        return new File(file.getParentFile(), "." + file.getName() + CHECKPOINT_SUFFIX);
+    }
+
+    public static ExportCheckpoint load(File checkpointFile) throws IOException {
+        if (!checkpointFile.exists()) {
+            return null;
+        }
+        String content = FileUtils.readFileToString(checkpointFile, StandardCharsets.UTF_8);
+        return JSON.parseObject(content, ExportCheckpoint.class);
+    }
+
+    /**
+     * 先写临时文件再替换，保证检查点文件完整
+     */
+    public void save(File checkpointFile) throws IOException {
+        File tmpFile = new File(checkpointFile.getPath() + ".tmp");
+        FileUtils.writeStringToFile(tmpFile, JSON.toJSONString(this), StandardCharsets.UTF_8);
+        Files.move(tmpFile.toPath(), checkpointFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public List<String> getLastKey() {
+        return lastKey;
+    }
+
+    public void setLastKey(List<String> lastKey) {
+        this.lastKey = lastKey;
+    }
+
+    public int getFileSeq() {
+        return fileSeq;
+    }
+
+    public void setFileSeq(int fileSeq) {
+        this.fileSeq = fileSeq;
+    }
+
+    public int getLineNum() {
+        return lineNum;
+    }
+
+    public void setLineNum(int lineNum) {
+        this.lineNum = lineNum;
+    }
+
+    public long getFileLength() {
+        return fileLength;
+    }
+
+    public void setFileLength(long fileLength) {
+        this.fileLength = fileLength;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public void setFinished(boolean finished) {
+        this.finished = finished;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportCheckpoint{" +
+            "lastKey=" + lastKey +
+            ", fileSeq=" + fileSeq +
+            ", lineNum=" + lineNum +
+            ", fileLength=" + fileLength +
+            ", rowCount=" + rowCount +
+            ", finished=" + finished +
+            '}';
+    }
+}
@@ -17,45 +17,23 @@
 package worker.export;
 
 import com.lmax.disruptor.WorkHandler;
-import model.config.CompressMode;
-import model.db.TableFieldMetaInfo;
 import model.encrypt.BaseCipher;
-import util.FileUtil;
-import worker.common.writer.IFileWriter;
-import worker.common.writer.NioFileWriter;
-import worker.util.ExportUtil;
 
-import java.nio.charset.Charset;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 暂不支持 FileFormat
+ * 多个消费者共享同一组文件，按文件大小均衡写入
  */
 public class ExportConsumer implements WorkHandler<ExportEvent> {
-    private final byte[] separator;
-    private final TableFieldMetaInfo tableFieldMetaInfo;
-    private final IFileWriter fileWriter;
+    private final FixedFileWriterGroup fileWriterGroup;
     private final AtomicInteger emittedDataCounter;
 
     private BaseCipher cipher = null;
 
-    public ExportConsumer(String filename, AtomicInteger emittedDataCounter,
-                          boolean isWithHeader, byte[] separator,
-                          TableFieldMetaInfo tableFieldMetaInfo,
-                          CompressMode compressMode, Charset charset) {
+    public ExportConsumer(FixedFileWriterGroup fileWriterGroup, AtomicInteger emittedDataCounter) {
+        this.fileWriterGroup = fileWriterGroup;
         this.emittedDataCounter = emittedDataCounter;
-        this.separator = separator;
-        this.tableFieldMetaInfo = tableFieldMetaInfo;
-        filename = ExportUtil.getFilename(filename, compressMode);
-        this.fileWriter = new NioFileWriter(filename, compressMode, charset);
-        if (isWithHeader) {
-            appendHeader();
-        }
-    }
-
-    private void appendHeader() {
-        byte[] header = FileUtil.getHeaderBytes(tableFieldMetaInfo.getFieldMetaInfoList(), separator);
-        fileWriter.write(header);
     }
 
     @Override
@@ -72,7 +50,7 @@ public class ExportConsumer implements WorkHandler<ExportEvent> {
             }
         }
         try {
-            fileWriter.write(data);
+            fileWriterGroup.write(data);
         } finally {
             emittedDataCounter.getAndDecrement();
         }
@@ -81,8 +59,4 @@ public class ExportConsumer implements WorkHandler<ExportEvent> {
     public void setCipher(BaseCipher cipher) {
         this.cipher = cipher;
     }
-
-    public void close() {
-        fileWriter.close();
-    }
 }
@@ -25,7 +25,6 @@ import org.slf4j.LoggerFactory;
 import worker.util.ExportUtil;
 
 import javax.sql.DataSource;
-import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -38,9 +37,6 @@ public class ExportProducer extends BaseExportWorker {
     private final CountDownLatch countDownLatch;
     private final AtomicInteger emittedDataCounter;
 
-    private final boolean collectFragmentEnabled;
-
-    private Queue<ExportEvent> fragmentQueue;
     private String whereCondition;
 
     private Semaphore permitted;
@@ -50,13 +46,11 @@ public class ExportProducer extends BaseExportWorker {
                           RingBuffer<ExportEvent> ringBuffer,
                           String separator, CountDownLatch countDownLatch,
                           AtomicInteger emittedDataCounter,
-                          boolean collectFragmentEnabled,
                           QuoteEncloseMode quoteEncloseMode) {
         super(druid, tableName, topology, tableFieldMetaInfo, separator, quoteEncloseMode);
         this.ringBuffer = ringBuffer;
         this.countDownLatch = countDownLatch;
         this.emittedDataCounter = emittedDataCounter;
-        this.collectFragmentEnabled = collectFragmentEnabled;
     }
 
     @Override
@@ -91,11 +85,7 @@ public class ExportProducer extends BaseExportWorker {
 
     @Override
     protected void dealWithRemainData() {
-        if (collectFragmentEnabled) {
-            emitRemainData(os.toByteArray());
-        } else {
-            emitData(os.toByteArray());
-        }
+        emitData(os.toByteArray());
     }
 
     @Override
@@ -127,13 +117,6 @@ public class ExportProducer extends BaseExportWorker {
         }
     }
 
-    /**
-     * 发送剩余的数据给消费者
-     */
-    private void emitRemainData(byte[] data) {
-        fragmentQueue.add(new ExportEvent(data));
-    }
-
     public String getWhereCondition() {
         return whereCondition;
     }
@@ -142,14 +125,6 @@ public class ExportProducer extends BaseExportWorker {
         this.whereCondition = whereCondition;
     }
 
-    public Queue<ExportEvent> getFragmentQueue() {
-        return fragmentQueue;
-    }
-
-    public void setFragmentQueue(Queue<ExportEvent> fragmentQueue) {
-        this.fragmentQueue = fragmentQueue;
-    }
-
     public void setPermitted(Semaphore permitted) {
         this.permitted = permitted;
     }
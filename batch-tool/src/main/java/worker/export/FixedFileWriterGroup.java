@@ -0,0 +1,128 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package worker.export;
+
+import model.config.CompressMode;
+import model.db.TableFieldMetaInfo;
+import util.FileUtil;
+import worker.common.writer.AsyncFileWriter;
+import worker.common.writer.IFileWriter;
+import worker.common.writer.NioFileWriter;
+import worker.util.ExportUtil;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static model.config.ConfigConstant.DEFAULT_ASYNC_WRITE_BUFFER_COUNT;
+import static model.config.ConfigConstant.DEFAULT_ASYNC_WRITE_BUFFER_SIZE;
+
+/**
+ * 固定数量的导出文件
+ * 每批数据写入当前字节数最少且空闲的文件，使各文件大小保持均衡
+ */
+@ThreadSafe
+public class FixedFileWriterGroup {
+
+    private final IFileWriter[] fileWriters;
+    private final ReentrantLock[] locks;
+    /**
+     * 各文件已写入的字节数
+     */
+    private final AtomicLongArray writtenBytes;
+
+    public FixedFileWriterGroup(String[] filePaths, boolean isWithHeader, byte[] separator,
+                                TableFieldMetaInfo tableFieldMetaInfo,
+                                CompressMode compressMode, Charset charset) {
+        this(filePaths, isWithHeader, separator, tableFieldMetaInfo, compressMode, charset, false);
+    }
+
+    /**
+     * @param asyncWrite 每个文件是否在独立的 IO 线程上写入
+     */
+    public FixedFileWriterGroup(String[] filePaths, boolean isWithHeader, byte[] separator,
+                                TableFieldMetaInfo tableFieldMetaInfo,
+                                CompressMode compressMode, Charset charset, boolean asyncWrite) {
+        final int fileCount = filePaths.length;
+        this.fileWriters = new IFileWriter[fileCount];
+        this.locks = new ReentrantLock[fileCount];
+        this.writtenBytes = new AtomicLongArray(fileCount);
+        byte[] header = isWithHeader ?
+            FileUtil.getHeaderBytes(tableFieldMetaInfo.getFieldMetaInfoList(), separator) : null;
+        for (int i = 0; i < fileCount; i++) {
+            String filename = ExportUtil.getFilename(filePaths[i], compressMode);
+            fileWriters[i] = new NioFileWriter(filename, compressMode, charset);
+            if (asyncWrite) {
+                fileWriters[i] = new AsyncFileWriter(fileWriters[i], DEFAULT_ASYNC_WRITE_BUFFER_COUNT,
+                    DEFAULT_ASYNC_WRITE_BUFFER_SIZE);
+            }
+            locks[i] = new ReentrantLock();
+            if (header != null) {
+                fileWriters[i].write(header);
+            }
+        }
+    }
+
+    public void write(byte[] data) {
+        int idx = lockLeastLoaded();
+        try {
+            fileWriters[idx].write(data);
+            writtenBytes.addAndGet(idx, data.length);
+        } finally {
+            locks[idx].unlock();
+        }
+    }
+
+    /**
+     * 锁定当前字节数最少的空闲文件
+     * 写入线程数不超过文件数时总能找到空闲文件
+     */
+    private int lockLeastLoaded() {
+        while (true) {
+            int minIdx = -1;
+            long minBytes = Long.MAX_VALUE;
+            for (int i = 0; i < fileWriters.length; i++) {
+                long bytes = writtenBytes.get(i);
+                if (bytes < minBytes && !locks[i].isLocked()) {
+                    minBytes = bytes;
+                    minIdx = i;
+                }
+            }
+            if (minIdx == -1) {
+                // 所有文件均在写入
+                minIdx = 0;
+                for (int i = 1; i < fileWriters.length; i++) {
+                    if (writtenBytes.get(i) < writtenBytes.get(minIdx)) {
+                        minIdx = i;
+                    }
+                }
+                locks[minIdx].lock();
+                return minIdx;
+            }
+            if (locks[minIdx].tryLock()) {
+                return minIdx;
+            }
+        }
+    }
+
+    public void close() {
+        for (IFileWriter fileWriter : fileWriters) {
+            fileWriter.close();
+        }
+    }
+}
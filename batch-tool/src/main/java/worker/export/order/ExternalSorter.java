@@ -0,0 +1,326 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package worker.export.order;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.IOUtil;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 外部归并排序
+ * 内存中的行数据超过预算时排序并压缩写入临时文件，最后对所有有序段做 k 路归并
+ * 排序键在加入时编码一次，与行数据一同写入有序段
+ */
+@NotThreadSafe
+public class ExternalSorter implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ExternalSorter.class);
+
+    /**
+     * 单次归并的最大路数，超过时先将部分有序段合并
+     */
+    static final int MAX_MERGE_WAY = 64;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    /**
+     * 估算行内存占用时每行和每个字段的对象开销
+     */
+    private static final int ROW_OVERHEAD = 32;
+    private static final int FIELD_OVERHEAD = 24;
+
+    private static final Comparator<SortEntry> ENTRY_COMPARATOR =
+        (o1, o2) -> Arrays.compareUnsigned(o1.key, o2.key);
+
+    private final String name;
+    private final SortKeyEncoder sortKeyEncoder;
+    private final long memoryBudget;
+    private final File spillDir;
+
+    private List<SortEntry> buffer = new ArrayList<>();
+    private long bufferedBytes = 0;
+    private final LinkedList<File> runFiles = new LinkedList<>();
+    private final List<RunReader> openReaders = new ArrayList<>();
+    private File runDir = null;
+    private int runSeq = 0;
+
+    /**
+     * @param memoryBudget 内存中缓存行数据的字节数上限（估算值）
+     * @param spillDir 有序段临时文件所在目录
+     */
+    public ExternalSorter(String name, SortKeyEncoder sortKeyEncoder, long memoryBudget, File spillDir) {
+        this.name = name;
+        this.sortKeyEncoder = sortKeyEncoder;
+        this.memoryBudget = memoryBudget;
+        this.spillDir = spillDir;
+    }
+
+    public void add(byte[][] row) throws IOException {
+        SortEntry entry = new SortEntry(sortKeyEncoder.encode(row), row);
+        buffer.add(entry);
+        bufferedBytes += estimateSize(entry);
+        if (bufferedBytes >= memoryBudget) {
+            spill();
+        }
+    }
+
+    /**
+     * 结束写入并返回有序结果
+     */
+    public RowCursor sort() throws IOException {
+        if (runFiles.isEmpty()) {
+            // 数据未超过内存预算
+            buffer.sort(ENTRY_COMPARATOR);
+            List<SortEntry> sorted = buffer;
+            buffer = new ArrayList<>();
+            bufferedBytes = 0;
+            return listCursor(sorted);
+        }
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+        while (runFiles.size() > MAX_MERGE_WAY) {
+            mergeRuns();
+        }
+        logger.info("{} 开始归并 {} 个有序段", name, runFiles.size());
+        return new LoserTreeMerger(openRuns(runFiles), sortKeyEncoder);
+    }
+
+    int getRunCount() {
+        return runFiles.size();
+    }
+
+    @Override
+    public void close() {
+        for (RunReader reader : openReaders) {
+            IOUtil.close(reader);
+        }
+        openReaders.clear();
+        buffer = new ArrayList<>();
+        if (runDir != null) {
+            FileUtils.deleteQuietly(runDir);
+            runDir = null;
+        }
+        runFiles.clear();
+    }
+
+    private void spill() throws IOException {
+        buffer.sort(ENTRY_COMPARATOR);
+        File runFile = nextRunFile();
+        try (RunWriter writer = new RunWriter(runFile)) {
+            for (SortEntry entry : buffer) {
+                writer.write(entry.key, entry.row);
+            }
+        }
+        logger.debug("{} 写入有序段 {}，行数 {}", name, runFile.getName(), buffer.size());
+        runFiles.add(runFile);
+        buffer = new ArrayList<>();
+        bufferedBytes = 0;
+    }
+
+    /**
+     * 将最早的 MAX_MERGE_WAY 个有序段合并为一个新的有序段
+     */
+    private void mergeRuns() throws IOException {
+        List<File> toMerge = new ArrayList<>(MAX_MERGE_WAY);
+        for (int i = 0; i < MAX_MERGE_WAY; i++) {
+            toMerge.add(runFiles.poll());
+        }
+        File runFile = nextRunFile();
+        RowCursor[] readers = openRuns(toMerge);
+        try (RunWriter writer = new RunWriter(runFile)) {
+            LoserTreeMerger merger = new LoserTreeMerger(readers, sortKeyEncoder);
+            byte[][] row;
+            while ((row = merger.next()) != null) {
+                writer.write(merger.currentKey(), row);
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } finally {
+            for (RowCursor reader : readers) {
+                IOUtil.close((RunReader) reader);
+                openReaders.remove(reader);
+            }
+        }
+        for (File file : toMerge) {
+            FileUtils.deleteQuietly(file);
+        }
+        runFiles.add(runFile);
+    }
+
+    private RowCursor[] openRuns(List<File> files) throws IOException {
+        RowCursor[] readers = new RowCursor[files.size()];
+        for (int i = 0; i < readers.length; i++) {
+            RunReader reader = new RunReader(files.get(i));
+            openReaders.add(reader);
+            readers[i] = reader;
+        }
+        return readers;
+    }
+
+    private File nextRunFile() throws IOException {
+        if (runDir == null) {
+            runDir = Files.createTempDirectory(spillDir.toPath(), ".sort-").toFile();
+        }
+        return new File(runDir, "run-" + (runSeq++));
+    }
+
+    private static long estimateSize(SortEntry entry) {
+        long size = ROW_OVERHEAD + FIELD_OVERHEAD + entry.key.length;
+        for (byte[] field : entry.row) {
+            size += FIELD_OVERHEAD + field.length;
+        }
+        return size;
+    }
+
+    private static RowCursor listCursor(List<SortEntry> entries) {
+        return new RowCursor() {
+            private int pos = 0;
+            private byte[] key = null;
+
+            @Override
+            public byte[][] next() {
+                if (pos == entries.size()) {
+                    key = null;
+                    return null;
+                }
+                SortEntry entry = entries.get(pos);
+                // 及时释放已输出的行
+                entries.set(pos++, null);
+                key = entry.key;
+                return entry.row;
+            }
+
+            @Override
+            public byte[] currentKey() {
+                return key;
+            }
+        };
+    }
+
+    private static class SortEntry {
+        private final byte[] key;
+        private final byte[][] row;
+
+        SortEntry(byte[] key, byte[][] row) {
+            this.key = key;
+            this.row = row;
+        }
+    }
+
+    /**
+     * 有序段文件格式：每行为排序键、字段数与各字段，长度均以 int 前缀，以 -1 结尾
+     */
+    private static class RunWriter implements Closeable {
+        private final DataOutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        RunWriter(File file) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(
+                new DeflaterOutputStream(new FileOutputStream(file), deflater, IO_BUFFER_SIZE), IO_BUFFER_SIZE));
+        }
+
+        void write(byte[] key, byte[][] row) throws IOException {
+            out.writeInt(key.length);
+            out.write(key);
+            out.writeInt(row.length);
+            for (byte[] field : row) {
+                out.writeInt(field.length);
+                out.write(field);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.writeInt(-1);
+                out.close();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    private static class RunReader implements RowCursor, Closeable {
+        private final DataInputStream in;
+        private final Inflater inflater = new Inflater();
+        private boolean reachEnd = false;
+        private byte[] key = null;
+
+        RunReader(File file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(new FileInputStream(file), inflater, IO_BUFFER_SIZE), IO_BUFFER_SIZE));
+        }
+
+        @Override
+        public byte[][] next() throws IOException {
+            if (reachEnd) {
+                return null;
+            }
+            int keyLength = in.readInt();
+            if (keyLength < 0) {
+                reachEnd = true;
+                key = null;
+                close();
+                return null;
+            }
+            key = new byte[keyLength];
+            in.readFully(key);
+            int colNum = in.readInt();
+            byte[][] row = new byte[colNum][];
+            for (int i = 0; i < colNum; i++) {
+                row[i] = new byte[in.readInt()];
+                in.readFully(row[i]);
+            }
+            return row;
+        }
+
+        @Override
+        public byte[] currentKey() {
+            return key;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                in.close();
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+}
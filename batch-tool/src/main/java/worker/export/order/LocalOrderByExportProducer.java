@@ -16,7 +16,7 @@
 
 package worker.export.order;
 
-import com.alibaba.druid.util.JdbcUtils;
+import model.config.GlobalVar;
 import model.db.TableFieldMetaInfo;
 import model.db.TableTopology;
 import org.slf4j.Logger;
@@ -26,76 +26,141 @@ import util.FileUtil;
 import worker.util.ExportUtil;
 
 import javax.sql.DataSource;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 
 /**
- * 将每个分片排好序的数据放入内存
+ * 将每个分片排好序的数据流式写入有界队列
  * 交给消费者做归并排序
+ * 分片无法排序时可先在本地做外部排序
  */
 public class LocalOrderByExportProducer implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(LocalOrderByExportProducer.class);
 
     private String whereCondition;
-    private final LinkedList<ParallelOrderByExportEvent> orderByExportEventList;
+    private final ShardRowQueue rowQueue;
     private final DataSource druid;
     private final TableTopology topology;
     private final TableFieldMetaInfo tableFieldMetaInfo;
     private final List<String> orderByColumnName;
 
-    private final CountDownLatch countDownLatch;
-
     /**
      * 默认升序
      */
     private boolean isAscending = true;
 
+    private ExternalSorter externalSorter = null;
+    /**
+     * 外部排序时读取分片数据所需的节点并发许可
+     */
+    private Semaphore nodePermits = null;
+
     public LocalOrderByExportProducer(DataSource druid, TableTopology topology, TableFieldMetaInfo tableFieldMetaInfo,
-                                      LinkedList<ParallelOrderByExportEvent> orderByExportEventList,
-                                      List<String> orderByColumnName, CountDownLatch countDownLatch) {
+                                      ShardRowQueue rowQueue, List<String> orderByColumnName) {
         this.tableFieldMetaInfo = tableFieldMetaInfo;
-        this.orderByExportEventList = orderByExportEventList;
+        this.rowQueue = rowQueue;
         this.druid = druid;
         this.orderByColumnName = orderByColumnName;
         this.topology = topology;
-        this.countDownLatch = countDownLatch;
     }
 
     public void produceData() {
-        String sql = ExportUtil.getOrderBySql(topology, tableFieldMetaInfo.getFieldMetaInfoList(),
-            orderByColumnName, whereCondition, isAscending);
-        // 字段数
-        int colNum;
-
         long startTime = System.currentTimeMillis();
+        try {
+            if (!fetchRowsWithPermit()) {
+                logger.warn("{} 归并已终止，停止获取数据", topology);
+                return;
+            }
+            if (externalSorter != null) {
+                logger.info("{} 数据获取完毕，开始本地排序", topology);
+                RowCursor sortedRows = externalSorter.sort();
+                byte[][] data;
+                while ((data = sortedRows.next()) != null) {
+                    if (!rowQueue.put(data)) {
+                        logger.warn("{} 归并已终止，停止发送数据", topology);
+                        return;
+                    }
+                }
+            }
+            rowQueue.finish();
+            long endTime = System.currentTimeMillis();
+            logger.debug("{} 发送至缓冲区完毕，耗时 {} s", topology, (endTime - startTime) / 1000F);
+        } catch (Throwable t) {
+            // 排序与编码过程中的运行时异常同样需要通知消费端，否则归并会一直等待
+            logger.error("{} 获取数据失败: {}", topology, t.getMessage());
+            rowQueue.fail(t);
+        } finally {
+            if (externalSorter != null) {
+                externalSorter.close();
+            }
+        }
+    }
+
+    /**
+     * 流式归并需要所有分片同时打开，只有外部排序的读取阶段可以按节点限流
+     */
+    private boolean fetchRowsWithPermit() throws SQLException, IOException, InterruptedException {
+        if (externalSorter == null || nodePermits == null) {
+            return fetchRows();
+        }
+        nodePermits.acquire();
+        try {
+            return fetchRows();
+        } finally {
+            nodePermits.release();
+        }
+    }
+
+    /**
+     * 由分片排序时直接写入队列，否则交给本地外部排序
+     *
+     * @return 消费端已关闭时返回 false
+     */
+    private boolean fetchRows() throws SQLException, IOException, InterruptedException {
+        String sql;
+        if (externalSorter == null) {
+            sql = ExportUtil.getOrderBySql(topology, tableFieldMetaInfo.getFieldMetaInfoList(),
+                orderByColumnName, whereCondition, isAscending);
+        } else {
+            sql = ExportUtil.getDirectSql(topology, tableFieldMetaInfo.getFieldMetaInfoList(), whereCondition);
+        }
         try (Connection conn = druid.getConnection();
             Statement stmt = DataSourceUtil.createStreamingStatement(conn);
-            ResultSet resultSet = stmt.executeQuery(sql)){
+            ResultSet resultSet = stmt.executeQuery(sql)) {
             logger.info("{} 开始获取数据", topology);
-            colNum = resultSet.getMetaData().getColumnCount();
+            // 字段数
+            int colNum = resultSet.getMetaData().getColumnCount();
+            boolean[] binaryEncodeColumns = ExportUtil.getBinaryEncodeColumns(
+                tableFieldMetaInfo.getFieldMetaInfoList());
             while (resultSet.next()) {
-                byte[][] data = getRowBytes(resultSet, colNum);
-                orderByExportEventList.add(new ParallelOrderByExportEvent(data));
+                byte[][] data = getRowBytes(resultSet, colNum, binaryEncodeColumns);
+                if (externalSorter != null) {
+                    externalSorter.add(data);
+                } else if (!rowQueue.put(data)) {
+                    return false;
+                }
             }
-            long endTime = System.currentTimeMillis();
-            logger.debug("{} 发送至缓冲区完毕，耗时 {} s", topology, (endTime - startTime) / 1000F);
-        } catch (SQLException e) {
-            logger.error(e.getMessage());
-        } finally {
-            countDownLatch.countDown();
         }
+        return true;
     }
 
-    static byte[][] getRowBytes(ResultSet resultSet, int colNum) throws SQLException {
+    /**
+     * @param binaryEncodeColumns 需要在客户端编码的二进制字段，可为 null
+     */
+    static byte[][] getRowBytes(ResultSet resultSet, int colNum,
+                                boolean[] binaryEncodeColumns) throws SQLException {
         byte[][] data = new byte[colNum][];
         for (int i = 0; i < colNum; i++) {
             byte[] fieldValue = resultSet.getBytes(i + 1);
             if (fieldValue != null) {
+                if (binaryEncodeColumns != null && binaryEncodeColumns[i]) {
+                    fieldValue = GlobalVar.BINARY_ENCODE_MODE.encode(fieldValue);
+                }
                 data[i] = fieldValue;
             } else {
                 data[i] = FileUtil.NULL_ESC_BYTE;
@@ -116,4 +181,15 @@ public class LocalOrderByExportProducer implements Runnable {
     public void setWhereCondition(String whereCondition) {
         this.whereCondition = whereCondition;
     }
+
+    public void setNodePermits(Semaphore nodePermits) {
+        this.nodePermits = nodePermits;
+    }
+
+    /**
+     * 设置后不再由分片执行 order by，而是在本地做外部排序
+     */
+    public void setExternalSorter(ExternalSorter externalSorter) {
+        this.externalSorter = externalSorter;
+    }
 }
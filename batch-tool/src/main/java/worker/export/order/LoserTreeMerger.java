@@ -0,0 +1,141 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package worker.export.order;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 基于败者树的 k 路归并，支持任意路数
+ * 每输出一行只需 log(k) 次比较，内存中每路仅保留当前行
+ */
+@NotThreadSafe
+public class LoserTreeMerger implements RowCursor {
+
+    private final RowCursor[] sources;
+    private final SortKeyEncoder sortKeyEncoder;
+    /**
+     * 每一路的当前行，null 表示该路已读完
+     */
+    private final byte[][][] heads;
+    /**
+     * 每一路当前行的排序键
+     */
+    private final byte[][] headKeys;
+    /**
+     * tree[0] 为胜者，其余节点记录败者的路号
+     * 叶子节点 k..2k-1 对应第 0..k-1 路
+     */
+    private final int[] tree;
+    private boolean initialized = false;
+    private byte[] currentKey = null;
+
+    public LoserTreeMerger(RowCursor[] sources, SortKeyEncoder sortKeyEncoder) {
+        this.sources = sources;
+        this.sortKeyEncoder = sortKeyEncoder;
+        this.heads = new byte[sources.length][][];
+        this.headKeys = new byte[sources.length][];
+        this.tree = new int[sources.length];
+    }
+
+    @Override
+    public byte[][] next() throws IOException, InterruptedException {
+        if (sources.length == 0) {
+            return null;
+        }
+        if (!initialized) {
+            for (int i = 0; i < sources.length; i++) {
+                advance(i);
+            }
+            tree[0] = build(1);
+            initialized = true;
+        }
+        int winner = tree[0];
+        byte[][] row = heads[winner];
+        if (row == null) {
+            // 胜者已读完说明所有路都已读完
+            currentKey = null;
+            return null;
+        }
+        currentKey = headKeys[winner];
+        advance(winner);
+        replay(winner);
+        return row;
+    }
+
+    @Override
+    public byte[] currentKey() {
+        return currentKey;
+    }
+
+    /**
+     * 读取下一行，来源未提供排序键时在此编码一次
+     */
+    private void advance(int source) throws IOException, InterruptedException {
+        byte[][] row = sources[source].next();
+        heads[source] = row;
+        if (row == null) {
+            headKeys[source] = null;
+            return;
+        }
+        byte[] key = sources[source].currentKey();
+        headKeys[source] = key != null ? key : sortKeyEncoder.encode(row);
+    }
+
+    private int build(int node) {
+        int k = sources.length;
+        if (node >= k) {
+            return node - k;
+        }
+        int left = build(node << 1);
+        int right = build((node << 1) + 1);
+        if (beats(left, right)) {
+            tree[node] = right;
+            return left;
+        }
+        tree[node] = left;
+        return right;
+    }
+
+    private void replay(int source) {
+        int winner = source;
+        for (int node = (source + sources.length) >> 1; node > 0; node >>= 1) {
+            if (beats(tree[node], winner)) {
+                int loser = winner;
+                winner = tree[node];
+                tree[node] = loser;
+            }
+        }
+        tree[0] = winner;
+    }
+
+    /**
+     * 已读完的路视为无穷大，相等时路号小的优先以保持稳定
+     */
+    private boolean beats(int a, int b) {
+        if (heads[a] == null) {
+            return false;
+        }
+        if (heads[b] == null) {
+            return true;
+        }
+        int res = Arrays.compareUnsigned(headKeys[a], headKeys[b]);
+        return res < 0 || (res == 0 && a < b);
+    }
+}
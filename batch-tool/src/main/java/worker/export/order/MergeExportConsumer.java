@@ -29,7 +29,6 @@ import java.io.IOException;
 import java.nio.channels.FileChannel;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.util.Comparator;
 import java.util.List;
 
 import static model.config.GlobalVar.EMIT_BATCH_SIZE;
@@ -66,7 +65,7 @@ public abstract class MergeExportConsumer {
     protected final String filePath;
     protected final byte[] separator;
     protected final IFileWriter fileWriter;
-    protected Comparator comparator;
+    protected final SortKeyEncoder sortKeyEncoder;
 
     protected MergeExportConsumer(List<FieldMetaInfo> orderByColumnInfoList, int maxLine,
                                   String filePath, byte[] separator) {
@@ -74,6 +73,7 @@ public abstract class MergeExportConsumer {
         this.maxLine = maxLine;
         this.filePath = filePath;
         this.separator = separator;
+        this.sortKeyEncoder = new SortKeyEncoder(orderByColumnInfoList);
 
         this.outputStream = new ByteArrayOutputStream();
         this.fileWriter = new NioFileWriter(filePath + curFileSeq);
@@ -21,6 +21,10 @@ import java.io.Serializable;
 public class OrderByExportEvent implements Serializable {
     private int queueIndex;
     private byte[][] data;
+    /**
+     * 排序字段编码后的排序键
+     */
+    private byte[] sortKey;
 
     public OrderByExportEvent(int queueIndex, byte[][] data) {
         this.queueIndex = queueIndex;
@@ -42,6 +46,14 @@ public class OrderByExportEvent implements Serializable {
         return data;
     }
 
+    public byte[] getSortKey() {
+        return sortKey;
+    }
+
+    public void setSortKey(byte[] sortKey) {
+        this.sortKey = sortKey;
+    }
+
     public int getQueueIndex() {
         return queueIndex;
     }
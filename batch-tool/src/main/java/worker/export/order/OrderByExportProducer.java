@@ -71,6 +71,7 @@ public class OrderByExportProducer implements Runnable {
             orderByColumnName, whereCondition, isAscending);
         // 字段数
         int colNum;
+        boolean[] binaryEncodeColumns = ExportUtil.getBinaryEncodeColumns(tableFieldMetaInfo.getFieldMetaInfoList());
         OrderByExportEvent exportEvent;
         long startTime = System.currentTimeMillis();
         try {
@@ -79,7 +80,8 @@ public class OrderByExportProducer implements Runnable {
             resultSet = stmt.executeQuery(sql);
             colNum = resultSet.getMetaData().getColumnCount();
             while (resultSet.next()) {
-                byte[][] data = LocalOrderByExportProducer.getRowBytes(resultSet, colNum);
+                byte[][] data = LocalOrderByExportProducer.getRowBytes(resultSet, colNum,
+                    binaryEncodeColumns);
                 exportEvent = new OrderByExportEvent(queueIndex,
                     data);
                 orderByExportEventQueue.put(exportEvent);
@@ -17,9 +17,9 @@
 package worker.export.order;
 
 import model.db.FieldMetaInfo;
-import worker.util.ExportUtil;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.PriorityQueue;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -46,12 +46,8 @@ public class OrderByMergeExportConsumer extends MergeExportConsumer {
         this.orderedQueues = orderedQueues;
         this.finishedList = finishedList;
 
-        comparator = ExportUtil.getCombinedComparator(orderByColumnInfoList);
-
-        if (!isAscending) {
-            comparator = comparator.reversed();
-        }
-        priorityQueue = new PriorityQueue<>(orderedQueues.length, comparator);
+        priorityQueue = new PriorityQueue<>(orderedQueues.length,
+            (o1, o2) -> Arrays.compareUnsigned(o1.getSortKey(), o2.getSortKey()));
     }
 
     public void consume() throws InterruptedException {
@@ -66,6 +62,7 @@ public class OrderByMergeExportConsumer extends MergeExportConsumer {
                     // 说明该分片没有数据
                     continue;
                 }
+                orderByExportEvent.setSortKey(sortKeyEncoder.encode(orderByExportEvent.getData()));
                 priorityQueue.offer(orderByExportEvent);
             }
         }
@@ -98,6 +95,7 @@ public class OrderByMergeExportConsumer extends MergeExportConsumer {
                     // 可能队列已经空了 但未发送完成的标志没来得及设置
                     continue;
                 }
+                orderByExportEvent.setSortKey(sortKeyEncoder.encode(orderByExportEvent.getData()));
                 priorityQueue.offer(orderByExportEvent);
             } else {
                 // 该分片已经写入完毕
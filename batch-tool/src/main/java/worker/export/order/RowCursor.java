@@ -14,25 +14,25 @@
  * limitations under the License.
  */
 
-package worker.export.order;
-
-import java.io.Serializable;
 
-public class ParallelOrderByExportEvent implements Serializable {
-    private byte[][] data;
+package worker.export.order;
 
-    public ParallelOrderByExportEvent(byte[][] data) {
-        this.data = data;
-    }
+import java.io.IOException;
 
-    public ParallelOrderByExportEvent() {
-    }
+/**
+ * 有序行数据的游标
+ */
+public interface RowCursor {
 
-    public void setData(byte[][] data) {
-        this.data = data;
-    }
+    /**
+     * @return 下一行数据，读取完毕时返回 null
+     */
+    byte[][] next() throws IOException, InterruptedException;
 
-    public byte[][] getData() {
-        return data;
+    /**
+     * @return 上一次 next 返回行的排序键，未知时返回 null
+     */
+    default byte[] currentKey() {
+        return null;
     }
 }
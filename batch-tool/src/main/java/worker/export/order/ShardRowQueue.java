@@ -0,0 +1,100 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package worker.export.order;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个分片的有界有序行队列
+ * 生产者写满后阻塞，以此限制归并时的内存占用
+ */
+@ThreadSafe
+public class ShardRowQueue implements RowCursor {
+
+    private static final byte[][] END = new byte[0][];
+    private static final long OFFER_WAIT_MILLIS = 100;
+
+    private final String name;
+    private final BlockingQueue<byte[][]> queue;
+    private volatile Throwable error = null;
+    private volatile boolean closed = false;
+    private boolean reachEnd = false;
+
+    public ShardRowQueue(String name, int capacity) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * 生产者写入一行
+     *
+     * @return 消费端已关闭时返回 false，生产者应停止读取
+     */
+    public boolean put(byte[][] row) throws InterruptedException {
+        while (!closed) {
+            if (queue.offer(row, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 生产者正常结束
+     */
+    public void finish() throws InterruptedException {
+        put(END);
+    }
+
+    /**
+     * 生产者异常结束
+     * 清空未消费的行，保证结束标记能放入队列，消费端不会一直阻塞
+     */
+    public void fail(Throwable t) {
+        this.error = t;
+        queue.clear();
+        queue.offer(END);
+    }
+
+    /**
+     * 消费端关闭，唤醒阻塞的生产者
+     */
+    public void close() {
+        this.closed = true;
+        queue.clear();
+    }
+
+    @Override
+    public byte[][] next() throws InterruptedException {
+        if (reachEnd) {
+            return null;
+        }
+        byte[][] row = queue.take();
+        if (row == END) {
+            reachEnd = true;
+            if (error != null) {
+                throw new IllegalStateException(name + " 读取数据失败: " + error.getMessage(), error);
+            }
+            return null;
+        }
+        return row;
+    }
+}
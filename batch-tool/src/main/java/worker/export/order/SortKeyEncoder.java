@@ -0,0 +1,212 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package worker.export.order;
+
+import model.config.GlobalVar;
+import model.db.FieldMetaInfo;
+import org.apache.commons.lang.StringUtils;
+import util.FileUtil;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 将一行的排序字段编码为可按无符号字节序直接比较的排序键
+ * 每行只编码一次，归并时使用 {@link Arrays#compareUnsigned(byte[], byte[])}
+ */
+@NotThreadSafe
+public class SortKeyEncoder {
+
+    private static final byte NULL_FLAG = 0x00;
+    private static final byte NOT_NULL_FLAG = 0x01;
+
+    private static final byte NEGATIVE = 0x01;
+    private static final byte ZERO = 0x02;
+    private static final byte POSITIVE = 0x03;
+
+    /**
+     * 变长字段中的 0x00 转义为 0x00 0xFF，字段以 0x00 0x01 结尾
+     */
+    private static final byte ESCAPE = 0x00;
+    private static final byte ESCAPED_ZERO = (byte) 0xFF;
+    private static final byte TERMINATOR = 0x01;
+
+    private final List<FieldMetaInfo> orderByColumnInfoList;
+    /**
+     * 与排序字段一一对应，二进制排序规则时为 null
+     */
+    private final Collator[] collators;
+    private final ByteArrayOutputStream keyBuffer = new ByteArrayOutputStream(64);
+    private final ByteArrayOutputStream numberBuffer = new ByteArrayOutputStream(32);
+
+    public SortKeyEncoder(List<FieldMetaInfo> orderByColumnInfoList) {
+        this.orderByColumnInfoList = orderByColumnInfoList;
+        this.collators = new Collator[orderByColumnInfoList.size()];
+        for (int i = 0; i < collators.length; i++) {
+            FieldMetaInfo fieldMetaInfo = orderByColumnInfoList.get(i);
+            if (fieldMetaInfo.getType() == FieldMetaInfo.Type.STRING
+                || fieldMetaInfo.getType() == FieldMetaInfo.Type.OTHER) {
+                collators[i] = getCollator(fieldMetaInfo.getCollation());
+            }
+        }
+    }
+
+    public byte[] encode(byte[][] row) {
+        keyBuffer.reset();
+        for (int i = 0; i < collators.length; i++) {
+            FieldMetaInfo fieldMetaInfo = orderByColumnInfoList.get(i);
+            byte[] value = row[fieldMetaInfo.getIndex()];
+            // NULL值默认最小
+            if (Arrays.equals(value, FileUtil.NULL_ESC_BYTE)) {
+                keyBuffer.write(NULL_FLAG);
+                continue;
+            }
+            keyBuffer.write(NOT_NULL_FLAG);
+            switch (fieldMetaInfo.getType()) {
+            case INT:
+            case FLOAT:
+                writeNumber(new BigDecimal(new String(value)));
+                break;
+            case DATE:
+            case DATETIME:
+                if (isTimeValue(value)) {
+                    writeNumber(parseTimeInSeconds(new String(value)));
+                } else {
+                    // 日期与时间戳的文本格式定长，字节序即时间顺序
+                    writeEscaped(value);
+                }
+                break;
+            case STRING:
+            case OTHER:
+                if (collators[i] != null) {
+                    writeEscaped(collators[i].getCollationKey(new String(value)).toByteArray());
+                } else {
+                    writeEscaped(value);
+                }
+                break;
+            case BINARY:
+                // Base64 编码不保序，需还原为原始字节后比较
+                if (fieldMetaInfo.needBinaryEncode()) {
+                    writeEscaped(GlobalVar.BINARY_ENCODE_MODE.decode(value));
+                } else {
+                    writeEscaped(value);
+                }
+                break;
+            default:
+                writeEscaped(value);
+                break;
+            }
+        }
+        return keyBuffer.toByteArray();
+    }
+
+    /**
+     * 根据 MySQL 排序规则选择比较方式
+     * 大小写不敏感的排序规则近似为 ROOT 语言环境的 Collator，其余按字节比较
+     */
+    static Collator getCollator(String collation) {
+        if (StringUtils.isEmpty(collation)) {
+            return null;
+        }
+        collation = collation.toLowerCase();
+        if (!collation.endsWith("_ci")) {
+            return null;
+        }
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(collation.contains("_as_") ? Collator.SECONDARY : Collator.PRIMARY);
+        return collator;
+    }
+
+    /**
+     * 十进制数编码为：符号 + 指数 + 有效数字，负数对指数与有效数字按位取反
+     */
+    private void writeNumber(BigDecimal number) {
+        int sign = number.signum();
+        if (sign == 0) {
+            keyBuffer.write(ZERO);
+            return;
+        }
+        keyBuffer.write(sign > 0 ? POSITIVE : NEGATIVE);
+        number = number.stripTrailingZeros();
+        String digits = number.unscaledValue().abs().toString();
+        // 数值表示为 0.d1d2d3... * 10^exponent
+        int exponent = digits.length() - number.scale();
+
+        numberBuffer.reset();
+        int flipped = exponent ^ Integer.MIN_VALUE;
+        numberBuffer.write(flipped >>> 24);
+        numberBuffer.write(flipped >>> 16);
+        numberBuffer.write(flipped >>> 8);
+        numberBuffer.write(flipped);
+        for (int i = 0; i < digits.length(); i++) {
+            numberBuffer.write(digits.charAt(i) - '0' + 1);
+        }
+        numberBuffer.write(0);
+        byte[] encoded = numberBuffer.toByteArray();
+        if (sign < 0) {
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = (byte) ~encoded[i];
+            }
+        }
+        keyBuffer.write(encoded, 0, encoded.length);
+    }
+
+    private void writeEscaped(byte[] value) {
+        for (byte b : value) {
+            keyBuffer.write(b);
+            if (b == ESCAPE) {
+                keyBuffer.write(ESCAPED_ZERO);
+            }
+        }
+        keyBuffer.write(ESCAPE);
+        keyBuffer.write(TERMINATOR);
+    }
+
+    /**
+     * time 类型可能为负数或超过两位小时数，如 -838:59:59
+     */
+    private static boolean isTimeValue(byte[] value) {
+        for (byte b : value) {
+            if (b == ':') {
+                return true;
+            }
+            if (b == '-' && value[0] != '-') {
+                return false;
+            }
+            if (b == ' ') {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static BigDecimal parseTimeInSeconds(String value) {
+        boolean negative = value.startsWith("-");
+        String[] parts = StringUtils.split(negative ? value.substring(1) : value, ':');
+        BigDecimal seconds = BigDecimal.ZERO;
+        for (String part : parts) {
+            seconds = seconds.multiply(BigDecimal.valueOf(60)).add(new BigDecimal(part));
+        }
+        return negative ? seconds.negate() : seconds;
+    }
+}
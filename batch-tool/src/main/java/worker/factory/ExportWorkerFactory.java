@@ -110,5 +110,7 @@ public class ExportWorkerFactory {
         worker.setWhereCondition(config.getWhereCondition());
         worker.putDataMaskerMap(config.getColumnMaskerConfigMap());
         worker.setWithLastSep(config.isWithLastSep());
+        worker.setMmapWindowSize(config.getMmapWindowInMb() * 1024L * 1024);
+        worker.setAsyncWrite(config.isAsyncWrite());
     }
 }
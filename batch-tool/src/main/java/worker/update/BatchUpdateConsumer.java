@@ -0,0 +1,102 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package worker.update;
+
+import model.db.FieldMetaInfo;
+import model.db.PrimaryKey;
+import worker.common.BaseDefaultConsumer;
+import worker.util.DeleteUtil;
+import worker.util.UpdateUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 一批数据合并为一条 update 语句
+ * 各字段的新值按主键通过 CASE WHEN 选出，主键通过 where in 来设置
+ * 保留 where 条件的语义，同一批次中主键重复时以最后一行为准
+ */
+public class BatchUpdateConsumer extends BaseDefaultConsumer {
+
+    private List<PrimaryKey> pkList;
+    private String[] pkValues;
+    private List<FieldMetaInfo> fieldMetaInfoList;
+    private Set<Integer> pkIndexSet;
+    /**
+     * 非主键字段
+     */
+    private List<FieldMetaInfo> updateFields;
+    private List<String> updateColumns;
+    /**
+     * 当前批次各行的主键值与各字段的新值
+     */
+    private final List<String> pkTuples = new ArrayList<>();
+    private final List<String[]> updatedValues = new ArrayList<>();
+    private final StringBuilder pkTupleBuilder = new StringBuilder();
+
+    @Override
+    protected void initLocalVars() {
+        super.initLocalVars();
+
+        this.pkList = consumerContext.getTablePkList(tableName);
+        this.pkValues = new String[pkList.size()];
+        this.fieldMetaInfoList = consumerContext.getTableFieldMetaInfo(tableName).getFieldMetaInfoList();
+        this.pkIndexSet = consumerContext.getTablePkIndexSet(tableName);
+        if (updateFields == null) {
+            this.updateFields = new ArrayList<>();
+            this.updateColumns = new ArrayList<>();
+            for (FieldMetaInfo fieldMetaInfo : fieldMetaInfoList) {
+                if (!pkIndexSet.contains(fieldMetaInfo.getIndex())) {
+                    updateFields.add(fieldMetaInfo);
+                    updateColumns.add(fieldMetaInfo.getName());
+                }
+            }
+        }
+        pkTuples.clear();
+        updatedValues.clear();
+    }
+
+    @Override
+    protected void fillLocalBuffer(StringBuilder stringBuilder, List<String> values) {
+        for (int i = 0; i < pkList.size(); i++) {
+            pkValues[i] = values.get(pkList.get(i).getOrdinalPosition() - 1);
+        }
+        pkTupleBuilder.setLength(0);
+        pkTupleBuilder.append("(");
+        DeleteUtil.appendPkValuesByFieldMetaInfo(pkTupleBuilder, fieldMetaInfoList,
+            pkList, pkValues);
+        pkTupleBuilder.append(")");
+
+        String[] rowValues = new String[updateFields.size()];
+        for (int i = 0; i < rowValues.length; i++) {
+            FieldMetaInfo fieldMetaInfo = updateFields.get(i);
+            rowValues[i] = UpdateUtil.getUpdatedValue(fieldMetaInfo, values.get(fieldMetaInfo.getIndex()));
+        }
+        pkTuples.add(pkTupleBuilder.toString());
+        updatedValues.add(rowValues);
+        stringBuilder.append(pkTupleBuilder).append(",");
+    }
+
+    @Override
+    protected String getSql(StringBuilder data) {
+        // 主键去重后再生成 in 列表，data 仅用于判断批次非空
+        return UpdateUtil.getBatchUpdateSql(tableName, consumerContext.getTablePkName(tableName),
+            updateColumns, pkTuples, updatedValues, consumerContext.getWhereCondition());
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package worker.update;
+
+import com.alibaba.druid.util.JdbcUtils;
+import com.alibaba.druid.util.StringUtils;
+import com.lmax.disruptor.LifecycleAware;
+import model.db.FieldMetaInfo;
+import model.db.PrimaryKey;
+import model.stat.SqlStat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.CountStat;
+import util.FileUtil;
+import worker.common.BaseWorkHandler;
+import worker.common.BatchLineEvent;
+import worker.util.UpdateUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static model.config.ConfigConstant.END_OF_BATCH_LINES;
+
+/**
+ * 使用预编译语句更新，支持联合主键
+ * 每个消费者从开启服务端预编译的独立连接池中持有一个连接并只预编译一次，每批数据 addBatch 后一次 executeBatch
+ * 连接关闭后或执行失败时重新获取连接并预编译
+ */
+public class PreparedUpdateConsumer extends BaseWorkHandler implements LifecycleAware {
+    private static final Logger logger = LoggerFactory.getLogger(PreparedUpdateConsumer.class);
+
+    private final SqlStat sqlStat = new SqlStat();
+    private int estimateFieldCount = 16;
+    private int maxRetry = 0;
+
+    private List<PrimaryKey> pkList;
+    private List<FieldMetaInfo> fieldMetaInfoList;
+    private List<FieldMetaInfo> updateFieldList;
+    private String updateSql;
+
+    private Connection conn;
+    private PreparedStatement stmt;
+
+    @Override
+    protected void initLocalVars() {
+        super.initLocalVars();
+        this.maxRetry = consumerContext.getMaxRetry();
+        if (updateSql != null) {
+            return;
+        }
+        this.pkList = consumerContext.getTablePkList(tableName);
+        this.fieldMetaInfoList = consumerContext.getTableFieldMetaInfo(tableName).getFieldMetaInfoList();
+        this.estimateFieldCount = fieldMetaInfoList.size();
+        this.updateFieldList = UpdateUtil.getPreparedUpdateFields(fieldMetaInfoList,
+            consumerContext.getTablePkIndexSet(tableName));
+        this.updateSql = UpdateUtil.getPreparedUpdateSql(tableName, updateFieldList,
+            pkList, consumerContext.getWhereCondition());
+    }
+
+    @Override
+    public void onProxyEvent(BatchLineEvent event) {
+        if (consumerContext.getException() != null) {
+            // fail fast on exception
+            consumerContext.getEmittedDataCounter().getAndDecrement();
+            if (consumerContext.isUseBlock()) {
+                consumerContext.getEventCounter().get(event.getLocalProcessingFileIndex()).
+                    get(event.getLocalProcessingBlockIndex()).getAndDecrement();
+            }
+            return;
+        }
+        try {
+            initLocalVars();
+            String[] lines = event.getBatchLines();
+            List<List<String>> rows = new ArrayList<>(lines.length);
+            for (String line : lines) {
+                if (StringUtils.isEmpty(line)) {
+                    continue;
+                }
+                if (line == END_OF_BATCH_LINES) {
+                    break;
+                }
+                rows.add(FileUtil.splitWithEstimateCount(line, sep,
+                    consumerContext.isWithLastSep(), estimateFieldCount, hasEscapedQuote));
+            }
+
+            if (!rows.isEmpty()) {
+                execBatch(rows);
+                CountStat.addDbRowCount(rows.size());
+            }
+        } catch (Exception e) {
+            consumerContext.setException(e);
+            logger.error("Failed in table [{}], due to {}", tableName, e.getMessage());
+            if (e.getStackTrace().length > 0) {
+                logger.error("{}", e.getStackTrace()[0]);
+            }
+            // 认为无法恢复
+            throw new RuntimeException(e);
+        } finally {
+            consumerContext.getEmittedDataCounter().getAndDecrement();
+            if (consumerContext.isUseBlock()) {
+                consumerContext.getEventCounter().get(event.getLocalProcessingFileIndex()).
+                    get(event.getLocalProcessingBlockIndex()).getAndDecrement();
+            }
+        }
+    }
+
+    private void execBatch(List<List<String>> rows) throws SQLException {
+        for (int i = 0; i <= maxRetry; i++) {
+            try {
+                PreparedStatement stmt = getStatement();
+                for (List<String> values : rows) {
+                    bindRow(stmt, values);
+                    stmt.addBatch();
+                }
+                long startTime = System.nanoTime();
+                stmt.executeBatch();
+                sqlStat.addTimeNs(System.nanoTime() - startTime);
+                return;
+            } catch (SQLException e) {
+                logger.error("Error executing batch update (retry count: {}): {}",
+                    i, e.getMessage());
+                // 连接可能已失效，重试时重新获取
+                closeStatement();
+                if (i >= maxRetry) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private PreparedStatement getStatement() throws SQLException {
+        if (stmt == null) {
+            conn = consumerContext.getServerPrepareDataSource().getConnection();
+            stmt = conn.prepareStatement(updateSql);
+        }
+        return stmt;
+    }
+
+    private void bindRow(PreparedStatement stmt, List<String> values) throws SQLException {
+        int paramIndex = 1;
+        for (FieldMetaInfo fieldMetaInfo : updateFieldList) {
+            UpdateUtil.bindUpdatedValue(stmt, paramIndex++, fieldMetaInfo,
+                values.get(fieldMetaInfo.getIndex()));
+        }
+        for (PrimaryKey pk : pkList) {
+            int pkIndex = pk.getOrdinalPosition() - 1;
+            UpdateUtil.bindValue(stmt, paramIndex++, fieldMetaInfoList.get(pkIndex), values.get(pkIndex));
+        }
+    }
+
+    private void closeStatement() {
+        JdbcUtils.close(stmt);
+        JdbcUtils.close(conn);
+        stmt = null;
+        conn = null;
+    }
+
+    @Override
+    public void onStart() {
+    }
+
+    @Override
+    public void onShutdown() {
+        closeStatement();
+    }
+
+    public SqlStat getSqlStat() {
+        return sqlStat;
+    }
+}
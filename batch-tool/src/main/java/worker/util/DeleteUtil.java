@@ -18,10 +18,12 @@ package worker.util;
 
 import model.db.FieldMetaInfo;
 import model.db.PrimaryKey;
+import model.db.TableTopology;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
 import util.DbUtil;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static worker.util.PolarxHint.DIRECT_NODE_HINT;
@@ -157,6 +159,82 @@ public class DeleteUtil {
         }
     }
 
+    /**
+     * 本段删除范围的上界：上次删除位置之后的第 chunkSize 行主键
+     * [hint] SELECT pk FROM t WHERE (where) AND ((pk) > (?)) ORDER BY pk LIMIT chunkSize-1,1
+     */
+    public static String getRangeUpperKeySql(TableTopology topology, List<FieldMetaInfo> pkFieldMetaInfoList,
+                                             String where, boolean hasLowerKey, int chunkSize) {
+        String pkColumnStr = formatPkColumns(pkFieldMetaInfoList);
+        String lowerCondition = hasLowerKey ? formatRangeCondition(pkColumnStr, pkFieldMetaInfoList, ">")
+            : null;
+        StringBuilder sqlBuilder = new StringBuilder(128);
+        appendNodeHint(sqlBuilder, topology);
+        sqlBuilder.append("SELECT ").append(pkColumnStr)
+            .append(" FROM ").append(DbUtil.surroundWithBacktick(topology.getTableName()));
+        appendWhere(sqlBuilder, ExportUtil.combineWhereCondition(where, lowerCondition));
+        sqlBuilder.append(" ORDER BY ").append(pkColumnStr)
+            .append(" LIMIT ").append(chunkSize - 1).append(",1");
+        return sqlBuilder.toString();
+    }
+
+    /**
+     * 删除主键范围 (lowerKey, upperKey] 内满足条件的数据
+     * [hint] DELETE FROM t WHERE (where) AND ((pk) > (?) AND (pk) <= (?))
+     */
+    public static String getRangeDeleteSql(TableTopology topology, List<FieldMetaInfo> pkFieldMetaInfoList,
+                                           String where, boolean hasLowerKey, boolean hasUpperKey) {
+        String pkColumnStr = formatPkColumns(pkFieldMetaInfoList);
+        List<String> rangeConditions = new ArrayList<>(2);
+        if (hasLowerKey) {
+            rangeConditions.add(formatRangeCondition(pkColumnStr, pkFieldMetaInfoList, ">"));
+        }
+        if (hasUpperKey) {
+            rangeConditions.add(formatRangeCondition(pkColumnStr, pkFieldMetaInfoList, "<="));
+        }
+        StringBuilder sqlBuilder = new StringBuilder(128);
+        appendNodeHint(sqlBuilder, topology);
+        sqlBuilder.append("DELETE FROM ").append(DbUtil.surroundWithBacktick(topology.getTableName()));
+        appendWhere(sqlBuilder, ExportUtil.combineWhereCondition(where,
+            StringUtils.join(rangeConditions, " AND ")));
+        return sqlBuilder.toString();
+    }
+
+    private static String formatPkColumns(List<FieldMetaInfo> pkFieldMetaInfoList) {
+        String[] pkColumns = new String[pkFieldMetaInfoList.size()];
+        for (int i = 0; i < pkColumns.length; i++) {
+            pkColumns[i] = DbUtil.surroundWithBacktick(pkFieldMetaInfoList.get(i).getName());
+        }
+        return StringUtils.join(pkColumns, ",");
+    }
+
+    /**
+     * 联合主键按主键索引的顺序逐行比较 (pk1,pk2) > (?,?)
+     */
+    private static String formatRangeCondition(String pkColumnStr, List<FieldMetaInfo> pkFieldMetaInfoList,
+                                               String operator) {
+        String[] placeholders = new String[pkFieldMetaInfoList.size()];
+        for (int i = 0; i < placeholders.length; i++) {
+            placeholders[i] = DbUtil.getPkPlaceholder(pkFieldMetaInfoList.get(i));
+        }
+        if (placeholders.length == 1) {
+            return pkColumnStr + " " + operator + " " + placeholders[0];
+        }
+        return String.format("(%s) %s (%s)", pkColumnStr, operator, StringUtils.join(placeholders, ","));
+    }
+
+    private static void appendNodeHint(StringBuilder sqlBuilder, TableTopology topology) {
+        if (topology.hasGroup()) {
+            sqlBuilder.append(String.format(DIRECT_NODE_HINT, topology.getGroupName()));
+        }
+    }
+
+    private static void appendWhere(StringBuilder sqlBuilder, String where) {
+        if (StringUtils.isNotEmpty(where)) {
+            sqlBuilder.append(" WHERE ").append(where);
+        }
+    }
+
     public static String getDeleteUsingIn(String tableName, String pkNames, String inPkValues) {
         String deleteSqlPattern = "delete from %s where (%s) in (%s)";
         return String.format(deleteSqlPattern, tableName, pkNames, inPkValues);
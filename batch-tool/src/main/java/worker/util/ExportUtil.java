@@ -17,16 +17,13 @@
 package worker.util;
 
 import model.config.CompressMode;
-import model.config.GlobalVar;
 import model.db.FieldMetaInfo;
 import model.db.TableTopology;
 import org.apache.commons.lang.StringUtils;
 import util.DbUtil;
-import util.FileUtil;
-import worker.export.order.OrderByExportEvent;
-import worker.export.order.ParallelOrderByExportEvent;
 
-import java.util.Comparator;
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.List;
 
 import static model.config.ConfigConstant.ORDER_BY_TYPE_ASC;
@@ -52,6 +49,97 @@ public class ExportUtil {
             topology.getTableName(), whereCondition);
     }
 
+    /**
+     * 将整型主键的 [min, max] 区间均分为若干段
+     * 首尾两段为开区间，以覆盖导出过程中新写入的数据
+     *
+     * @return 每一段对应的 where 条件
+     */
+    public static List<String> getPkRangeConditions(String pkName, BigInteger min, BigInteger max,
+                                                    int splitNum) {
+        List<String> conditions = new ArrayList<>(splitNum);
+        BigInteger total = max.subtract(min).add(BigInteger.ONE);
+        if (splitNum <= 1 || total.compareTo(BigInteger.valueOf(splitNum)) < 0) {
+            conditions.add(null);
+            return conditions;
+        }
+        String column = DbUtil.surroundWithBacktick(pkName);
+        BigInteger[] divAndRem = total.divideAndRemainder(BigInteger.valueOf(splitNum));
+        BigInteger step = divAndRem[1].signum() == 0 ? divAndRem[0] : divAndRem[0].add(BigInteger.ONE);
+        BigInteger lower = null;
+        BigInteger upper = min.add(step);
+        for (int i = 0; i < splitNum; i++) {
+            if (lower == null) {
+                conditions.add(String.format("%s < %s", column, upper));
+            } else if (i == splitNum - 1 || upper.compareTo(max) > 0) {
+                conditions.add(String.format("%s >= %s", column, lower));
+                break;
+            } else {
+                conditions.add(String.format("%s >= %s AND %s < %s", column, lower, column, upper));
+            }
+            lower = upper;
+            upper = upper.add(step);
+        }
+        return conditions;
+    }
+
+    /**
+     * 按主键分页查询
+     * 主键字段附加在查询字段之后，用于记录每页最后一行的主键值
+     *
+     * @param hasLastKey 是否需要绑定上一页最后一行的主键值
+     */
+    public static String getKeysetPageSql(TableTopology topology,
+                                          List<FieldMetaInfo> fieldMetaInfoList,
+                                          List<FieldMetaInfo> pkFieldMetaInfoList,
+                                          String whereCondition,
+                                          boolean hasLastKey, int pageSize) {
+        List<String> pkColumns = new ArrayList<>(pkFieldMetaInfoList.size());
+        List<String> placeholders = new ArrayList<>(pkFieldMetaInfoList.size());
+        for (FieldMetaInfo pkFieldMetaInfo : pkFieldMetaInfoList) {
+            pkColumns.add(DbUtil.surroundWithBacktick(pkFieldMetaInfo.getName()));
+            placeholders.add(DbUtil.getPkPlaceholder(pkFieldMetaInfo));
+        }
+        String pkColumnStr = StringUtils.join(pkColumns, ",");
+
+        String keysetCondition = null;
+        if (hasLastKey) {
+            if (pkColumns.size() == 1) {
+                keysetCondition = pkColumnStr + " > " + placeholders.get(0);
+            } else {
+                keysetCondition = String.format("(%s) > (%s)", pkColumnStr, StringUtils.join(placeholders, ","));
+            }
+        }
+        String where = combineWhereCondition(whereCondition, keysetCondition);
+
+        StringBuilder sqlBuilder = new StringBuilder(128);
+        if (topology.hasGroup()) {
+            sqlBuilder.append(String.format(DIRECT_NODE_HINT, topology.getGroupName()));
+        }
+        sqlBuilder.append("select ").append(formatFieldWithDateType(fieldMetaInfoList))
+            .append(',').append(pkColumnStr)
+            .append(" from ").append(topology.getTableName());
+        if (StringUtils.isNotEmpty(where)) {
+            sqlBuilder.append(" where ").append(where);
+        }
+        sqlBuilder.append(" order by ").append(pkColumnStr)
+            .append(" limit ").append(pageSize);
+        return sqlBuilder.toString();
+    }
+
+    /**
+     * 合并用户指定的 where 条件与额外条件
+     */
+    public static String combineWhereCondition(String whereCondition, String extraCondition) {
+        if (StringUtils.isEmpty(extraCondition)) {
+            return whereCondition;
+        }
+        if (StringUtils.isEmpty(whereCondition)) {
+            return extraCondition;
+        }
+        return String.format("(%s) AND (%s)", whereCondition, extraCondition);
+    }
+
     private static String getDirectSql(TableTopology topology,
                                        List<FieldMetaInfo> fieldMetaInfoList) {
         if (topology.hasGroup()) {
@@ -88,11 +176,12 @@ public class ExportUtil {
     private static String getExportFieldName(FieldMetaInfo fieldMetaInfo) {
         String fieldName = fieldMetaInfo.getName();
         fieldName = DbUtil.surroundWithBacktick(fieldName);
+        if (fieldMetaInfo.getExpression() != null) {
+            return String.format("%s AS %s", fieldMetaInfo.getExpression(), fieldName);
+        }
         switch (fieldMetaInfo.getType()) {
         case BINARY:
-            if (GlobalVar.BINARY_AS_HEX) {
-                fieldName = String.format("hex(%s)", fieldName);
-            }
+            // 按原始字节读取，由客户端编码，避免 hex() 使传输的数据量翻倍
             break;
         case DATETIME:
              /*
@@ -184,85 +273,17 @@ public class ExportUtil {
             tableName, columnNames);
     }
 
-    public static Comparator<OrderByExportEvent> getCombinedComparator(List<FieldMetaInfo> orderByColumnInfoList) {
-        Comparator<OrderByExportEvent> comparator = (o1, o2) -> {
-            String val1, val2;
-            int res;
-            for (FieldMetaInfo fieldMetaInfo : orderByColumnInfoList) {
-                val1 = new String(o1.getData()[fieldMetaInfo.getIndex()]);
-                val2 = new String(o2.getData()[fieldMetaInfo.getIndex()]);
-                // NULL值先默认最小
-                if (val1.equals(FileUtil.NULL_ESC_STR)) {
-                    if (val2.equals(FileUtil.NULL_ESC_STR)) {
-                        return 0;
-                    } else {
-                        return -1;
-                    }
-                }
-                if (val2.equals(FileUtil.NULL_ESC_STR)) {
-                    return 1;
-                }
-                switch (fieldMetaInfo.getType()) {
-                case STRING:
-                case OTHER:
-                default:
-                    res = val1.compareTo(val2);
-                    break;
-                case INT:
-                    res = Integer.compare(Integer.parseInt(val1), Integer.parseInt(val2));
-                    break;
-                case FLOAT:
-                    res = Double.compare(Double.parseDouble(val1), Double.parseDouble(val2));
-                    break;
-                }
-                if (res != 0) {
-                    return res;
-                }
-            }
-            return 0;
-        };
-        return comparator;
-    }
-
-    public static Comparator<ParallelOrderByExportEvent> getCombinedParallelOrderComparator(
-        List<FieldMetaInfo> orderByColumnInfoList) {
-        Comparator<ParallelOrderByExportEvent> comparator = (o1, o2) -> {
-            String val1, val2;
-            int res;
-            for (FieldMetaInfo fieldMetaInfo : orderByColumnInfoList) {
-                val1 = new String(o1.getData()[fieldMetaInfo.getIndex()]);
-                val2 = new String(o2.getData()[fieldMetaInfo.getIndex()]);
-                // NULL值先默认最小
-                if (val1.equals(FileUtil.NULL_ESC_STR)) {
-                    if (val2.equals(FileUtil.NULL_ESC_STR)) {
-                        return 0;
-                    } else {
-                        return -1;
-                    }
-                }
-                if (val2.equals(FileUtil.NULL_ESC_STR)) {
-                    return 1;
-                }
-                switch (fieldMetaInfo.getType()) {
-                case STRING:
-                case OTHER:
-                default:
-                    res = val1.compareTo(val2);
-                    break;
-                case INT:
-                    res = Integer.compare(Integer.parseInt(val1), Integer.parseInt(val2));
-                    break;
-                case FLOAT:
-                    res = Double.compare(Double.parseDouble(val1), Double.parseDouble(val2));
-                    break;
-                }
-                if (res != 0) {
-                    return res;
-                }
-            }
-            return 0;
-        };
-        return comparator;
+    /**
+     * @return 需要在客户端编码的二进制字段，没有时返回 null
+     */
+    public static boolean[] getBinaryEncodeColumns(List<FieldMetaInfo> fieldMetaInfoList) {
+        boolean[] binaryEncodeColumns = new boolean[fieldMetaInfoList.size()];
+        boolean hasBinary = false;
+        for (int i = 0; i < binaryEncodeColumns.length; i++) {
+            binaryEncodeColumns[i] = fieldMetaInfoList.get(i).needBinaryEncode();
+            hasBinary |= binaryEncodeColumns[i];
+        }
+        return hasBinary ? binaryEncodeColumns : null;
     }
 
     public static String getFilename(String filename, CompressMode compressMode) {
@@ -80,10 +80,16 @@ public class ImportUtil {
             sqlStringBuilder.append(rawValue);
             return;
         }
-        if (GlobalVar.BINARY_AS_HEX) {
+        switch (GlobalVar.BINARY_ENCODE_MODE) {
+        case HEX:
             sqlStringBuilder.append("unhex('").append(rawValue).append("')");
-        } else {
+            break;
+        case BASE64:
+            sqlStringBuilder.append("from_base64('").append(rawValue).append("')");
+            break;
+        default:
             sqlStringBuilder.append(rawValue);
+            break;
         }
     }
 
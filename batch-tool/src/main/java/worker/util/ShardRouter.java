@@ -0,0 +1,157 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package worker.util;
+
+import model.db.FieldMetaInfo;
+import model.db.PartitionRule;
+import org.apache.commons.lang.StringUtils;
+import util.FileUtil;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按分库分表规则计算一行数据所在的物理分表
+ * 返回值为 SHOW TOPOLOGY 结果中的下标
+ * 仅支持 hash 拆分的整型和字符型拆分键
+ * 路由算法需先通过 {@link #verify} 与服务端的实际分布校验一致后才能使用
+ */
+public class ShardRouter {
+
+    private static final String HASH_POLICY = "hash";
+
+    private final FieldMetaInfo dbKey;
+    private final int dbCount;
+    private final FieldMetaInfo tbKey;
+    private final int tbCount;
+    /**
+     * 分库键与分表键相同时按总分表数取模
+     */
+    private final boolean sameKey;
+
+    private ShardRouter(PartitionRule rule) {
+        this.dbKey = rule.getDbPartitionKey();
+        this.dbCount = rule.getDbPartitionCount();
+        this.tbKey = rule.getTbPartitionKey();
+        this.tbCount = tbKey == null ? 1 : rule.getTbPartitionCount();
+        this.sameKey = dbKey != null && tbKey != null && dbKey.getName().equalsIgnoreCase(tbKey.getName());
+    }
+
+    /**
+     * @param topologySize 物理分表总数
+     * @return 规则不支持时返回 null
+     */
+    public static ShardRouter create(PartitionRule rule, int topologySize) {
+        if (rule == null || !isSupportedKey(rule.getDbPartitionKey(), rule.getDbPartitionPolicy())) {
+            return null;
+        }
+        if (rule.getTbPartitionKey() != null
+            && !isSupportedKey(rule.getTbPartitionKey(), rule.getTbPartitionPolicy())) {
+            return null;
+        }
+        ShardRouter router = new ShardRouter(rule);
+        if (router.dbCount <= 0 || router.tbCount <= 0 || router.dbCount * router.tbCount != topologySize) {
+            return null;
+        }
+        return router;
+    }
+
+    private static boolean isSupportedKey(FieldMetaInfo key, String policy) {
+        if (key == null || !HASH_POLICY.equalsIgnoreCase(StringUtils.trim(policy))) {
+            return false;
+        }
+        return key.getType() == FieldMetaInfo.Type.INT || key.getType() == FieldMetaInfo.Type.STRING;
+    }
+
+    /**
+     * @return 路由所需的拆分键，分库键在前
+     */
+    public List<FieldMetaInfo> getKeyFields() {
+        List<FieldMetaInfo> keyFields = new ArrayList<>(2);
+        keyFields.add(dbKey);
+        if (tbKey != null && !sameKey) {
+            keyFields.add(tbKey);
+        }
+        return keyFields;
+    }
+
+    /**
+     * @param values 一行数据的所有字段值
+     * @throws IllegalArgumentException 拆分键为空或无法解析
+     */
+    public int route(List<String> values) {
+        return routeByKeys(values.get(dbKey.getIndex()),
+            tbKey == null || sameKey ? null : values.get(tbKey.getIndex()));
+    }
+
+    /**
+     * 校验路由结果与服务端的实际分布一致
+     *
+     * @param samplesPerShard 按 SHOW TOPOLOGY 的顺序从各物理分表中取出的拆分键取值
+     * 每个取值按 {@link #getKeyFields()} 的顺序排列
+     * @return 没有样本或任一样本不一致时返回 false
+     */
+    public boolean verify(List<List<String[]>> samplesPerShard) {
+        int sampleCount = 0;
+        for (int shardIndex = 0; shardIndex < samplesPerShard.size(); shardIndex++) {
+            for (String[] keyValues : samplesPerShard.get(shardIndex)) {
+                try {
+                    if (routeByKeys(keyValues[0], keyValues.length > 1 ? keyValues[1] : null) != shardIndex) {
+                        return false;
+                    }
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+                sampleCount++;
+            }
+        }
+        return sampleCount > 0;
+    }
+
+    private int routeByKeys(String dbValue, String tbValue) {
+        if (sameKey) {
+            return hashMod(dbKey, dbValue, dbCount * tbCount);
+        }
+        int dbIndex = hashMod(dbKey, dbValue, dbCount);
+        if (tbKey == null) {
+            return dbIndex;
+        }
+        return dbIndex * tbCount + hashMod(tbKey, tbValue, tbCount);
+    }
+
+    static int hashMod(FieldMetaInfo key, String value, int count) {
+        if (value == null || FileUtil.NULL_ESC_STR.equals(value)) {
+            throw new IllegalArgumentException("Null value of partition key " + key.getName());
+        }
+        if (key.getType() == FieldMetaInfo.Type.STRING) {
+            return Math.abs(value.hashCode() % count);
+        }
+        try {
+            return (int) Math.abs(Long.parseLong(value) % count);
+        } catch (NumberFormatException e) {
+            // bigint unsigned 超出 long 范围
+            try {
+                return new BigInteger(value).mod(BigInteger.valueOf(count)).intValue();
+            } catch (NumberFormatException e1) {
+                throw new IllegalArgumentException("Invalid value of partition key " + key.getName()
+                    + ": " + value);
+            }
+        }
+    }
+}
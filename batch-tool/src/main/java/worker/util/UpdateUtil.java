@@ -23,8 +23,15 @@ import org.apache.commons.lang.StringUtils;
 import util.DbUtil;
 import util.FileUtil;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static model.config.ConfigConstant.FLOAT_UPDATE_MULTIPLICAND;
@@ -39,23 +46,108 @@ public class UpdateUtil {
     private static final String BATCH_REPLACE_PATTERN = " REPLACE INTO `%s`(%s) "
         + "VALUES %s;";
 
-    public static String getPreparedUpdateSql(String tableName, TableFieldMetaInfo tableFieldMetaInfo) {
-        String sqlPattern = "UPDATE `%s` SET %s WHERE %s;";
-        String wherePk = tableFieldMetaInfo.getPrimaryKey().getName() + "=?";
-        String update = formatTableFieldWithPlaceholder(tableFieldMetaInfo);
-        return String.format(sqlPattern, tableName, update, wherePk);
+    /**
+     * 支持联合主键
+     * UPDATE `t` SET `c1`=?,`c2`=? WHERE `pk1`=? AND `pk2`=?
+     *
+     * @param updateFieldList 需要更新的字段，见 {@link #getPreparedUpdateFields}
+     */
+    public static String getPreparedUpdateSql(String tableName, List<FieldMetaInfo> updateFieldList,
+                                              List<PrimaryKey> pkList) {
+        String sqlPattern = "UPDATE %s SET %s WHERE %s";
+        String update = formatUpdateFieldWithPlaceholder(tableName, updateFieldList);
+        String wherePk = formatPkWithPlaceholder(pkList);
+        return String.format(sqlPattern, DbUtil.surroundWithBacktick(tableName), update, wherePk);
     }
 
-    public static String getPreparedUpdateSql(String tableName,
-                                              TableFieldMetaInfo tableFieldMetaInfo,
-                                              String whereCondition) {
+    /**
+     * @param whereCondition 可为空
+     */
+    public static String getPreparedUpdateSql(String tableName, List<FieldMetaInfo> updateFieldList,
+                                              List<PrimaryKey> pkList, String whereCondition) {
         if (StringUtils.isEmpty(whereCondition)) {
-            return getPreparedUpdateSql(tableName, tableFieldMetaInfo);
+            return getPreparedUpdateSql(tableName, updateFieldList, pkList);
+        }
+        String sqlPattern = "UPDATE %s SET %s WHERE %s AND (%s)";
+        String update = formatUpdateFieldWithPlaceholder(tableName, updateFieldList);
+        String wherePk = formatPkWithPlaceholder(pkList);
+        return String.format(sqlPattern, DbUtil.surroundWithBacktick(tableName), update, wherePk, whereCondition);
+    }
+
+    /**
+     * 预编译更新时需要 set 的字段：非主键且类型可更新
+     * 与 {@link #getUpdatedValue} 一致，其余类型不变
+     */
+    public static List<FieldMetaInfo> getPreparedUpdateFields(List<FieldMetaInfo> fieldMetaInfoList,
+                                                              Set<Integer> pkIndexSet) {
+        List<FieldMetaInfo> updateFieldList = new ArrayList<>(fieldMetaInfoList.size());
+        for (FieldMetaInfo fieldMetaInfo : fieldMetaInfoList) {
+            if (pkIndexSet.contains(fieldMetaInfo.getIndex())) {
+                continue;
+            }
+            switch (fieldMetaInfo.getType()) {
+            case STRING:
+            case INT:
+            case FLOAT:
+                updateFieldList.add(fieldMetaInfo);
+                break;
+            default:
+                break;
+            }
+        }
+        return updateFieldList;
+    }
+
+    /**
+     * 按字段类型绑定更新后的值，规则同 {@link #getUpdatedValue}
+     */
+    public static void bindUpdatedValue(PreparedStatement stmt, int paramIndex,
+                                        FieldMetaInfo fieldMetaInfo, String fieldValue) throws SQLException {
+        if (fieldValue.equals(FileUtil.NULL_ESC_STR)) {
+            // NULL值不变
+            stmt.setNull(paramIndex, Types.NULL);
+            return;
+        }
+        switch (fieldMetaInfo.getType()) {
+        case STRING:
+            stmt.setString(paramIndex, StringUtils.reverse(fieldValue));
+            break;
+        case INT:
+            stmt.setBigDecimal(paramIndex, new BigDecimal(getUpdatedIntValue(fieldValue)));
+            break;
+        case FLOAT:
+            stmt.setFloat(paramIndex, getUpdatedFloatValue(fieldValue));
+            break;
+        default:
+            throw new IllegalArgumentException("Not updatable field: " + fieldMetaInfo.getName());
+        }
+    }
+
+    /**
+     * 按字段类型绑定原值，用于主键条件
+     */
+    public static void bindValue(PreparedStatement stmt, int paramIndex,
+                                 FieldMetaInfo fieldMetaInfo, String fieldValue) throws SQLException {
+        if (fieldValue.equals(FileUtil.NULL_ESC_STR)) {
+            stmt.setNull(paramIndex, Types.NULL);
+            return;
+        }
+        switch (fieldMetaInfo.getType()) {
+        case INT:
+            try {
+                stmt.setLong(paramIndex, Long.parseLong(fieldValue));
+            } catch (NumberFormatException e) {
+                // bigint unsigned 等超出 long 范围
+                stmt.setBigDecimal(paramIndex, new BigDecimal(fieldValue));
+            }
+            break;
+        case FLOAT:
+            stmt.setBigDecimal(paramIndex, new BigDecimal(fieldValue));
+            break;
+        default:
+            stmt.setString(paramIndex, fieldValue);
+            break;
         }
-        String sqlPattern = "UPDATE `%s` SET %s WHERE %s AND %s;";
-        String wherePk = tableFieldMetaInfo.getPrimaryKey().getName() + "=?";
-        String update = formatTableFieldWithPlaceholder(tableFieldMetaInfo);
-        return String.format(sqlPattern, tableName, update, wherePk, whereCondition);
     }
 
     /**
@@ -93,8 +185,6 @@ public class UpdateUtil {
                                                     List<FieldMetaInfo> fieldMetaInfoList) {
         List<String> updatedValueList = new ArrayList<>(fieldMetaInfoList.size());
         String fieldValue;
-        int fieldIntValue;
-        float fieldFloatValue;
         for (FieldMetaInfo fieldMetaInfo : fieldMetaInfoList) {
             fieldValue = values.get(fieldMetaInfo.getIndex());
             if (pkIndexSet.contains(fieldMetaInfo.getIndex())) {
@@ -118,14 +208,10 @@ public class UpdateUtil {
                 updatedValueList.add("'" + StringUtils.reverse(fieldValue) + "'");
                 break;
             case INT:
-                // 整型直接乘2 不考虑溢出
-                fieldIntValue = Integer.parseInt(fieldValue);
-                updatedValueList.add(String.valueOf(fieldIntValue * INT_UPDATE_MULTIPLICAND));
+                updatedValueList.add(getUpdatedIntValue(fieldValue).toString());
                 break;
             case FLOAT:
-                // 使用float 不用BigDecimal
-                fieldFloatValue = Float.parseFloat(fieldValue);
-                updatedValueList.add(String.valueOf((fieldFloatValue * FLOAT_UPDATE_MULTIPLICAND)));
+                updatedValueList.add(String.valueOf(getUpdatedFloatValue(fieldValue)));
                 break;
             default:
                 updatedValueList.add("'" + fieldValue + "'");
@@ -137,20 +223,34 @@ public class UpdateUtil {
     }
 
     /**
-     * 如 col1=?,col2=?,col3=? ...
+     * 如 `col1`=?,`col2`=?,`col3`=? ...
      */
-    private static String formatTableFieldWithPlaceholder(TableFieldMetaInfo tableFieldMetaInfo) {
-        int fieldLen = tableFieldMetaInfo.getFieldMetaInfoList().size();
-        int pkIndex = tableFieldMetaInfo.getPrimaryKey().getOrdinalPosition() - 1;
-        String[] updateFields = new String[fieldLen - 1];
-        for (int i = 0, j = 0; i < fieldLen; i++, j++) {
-            if (i != pkIndex) {
-                updateFields[j] = tableFieldMetaInfo.getFieldMetaInfoList().get(i).getName() + "=?";
-            } else {
-                j--;
+    private static String formatUpdateFieldWithPlaceholder(String tableName, List<FieldMetaInfo> updateFieldList) {
+        if (updateFieldList.isEmpty()) {
+            throw new IllegalArgumentException("No column to update in table: " + tableName);
+        }
+        StringBuilder stringBuilder = new StringBuilder(updateFieldList.size() * 16);
+        for (int i = 0; i < updateFieldList.size(); i++) {
+            if (i > 0) {
+                stringBuilder.append(',');
             }
+            stringBuilder.append(DbUtil.surroundWithBacktick(updateFieldList.get(i).getName())).append("=?");
         }
-        return StringUtils.join(updateFields, ",");
+        return stringBuilder.toString();
+    }
+
+    /**
+     * 如 `pk1`=? AND `pk2`=?
+     */
+    private static String formatPkWithPlaceholder(List<PrimaryKey> pkList) {
+        StringBuilder stringBuilder = new StringBuilder(pkList.size() * 16);
+        for (int i = 0; i < pkList.size(); i++) {
+            if (i > 0) {
+                stringBuilder.append(" AND ");
+            }
+            stringBuilder.append(DbUtil.surroundWithBacktick(pkList.get(i).getName())).append("=?");
+        }
+        return stringBuilder.toString();
     }
 
     public static String getUpdateSql(String tableName, List<PrimaryKey> pkList, Set<Integer> pkIndexSet,
@@ -180,45 +280,125 @@ public class UpdateUtil {
                                                 List<FieldMetaInfo> fieldMetaInfoList,
                                                 List<String> values) {
         List<String> updatedValueList = new ArrayList<>(fieldMetaInfoList.size() - pkIndexSet.size());
-        String fieldValue;
-        int fieldIntValue;
-        float fieldFloatValue;
         for (FieldMetaInfo fieldMetaInfo : fieldMetaInfoList) {
-            fieldValue = values.get(fieldMetaInfo.getIndex());
             if (pkIndexSet.contains(fieldMetaInfo.getIndex())) {
                 // 主键不在set的值里面
                 continue;
             }
-            if (fieldValue.equals(FileUtil.NULL_ESC_STR)) {
-                // NULL值不变
-                updatedValueList.add(fieldMetaInfo.getName() + "=" + FileUtil.NULL_STR);
+            String updatedValue = getUpdatedValue(fieldMetaInfo, values.get(fieldMetaInfo.getIndex()));
+            if (updatedValue != null) {
+                updatedValueList.add(fieldMetaInfo.getName() + "=" + updatedValue);
+            }
+        }
+        return StringUtils.join(updatedValueList, ",");
+    }
+
+    /**
+     * 根据字段类型计算更新后的值
+     *
+     * @return sql 中的字面值，字段不需要更新时返回 null
+     */
+    public static String getUpdatedValue(FieldMetaInfo fieldMetaInfo, String fieldValue) {
+        if (fieldValue.equals(FileUtil.NULL_ESC_STR)) {
+            // NULL值不变
+            return FileUtil.NULL_STR;
+        }
+        switch (fieldMetaInfo.getType()) {
+        case STRING:
+            // 反转字符串
+            return "'" + StringUtils.reverse(fieldValue) + "'";
+        case INT:
+            return getUpdatedIntValue(fieldValue).toString();
+        case FLOAT:
+            return String.valueOf(getUpdatedFloatValue(fieldValue));
+        default:
+            // 默认不变
+            return null;
+        }
+    }
+
+    /**
+     * 整型直接乘2 不考虑是否超出字段范围
+     * 使用 BigInteger 以支持 bigint unsigned
+     */
+    private static BigInteger getUpdatedIntValue(String fieldValue) {
+        return new BigInteger(fieldValue).multiply(BigInteger.valueOf(INT_UPDATE_MULTIPLICAND));
+    }
+
+    /**
+     * 使用float 不用BigDecimal
+     */
+    private static float getUpdatedFloatValue(String fieldValue) {
+        return Float.parseFloat(fieldValue) * FLOAT_UPDATE_MULTIPLICAND;
+    }
+
+    /**
+     * 一批行合并为一条 update 语句，各字段的新值按主键用 CASE WHEN 选出
+     * UPDATE t SET c1 = CASE WHEN (pk)=(1) THEN v1 WHEN (pk)=(2) THEN v2 ELSE c1 END
+     * WHERE (pk) IN ((1),(2)) AND (where);
+     *
+     * @param columnCases 字段名 -> 该字段的 WHEN ... THEN ... 分支，为空的字段不更新
+     * @param inPkValues (1),(2) ...
+     * @param where 可为空
+     */
+    public static String getBatchUpdateSql(String tableName, String pkNames,
+                                           Map<String, ? extends CharSequence> columnCases,
+                                           String inPkValues, String where) {
+        StringBuilder sqlBuilder = new StringBuilder(inPkValues.length() * (columnCases.size() + 2));
+        sqlBuilder.append("UPDATE ").append(DbUtil.surroundWithBacktick(tableName)).append(" SET ");
+        boolean hasColumn = false;
+        for (Map.Entry<String, ? extends CharSequence> columnCase : columnCases.entrySet()) {
+            if (columnCase.getValue().length() == 0) {
                 continue;
             }
-            // 更新数据
-            switch (fieldMetaInfo.getType()) {
-            case STRING:
-                // 反转字符串
-                updatedValueList.add(fieldMetaInfo.getName() + "='"
-                    + StringUtils.reverse(fieldValue) + "'");
-                break;
-            case INT:
-                // 整型直接乘2 不考虑溢出
-                fieldIntValue = Integer.parseInt(fieldValue);
-                updatedValueList.add(fieldMetaInfo.getName() + "=" +
-                    fieldIntValue * INT_UPDATE_MULTIPLICAND);
-                break;
-            case FLOAT:
-                // 使用float 不用BigDecimal
-                fieldFloatValue = Float.parseFloat(fieldValue);
-                updatedValueList.add(fieldMetaInfo.getName() + "=" +
-                    fieldFloatValue * FLOAT_UPDATE_MULTIPLICAND);
-                break;
-            default:
-                // 默认不变
-                break;
+            String column = DbUtil.surroundWithBacktick(columnCase.getKey());
+            sqlBuilder.append(column).append(" = CASE").append(columnCase.getValue())
+                .append(" ELSE ").append(column).append(" END,");
+            hasColumn = true;
+        }
+        if (!hasColumn) {
+            throw new IllegalArgumentException("No column to update in table: " + tableName);
+        }
+        sqlBuilder.setLength(sqlBuilder.length() - 1);
+        sqlBuilder.append(" WHERE (").append(pkNames).append(") IN (").append(inPkValues).append(')');
+        if (StringUtils.isNotEmpty(where)) {
+            sqlBuilder.append(" AND (").append(where).append(')');
+        }
+        return sqlBuilder.append(';').toString();
+    }
+
+    /**
+     * 同一批次中主键重复时只保留最后一次出现的行，与逐行 update 的结果一致
+     *
+     * @param columns 非主键字段名
+     * @param pkTuples 每行的主键值 (1) ...
+     * @param updatedValues 每行各字段的新值，与 columns 对应，null 表示该字段不更新
+     */
+    public static String getBatchUpdateSql(String tableName, String pkNames, List<String> columns,
+                                           List<String> pkTuples, List<String[]> updatedValues,
+                                           String where) {
+        Map<String, Integer> lastRowOfPk = new LinkedHashMap<>(pkTuples.size() * 2);
+        for (int i = 0; i < pkTuples.size(); i++) {
+            lastRowOfPk.put(pkTuples.get(i), i);
+        }
+        Map<String, StringBuilder> columnCases = new LinkedHashMap<>(columns.size() * 2);
+        for (String column : columns) {
+            columnCases.put(column, new StringBuilder());
+        }
+        StringBuilder inPkValues = new StringBuilder(lastRowOfPk.size() * 8);
+        for (Map.Entry<String, Integer> entry : lastRowOfPk.entrySet()) {
+            String[] values = updatedValues.get(entry.getValue());
+            for (int i = 0; i < columns.size(); i++) {
+                if (values[i] == null) {
+                    continue;
+                }
+                columnCases.get(columns.get(i)).append(" WHEN (").append(pkNames).append(")=")
+                    .append(entry.getKey()).append(" THEN ").append(values[i]);
             }
+            inPkValues.append(entry.getKey()).append(',');
         }
-        return StringUtils.join(updatedValueList, ",");
+        inPkValues.setLength(inPkValues.length() - 1);
+        return getBatchUpdateSql(tableName, pkNames, columnCases, inPkValues.toString(), where);
     }
 
     public static String getUpdateWithFuncSql(String updateWithFuncPattern, List<PrimaryKey> pkList,
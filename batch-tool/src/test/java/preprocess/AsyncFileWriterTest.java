@@ -0,0 +1,91 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package preprocess;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import worker.common.writer.AsyncFileWriter;
+import worker.common.writer.IFileWriter;
+import worker.common.writer.NioFileWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class AsyncFileWriterTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRotateFiles() throws IOException {
+        File first = new File(tempFolder.getRoot(), "first.txt");
+        File second = new File(tempFolder.getRoot(), "second.txt");
+        StringBuilder expected = new StringBuilder();
+        try (AsyncFileWriter writer = new AsyncFileWriter(new NioFileWriter(first.getPath()), 3, 8)) {
+            for (int i = 0; i < 50; i++) {
+                String line = "row-" + i + "\n";
+                expected.append(line);
+                writer.write(line.getBytes(StandardCharsets.UTF_8));
+            }
+            // flush 之后文件长度即为已写入的字节数
+            writer.flush();
+            Assert.assertEquals(expected.length(), first.length());
+            writer.nextFile(second.getPath());
+            writer.write("tail\n".getBytes(StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(expected.toString(), new String(Files.readAllBytes(first.toPath()), StandardCharsets.UTF_8));
+        Assert.assertEquals("tail\n", new String(Files.readAllBytes(second.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testPropagateIoError() {
+        IFileWriter failingWriter = new IFileWriter() {
+            @Override
+            public void nextFile(String fileName) {
+            }
+
+            @Override
+            public void write(byte[] data) {
+                throw new IllegalStateException("disk full");
+            }
+
+            @Override
+            public boolean produceByBlock() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        AsyncFileWriter writer = new AsyncFileWriter(failingWriter, 2, 4);
+        try {
+            for (int i = 0; i < 100; i++) {
+                writer.write("data".getBytes(StandardCharsets.UTF_8));
+            }
+            writer.close();
+            Assert.fail("IO error should be propagated");
+        } catch (RuntimeException e) {
+            Assert.assertEquals("disk full", e.getCause().getMessage());
+        }
+    }
+}
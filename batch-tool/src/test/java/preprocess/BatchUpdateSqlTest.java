@@ -0,0 +1,103 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package preprocess;
+
+import model.db.FieldMetaInfo;
+import model.db.PrimaryKey;
+import org.junit.Assert;
+import org.junit.Test;
+import util.FileUtil;
+import worker.util.UpdateUtil;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BatchUpdateSqlTest {
+
+    private static FieldMetaInfo field(String name, String type) {
+        FieldMetaInfo fieldMetaInfo = new FieldMetaInfo();
+        fieldMetaInfo.setName(name);
+        fieldMetaInfo.setType(type);
+        return fieldMetaInfo;
+    }
+
+    @Test
+    public void testUpdatedValue() {
+        Assert.assertEquals("'cba'", UpdateUtil.getUpdatedValue(field("s", "varchar"), "abc"));
+        Assert.assertEquals("NULL", UpdateUtil.getUpdatedValue(field("s", "varchar"), FileUtil.NULL_ESC_STR));
+        Assert.assertNull(UpdateUtil.getUpdatedValue(field("d", "datetime"), "2024-01-01 00:00:00"));
+        Assert.assertEquals("246", UpdateUtil.getUpdatedValue(field("i", "int"), "123"));
+        // bigint unsigned 超出 long 范围
+        Assert.assertEquals("36893488147419103230",
+            UpdateUtil.getUpdatedValue(field("b", "bigint"), "18446744073709551615"));
+    }
+
+    @Test
+    public void testBatchUpdateSql() {
+        Map<String, StringBuilder> columnCases = new LinkedHashMap<>();
+        columnCases.put("name", new StringBuilder(" WHEN (id)=(1) THEN 'a' WHEN (id)=(2) THEN 'b'"));
+        // 本批次无需更新的字段
+        columnCases.put("ts", new StringBuilder());
+        String sql = UpdateUtil.getBatchUpdateSql("t1", "id", columnCases, "(1),(2)", "age > 10");
+        Assert.assertEquals("UPDATE `t1` SET `name` = CASE WHEN (id)=(1) THEN 'a' WHEN (id)=(2) THEN 'b' "
+            + "ELSE `name` END WHERE (id) IN ((1),(2)) AND (age > 10);", sql);
+
+        sql = UpdateUtil.getBatchUpdateSql("t1", "id", columnCases, "(1),(2)", null);
+        Assert.assertTrue(sql.endsWith(" WHERE (id) IN ((1),(2));"));
+    }
+
+    @Test
+    public void testBatchUpdateDuplicatePk() {
+        List<String> columns = Arrays.asList("name", "ts");
+        List<String> pkTuples = Arrays.asList("(1)", "(2)", "(1)");
+        List<String[]> updatedValues = Arrays.asList(
+            new String[] {"'a'", null}, new String[] {"'b'", null}, new String[] {"'c'", null});
+        String sql = UpdateUtil.getBatchUpdateSql("t1", "id", columns, pkTuples, updatedValues, null);
+        // 同一主键以最后一行为准
+        Assert.assertEquals("UPDATE `t1` SET `name` = CASE WHEN (id)=(1) THEN 'c' WHEN (id)=(2) THEN 'b' "
+            + "ELSE `name` END WHERE (id) IN ((1),(2));", sql);
+    }
+
+    @Test
+    public void testPreparedUpdateSql() {
+        FieldMetaInfo id = field("id", "int");
+        FieldMetaInfo name = field("name", "varchar");
+        FieldMetaInfo ts = field("ts", "datetime");
+        FieldMetaInfo region = field("region", "char");
+        id.setIndex(0);
+        name.setIndex(1);
+        ts.setIndex(2);
+        region.setIndex(3);
+        List<FieldMetaInfo> updateFields = UpdateUtil.getPreparedUpdateFields(
+            Arrays.asList(id, name, ts, region), Collections.singleton(0));
+        Assert.assertEquals(Arrays.asList(name, region), updateFields);
+
+        // 联合主键
+        List<PrimaryKey> pkList = Arrays.asList(new PrimaryKey(1, "id"), new PrimaryKey(4, "region"));
+        updateFields = UpdateUtil.getPreparedUpdateFields(
+            Arrays.asList(id, name, ts, region), new HashSet<>(Arrays.asList(0, 3)));
+        String sql = UpdateUtil.getPreparedUpdateSql("t1", updateFields, pkList, "ts > now()");
+        Assert.assertEquals("UPDATE `t1` SET `name`=? WHERE `id`=? AND `region`=? AND (ts > now())", sql);
+        sql = UpdateUtil.getPreparedUpdateSql("t1", updateFields, pkList, null);
+        Assert.assertEquals("UPDATE `t1` SET `name`=? WHERE `id`=? AND `region`=?", sql);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package preprocess;
+
+import model.config.BinaryEncodeMode;
+import model.db.FieldMetaInfo;
+import org.junit.Assert;
+import org.junit.Test;
+import worker.util.ExportUtil;
+
+import java.util.Arrays;
+
+public class BinaryEncodeTest {
+
+    private static FieldMetaInfo field(String name, String type) {
+        FieldMetaInfo fieldMetaInfo = new FieldMetaInfo();
+        fieldMetaInfo.setName(name);
+        fieldMetaInfo.setType(type);
+        return fieldMetaInfo;
+    }
+
+    @Test
+    public void testEncodeAndDecode() {
+        byte[] raw = {0x00, 0x1F, (byte) 0xAB, (byte) 0xFF, 0x7A};
+        Assert.assertEquals("001FABFF7A", new String(BinaryEncodeMode.HEX.encode(raw)));
+        Assert.assertEquals("AB+r/3o=", new String(BinaryEncodeMode.BASE64.encode(raw)));
+        for (BinaryEncodeMode mode : BinaryEncodeMode.values()) {
+            Assert.assertArrayEquals(raw, mode.decode(mode.encode(raw)));
+        }
+        Assert.assertArrayEquals(raw, BinaryEncodeMode.HEX.decode("001fabff7a".getBytes()));
+        Assert.assertNull(BinaryEncodeMode.HEX.encode(null));
+    }
+
+    @Test
+    public void testSelectFields() {
+        FieldMetaInfo data = field("data", "varbinary");
+        FieldMetaInfo name = field("name", "varchar");
+        name.setExpression("left(name, 8)");
+        String fields = ExportUtil.formatFieldWithDateType(Arrays.asList(field("id", "bigint"), data, name));
+        // 二进制字段按原始字节读取
+        Assert.assertEquals("`id`,`data`,left(name, 8) AS `name`", fields);
+
+        boolean[] binaryEncodeColumns = ExportUtil.getBinaryEncodeColumns(Arrays.asList(field("id", "int"), data));
+        Assert.assertArrayEquals(new boolean[] {false, true}, binaryEncodeColumns);
+        data.setExpression("hex(data)");
+        Assert.assertNull(ExportUtil.getBinaryEncodeColumns(Arrays.asList(field("id", "int"), data)));
+    }
+}
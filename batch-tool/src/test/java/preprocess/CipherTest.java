@@ -1,4 +1,223 @@
 package preprocess;
 
+import com.lmax.disruptor.RingBuffer;
+import model.ProducerExecutionContext;
+import model.config.ConfigConstant;
+import model.config.EncryptionConfig;
+import model.config.EncryptionMode;
+import model.config.QuoteEncloseMode;
+import model.encrypt.AesCipher;
+import model.encrypt.BaseCipher;
+import model.encrypt.CipherFrameFormat;
+import org.bouncycastle.crypto.BufferedBlockCipher;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.modes.CBCBlockCipher;
+import org.bouncycastle.crypto.paddings.PaddedBufferedBlockCipher;
+import org.bouncycastle.crypto.paddings.ZeroBytePadding;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import worker.common.BatchLineEvent;
+import worker.common.reader.CipherFrameDecoder;
+import worker.common.reader.CipherLineReader;
+import worker.common.writer.CipherLineFileWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class CipherTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testDecryptWithOffset() throws Exception {
+        EncryptionConfig config = new EncryptionConfig(EncryptionMode.AES_CBC, "test-key");
+        byte[] plain = "hello,world".getBytes(StandardCharsets.UTF_8);
+        byte[] crypto = BaseCipher.getCipher(config, true).encrypt(plain);
+        byte[] padded = new byte[crypto.length + 5];
+        System.arraycopy(crypto, 0, padded, 3, crypto.length);
+        byte[] decrypted = BaseCipher.getCipher(config, false).decrypt(padded, 3, crypto.length);
+        Assert.assertEquals("hello,world", new String(decrypted, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * JDK 实现的按行加密结果需与原先 BouncyCastle 软件实现一致，保证旧文件可读
+     */
+    @Test
+    public void testAesCompatibleWithBouncyCastle() throws Exception {
+        EncryptionConfig config = new EncryptionConfig(EncryptionMode.AES_CBC, "test-key");
+        byte[] key = Arrays.copyOf("test-key".getBytes(), 16);
+        for (int len : new int[] {0, 5, 16, 33}) {
+            byte[] plain = new byte[len];
+            Arrays.fill(plain, (byte) 'a');
+            BufferedBlockCipher bcCipher = new PaddedBufferedBlockCipher(
+                new CBCBlockCipher(new AESEngine()), new ZeroBytePadding());
+            bcCipher.init(true, new KeyParameter(key));
+            byte[] expected = new byte[bcCipher.getOutputSize(len)];
+            int outLen = bcCipher.processBytes(plain, 0, len, expected, 0);
+            bcCipher.doFinal(expected, outLen);
+
+            byte[] crypto = BaseCipher.getCipher(config, true).encrypt(plain);
+            Assert.assertArrayEquals(expected, crypto);
+            Assert.assertArrayEquals(plain, BaseCipher.getCipher(config, false).decrypt(crypto));
+        }
+    }
+
+    @Test
+    public void testAesFrameAcrossProviders() throws Exception {
+        EncryptionConfig config = new EncryptionConfig(EncryptionMode.AES_CBC, "test-key");
+        BaseCipher jdkCipher = new AesCipher(config, true, null);
+        BaseCipher bcCipher = new AesCipher(config, false, BouncyCastleProvider.PROVIDER_NAME);
+        byte[] plain = "1,a\n2,b\n".getBytes(StandardCharsets.UTF_8);
+        byte[] iv = new byte[jdkCipher.getFrameIvLength()];
+        Arrays.fill(iv, (byte) 7);
+        byte[] crypto = new byte[jdkCipher.getFrameOutputSize(plain.length)];
+        int cryptoLen = jdkCipher.encryptFrame(iv, plain, 0, plain.length, crypto, 0);
+        Assert.assertEquals(crypto.length, cryptoLen);
+        byte[] output = new byte[cryptoLen];
+        int len = bcCipher.decryptFrame(iv, crypto, 0, cryptoLen, output, 0);
+        Assert.assertArrayEquals(plain, Arrays.copyOf(output, len));
+    }
+
+    @Test
+    public void testAesFrameRoundTrip() throws IOException {
+        testFrameRoundTrip(EncryptionMode.AES_CBC);
+    }
+
+    @Test
+    public void testSm4FrameRoundTrip() throws IOException {
+        testFrameRoundTrip(EncryptionMode.SM4_ECB);
+    }
+
+    @Test
+    public void testLineReaderReadsFramedFile() throws IOException {
+        EncryptionConfig config = new EncryptionConfig(EncryptionMode.AES_CBC, "test-key");
+        File file = tempFolder.newFile("framed.enc");
+        List<String> expected = new ArrayList<>();
+        CipherLineFileWriter writer = new CipherLineFileWriter(BaseCipher.getCipher(config, true),
+            ",".getBytes(), QuoteEncloseMode.NONE, 100);
+        writer.nextFile(file.getPath());
+        writer.writeLine(new String[] {"id", "name"});
+        for (int i = 0; i < 50; i++) {
+            writer.writeLine(new String[] {String.valueOf(i), "名字" + i});
+            expected.add(i + ",名字" + i);
+        }
+        writer.close();
+        Assert.assertEquals(expected, readByLineReader(config, file, true));
+    }
+
+    @Test
+    public void testLineReaderReadsValueWithNewline() throws IOException {
+        EncryptionConfig config = new EncryptionConfig(EncryptionMode.SM4_ECB, "test-key");
+        File file = tempFolder.newFile("newline.enc");
+        List<String> expected = new ArrayList<>();
+        CipherLineFileWriter writer = new CipherLineFileWriter(BaseCipher.getCipher(config, true),
+            ",".getBytes(), QuoteEncloseMode.NONE, 32);
+        writer.nextFile(file.getPath());
+        for (int i = 0; i < 20; i++) {
+            String text = "line1\nline2\r\n" + i;
+            writer.writeLine(new String[] {String.valueOf(i), text});
+            expected.add(i + "," + text);
+        }
+        writer.close();
+        Assert.assertEquals(expected, readByLineReader(config, file, false));
+    }
+
+    @Test
+    public void testLineReaderReadsLegacyFile() throws Exception {
+        EncryptionConfig config = new EncryptionConfig(EncryptionMode.AES_CBC, "test-key");
+        BaseCipher cipher = BaseCipher.getCipher(config, true);
+        List<String> expected = new ArrayList<>();
+        expected.add("1,short");
+        // 密文超过 0x0FFF 字节时使用4字节长度
+        expected.add("2," + String.join("", Collections.nCopies(5000, "x")));
+        expected.add("3,short");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream os = new DataOutputStream(bytes);
+        for (String line : expected) {
+            byte[] crypto = cipher.encrypt(line.getBytes(StandardCharsets.UTF_8));
+            if (crypto.length <= 0x0FFF) {
+                os.writeShort(crypto.length);
+            } else {
+                os.writeInt(-crypto.length);
+            }
+            os.write(crypto);
+        }
+        File file = tempFolder.newFile("legacy.enc");
+        Files.write(file.toPath(), bytes.toByteArray());
+        Assert.assertFalse(CipherFrameFormat.isFramedFile(file));
+        Assert.assertEquals(expected, readByLineReader(config, file, false));
+    }
+
+    private List<String> readByLineReader(EncryptionConfig config, File file, boolean withHeader) {
+        ProducerExecutionContext context = new ProducerExecutionContext();
+        context.setWithHeader(withHeader);
+        context.setCharset(StandardCharsets.UTF_8);
+        context.setEmittedDataCounter(new AtomicInteger(0));
+        context.setCountDownLatch(new CountDownLatch(1));
+        RingBuffer<BatchLineEvent> ringBuffer = RingBuffer.createSingleProducer(BatchLineEvent::new, 64);
+        new CipherLineReader(context, Collections.singletonList(file), 0,
+            BaseCipher.getCipher(config, false), ringBuffer).run();
+        List<String> lines = new ArrayList<>();
+        for (long seq = 0; seq <= ringBuffer.getCursor(); seq++) {
+            for (String line : ringBuffer.get(seq).getBatchLines()) {
+                if (line == null || line.equals(ConfigConstant.END_OF_BATCH_LINES)) {
+                    break;
+                }
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private void testFrameRoundTrip(EncryptionMode mode) throws IOException {
+        EncryptionConfig config = new EncryptionConfig(mode, "test-key");
+        File file = tempFolder.newFile(mode + ".enc");
+        StringBuilder expected = new StringBuilder();
+        CipherLineFileWriter writer = new CipherLineFileWriter(BaseCipher.getCipher(config, true),
+            ",".getBytes(), QuoteEncloseMode.NONE, 64);
+        writer.nextFile(file.getPath());
+        for (int i = 0; i < 100; i++) {
+            // 值中的换行符不影响行的切分
+            String name = i % 7 == 0 ? "name\n" + i : "name-" + i;
+            writer.writeLine(new String[] {String.valueOf(i), name});
+            expected.append(i).append(',').append(name).append('|');
+        }
+        writer.close();
+        Assert.assertTrue(CipherFrameFormat.isFramedFile(file));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long[] offsets = CipherFrameFormat.readFrameIndex(raf);
+            int frameCount = offsets.length - 1;
+            Assert.assertTrue(frameCount > 1);
+            // 各帧可独立解密，按逆序解密后拼接应与原文一致
+            CipherFrameDecoder decoder = new CipherFrameDecoder(BaseCipher.getCipher(config, false));
+            String[] frames = new String[frameCount];
+            for (int i = frameCount - 1; i >= 0; i--) {
+                decoder.decrypt(raf, offsets[i], offsets[i + 1]);
+                StringBuilder frame = new StringBuilder();
+                while (decoder.nextRow()) {
+                    frame.append(new String(decoder.getPlainBuffer(), decoder.getRowOffset(),
+                        decoder.getRowLength(), StandardCharsets.UTF_8)).append('|');
+                }
+                frames[i] = frame.toString();
+            }
+            Assert.assertEquals(expected.toString(), String.join("", frames));
+        }
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package preprocess;
+
+import exec.export.ExportScheduler;
+import exec.export.OrderByExportExecutor;
+import model.db.TableTopology;
+import org.junit.Assert;
+import org.junit.Test;
+import worker.NodeConcurrencyLimiter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExportSchedulerTest {
+
+    @Test
+    public void testNodePermits() throws InterruptedException {
+        final int permitsPerNode = 2, shardsPerNode = 10;
+        ExportScheduler scheduler = new ExportScheduler(16, permitsPerNode);
+        AtomicInteger[] running = {new AtomicInteger(), new AtomicInteger()};
+        AtomicInteger[] maxRunning = {new AtomicInteger(), new AtomicInteger()};
+        CountDownLatch latch = new CountDownLatch(2 * shardsPerNode);
+        for (int i = 0; i < 2 * shardsPerNode; i++) {
+            // 先提交的全部落在 dn-0 上
+            final int node = i < shardsPerNode ? 0 : 1;
+            TableTopology topology = new TableTopology("G" + i, "t_" + i);
+            topology.setStorageNode("dn-" + node);
+            scheduler.submit(topology, () -> {
+                try {
+                    int cur = running[node].incrementAndGet();
+                    maxRunning[node].accumulateAndGet(cur, Math::max);
+                    Thread.sleep(20);
+                    running[node].decrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        scheduler.shutdown();
+        for (AtomicInteger max : maxRunning) {
+            Assert.assertEquals(permitsPerNode, max.get());
+        }
+    }
+
+    @Test
+    public void testInterleaveByNode() {
+        List<TableTopology> topologyList = new ArrayList<>();
+        String[] nodes = {"dn-0", "dn-0", "dn-0", "dn-1", "dn-2", "dn-1"};
+        for (int i = 0; i < nodes.length; i++) {
+            TableTopology topology = new TableTopology("G" + i, "t_" + i);
+            topology.setStorageNode(nodes[i]);
+            topologyList.add(topology);
+        }
+        Assert.assertEquals(Arrays.asList(0, 3, 4, 1, 5, 2),
+            NodeConcurrencyLimiter.interleaveByNode(topologyList));
+    }
+
+    @Test
+    public void testSortMemorySharedByTables() {
+        final int sortMemoryInMb = 1024, tables = 4, shards = 8;
+        long perShard = OrderByExportExecutor.getSortMemoryPerShard(sortMemoryInMb, tables, shards);
+        Assert.assertTrue(perShard * tables * shards <= (long) sortMemoryInMb * 1024 * 1024);
+        Assert.assertEquals(32L * 1024 * 1024, perShard);
+        Assert.assertEquals(128L * 1024 * 1024, OrderByExportExecutor.getSortMemoryPerShard(sortMemoryInMb, 1, shards));
+    }
+}
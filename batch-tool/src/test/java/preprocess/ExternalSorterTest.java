@@ -0,0 +1,83 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package preprocess;
+
+import model.db.FieldMetaInfo;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import worker.export.order.ExternalSorter;
+import worker.export.order.RowCursor;
+import worker.export.order.SortKeyEncoder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class ExternalSorterTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private final SortKeyEncoder sortKeyEncoder = new SortKeyEncoder(Collections.singletonList(intField()));
+
+    @Test
+    public void testSortInMemory() throws Exception {
+        checkSort(1000, 1024 * 1024);
+        Assert.assertEquals(0, tempFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void testSortWithSpill() throws Exception {
+        // 每个有序段约 20 行，触发多轮合并
+        checkSort(20000, 20 * 100);
+        Assert.assertEquals(0, tempFolder.getRoot().list().length);
+    }
+
+    private void checkSort(int rowCount, long memoryBudget) throws Exception {
+        Random random = new Random(rowCount);
+        List<Integer> expected = new ArrayList<>(rowCount);
+        try (ExternalSorter sorter = new ExternalSorter("test", sortKeyEncoder, memoryBudget,
+            tempFolder.getRoot())) {
+            for (int i = 0; i < rowCount; i++) {
+                int value = random.nextInt(rowCount);
+                expected.add(value);
+                sorter.add(new byte[][] {String.valueOf(value).getBytes(), ("v" + i).getBytes()});
+            }
+            Collections.sort(expected);
+            RowCursor cursor = sorter.sort();
+            List<Integer> result = new ArrayList<>(rowCount);
+            byte[][] row;
+            while ((row = cursor.next()) != null) {
+                Assert.assertEquals(2, row.length);
+                result.add(Integer.parseInt(new String(row[0])));
+            }
+            Assert.assertEquals(expected, result);
+        }
+    }
+
+    private static FieldMetaInfo intField() {
+        FieldMetaInfo info = new FieldMetaInfo();
+        info.setName("id");
+        info.setIndex(0);
+        info.setType(FieldMetaInfo.Type.INT);
+        return info;
+    }
+}
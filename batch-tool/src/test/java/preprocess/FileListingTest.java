@@ -0,0 +1,145 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package preprocess;
+
+import org.junit.Assert;
+import org.junit.Test;
+import store.FileIterator;
+import store.FileListing;
+import store.FileStorage;
+import store.FileStorageUtil;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FileListingTest {
+
+    /**
+     * 模拟每页最多 3 个结果的对象存储
+     */
+    private static class PagedFileStorage implements FileStorage {
+        private static final int PAGE_SIZE = 3;
+        final TreeSet<String> keys = new TreeSet<>();
+        final AtomicInteger pageRequests = new AtomicInteger(0);
+
+        @Override
+        public void put(String localFile, String targetPath) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void get(String targetFile, String localPath) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public List<String> listFiles(String prefix) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean supportPagedListing() {
+            return true;
+        }
+
+        @Override
+        public FileListing listPage(String prefix, String delimiter, String continuationToken) {
+            pageRequests.incrementAndGet();
+            List<String> pageKeys = new ArrayList<>();
+            Set<String> commonPrefixes = new LinkedHashSet<>();
+            String lastProcessed = continuationToken;
+            String next = null;
+            for (String key : keys.tailSet(prefix, true)) {
+                if (!key.startsWith(prefix)) {
+                    break;
+                }
+                if (lastProcessed != null && key.compareTo(lastProcessed) <= 0) {
+                    continue;
+                }
+                if (pageKeys.size() + commonPrefixes.size() == PAGE_SIZE) {
+                    next = lastProcessed;
+                    break;
+                }
+                int idx = delimiter == null ? -1 : key.indexOf(delimiter, prefix.length());
+                if (idx == -1) {
+                    pageKeys.add(key);
+                    lastProcessed = key;
+                } else {
+                    // 同一公共前缀只返回一次
+                    String commonPrefix = key.substring(0, idx + 1);
+                    commonPrefixes.add(commonPrefix);
+                    lastProcessed = keys.floor(commonPrefix + Character.MAX_VALUE);
+                }
+            }
+            return new FileListing(pageKeys, new ArrayList<>(commonPrefixes), next);
+        }
+    }
+
+    @Test
+    public void testPagedListing() {
+        PagedFileStorage fileStorage = new PagedFileStorage();
+        for (int i = 0; i < 10; i++) {
+            fileStorage.keys.add("t_" + i);
+        }
+        fileStorage.keys.add("x_0");
+        List<String> result = new ArrayList<>();
+        Iterator<String> iterator = fileStorage.iterateFiles("t_");
+        Assert.assertTrue(iterator.hasNext());
+        // 只请求了第一页
+        Assert.assertEquals(1, fileStorage.pageRequests.get());
+        iterator.forEachRemaining(result::add);
+        Assert.assertEquals(new ArrayList<>(fileStorage.keys.headSet("x_0")), result);
+    }
+
+    @Test
+    public void testParallelListing() {
+        PagedFileStorage fileStorage = new PagedFileStorage();
+        Set<String> expected = new TreeSet<>();
+        for (int i = 0; i < 4; i++) {
+            expected.add("t/" + i);
+            for (int j = 0; j < 5; j++) {
+                expected.add("t/d" + i + "/" + j);
+            }
+        }
+        fileStorage.keys.addAll(expected);
+        fileStorage.keys.add("u/0");
+
+        Set<String> result = new TreeSet<>();
+        try (FileIterator iterator = FileStorageUtil.iterateFiles(fileStorage, "t/", 3)) {
+            iterator.forEachRemaining(result::add);
+        }
+        Assert.assertEquals(expected, result);
+        Assert.assertEquals(new ArrayList<>(expected), FileStorageUtil.listFiles(fileStorage, "t/"));
+
+        // 未遍历完即关闭
+        try (FileIterator iterator = FileStorageUtil.iterateFiles(fileStorage, "t/", 3)) {
+            Assert.assertTrue(iterator.hasNext());
+            iterator.next();
+            iterator.close();
+            Assert.assertFalse(iterator.hasNext());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package preprocess;
+
+import model.config.CompressMode;
+import model.db.TableFieldMetaInfo;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import worker.export.FixedFileWriterGroup;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+public class FixedFileWriterGroupTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testLeastLoadedRouting() {
+        String[] filePaths = new String[3];
+        for (int i = 0; i < filePaths.length; i++) {
+            filePaths[i] = new File(tempFolder.getRoot(), "t_" + i).getPath();
+        }
+        FixedFileWriterGroup group = new FixedFileWriterGroup(filePaths, false, ",".getBytes(),
+            new TableFieldMetaInfo(), CompressMode.NONE, StandardCharsets.UTF_8);
+        // 一个大批次与若干小碎片
+        group.write(new byte[300]);
+        for (int i = 0; i < 30; i++) {
+            group.write(new byte[20]);
+        }
+        group.close();
+
+        Assert.assertEquals(300, new File(filePaths[0]).length());
+        Assert.assertEquals(300, new File(filePaths[1]).length());
+        Assert.assertEquals(300, new File(filePaths[2]).length());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package preprocess;
+
+import model.db.FieldMetaInfo;
+import model.db.TableTopology;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import util.DbUtil;
+import worker.export.ExportCheckpoint;
+import worker.util.ExportUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class KeysetPageTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static FieldMetaInfo field(String name, String type) {
+        FieldMetaInfo fieldMetaInfo = new FieldMetaInfo();
+        fieldMetaInfo.setName(name);
+        fieldMetaInfo.setType(type);
+        return fieldMetaInfo;
+    }
+
+    @Test
+    public void testSinglePkSql() {
+        List<FieldMetaInfo> pk = Collections.singletonList(field("id", "bigint"));
+        List<FieldMetaInfo> fields = Arrays.asList(field("id", "bigint"), field("name", "varchar"));
+        TableTopology topology = new TableTopology("t1");
+
+        String firstSql = ExportUtil.getKeysetPageSql(topology, fields, pk, "a > 1", false, 100);
+        Assert.assertTrue(firstSql.endsWith(",`id` from t1 where a > 1 order by `id` limit 100"));
+
+        String nextSql = ExportUtil.getKeysetPageSql(topology, fields, pk, "a > 1", true, 100);
+        Assert.assertTrue(nextSql.endsWith(" where (a > 1) AND (`id` > ?) order by `id` limit 100"));
+    }
+
+    @Test
+    public void testCompositePkSql() {
+        List<FieldMetaInfo> pk = Arrays.asList(field("k1", "int"), field("k2", "varchar"));
+        TableTopology topology = new TableTopology("g0", "t1_0");
+
+        String sql = ExportUtil.getKeysetPageSql(topology, pk, pk, null, true, 10);
+        Assert.assertTrue(sql.startsWith("/*+TDDL:node='g0'*/ "));
+        Assert.assertTrue(sql.endsWith(" where (`k1`,`k2`) > (?,?) order by `k1`,`k2` limit 10"));
+    }
+
+    @Test
+    public void testStringPkBoundWithCollation() {
+        FieldMetaInfo name = field("name", "varchar");
+        name.setCollation("utf8mb4_general_ci");
+        List<FieldMetaInfo> pk = Arrays.asList(field("k1", "int"), name);
+        TableTopology topology = new TableTopology("t1");
+
+        // 按字节绑定后转换回列的字符集与排序规则
+        String sql = ExportUtil.getKeysetPageSql(topology, pk, pk, null, true, 10);
+        Assert.assertTrue(sql.endsWith(" where (`k1`,`name`) > (?,CONVERT(? USING utf8mb4) "
+            + "COLLATE utf8mb4_general_ci) order by `k1`,`name` limit 10"));
+    }
+
+    @Test
+    public void testSortByPkSeq() {
+        // 表中列顺序为 b, a，主键为 PRIMARY KEY(a, b)
+        List<FieldMetaInfo> pk = new ArrayList<>(Arrays.asList(field("b", "int"), field("A", "int")));
+        DbUtil.sortByPkSeq(pk, FieldMetaInfo::getName, Arrays.asList("a", "b"));
+        Assert.assertEquals("A", pk.get(0).getName());
+        Assert.assertEquals("b", pk.get(1).getName());
+    }
+
+    @Test
+    public void testCheckpointSaveAndLoad() throws IOException {
+        File dataFile = new File(tempFolder.getRoot(), "t1_0");
+        File checkpointFile = ExportCheckpoint.getCheckpointFile(dataFile.getPath());
+        Assert.assertEquals(tempFolder.getRoot(), checkpointFile.getParentFile());
+        Assert.assertNull(ExportCheckpoint.load(checkpointFile));
+
+        ExportCheckpoint checkpoint = new ExportCheckpoint();
+        checkpoint.setLastKey(Arrays.asList("10", "abc"));
+        checkpoint.setFileSeq(2);
+        checkpoint.setLineNum(300);
+        checkpoint.setFileLength(4096);
+        checkpoint.setRowCount(1300);
+        checkpoint.save(checkpointFile);
+
+        ExportCheckpoint loaded = ExportCheckpoint.load(checkpointFile);
+        Assert.assertNotNull(loaded);
+        Assert.assertEquals(checkpoint.toString(), loaded.toString());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package preprocess;
+
+import model.db.FieldMetaInfo;
+import org.junit.Assert;
+import org.junit.Test;
+import worker.export.order.LoserTreeMerger;
+import worker.export.order.RowCursor;
+import worker.export.order.ShardRowQueue;
+import worker.export.order.SortKeyEncoder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class LoserTreeMergerTest {
+
+    private final SortKeyEncoder sortKeyEncoder = new SortKeyEncoder(Collections.singletonList(intField()));
+
+    @Test
+    public void testMergeAnyShardCount() throws Exception {
+        Random random = new Random(7);
+        for (int k = 0; k <= 9; k++) {
+            List<Integer> expected = new ArrayList<>();
+            RowCursor[] cursors = new RowCursor[k];
+            for (int i = 0; i < k; i++) {
+                List<Integer> values = new ArrayList<>();
+                int size = random.nextInt(50);
+                for (int j = 0; j < size; j++) {
+                    values.add(random.nextInt(100));
+                }
+                Collections.sort(values);
+                expected.addAll(values);
+                cursors[i] = listCursor(values);
+            }
+            Collections.sort(expected);
+            Assert.assertEquals("k = " + k, expected, drain(new LoserTreeMerger(cursors, sortKeyEncoder)));
+        }
+    }
+
+    @Test
+    public void testMergeBoundedQueues() throws Exception {
+        final int shardCount = 5, rowsPerShard = 1000;
+        ShardRowQueue[] queues = new ShardRowQueue[shardCount];
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            queues[i] = new ShardRowQueue("shard" + i, 8);
+            final ShardRowQueue queue = queues[i];
+            final int offset = i;
+            Thread producer = new Thread(() -> {
+                try {
+                    for (int j = 0; j < rowsPerShard; j++) {
+                        queue.put(row(j * shardCount + offset));
+                    }
+                    queue.finish();
+                } catch (InterruptedException e) {
+                    queue.fail(e);
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        List<Integer> result = drain(new LoserTreeMerger(queues, sortKeyEncoder));
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        Assert.assertEquals(shardCount * rowsPerShard, result.size());
+        for (int i = 0; i < result.size(); i++) {
+            Assert.assertEquals(i, (int) result.get(i));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testProducerFailure() throws Exception {
+        ShardRowQueue ok = new ShardRowQueue("ok", 4);
+        ShardRowQueue failed = new ShardRowQueue("failed", 4);
+        ok.put(row(1));
+        ok.finish();
+        failed.fail(new RuntimeException("connection reset"));
+        drain(new LoserTreeMerger(new RowCursor[] {ok, failed}, sortKeyEncoder));
+    }
+
+    @Test(timeout = 10000, expected = IllegalStateException.class)
+    public void testProducerFailureWithFullQueue() throws Exception {
+        ShardRowQueue failed = new ShardRowQueue("failed", 2);
+        failed.put(row(1));
+        failed.put(row(2));
+        failed.fail(new RuntimeException("malformed value"));
+        drain(failed);
+    }
+
+    private static List<Integer> drain(RowCursor cursor) throws Exception {
+        List<Integer> result = new ArrayList<>();
+        byte[][] row;
+        while ((row = cursor.next()) != null) {
+            result.add(Integer.parseInt(new String(row[0])));
+        }
+        return result;
+    }
+
+    private static RowCursor listCursor(List<Integer> values) {
+        final int[] pos = {0};
+        return () -> pos[0] < values.size() ? row(values.get(pos[0]++)) : null;
+    }
+
+    private static byte[][] row(int value) {
+        return new byte[][] {String.valueOf(value).getBytes()};
+    }
+
+    private static FieldMetaInfo intField() {
+        FieldMetaInfo info = new FieldMetaInfo();
+        info.setName("id");
+        info.setIndex(0);
+        info.setType(FieldMetaInfo.Type.INT);
+        return info;
+    }
+}
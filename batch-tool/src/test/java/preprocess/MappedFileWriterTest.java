@@ -0,0 +1,63 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package preprocess;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import worker.common.writer.MappedFileWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class MappedFileWriterTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAcrossWindows() throws IOException {
+        File file = tempFolder.newFile("mmap.txt");
+        StringBuilder expected = new StringBuilder();
+        try (MappedFileWriter writer = new MappedFileWriter(16)) {
+            writer.nextFile(file.getPath());
+            for (int i = 0; i < 20; i++) {
+                String line = "line-" + i + "\n";
+                expected.append(line);
+                writer.write(line.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        // 关闭后截断掉预分配的部分
+        Assert.assertEquals(expected.length(), file.length());
+        Assert.assertEquals(expected.toString(), new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testOpenAppend() throws IOException {
+        File file = tempFolder.newFile("append.txt");
+        Files.write(file.toPath(), "head\n".getBytes(StandardCharsets.UTF_8));
+        try (MappedFileWriter writer = new MappedFileWriter(4)) {
+            writer.openAppend(file.getPath());
+            writer.write("tail\n".getBytes(StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals("head\ntail\n", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+}
@@ -16,16 +16,31 @@
 
 package preprocess;
 
+import com.alibaba.fastjson2.JSONObject;
+import com.google.common.hash.Hashing;
 import model.mask.AbstractDataMasker;
+import model.mask.CachedDataMasker;
+import model.mask.DataMaskerFactory;
+import model.mask.FormatPreservingMasker;
 import model.mask.HashMasker;
 import model.mask.HidingMasker;
+import model.mask.KeyedHash;
+import model.mask.MaskType;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @RunWith(Enclosed.class)
 public class MaskingTest {
@@ -121,6 +136,143 @@ public class MaskingTest {
                 masker.doMask(input1), masker2.doMask(input1)));
         }
 
+        @Test
+        public void testKeyedHashAlgorithms() {
+            byte[] input = "13800001234".getBytes();
+            for (HashMasker.HashAlgorithm algorithm : HashMasker.HashAlgorithm.values()) {
+                HashMasker hashMasker = new HashMasker();
+                hashMasker.setSalt("abc");
+                hashMasker.setAlgorithm(algorithm);
+                byte[] output = hashMasker.doMask(input);
+                Assert.assertEquals(algorithm == HashMasker.HashAlgorithm.MD5 ? 24 : 16, output.length);
+                // 直接写入缓冲区的结果与返回数组一致
+                ByteArrayOutputStream os = new ByteArrayOutputStream();
+                os.write('|');
+                hashMasker.doMask(input, os);
+                Assert.assertEquals("|" + new String(output), os.toString());
+            }
+        }
+
+        @Test
+        public void testConcurrentMasking() {
+            masker.setSalt("abc");
+            List<String> expected = IntStream.range(0, 2000)
+                .mapToObj(i -> new String(masker.doMask(("value-" + i).getBytes())))
+                .collect(Collectors.toList());
+            List<String> actual = IntStream.range(0, 2000).parallel()
+                .mapToObj(i -> new String(masker.doMask(("value-" + i).getBytes())))
+                .collect(Collectors.toList());
+            Assert.assertEquals(expected, actual);
+        }
+    }
+
+    public static class FormatPreservingMaskTest {
+
+        @Test
+        public void testKeepFormat() {
+            FormatPreservingMasker masker = new FormatPreservingMasker();
+            masker.setSalt("abc");
+            String[] input = {"", "138-0000-1234", "Zhang.San@example.com", "中文Ab12"};
+            for (String value : input) {
+                String output = new String(masker.doMask(value.getBytes()));
+                Assert.assertEquals(value.length(), output.length());
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i), m = output.charAt(i);
+                    if (Character.isDigit(c)) {
+                        Assert.assertTrue(m >= '0' && m <= '9');
+                    } else if (c >= 'a' && c <= 'z') {
+                        Assert.assertTrue(m >= 'a' && m <= 'z');
+                    } else if (c >= 'A' && c <= 'Z') {
+                        Assert.assertTrue(m >= 'A' && m <= 'Z');
+                    } else {
+                        Assert.assertEquals(c, m);
+                    }
+                }
+                // 结果确定
+                Assert.assertEquals(output, new String(masker.doMask(value.getBytes())));
+            }
+            FormatPreservingMasker masker2 = new FormatPreservingMasker();
+            masker2.setSalt("def");
+            Assert.assertNotEquals(new String(masker.doMask("13800001234".getBytes())),
+                new String(masker2.doMask("13800001234".getBytes())));
+        }
+
+        @Test
+        public void testNoCollisionForSameLength() {
+            FormatPreservingMasker masker = new FormatPreservingMasker();
+            masker.setSalt("abc");
+            Set<String> outputs = new HashSet<>();
+            for (int i = 0; i < 100000; i++) {
+                outputs.add(new String(masker.doMask(String.format("%06d", i).getBytes())));
+            }
+            Assert.assertEquals(100000, outputs.size());
+        }
+    }
+
+    public static class CachedMaskTest {
+
+        @Test
+        public void testCacheRepeatedValues() {
+            AtomicInteger maskCount = new AtomicInteger(0);
+            HashMasker hashMasker = new HashMasker();
+            AbstractDataMasker countingMasker = new AbstractDataMasker() {
+                @Override
+                public MaskType getType() {
+                    return MaskType.HASH;
+                }
+
+                @Override
+                public byte[] doMask(byte[] input) {
+                    maskCount.incrementAndGet();
+                    return hashMasker.doMask(input);
+                }
+            };
+            CachedDataMasker masker = new CachedDataMasker(countingMasker, 2);
+            byte[] first = masker.doMask("a".getBytes());
+            Assert.assertArrayEquals(first, masker.doMask("a".getBytes()));
+            Assert.assertEquals(1, maskCount.get());
+            masker.doMask("b".getBytes());
+            masker.doMask("c".getBytes());
+            Assert.assertTrue(masker.size() <= 2);
+            Assert.assertArrayEquals(hashMasker.doMask("a".getBytes()), masker.doMask("a".getBytes()));
+        }
+
+        @Test
+        public void testConfigFromJson() {
+            AbstractDataMasker masker = DataMaskerFactory.getDataMasker(JSONObject.parseObject(
+                "{\"type\": \"fpe\", \"salt\": \"abc\", \"cache_size\": 100}"));
+            Assert.assertTrue(masker instanceof CachedDataMasker);
+            Assert.assertEquals(MaskType.FORMAT_PRESERVING, masker.getType());
+            FormatPreservingMasker expected = new FormatPreservingMasker();
+            expected.setSalt("abc");
+            Assert.assertArrayEquals(expected.doMask("13800001234".getBytes()),
+                masker.doMask("13800001234".getBytes()));
+        }
+    }
+
+    public static class KeyedHashTest {
+
+        @Test
+        public void testSipHash() {
+            long k0 = 0x0706050403020100L, k1 = 0x0F0E0D0C0B0A0908L;
+            for (int len = 0; len < 40; len++) {
+                byte[] data = new byte[len];
+                for (int i = 0; i < len; i++) {
+                    data[i] = (byte) i;
+                }
+                Assert.assertEquals(Hashing.sipHash24(k0, k1).hashBytes(data).asLong(),
+                    KeyedHash.sipHash24(k0, k1, data, 0, len));
+            }
+        }
+
+        @Test
+        public void testXxHash64() {
+            Assert.assertEquals(0xEF46DB3751D8E999L, KeyedHash.xxHash64(0, new byte[0], 0, 0));
+            byte[] abc = "abc".getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(0x44BC2CF5AD770999L, KeyedHash.xxHash64(0, abc, 0, abc.length));
+            byte[] longInput = "Nobody inspects the spammish repetition".getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(0xFBCEA83C8A378BF1L, KeyedHash.xxHash64(0, longInput, 0, longInput.length));
+        }
     }
 
     private static void checkMaskingResult(String[] input, String[] output, AbstractDataMasker masker) {
@@ -0,0 +1,200 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package preprocess;
+
+import org.junit.Assert;
+import org.junit.Test;
+import store.FileStorage;
+import store.MultipartUploadOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MultipartUploadTest {
+
+    /**
+     * 在内存中模拟分片上传
+     */
+    private static class InMemoryFileStorage implements FileStorage {
+        final Map<Integer, byte[]> parts = new ConcurrentHashMap<>();
+        final AtomicInteger inflight = new AtomicInteger(0);
+        final AtomicInteger maxInflight = new AtomicInteger(0);
+        byte[] completed = null;
+        boolean aborted = false;
+
+        @Override
+        public void put(String localFile, String targetPath) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void get(String targetFile, String localPath) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public List<String> listFiles(String prefix) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean supportMultipartUpload() {
+            return true;
+        }
+
+        @Override
+        public String initMultipartUpload(String targetPath) {
+            return "upload-" + targetPath;
+        }
+
+        @Override
+        public String uploadPart(String targetPath, String uploadId, int partNumber, byte[] data, int length) {
+            maxInflight.accumulateAndGet(inflight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            parts.put(partNumber, Arrays.copyOf(data, length));
+            inflight.decrementAndGet();
+            return "etag-" + partNumber;
+        }
+
+        @Override
+        public void completeMultipartUpload(String targetPath, String uploadId, List<String> partETags) {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            for (int i = 0; i < partETags.size(); i++) {
+                Assert.assertEquals("etag-" + (i + 1), partETags.get(i));
+                os.write(parts.get(i + 1), 0, parts.get(i + 1).length);
+            }
+            completed = os.toByteArray();
+        }
+
+        @Override
+        public void abortMultipartUpload(String targetPath, String uploadId) {
+            aborted = true;
+        }
+    }
+
+    @Test
+    public void testUploadInParts() throws IOException {
+        InMemoryFileStorage fileStorage = new InMemoryFileStorage();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        int partSize = MultipartUploadOutputStream.MIN_PART_SIZE;
+        byte[] expected = new byte[partSize * 5 + 123];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = (byte) (i % 251);
+        }
+        try (MultipartUploadOutputStream os = new MultipartUploadOutputStream(fileStorage, "t_0",
+            executor, partSize, 2)) {
+            for (int off = 0; off < expected.length; off += 100_000) {
+                os.write(expected, off, Math.min(100_000, expected.length - off));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(6, fileStorage.parts.size());
+        Assert.assertArrayEquals(expected, fileStorage.completed);
+        Assert.assertTrue(fileStorage.maxInflight.get() <= 2);
+        Assert.assertFalse(fileStorage.aborted);
+    }
+
+    @Test
+    public void testAbortOnFailure() {
+        InMemoryFileStorage fileStorage = new InMemoryFileStorage() {
+            @Override
+            public String uploadPart(String targetPath, String uploadId, int partNumber, byte[] data, int length) {
+                throw new RuntimeException("mock failure");
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (MultipartUploadOutputStream os = new MultipartUploadOutputStream(fileStorage, "t_0",
+            executor, MultipartUploadOutputStream.MIN_PART_SIZE, 2)) {
+            os.write(new byte[10]);
+        } catch (IOException e) {
+            Assert.assertTrue(fileStorage.aborted);
+            Assert.assertNull(fileStorage.completed);
+            return;
+        } finally {
+            executor.shutdown();
+        }
+        Assert.fail("Expected upload failure");
+    }
+
+    @Test
+    public void testFailureKeepsThrowing() throws Exception {
+        InMemoryFileStorage fileStorage = new InMemoryFileStorage() {
+            @Override
+            public String uploadPart(String targetPath, String uploadId, int partNumber, byte[] data, int length) {
+                throw new RuntimeException("mock failure");
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        int partSize = MultipartUploadOutputStream.MIN_PART_SIZE;
+        MultipartUploadOutputStream os = new MultipartUploadOutputStream(fileStorage, "t_0",
+            executor, partSize, 2);
+        try {
+            os.write(new byte[partSize]);
+            // 等待第一个分片上传失败
+            Thread.sleep(200);
+            try {
+                os.write(new byte[partSize]);
+                Assert.fail("Expected upload failure");
+            } catch (IOException e) {
+                Assert.assertTrue(fileStorage.aborted);
+            }
+            // 失败后关闭仍需抛出异常，不能当作上传成功
+            for (int i = 0; i < 2; i++) {
+                try {
+                    os.close();
+                    Assert.fail("Expected upload failure on close");
+                } catch (IOException e) {
+                    Assert.assertNull(fileStorage.completed);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPartSizeGrowth() {
+        int partSize = 8 * 1024 * 1024;
+        Assert.assertEquals(partSize, MultipartUploadOutputStream.getPartSize(partSize, 1));
+        Assert.assertEquals(partSize, MultipartUploadOutputStream.getPartSize(partSize, 1000));
+        Assert.assertEquals(partSize * 2, MultipartUploadOutputStream.getPartSize(partSize, 1001));
+        Assert.assertEquals(MultipartUploadOutputStream.MAX_PART_SIZE,
+            MultipartUploadOutputStream.getPartSize(partSize, MultipartUploadOutputStream.MAX_PART_NUM));
+        long total = 0;
+        for (int i = 1; i <= MultipartUploadOutputStream.MAX_PART_NUM; i++) {
+            total += MultipartUploadOutputStream.getPartSize(partSize, i);
+        }
+        // 不少于 800GB
+        Assert.assertTrue(total > 800L * 1024 * 1024 * 1024);
+    }
+}
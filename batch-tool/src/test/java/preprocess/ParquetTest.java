@@ -0,0 +1,111 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package preprocess;
+
+import model.db.FieldMetaInfo;
+import model.db.TableFieldMetaInfo;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.schema.PrimitiveType;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import util.FileUtil;
+import util.ParquetUtil;
+import worker.common.writer.ParquetFileWriter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ParquetTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        TableFieldMetaInfo tableFieldMetaInfo = new TableFieldMetaInfo();
+        List<FieldMetaInfo> fieldMetaInfoList = new ArrayList<>();
+        fieldMetaInfoList.add(newField("id", "bigint", 0));
+        fieldMetaInfoList.add(newField("name", "varchar", 1));
+        fieldMetaInfoList.add(newField("price", "decimal", 2));
+        tableFieldMetaInfo.setFieldMetaInfoList(fieldMetaInfoList);
+
+        File file = new File(tempFolder.getRoot(), "test.parquet");
+        ParquetFileWriter writer = new ParquetFileWriter(tableFieldMetaInfo);
+        writer.nextFile(file.getAbsolutePath());
+        writer.writeLine(new String[] {"1", "a,\"b\"\n", "1.10"});
+        writer.writeLine(new String[] {"2", FileUtil.NULL_ESC_STR, "0.00"});
+        writer.finishLastFile();
+        writer.close();
+
+        try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(),
+            new Path(file.getAbsolutePath())).withConf(ParquetUtil.newLocalConfiguration()).build()) {
+            Group first = reader.read();
+            Assert.assertEquals(1L, first.getLong(0, 0));
+            Assert.assertEquals("a,\"b\"\n", first.getString(1, 0));
+            Assert.assertEquals("1.10", first.getString(2, 0));
+            Group second = reader.read();
+            Assert.assertEquals(2L, second.getLong(0, 0));
+            Assert.assertEquals(0, second.getFieldRepetitionCount(1));
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testUnsignedBigInt() throws Exception {
+        TableFieldMetaInfo tableFieldMetaInfo = new TableFieldMetaInfo();
+        List<FieldMetaInfo> fieldMetaInfoList = new ArrayList<>();
+        FieldMetaInfo id = newField("id", "bigint", 0);
+        id.setColumnType("bigint(20) unsigned");
+        fieldMetaInfoList.add(id);
+        tableFieldMetaInfo.setFieldMetaInfoList(fieldMetaInfoList);
+
+        File file = new File(tempFolder.getRoot(), "unsigned.parquet");
+        ParquetFileWriter writer = new ParquetFileWriter(tableFieldMetaInfo);
+        writer.nextFile(file.getAbsolutePath());
+        String[] expected = {"18446744073709551615", "9223372036854775808", "0", "1"};
+        for (String value : expected) {
+            writer.writeLine(new String[] {value});
+        }
+        writer.finishLastFile();
+        writer.close();
+
+        try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(),
+            new Path(file.getAbsolutePath())).withConf(ParquetUtil.newLocalConfiguration()).build()) {
+            for (String value : expected) {
+                Group group = reader.read();
+                PrimitiveType type = group.getType().getType(0).asPrimitiveType();
+                Assert.assertTrue(ParquetUtil.isDecimal(type));
+                Assert.assertEquals(value, ParquetUtil.decimalToString(type, group.getBinary(0, 0)));
+            }
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    private static FieldMetaInfo newField(String name, String type, int index) {
+        FieldMetaInfo fieldMetaInfo = new FieldMetaInfo();
+        fieldMetaInfo.setName(name);
+        fieldMetaInfo.setType(type);
+        fieldMetaInfo.setIndex(index);
+        return fieldMetaInfo;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package preprocess;
+
+import model.db.FieldMetaInfo;
+import model.db.TableTopology;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import util.DbUtil;
+import worker.delete.AdaptiveChunkSize;
+import worker.delete.RangeDeleteCheckpoint;
+import worker.util.DeleteUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class RangeDeleteTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static FieldMetaInfo field(String name, String type) {
+        FieldMetaInfo fieldMetaInfo = new FieldMetaInfo();
+        fieldMetaInfo.setName(name);
+        fieldMetaInfo.setType(type);
+        return fieldMetaInfo;
+    }
+
+    @Test
+    public void testRangeSql() {
+        List<FieldMetaInfo> pk = Collections.singletonList(field("id", "bigint"));
+        TableTopology topology = new TableTopology("t1");
+
+        Assert.assertEquals("SELECT `id` FROM `t1` WHERE a > 1 ORDER BY `id` LIMIT 99,1",
+            DeleteUtil.getRangeUpperKeySql(topology, pk, "a > 1", false, 100));
+        Assert.assertEquals("SELECT `id` FROM `t1` WHERE (a > 1) AND (`id` > ?) ORDER BY `id` LIMIT 99,1",
+            DeleteUtil.getRangeUpperKeySql(topology, pk, "a > 1", true, 100));
+        Assert.assertEquals("DELETE FROM `t1` WHERE `id` > ? AND `id` <= ?",
+            DeleteUtil.getRangeDeleteSql(topology, pk, null, true, true));
+        Assert.assertEquals("DELETE FROM `t1` WHERE a > 1",
+            DeleteUtil.getRangeDeleteSql(topology, pk, "a > 1", false, false));
+    }
+
+    @Test
+    public void testShardRangeSql() {
+        List<FieldMetaInfo> pk = Arrays.asList(field("k1", "int"), field("k2", "varchar"));
+        TableTopology topology = new TableTopology("DB_000000_GROUP", "t1_abcd_00");
+
+        String sql = DeleteUtil.getRangeDeleteSql(topology, pk, "a > 1", true, false);
+        Assert.assertEquals("/*+TDDL:node='DB_000000_GROUP'*/ DELETE FROM `t1_abcd_00` "
+            + "WHERE (a > 1) AND ((`k1`,`k2`) > (?,?))", sql);
+    }
+
+    @Test
+    public void testPkIndexOrderRangeSql() {
+        // 表中列顺序为 k1, k2，主键为 PRIMARY KEY(k2, k1)
+        FieldMetaInfo k2 = field("k2", "varchar");
+        k2.setCollation("utf8mb4_bin");
+        List<FieldMetaInfo> pk = new ArrayList<>(Arrays.asList(field("k1", "int"), k2));
+        DbUtil.sortByPkSeq(pk, FieldMetaInfo::getName, Arrays.asList("k2", "k1"));
+        TableTopology topology = new TableTopology("t1");
+
+        Assert.assertEquals("SELECT `k2`,`k1` FROM `t1` WHERE (`k2`,`k1`) > (CONVERT(? USING utf8mb4) "
+                + "COLLATE utf8mb4_bin,?) ORDER BY `k2`,`k1` LIMIT 9,1",
+            DeleteUtil.getRangeUpperKeySql(topology, pk, null, true, 10));
+    }
+
+    @Test
+    public void testAdaptiveChunkSize() {
+        AdaptiveChunkSize chunkSize = new AdaptiveChunkSize(1000, 500);
+        chunkSize.onChunkFinished(800);
+        Assert.assertEquals(500, chunkSize.get());
+        chunkSize.onChunkFinished(100);
+        Assert.assertEquals(625, chunkSize.get());
+        chunkSize.onChunkFinished(300);
+        Assert.assertEquals(625, chunkSize.get());
+        for (int i = 0; i < 20; i++) {
+            chunkSize.onLockWait();
+        }
+        Assert.assertEquals(15, chunkSize.get());
+        for (int i = 0; i < 100; i++) {
+            chunkSize.onChunkFinished(0);
+        }
+        Assert.assertEquals(8000, chunkSize.get());
+        Assert.assertEquals(300, chunkSize.getPauseMs(800));
+        Assert.assertEquals(0, chunkSize.getPauseMs(200));
+    }
+
+    @Test
+    public void testCheckpoint() throws IOException {
+        File file = new File(tempFolder.getRoot(), ".checkpoint");
+        Assert.assertNull(RangeDeleteCheckpoint.load(file));
+
+        RangeDeleteCheckpoint checkpoint = new RangeDeleteCheckpoint();
+        checkpoint.setLastKey(Arrays.asList("1", "a"));
+        checkpoint.setRowCount(100);
+        checkpoint.save(file);
+
+        RangeDeleteCheckpoint loaded = RangeDeleteCheckpoint.load(file);
+        Assert.assertEquals(Arrays.asList("1", "a"), loaded.getLastKey());
+        Assert.assertEquals(100, loaded.getRowCount());
+        Assert.assertFalse(loaded.isFinished());
+
+        Assert.assertEquals(".db1.G1.t1_00.delete.checkpoint", RangeDeleteCheckpoint.getCheckpointFile("db1",
+            new TableTopology("G1", "t1_00")).getName());
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package preprocess;
+
+import org.junit.Assert;
+import org.junit.Test;
+import worker.util.ExportUtil;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+public class RangeSplitTest {
+
+    @Test
+    public void testEvenSplit() {
+        List<String> conditions = ExportUtil.getPkRangeConditions("id",
+            BigInteger.ONE, BigInteger.TEN, 3);
+        Assert.assertEquals(Arrays.asList("`id` < 5", "`id` >= 5 AND `id` < 9", "`id` >= 9"), conditions);
+    }
+
+    @Test
+    public void testSplitLessThanRequired() {
+        List<String> conditions = ExportUtil.getPkRangeConditions("id",
+            BigInteger.ONE, BigInteger.valueOf(4), 3);
+        Assert.assertEquals(Arrays.asList("`id` < 3", "`id` >= 3"), conditions);
+    }
+
+    @Test
+    public void testNoSplit() {
+        List<String> conditions = ExportUtil.getPkRangeConditions("id",
+            BigInteger.ONE, BigInteger.ONE, 4);
+        Assert.assertEquals(1, conditions.size());
+        Assert.assertNull(conditions.get(0));
+    }
+
+    @Test
+    public void testCombineWhere() {
+        Assert.assertEquals("(a > 1) AND (`id` < 5)",
+            ExportUtil.combineWhereCondition("a > 1", "`id` < 5"));
+        Assert.assertEquals("`id` < 5", ExportUtil.combineWhereCondition("", "`id` < 5"));
+        Assert.assertEquals("a > 1", ExportUtil.combineWhereCondition("a > 1", null));
+    }
+}
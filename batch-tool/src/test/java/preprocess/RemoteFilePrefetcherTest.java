@@ -0,0 +1,129 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package preprocess;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import store.FileStorage;
+import worker.common.RemoteFilePrefetcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class RemoteFilePrefetcherTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static class MockFileStorage implements FileStorage {
+        final Set<String> downloaded = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void put(String localFile, String targetPath) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void get(String targetFile, String localPath) {
+            try {
+                FileUtils.writeStringToFile(new File(localPath), targetFile, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            downloaded.add(targetFile);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public List<String> listFiles(String prefix) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Test
+    public void testPrefetchWindow() throws IOException {
+        List<File> fileList = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            fileList.add(new File(tempFolder.getRoot(), "t_" + i));
+        }
+        MockFileStorage fileStorage = new MockFileStorage();
+        RemoteFilePrefetcher prefetcher = new RemoteFilePrefetcher(fileStorage, fileList, 2, new int[] {0, 0});
+        try {
+            File file = prefetcher.awaitFile(0);
+            Assert.assertEquals("t_0", FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+            prefetcher.awaitFile(1);
+            Assert.assertFalse(fileStorage.downloaded.contains("t_3"));
+
+            // 只有一个读取线程越过了文件 0
+            prefetcher.moveTo(0, 1);
+            Assert.assertTrue(fileList.get(0).exists());
+
+            prefetcher.moveTo(1, 2);
+            prefetcher.awaitFile(2);
+            Assert.assertFalse(fileList.get(0).exists());
+            Assert.assertTrue(fileList.get(1).exists());
+
+            prefetcher.finish(0);
+            prefetcher.finish(1);
+            Assert.assertFalse(fileList.get(1).exists());
+            Assert.assertFalse(fileStorage.downloaded.contains("t_5"));
+        } finally {
+            prefetcher.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testPrefetchWindowWithLineReaders() throws Exception {
+        List<File> fileList = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            fileList.add(new File(tempFolder.getRoot(), "t_" + i));
+        }
+        MockFileStorage fileStorage = new MockFileStorage();
+        RemoteFilePrefetcher prefetcher = new RemoteFilePrefetcher(fileStorage, fileList, 2,
+            new int[] {0, 1, 2, 3}, true);
+        try {
+            prefetcher.awaitFile(0);
+            prefetcher.awaitFile(1);
+            // 窗口已满，读取文件 2 需等待其它文件被删除
+            CompletableFuture<File> file2 = CompletableFuture.supplyAsync(() -> prefetcher.awaitFile(2));
+            Thread.sleep(200);
+            Assert.assertFalse(file2.isDone());
+            Assert.assertFalse(fileStorage.downloaded.contains("t_2"));
+
+            // 每个读取线程结束后即可删除自己的文件，不必等待序号更小的文件
+            prefetcher.finish(1);
+            Assert.assertEquals("t_2", FileUtils.readFileToString(file2.get(), StandardCharsets.UTF_8));
+            Assert.assertTrue(fileList.get(0).exists());
+            Assert.assertFalse(fileList.get(1).exists());
+            Assert.assertFalse(fileStorage.downloaded.contains("t_3"));
+        } finally {
+            prefetcher.close();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package preprocess;
+
+import model.db.FieldMetaInfo;
+import model.db.PartitionRule;
+import org.junit.Assert;
+import org.junit.Test;
+import worker.util.ShardRouter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ShardRouterTest {
+
+    private static FieldMetaInfo field(String name, String type, int index) {
+        FieldMetaInfo fieldMetaInfo = new FieldMetaInfo();
+        fieldMetaInfo.setName(name);
+        fieldMetaInfo.setType(type);
+        fieldMetaInfo.setIndex(index);
+        return fieldMetaInfo;
+    }
+
+    private static PartitionRule rule(FieldMetaInfo dbKey, int dbCount, FieldMetaInfo tbKey, int tbCount) {
+        PartitionRule rule = new PartitionRule();
+        rule.setDbPartitionKey(dbKey);
+        rule.setDbPartitionPolicy("hash");
+        rule.setDbPartitionCount(dbCount);
+        if (tbKey != null) {
+            rule.setTbPartitionKey(tbKey);
+            rule.setTbPartitionPolicy("hash");
+            rule.setTbPartitionCount(tbCount);
+        }
+        return rule;
+    }
+
+    @Test
+    public void testSameKey() {
+        // 4 个分库，每库 3 张分表，按 id % 12 确定分表
+        FieldMetaInfo id = field("id", "bigint", 0);
+        ShardRouter router = ShardRouter.create(rule(id, 4, field("ID", "bigint", 0), 3), 12);
+        Assert.assertNotNull(router);
+        Assert.assertEquals(5, router.route(Arrays.asList("17", "a")));
+        Assert.assertEquals(5, router.route(Arrays.asList("-17", "a")));
+        Assert.assertEquals(3, router.route(Arrays.asList("18446744073709551615", "a")));
+    }
+
+    @Test
+    public void testDifferentKey() {
+        FieldMetaInfo id = field("id", "int", 0);
+        FieldMetaInfo name = field("name", "varchar", 1);
+        ShardRouter router = ShardRouter.create(rule(id, 4, name, 2), 8);
+        Assert.assertNotNull(router);
+        int tbIndex = Math.abs("abc".hashCode() % 2);
+        Assert.assertEquals(3 * 2 + tbIndex, router.route(Arrays.asList("7", "abc")));
+
+        router = ShardRouter.create(rule(name, 8, null, 0), 8);
+        Assert.assertEquals(Math.abs("abc".hashCode() % 8), router.route(Arrays.asList("7", "abc")));
+    }
+
+    /**
+     * 按物理分表下标给出每张分表中实际存储的拆分键取值
+     */
+    private static List<List<String[]>> placement(String[][]... rowsPerShard) {
+        List<List<String[]>> samplesPerShard = new ArrayList<>();
+        for (String[][] rows : rowsPerShard) {
+            samplesPerShard.add(Arrays.asList(rows));
+        }
+        return samplesPerShard;
+    }
+
+    @Test
+    public void testVerifyKnownPlacement() {
+        // dbpartition by hash(id) tbpartition by hash(id) tbpartitions 2，共 2 个分库
+        // id 按 id % 4 存放在 t_00 ~ t_03 中
+        FieldMetaInfo id = field("id", "bigint", 0);
+        ShardRouter router = ShardRouter.create(rule(id, 2, field("id", "bigint", 0), 2), 4);
+        Assert.assertNotNull(router);
+        Assert.assertEquals(1, router.getKeyFields().size());
+        List<List<String[]>> samples = placement(
+            new String[][] {{"0"}, {"4"}, {"-8"}},
+            new String[][] {{"1"}, {"101"}},
+            new String[][] {{"2"}, {"-6"}},
+            new String[][] {{"3"}, {"18446744073709551615"}});
+        Assert.assertTrue(router.verify(samples));
+
+        // 与实际分布不一致时不能使用
+        samples.get(1).set(1, new String[] {"102"});
+        Assert.assertFalse(router.verify(samples));
+    }
+
+    @Test
+    public void testVerifyDifferentKeyPlacement() {
+        // dbpartition by hash(id) tbpartition by hash(name) tbpartitions 2，共 2 个分库
+        FieldMetaInfo id = field("id", "int", 0);
+        FieldMetaInfo name = field("name", "varchar", 1);
+        ShardRouter router = ShardRouter.create(rule(id, 2, name, 2), 4);
+        Assert.assertNotNull(router);
+        Assert.assertEquals(Arrays.asList(id, name), router.getKeyFields());
+        // "a".hashCode() = 97，"b".hashCode() = 98
+        List<List<String[]>> samples = placement(
+            new String[][] {{"2", "b"}},
+            new String[][] {{"4", "a"}},
+            new String[][] {{"1", "b"}, {"3", "b"}},
+            new String[][] {{"5", "a"}});
+        Assert.assertTrue(router.verify(samples));
+        samples.set(0, Collections.singletonList(new String[] {"2", "a"}));
+        Assert.assertFalse(router.verify(samples));
+    }
+
+    @Test
+    public void testVerifyWithoutSamples() {
+        FieldMetaInfo id = field("id", "bigint", 0);
+        ShardRouter router = ShardRouter.create(rule(id, 2, null, 0), 2);
+        Assert.assertNotNull(router);
+        List<List<String[]>> samples = new ArrayList<>();
+        samples.add(Collections.emptyList());
+        samples.add(Collections.emptyList());
+        Assert.assertFalse(router.verify(samples));
+    }
+
+    @Test
+    public void testInvalidKey() {
+        FieldMetaInfo id = field("id", "bigint", 0);
+        ShardRouter router = ShardRouter.create(rule(id, 4, null, 0), 4);
+        Assert.assertNotNull(router);
+        for (String value : new String[] {"\\N", "abc", ""}) {
+            try {
+                router.route(Arrays.asList(value, "a"));
+                Assert.fail("Routed invalid key: " + value);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        ShardRouter stringRouter = ShardRouter.create(rule(field("name", "varchar", 1), 4, null, 0), 4);
+        try {
+            stringRouter.route(Arrays.asList("1", "\\N"));
+            Assert.fail("Routed null key");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUnsupported() {
+        FieldMetaInfo id = field("id", "int", 0);
+        Assert.assertNull(ShardRouter.create(rule(id, 4, null, 0), 8));
+        Assert.assertNull(ShardRouter.create(rule(field("d", "datetime", 1), 4, null, 0), 4));
+        PartitionRule rule = rule(id, 4, null, 0);
+        rule.setDbPartitionPolicy("uni_hash");
+        Assert.assertNull(ShardRouter.create(rule, 4));
+        Assert.assertNull(ShardRouter.create(new PartitionRule(), 1));
+    }
+}
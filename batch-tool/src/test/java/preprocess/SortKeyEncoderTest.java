@@ -0,0 +1,104 @@
+/*
+ * Copyright [2013-2021], Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package preprocess;
+
+import model.db.FieldMetaInfo;
+import org.junit.Assert;
+import org.junit.Test;
+import util.FileUtil;
+import worker.export.order.SortKeyEncoder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class SortKeyEncoderTest {
+
+    @Test
+    public void testNumberOrder() {
+        assertOrdered(field(FieldMetaInfo.Type.FLOAT, null), FileUtil.NULL_ESC_STR,
+            "-1000", "-999.5", "-10", "-1.25", "-1.2", "-0.001", "0", "0.00", "0.001", "1.2", "1.25", "9",
+            "10", "10.0", "1E+2", "18446744073709551615");
+    }
+
+    @Test
+    public void testStringOrder() {
+        assertOrdered(field(FieldMetaInfo.Type.STRING, "utf8mb4_bin"), FileUtil.NULL_ESC_STR,
+            "", "A", "B", "a", "a\u0000", "a\u0000b", "ab", "b");
+        assertOrdered(field(FieldMetaInfo.Type.STRING, "utf8mb4_general_ci"),
+            "a", "A", "b", "B", "c");
+    }
+
+    @Test
+    public void testTimeOrder() {
+        assertOrdered(field(FieldMetaInfo.Type.DATE, null),
+            "-838:59:59", "-01:00:00", "00:00:00", "09:59:59.5", "10:00:00", "100:00:00");
+        assertOrdered(field(FieldMetaInfo.Type.DATE, null),
+            "2023-12-31 23:59:59", "2024-01-01 00:00:00", "2024-01-01 00:00:01");
+    }
+
+    @Test
+    public void testMultiColumns() {
+        FieldMetaInfo first = field(FieldMetaInfo.Type.STRING, null);
+        FieldMetaInfo second = field(FieldMetaInfo.Type.INT, null);
+        second.setIndex(1);
+        SortKeyEncoder encoder = new SortKeyEncoder(Arrays.asList(first, second));
+        byte[] k1 = encoder.encode(row("a", "10"));
+        byte[] k2 = encoder.encode(row("a", "9"));
+        byte[] k3 = encoder.encode(row("ab", "1"));
+        Assert.assertTrue(Arrays.compareUnsigned(k2, k1) < 0);
+        Assert.assertTrue(Arrays.compareUnsigned(k1, k3) < 0);
+    }
+
+    /**
+     * 按给定顺序编码后的排序键应不减，数值相等时排序键相等
+     */
+    private static void assertOrdered(FieldMetaInfo fieldMetaInfo, String... values) {
+        SortKeyEncoder encoder = new SortKeyEncoder(Collections.singletonList(fieldMetaInfo));
+        List<byte[]> keys = new ArrayList<>();
+        for (String value : values) {
+            keys.add(encoder.encode(row(value)));
+        }
+        for (int i = 1; i < keys.size(); i++) {
+            int res = Arrays.compareUnsigned(keys.get(i - 1), keys.get(i));
+            Assert.assertTrue(values[i - 1] + " vs " + values[i], res <= 0);
+            if (fieldMetaInfo.getType() == FieldMetaInfo.Type.FLOAT && res == 0) {
+                Assert.assertEquals(0, new BigDecimal(values[i - 1]).compareTo(new BigDecimal(values[i])));
+            }
+        }
+    }
+
+    private static byte[][] row(String... values) {
+        byte[][] row = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            row[i] = values[i].getBytes();
+        }
+        return row;
+    }
+
+    private static FieldMetaInfo field(FieldMetaInfo.Type type, String collation) {
+        FieldMetaInfo info = new FieldMetaInfo();
+        info.setName("c");
+        info.setIndex(0);
+        info.setType(type);
+        info.setCollation(collation);
+        return info;
+    }
+}